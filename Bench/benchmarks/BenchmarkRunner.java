@@ -0,0 +1,56 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ejecuta la batería de benchmarks en dos pasadas y guarda los resultados en JSON:
+ * <ul>
+ *     <li>{@code throughput.json}: operaciones por segundo y tasa de asignación de memoria (GCProfiler).</li>
+ *     <li>{@code latency.json}: percentiles de latencia en microsegundos (p50, p90, p99, p99.9...).</li>
+ * </ul>
+ * Uso: {@code BenchmarkRunner [directorioResultados] [expresiónRegular]}.
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        Path output = Paths.get(args.length > 0 ? args[0] : "bench-results");
+        String include = args.length > 1 ? args[1] : ".*Benchmark.*";
+        Files.createDirectories(output);
+
+        new Runner(base(include)
+                .mode(Mode.Throughput)
+                .timeUnit(TimeUnit.SECONDS)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(output.resolve("throughput.json").toString())
+                .build()).run();
+
+        new Runner(base(include)
+                .mode(Mode.SampleTime)
+                .timeUnit(TimeUnit.MICROSECONDS)
+                .resultFormat(ResultFormatType.JSON)
+                .result(output.resolve("latency.json").toString())
+                .build()).run();
+    }
+
+    private static ChainedOptionsBuilder base(String include) {
+        return new OptionsBuilder()
+                .include(include)
+                .exclude(BenchmarkRunner.class.getName());
+    }
+}
@@ -0,0 +1,117 @@
+package data;
+
+import data.interfaces.GeographicPointInterface;
+import data.interfaces.StationIDInterface;
+import data.interfaces.VehicleIDInterface;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste de construir, obtener el hash y comparar los tipos de valor del paquete {@code data}.
+ * Los datos de entrada se leen de campos no finales para que el compilador no los pliegue.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValueTypesBenchmark {
+    private float latitude = 41.616F;
+    private float longitude = 0.622F;
+    private int id = 42;
+
+    private GeographicPointInterface point;
+    private GeographicPointInterface samePoint;
+    private GeographicPointInterface otherPoint;
+    private StationIDInterface station;
+    private StationIDInterface sameStation;
+    private StationIDInterface otherStation;
+    private VehicleIDInterface vehicle;
+    private VehicleIDInterface sameVehicle;
+    private VehicleIDInterface otherVehicle;
+
+    @Setup(Level.Trial)
+    public void createValues() {
+        point = new GeographicPoint(latitude, longitude);
+        samePoint = new GeographicPoint(latitude, longitude);
+        otherPoint = new GeographicPoint(latitude + 1, longitude);
+        station = new StationID(id, point);
+        sameStation = new StationID(id, samePoint);
+        otherStation = new StationID(id + 1, otherPoint);
+        vehicle = new VehicleID(id, station);
+        sameVehicle = new VehicleID(id, sameStation);
+        otherVehicle = new VehicleID(id + 1, otherStation);
+    }
+
+    @Benchmark
+    public GeographicPointInterface geographicPointCreate() {
+        return new GeographicPoint(latitude, longitude);
+    }
+
+    @Benchmark
+    public int geographicPointHash() {
+        return point.hashCode();
+    }
+
+    @Benchmark
+    public boolean geographicPointEqual() {
+        return point.equals(samePoint);
+    }
+
+    @Benchmark
+    public boolean geographicPointNotEqual() {
+        return point.equals(otherPoint);
+    }
+
+    @Benchmark
+    public StationIDInterface stationIdCreate() {
+        return new StationID(id, point);
+    }
+
+    @Benchmark
+    public int stationIdHash() {
+        return station.hashCode();
+    }
+
+    @Benchmark
+    public boolean stationIdEqual() {
+        return station.equals(sameStation);
+    }
+
+    @Benchmark
+    public boolean stationIdNotEqual() {
+        return station.equals(otherStation);
+    }
+
+    @Benchmark
+    public VehicleIDInterface vehicleIdCreate() {
+        return new VehicleID(id, station);
+    }
+
+    @Benchmark
+    public int vehicleIdHash() {
+        return vehicle.hashCode();
+    }
+
+    @Benchmark
+    public boolean vehicleIdEqual() {
+        return vehicle.equals(sameVehicle);
+    }
+
+    @Benchmark
+    public boolean vehicleIdNotEqual() {
+        return vehicle.equals(otherVehicle);
+    }
+}
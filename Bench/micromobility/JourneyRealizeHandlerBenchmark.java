@@ -0,0 +1,72 @@
+package micromobility;
+
+import data.GeographicPoint;
+import data.StationID;
+import data.UserAccount;
+import data.VehicleID;
+import data.interfaces.GeographicPointInterface;
+import data.interfaces.StationIDInterface;
+import data.interfaces.UserAccountInterface;
+import data.interfaces.VehicleIDInterface;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import services.Server;
+import services.smartfeatures.QRDecoder;
+
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendimiento del ciclo completo de un viaje: escanear el QR, arrancar y detener el vehículo.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1)
+public class JourneyRealizeHandlerBenchmark {
+    private JourneyRealizeHandler handler;
+
+    @Setup(Level.Trial)
+    public void createHandler() {
+        GeographicPointInterface location = new GeographicPoint(41.616F, 0.622F);
+        UserAccountInterface user = new UserAccount("bench", "Bench", "bench@example.com", "password", 100);
+        StationIDInterface station = new StationID(1, location);
+        VehicleIDInterface vehicleID = new VehicleID(1, station);
+        PMVehicle vehicle = new PMVehicle(1, location, PMVState.Available);
+
+        Map<VehicleIDInterface, Boolean> availability = new HashMap<>();
+        Map<VehicleIDInterface, GeographicPointInterface> locations = new HashMap<>();
+        Map<VehicleIDInterface, StationIDInterface> stations = new HashMap<>();
+        availability.put(vehicleID, true);
+        locations.put(vehicleID, location);
+        stations.put(vehicleID, station);
+        Server server = new Server(availability, locations, stations, new HashMap<>());
+
+        handler = new JourneyRealizeHandler(location, user, new QRDecoder(vehicleID), server, station, vehicle,
+                new JourneyService(vehicle));
+        handler.setQrImage(new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB));
+    }
+
+    @Benchmark
+    public JourneyRealizeHandler scanStartStop() throws Exception {
+        handler.scanQR();
+        handler.startDriving();
+        handler.stopDriving();
+        return handler;
+    }
+}
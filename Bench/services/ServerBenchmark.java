@@ -0,0 +1,159 @@
+package services;
+
+import data.GeographicPoint;
+import data.StationID;
+import data.UserAccount;
+import data.VehicleID;
+import data.interfaces.GeographicPointInterface;
+import data.interfaces.StationIDInterface;
+import data.interfaces.UserAccountInterface;
+import data.interfaces.VehicleIDInterface;
+import micromobility.JourneyService;
+import micromobility.JourneyServiceInterface;
+import micromobility.PMVState;
+import micromobility.PMVehicle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendimiento de las operaciones del {@link Server} con flotas de distintos tamaños.
+ * Cada hilo de medida usa su propio usuario y elige los vehículos de forma pseudoaleatoria, para que
+ * los accesos no sigan el orden de inserción de los mapas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class ServerBenchmark {
+    private static final int STATIONS = 256;
+
+    @Param({"1000", "100000", "1000000"})
+    public int fleetSize;
+
+    private Server server;
+    private VehicleIDInterface[] vehicles;
+
+    @Setup(Level.Trial)
+    public void createFleet() {
+        StationIDInterface[] stations = new StationIDInterface[STATIONS];
+        for (int i = 0; i < STATIONS; i++) {
+            stations[i] = new StationID(i + 1, new GeographicPoint(41.0F + i * 0.01F, 2.0F + i * 0.01F));
+        }
+        Map<VehicleIDInterface, Boolean> availability = new HashMap<>(fleetSize * 2);
+        Map<VehicleIDInterface, GeographicPointInterface> locations = new HashMap<>(fleetSize * 2);
+        Map<VehicleIDInterface, StationIDInterface> vehicleStations = new HashMap<>(fleetSize * 2);
+        vehicles = new VehicleIDInterface[fleetSize];
+        for (int i = 0; i < fleetSize; i++) {
+            StationIDInterface station = stations[i % STATIONS];
+            VehicleIDInterface vehicle = new VehicleID(i + 1, station);
+            vehicles[i] = vehicle;
+            availability.put(vehicle, true);
+            locations.put(vehicle, station.getgeoPoint());
+            vehicleStations.put(vehicle, station);
+        }
+        server = new Server(availability, locations, vehicleStations, new HashMap<>());
+    }
+
+    /**
+     * Estado propio de cada hilo: su usuario, su servicio de viaje y un generador xorshift.
+     */
+    @State(Scope.Thread)
+    public static class Client {
+        UserAccountInterface user;
+        JourneyService journey;
+        LocalDateTime date;
+        private int seed;
+
+        @Setup(Level.Trial)
+        public void createClient(ThreadParams params) {
+            int index = params.getThreadIndex();
+            user = new UserAccount("bench" + index, "Bench " + index, "bench" + index + "@example.com", "password", 100);
+            journey = new JourneyService(new PMVehicle(index + 1, new GeographicPoint(41.0F, 2.0F), PMVState.Available));
+            date = LocalDateTime.now();
+            seed = 0x9E3779B9 ^ (index + 1);
+        }
+
+        VehicleIDInterface nextVehicle(ServerBenchmark bench) {
+            seed ^= seed << 13;
+            seed ^= seed >>> 17;
+            seed ^= seed << 5;
+            return bench.vehicles[(seed & Integer.MAX_VALUE) % bench.vehicles.length];
+        }
+    }
+
+    /**
+     * Vehículo emparejado por el hilo antes de cada invocación, para medir solo la finalización.
+     * Los benchmarks que lo usan acceden al cliente a través de este estado y no como parámetro
+     * propio, para que JMH no cree dos instancias distintas del cliente en el mismo hilo.
+     */
+    @State(Scope.Thread)
+    public static class Paired {
+        Client client;
+        VehicleIDInterface vehicle;
+
+        @Setup(Level.Invocation)
+        public void pair(ServerBenchmark bench, Client client) {
+            this.client = client;
+            vehicle = client.nextVehicle(bench);
+            StationIDInterface station = vehicle.getStation();
+            bench.server.setPairing(client.user, vehicle, station, station.getgeoPoint(), client.date, client.journey);
+        }
+    }
+
+    @Benchmark
+    public VehicleIDInterface checkPMVAvail(Client client) throws Exception {
+        VehicleIDInterface vehicle = client.nextVehicle(this);
+        server.checkPMVAvail(vehicle);
+        return vehicle;
+    }
+
+    @Benchmark
+    public VehicleIDInterface registerPairing(Client client) throws Exception {
+        VehicleIDInterface vehicle = client.nextVehicle(this);
+        StationIDInterface station = vehicle.getStation();
+        server.registerPairing(client.user, vehicle, station, station.getgeoPoint(), client.date, client.journey);
+        return vehicle;
+    }
+
+    @Benchmark
+    public VehicleIDInterface stopPairing(Paired paired) throws Exception {
+        Client client = paired.client;
+        StationIDInterface station = paired.vehicle.getStation();
+        server.stopPairing(client.user, paired.vehicle, station, station.getgeoPoint(), client.date,
+                250, 5_000_000, 20, 350, client.journey);
+        return paired.vehicle;
+    }
+
+    @Benchmark
+    public VehicleIDInterface registerLocation(Client client) throws Exception {
+        VehicleIDInterface vehicle = client.nextVehicle(this);
+        server.registerLocation(vehicle, vehicle.getStation());
+        return vehicle;
+    }
+
+    @Benchmark
+    public JourneyServiceInterface unPairRegisterService(Paired paired) throws Exception {
+        server.unPairRegisterService(paired.client.journey);
+        return paired.client.journey;
+    }
+}
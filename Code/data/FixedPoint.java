@@ -0,0 +1,78 @@
+package data;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Conversión entre {@link BigDecimal} y la representación en coma fija usada internamente.
+ *
+ * Los importes se guardan como céntimos en un {@code long} y las distancias en kilómetros como
+ * milímetros en un {@code long} (las velocidades, como milímetros por minuto). Estas conversiones solo se
+ * usan en los extremos de la API; todos los cálculos intermedios trabajan con primitivos.
+ */
+public final class FixedPoint {
+    /** Decimales de un importe expresado en céntimos. */
+    public static final int CENTS_SCALE = 2;
+    /** Decimales de un kilómetro expresado en milímetros. */
+    public static final int MILLIMETRE_SCALE = 6;
+
+    private FixedPoint() {
+    }
+
+    /**
+     * Convierte un importe en euros a céntimos.
+     *
+     * @param amount Importe en euros.
+     * @return Importe en céntimos.
+     */
+    public static long toCents(BigDecimal amount) {
+        return toFixed(amount, CENTS_SCALE);
+    }
+
+    /**
+     * Convierte un importe en céntimos a euros.
+     *
+     * @param cents Importe en céntimos.
+     * @return Importe en euros con dos decimales.
+     */
+    public static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, CENTS_SCALE);
+    }
+
+    /**
+     * Convierte una distancia en kilómetros (o una velocidad en kilómetros por minuto) a milímetros.
+     *
+     * @param km Valor en kilómetros.
+     * @return Valor en milímetros.
+     */
+    public static long kmToMillimetres(BigDecimal km) {
+        return toFixed(km, MILLIMETRE_SCALE);
+    }
+
+    /**
+     * Convierte una distancia en milímetros (o una velocidad en milímetros por minuto) a kilómetros.
+     *
+     * @param millimetres Valor en milímetros.
+     * @return Valor en kilómetros con seis decimales.
+     */
+    public static BigDecimal millimetresToKm(long millimetres) {
+        return BigDecimal.valueOf(millimetres, MILLIMETRE_SCALE);
+    }
+
+    /**
+     * Convierte un valor decimal a coma fija con la escala indicada. La conversión es exacta cuando el
+     * valor es representable con esa escala; en otro caso se redondea al valor más próximo (HALF_EVEN).
+     *
+     * @param value Valor decimal.
+     * @param scale Número de decimales de la representación en coma fija.
+     * @return Valor en coma fija.
+     * @throws IllegalArgumentException Si el valor es nulo.
+     * @throws ArithmeticException      Si el valor no cabe en un {@code long}.
+     */
+    public static long toFixed(BigDecimal value, int scale) {
+        if (value == null) {
+            throw new IllegalArgumentException("Value cannot be null");
+        }
+        return value.setScale(scale, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+    }
+}
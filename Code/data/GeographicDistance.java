@@ -0,0 +1,46 @@
+package data;
+
+import data.interfaces.GeographicPointInterface;
+
+/**
+ * Utilidades para calcular distancias entre puntos geográficos.
+ * Las distancias se calculan con la fórmula del haversine sobre una esfera de radio medio terrestre.
+ */
+public final class GeographicDistance {
+    /** Radio medio de la Tierra en metros. */
+    public static final double EARTH_RADIUS_METERS = 6_371_008.8;
+    /** Metros que ocupa un grado de latitud (o de longitud en el ecuador). */
+    public static final double METERS_PER_DEGREE = EARTH_RADIUS_METERS * Math.PI / 180.0;
+
+    private GeographicDistance() {
+    }
+
+    /**
+     * Calcula la distancia en metros entre dos puntos geográficos.
+     *
+     * @param a Primer punto.
+     * @param b Segundo punto.
+     * @return Distancia en metros.
+     */
+    public static double haversineMeters(GeographicPointInterface a, GeographicPointInterface b) {
+        return haversineMeters(a.getLatitude(), a.getLongitude(), b.getLatitude(), b.getLongitude());
+    }
+
+    /**
+     * Calcula la distancia en metros entre dos coordenadas expresadas en grados.
+     *
+     * @param lat1 Latitud del primer punto.
+     * @param lon1 Longitud del primer punto.
+     * @param lat2 Latitud del segundo punto.
+     * @param lon2 Longitud del segundo punto.
+     * @return Distancia en metros.
+     */
+    public static double haversineMeters(double lat1, double lon1, double lat2, double lon2) {
+        double phi1 = Math.toRadians(lat1);
+        double phi2 = Math.toRadians(lat2);
+        double sinDPhi = Math.sin((phi2 - phi1) * 0.5);
+        double sinDLambda = Math.sin(Math.toRadians(lon2 - lon1) * 0.5);
+        double h = sinDPhi * sinDPhi + Math.cos(phi1) * Math.cos(phi2) * sinDLambda * sinDLambda;
+        return 2.0 * EARTH_RADIUS_METERS * Math.asin(Math.min(1.0, Math.sqrt(h)));
+    }
+}
@@ -10,7 +10,7 @@ import data.interfaces.StationIDInterface;
  * Esta clase es inmutable y garantiza que los identificadores sean positivos.
  */
 public class StationID implements StationIDInterface {
-    private final Integer ID;
+    private final int ID;
     private final GeographicPointInterface geoPoint;
 
     /**
@@ -58,7 +58,7 @@ public class StationID implements StationIDInterface {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         StationID station = (StationID) o;
-        return ID.equals(station.ID) && geoPoint.equals(station.geoPoint);
+        return ID == station.ID && (geoPoint == station.geoPoint || geoPoint.equals(station.geoPoint));
     }
 
     /**
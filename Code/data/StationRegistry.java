@@ -0,0 +1,142 @@
+package data;
+
+import data.interfaces.GeographicPointInterface;
+import data.interfaces.StationIDInterface;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registro de estaciones canónicas indexado por el identificador entero de la estación.
+ *
+ * Con miles de vehículos repartidos entre unas pocas estaciones, cada {@code VehicleID} y cada evento
+ * decodificado acabaría con su propia copia de la misma estación y del mismo punto geográfico. El registro
+ * devuelve siempre la misma instancia para una estación dada, de modo que las copias se descartan y las
+ * comparaciones habituales se resuelven por identidad. Los puntos geográficos que coinciden con la ubicación
+ * de una estación registrada se internan igual; los demás no se guardan, para que el registro no crezca con
+ * cada posición de cada vehículo.
+ *
+ * Si una estación se registra con una ubicación distinta de la conocida, la nueva pasa a ser la canónica:
+ * el registro nunca devuelve una estación que no sea igual a la solicitada.
+ */
+public final class StationRegistry {
+    private static final StationRegistry SHARED = new StationRegistry();
+
+    private final ConcurrentHashMap<Integer, StationIDInterface> stations = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<GeographicPointInterface, GeographicPointInterface> points = new ConcurrentHashMap<>();
+
+    /**
+     * Obtiene el registro compartido por toda la aplicación.
+     *
+     * @return Registro de estaciones compartido.
+     */
+    public static StationRegistry shared() {
+        return SHARED;
+    }
+
+    /**
+     * Obtiene la instancia canónica de la estación con el identificador y la ubicación indicados,
+     * creándola si no existe.
+     *
+     * @param id       Identificador de la estación. Debe ser positivo.
+     * @param geoPoint Ubicación de la estación.
+     * @return Estación canónica.
+     */
+    public StationIDInterface intern(int id, GeographicPointInterface geoPoint) {
+        StationIDInterface known = stations.get(id);
+        if (known != null && known.getgeoPoint().equals(geoPoint)) {
+            return known;
+        }
+        return intern(new StationID(id, internPoint(geoPoint)));
+    }
+
+    /**
+     * Obtiene la instancia canónica de una estación. Si no había ninguna registrada con su
+     * identificador, la propia estación pasa a ser la canónica.
+     *
+     * @param station Estación a internar. Puede ser null.
+     * @return Estación canónica igual a la indicada, o null si la estación es null.
+     */
+    public StationIDInterface intern(StationIDInterface station) {
+        if (station == null) {
+            return null;
+        }
+        // Caso habitual: la estación ya está registrada y se resuelve con una lectura sin cerrojos
+        StationIDInterface known = stations.get(station.getID());
+        if (known == station || (known != null && known.equals(station))) {
+            return known;
+        }
+        if (known == null) {
+            known = stations.putIfAbsent(station.getID(), station);
+            if (known == null) {
+                registerPoint(station.getgeoPoint());
+                return station;
+            }
+            if (known.equals(station)) {
+                return known;
+            }
+        }
+        StationIDInterface canonical = stations.compute(station.getID(),
+                (id, current) -> current != null && current.equals(station) ? current : station);
+        registerPoint(canonical.getgeoPoint());
+        return canonical;
+    }
+
+    /**
+     * Obtiene la instancia canónica de un punto geográfico: la ubicación de la estación registrada en ese
+     * mismo punto, si la hay, o el propio punto en caso contrario.
+     *
+     * @param point Punto a internar. Puede ser null.
+     * @return Punto canónico igual al indicado, o null si el punto es null.
+     */
+    public GeographicPointInterface internPoint(GeographicPointInterface point) {
+        if (point == null) {
+            return null;
+        }
+        GeographicPointInterface known = points.get(point);
+        return known != null ? known : point;
+    }
+
+    private void registerPoint(GeographicPointInterface point) {
+        if (point != null) {
+            points.putIfAbsent(point, point);
+        }
+    }
+
+    /**
+     * Busca la estación canónica con el identificador indicado.
+     *
+     * @param id Identificador de la estación.
+     * @return Estación registrada, o null si no hay ninguna con ese identificador.
+     */
+    public StationIDInterface lookup(int id) {
+        return stations.get(id);
+    }
+
+    /**
+     * Obtiene el número de estaciones registradas.
+     *
+     * @return Número de estaciones.
+     */
+    public int size() {
+        return stations.size();
+    }
+
+    /**
+     * Comprueba si dos referencias designan la misma estación. La comparación por identidad resuelve
+     * el caso habitual de estaciones internadas; solo si los identificadores coinciden y las instancias
+     * son distintas se comparan las ubicaciones.
+     *
+     * @param a Primera estación. Puede ser null.
+     * @param b Segunda estación. Puede ser null.
+     * @return {@code true} si ambas representan la misma estación.
+     */
+    public static boolean sameStation(StationIDInterface a, StationIDInterface b) {
+        if (a == b) {
+            return true;
+        }
+        if (a == null || b == null || a.getID() != b.getID()) {
+            return false;
+        }
+        return a.equals(b);
+    }
+}
@@ -4,35 +4,50 @@ import data.interfaces.GeographicPointInterface;
 import data.interfaces.StationIDInterface;
 import data.interfaces.UserAccountInterface;
 import data.interfaces.VehicleIDInterface;
+import micromobility.tariffs.TariffEngine;
+import micromobility.tariffs.TariffEngineInterface;
 import services.Exceptions.*;
+import services.AsyncServerAdapter;
+import services.AsyncServerInterface;
 import services.ServerInterface;
 import services.smartfeatures.Interfaces.QRDecoderInterface;
+import services.smartfeatures.MultiFrameQRScanner;
 
-import java.math.RoundingMode;
 import java.net.ConnectException;
 import java.awt.image.BufferedImage;
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Clase que gestiona el proceso de realizar un viaje, incluyendo la interacción con el vehículo, el escaneo de QR,
  * la conexión Bluetooth y la comunicación con el servidor para registrar el inicio y fin del viaje.
  */
 public class JourneyRealizeHandler {
+    private static final int SERVER_ATTEMPTS = 3; // Intentos de comunicar el final del viaje si falla la conexión
 
     private QRDecoderInterface qrDecoder;
     private ServerInterface server;
+    private AsyncServerInterface asyncServer; // Se crea sobre 'server' la primera vez que se necesita
     private JourneyServiceInterface journeyService; // Se inyecta una interfaz para manejar los viajes
     private BufferedImage qrImage;
+    private List<BufferedImage> qrFrames; // Ráfaga de fotogramas; si existe, sustituye a 'qrImage'
+    private MultiFrameQRScanner qrScanner; // Si es null se usa el escáner compartido
     private UserAccountInterface user;
     private StationIDInterface station;
     private GeographicPointInterface initialLocation;
     private VehicleIDInterface vehicleID;
     private LocalDateTime startDate;
     private LocalDateTime endDate;
+    private String finishKey; // Clave de idempotencia del final del viaje; se genera al cerrarlo
     boolean inProgress;
+    private boolean bluetoothConnected; // Se activa al reservar el vehículo
     private PMVehicle vehicle;
+    private TariffEngineInterface tariffEngine = TariffEngine.shared(); // Cálculo del importe con la tarifa vigente
 
     /**
      * Constructor de la clase JourneyRealizeHandler.
@@ -68,14 +83,27 @@ public class JourneyRealizeHandler {
         this.qrDecoder = qrDecoder;
     }
 
+    public void setQrScanner(MultiFrameQRScanner qrScanner) {
+        this.qrScanner = qrScanner;
+    }
+
     public void setServer(ServerInterface server) {
         this.server = server;
+        this.asyncServer = null;
+    }
+
+    public void setAsyncServer(AsyncServerInterface asyncServer) {
+        this.asyncServer = asyncServer;
     }
 
     public void setJourneyService(JourneyServiceInterface journeyService) {
         this.journeyService = journeyService;
     }
 
+    public void setTariffEngine(TariffEngineInterface tariffEngine) {
+        this.tariffEngine = tariffEngine;
+    }
+
     /**
      * Recibe el ID de la estación vía Bluetooth y actualiza la ubicación.
      *
@@ -100,14 +128,50 @@ public class JourneyRealizeHandler {
      * @throws ProceduralException Si hay un error en el proceso de emparejamiento.
      */
     public void scanQR() throws ConnectException, InvalidPairingArgsException, QRImgException, PMVNotAvailException, ProceduralException {
+        vehicleID = decodeVehicle();
+        // Una sola llamada comprueba la disponibilidad y reserva el vehículo de forma atómica
+        server.reserveVehicle(user, vehicleID, station, initialLocation, LocalDateTime.now(), journeyService);
+        this.journeyService.setOrgStatID(station);
+        establishBluetoothConnection();
+    }
+
+    /**
+     * Versión no bloqueante de {@link #scanQR()}: el hilo que llama queda libre mientras dura el viaje de
+     * ida y vuelta al servidor. Como en la versión síncrona, la conexión Bluetooth solo se establece cuando
+     * la reserva se ha confirmado.
+     *
+     * @return Futuro que se completa cuando el vehículo queda reservado, o excepcionalmente con las mismas
+     *         excepciones que lanza {@link #scanQR()}.
+     */
+    public CompletableFuture<Void> scanQRAsync() {
+        try {
+            vehicleID = decodeVehicle();
+        } catch (QRImgException | ProceduralException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        StationIDInterface origin = station;
+        CompletableFuture<String> reservation = asyncServer().reserveVehicleAsync(user, vehicleID, origin, initialLocation,
+                LocalDateTime.now(), journeyService);
+        return reservation.thenRun(() -> {
+            this.journeyService.setOrgStatID(origin);
+            establishBluetoothConnection();
+        });
+    }
+
+    /**
+     * Obtiene el vehículo del código QR. Si se ha indicado una ráfaga de fotogramas, se decodifican en
+     * paralelo y se usa el primero que resulta legible.
+     */
+    private VehicleIDInterface decodeVehicle() throws QRImgException, ProceduralException {
+        if (qrFrames != null) {
+            MultiFrameQRScanner scanner = qrScanner != null ? qrScanner : MultiFrameQRScanner.shared();
+            return scanner.scan(qrDecoder, qrFrames);
+        }
         if (qrImage == null) {
             throw new ProceduralException("La imagen del QR no existe.");
         }
-
-        vehicleID = qrDecoder.getVehicleID(qrImage);
-        server.checkPMVAvail(vehicleID);
-        server.registerPairing(user, vehicleID, station, initialLocation, LocalDateTime.now(), journeyService);
-        establishBluetoothConnection();
+        return qrDecoder.getVehicleID(qrImage);
     }
 
     /**
@@ -131,59 +195,96 @@ public class JourneyRealizeHandler {
 
     /**
      * Detiene el viaje, registrando el final y calculando la duración, distancia, velocidad y el importe.
+     * Si falla la conexión con el servidor, el registro se reintenta sin riesgo de que se aplique dos veces.
      *
      * @throws ConnectException Si la conexión Bluetooth no es válida.
      * @throws ProceduralException Si el viaje no está en progreso.
      * @throws InvalidPairingArgsException Si los argumentos del emparejamiento son inválidos.
      */
     public void stopDriving() throws ConnectException, ProceduralException, InvalidPairingArgsException {
+        closeJourney();
+        finishOnServer((int) journeyService.getDuration(), journeyService.getImportCents());
+        vehicle.setAvailb();
+    }
+
+    /**
+     * Versión no bloqueante de {@link #stopDriving()}. El cierre del trayecto se hace en el hilo que llama y
+     * solo la comunicación con el servidor queda pendiente.
+     *
+     * @return Futuro que se completa cuando el servidor ha registrado el final del trayecto y el vehículo
+     *         vuelve a estar disponible, o excepcionalmente con las mismas excepciones que lanza {@link #stopDriving()}.
+     */
+    public CompletableFuture<Void> stopDrivingAsync() {
+        try {
+            closeJourney();
+        } catch (ProceduralException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return finishOnServerAsync(finishKey, 1)
+                .thenCompose(ignored -> {
+                    try {
+                        vehicle.setAvailb();
+                        return CompletableFuture.<Void>completedFuture(null);
+                    } catch (ProceduralException e) {
+                        return CompletableFuture.failedFuture(e);
+                    }
+                });
+    }
+
+    /**
+     * Marca el final del trayecto y guarda en el servicio de viaje la duración, la distancia, la velocidad
+     * media y el importe.
+     *
+     * @throws ProceduralException Si el viaje no está en progreso.
+     */
+    private void closeJourney() throws ProceduralException {
         if (!inProgress) {
             throw new ProceduralException("El viaje no está en progreso.");
         }
 
         vehicle.setNotAvailb();
         this.inProgress = false;
+        this.finishKey = UUID.randomUUID().toString();
 
         this.endDate = LocalDateTime.now();
         this.journeyService.setEndDate(String.valueOf(endDate));
         this.journeyService.setEndHour(String.valueOf(endDate.getHour()));
+        this.journeyService.setEndStatID(station);
 
         int duration = (int) Duration.between(startDate, endDate).toMinutes();
         this.journeyService.setDuration(duration);
 
-        BigDecimal calculatedDistance = calculateDistance();
-        this.journeyService.setDistance(calculatedDistance);
-        BigDecimal avgSpeed = calculateAverageSpeed(calculatedDistance, duration);
-        this.journeyService.setAvgSpeed(avgSpeed);
-
-        BigDecimal amount = calculateAmount();
-        this.journeyService.setImport(amount);
+        long calculatedDistance = calculateDistance();
+        this.journeyService.setDistanceMm(calculatedDistance);
+        long avgSpeed = calculateAverageSpeed(calculatedDistance, duration);
+        this.journeyService.setAvgSpeedMmPerMin(avgSpeed);
 
-        server.stopPairing(user, vehicleID, vehicleID.getStation(), vehicle.getLocation(), endDate, avgSpeed, calculatedDistance, duration, amount, journeyService);
-        vehicle.setAvailb();
+        long amount = calculateAmount();
+        this.journeyService.setImportCents(amount);
     }
 
     /**
-     * Calcula la distancia recorrida durante el trayecto.
+     * Calcula la distancia recorrida durante el trayecto a partir de las ubicaciones recibidas
+     * por el servicio de viaje.
      *
-     * @return La distancia calculada como BigDecimal.
+     * @return La distancia en milímetros.
      */
-    private BigDecimal calculateDistance() {
-        return new BigDecimal(5); // Ejemplo simplificado, se debe calcular basado en las ubicaciones
+    private long calculateDistance() {
+        return Math.round(journeyService.getTraveledMeters() * 1000.0);
     }
 
     /**
      * Calcula la velocidad promedio del viaje.
      *
-     * @param distance Distancia recorrida durante el viaje.
+     * @param distance Distancia recorrida durante el viaje, en milímetros.
      * @param duration Duración del viaje en minutos.
-     * @return La velocidad promedio como BigDecimal.
+     * @return La velocidad promedio en milímetros por minuto, redondeada al más próximo.
      */
-    private BigDecimal calculateAverageSpeed(BigDecimal distance, int duration) {
-        if (duration == 0) {
-            return BigDecimal.ZERO;
+    private long calculateAverageSpeed(long distance, int duration) {
+        if (duration <= 0) {
+            return 0;
         }
-        return distance.divide(new BigDecimal(duration), 2, RoundingMode.HALF_UP);
+        return (distance + duration / 2) / duration;
     }
 
     /**
@@ -200,8 +301,55 @@ public class JourneyRealizeHandler {
         }
 
         this.journeyService.setInProgress(false);
-        server.stopPairing(user, vehicleID, vehicleID.getStation(), vehicle.getLocation(), endDate, journeyService.getAvgSpeed(), journeyService.getDistance(), (int) Duration.between(startDate, endDate).toMinutes(), calculateAmount(), journeyService);
-        vehicle.setAvailb();
+        if (finishKey == null) {
+            finishKey = UUID.randomUUID().toString();
+        }
+        finishOnServer((int) Duration.between(startDate, endDate).toMinutes(), calculateAmount());
+        if (vehicle.getState() != PMVState.Available) {
+            vehicle.setAvailb();
+        }
+    }
+
+    /**
+     * Comunica al servidor el final del viaje. Todas las llamadas del mismo final de viaje, incluidos los
+     * reintentos y un {@link #unPairVehicle()} posterior a {@link #stopDriving()}, usan la clave generada al
+     * cerrarlo, de modo que el servidor registra el final una sola vez.
+     */
+    private void finishOnServer(int duration, long amount) throws ConnectException, InvalidPairingArgsException {
+        String requestKey = finishKey;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                server.stopPairing(requestKey, user, vehicleID, vehicleID.getStation(), vehicle.getLocation(), endDate,
+                        journeyService.getAvgSpeedMmPerMin(), journeyService.getDistanceMm(), duration, amount,
+                        journeyService);
+                return;
+            } catch (ConnectException e) {
+                if (attempt == SERVER_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private CompletableFuture<Void> finishOnServerAsync(String requestKey, int attempt) {
+        return asyncServer().stopPairingAsync(requestKey, user, vehicleID, vehicleID.getStation(), vehicle.getLocation(),
+                        endDate, journeyService.getAvgSpeedMmPerMin(), journeyService.getDistanceMm(),
+                        (int) journeyService.getDuration(), journeyService.getImportCents(), journeyService)
+                .handle((ignored, e) -> {
+                    Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                    if (cause instanceof ConnectException && attempt < SERVER_ATTEMPTS) {
+                        return finishOnServerAsync(requestKey, attempt + 1);
+                    }
+                    return cause == null ? CompletableFuture.<Void>completedFuture(null) : CompletableFuture.<Void>failedFuture(cause);
+                })
+                .thenCompose(next -> next);
+    }
+
+    private AsyncServerInterface asyncServer() {
+        if (asyncServer == null) {
+            asyncServer = new AsyncServerAdapter(server);
+        }
+        return asyncServer;
     }
 
     /**
@@ -210,7 +358,7 @@ public class JourneyRealizeHandler {
      * @return true si la conexión Bluetooth está activa, false si no lo está.
      */
     private boolean isBluetoothConnected() {
-        return true; // Lógica simplificada
+        return bluetoothConnected; // Lógica simplificada
     }
 
     /**
@@ -218,15 +366,26 @@ public class JourneyRealizeHandler {
      */
     private void establishBluetoothConnection() {
         // Lógica para establecer la conexión Bluetooth
+        this.bluetoothConnected = true;
     }
 
     /**
-     * Calcula el importe a cobrar por el servicio de viaje.
+     * Calcula el importe a cobrar por el servicio de viaje con la tarifa vigente, a partir de la
+     * duración, la distancia, la hora de inicio, las estaciones de origen y destino y el tipo de vehículo.
      *
-     * @return El importe calculado como BigDecimal.
+     * @return El importe calculado en céntimos.
      */
-    private BigDecimal calculateAmount() {
-        return new BigDecimal(10); // Ejemplo simplificado
+    private long calculateAmount() {
+        return tariffEngine.priceCents((int) journeyService.getDuration(),
+                journeyService.getDistanceMm() / 1000,
+                journeyService.getInitHour(),
+                stationIdOf(journeyService.getOrgStatID()),
+                stationIdOf(journeyService.getEndStatID()),
+                vehicle.getType());
+    }
+
+    private static int stationIdOf(StationIDInterface station) {
+        return station != null ? station.getID() : 0;
     }
 
     /**
@@ -236,6 +395,17 @@ public class JourneyRealizeHandler {
      */
     public void setQrImage(BufferedImage qrImage) {
         this.qrImage = qrImage;
+        this.qrFrames = null;
+    }
+
+    /**
+     * Establece la ráfaga de fotogramas del QR que se escaneará, en lugar de una única imagen.
+     *
+     * @param qrFrames Fotogramas del QR. Si es null o está vacía, no hay imagen que escanear.
+     */
+    public void setQrFrames(List<BufferedImage> qrFrames) {
+        this.qrImage = null;
+        this.qrFrames = qrFrames == null || qrFrames.isEmpty() ? null : new ArrayList<>(qrFrames);
     }
 
     /**
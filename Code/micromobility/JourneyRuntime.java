@@ -0,0 +1,293 @@
+package micromobility;
+
+import services.smartfeatures.Interfaces.UnbondedBTSignalInterface;
+
+import java.io.Closeable;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Entorno de ejecución de trayectos: cada trayecto activo ejecuta su ciclo de vida completo en un hilo
+ * propio, de modo que puede bloquearse esperando al usuario, al vehículo o al servidor sin afectar al resto.
+ *
+ * En Java 21 o posterior cada trayecto usa un hilo virtual, y un único nodo puede mantener cientos de
+ * miles de trayectos activos. En versiones anteriores se usan hilos de plataforma bajo demanda, como mucho
+ * {@value #MAX_PLATFORM_THREADS} a la vez entre trayectos y tareas secundarias (un trayecto con difusión
+ * de estación ocupa dos). Por encima de ese límite, lanzar un trayecto falla con una
+ * {@link RejectedExecutionException} y lanzar una tarea secundaria la lanza en el hilo del trayecto.
+ *
+ * Las tareas secundarias de un trayecto se lanzan en su {@link Scope} (concurrencia estructurada): nunca
+ * sobreviven al trayecto que las creó y, si una de ellas falla, el trayecto se interrumpe y termina con ese
+ * error.
+ */
+public class JourneyRuntime implements Closeable {
+    /** Máximo de hilos de plataforma cuando no hay hilos virtuales. */
+    public static final int MAX_PLATFORM_THREADS = 1024;
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    private final AtomicInteger active = new AtomicInteger();
+
+    /**
+     * Crea un entorno que usa hilos virtuales si la plataforma los ofrece.
+     */
+    public JourneyRuntime() {
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : platformExecutor(MAX_PLATFORM_THREADS);
+    }
+
+    /**
+     * Crea un entorno que ejecuta los trayectos y sus tareas secundarias en el ejecutor indicado. El
+     * ejecutor debe poder ejecutar a la vez todas las tareas bloqueantes de los trayectos activos.
+     *
+     * @param executor Ejecutor de los trayectos.
+     * @throws IllegalArgumentException Si el ejecutor es nulo.
+     */
+    public JourneyRuntime(ExecutorService executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor cannot be null");
+        }
+        this.executor = executor;
+        this.virtualThreads = false;
+    }
+
+    /**
+     * @return {@code true} si cada trayecto se ejecuta en un hilo virtual.
+     */
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * @return Número de trayectos en ejecución.
+     */
+    public int getActiveJourneys() {
+        return active.get();
+    }
+
+    /**
+     * Lanza un trayecto.
+     *
+     * @param task Ciclo de vida del trayecto.
+     * @return Futuro que se completa al terminar el trayecto, o excepcionalmente con el error del trayecto o
+     *         de la primera tarea secundaria que falle. Cancelarlo interrumpe el trayecto.
+     */
+    public CompletableFuture<Void> launch(JourneyTask task) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        active.incrementAndGet();
+        try {
+            Future<?> running = executor.submit(() -> {
+                try (Scope scope = new Scope(executor)) {
+                    try {
+                        task.run(scope);
+                        scope.join();
+                        result.complete(null);
+                    } catch (Throwable e) {
+                        Throwable failure = scope.failure();
+                        result.completeExceptionally(failure != null ? failure : e);
+                    }
+                } finally {
+                    active.decrementAndGet();
+                }
+            });
+            result.whenComplete((ignored, e) -> {
+                if (e instanceof CancellationException) {
+                    running.cancel(true);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            active.decrementAndGet();
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * Lanza un trayecto que recibe la difusión Bluetooth de la estación mientras dura. La difusión se
+     * detiene al terminar el trayecto.
+     *
+     * @param signal Canal de difusión de la estación.
+     * @param task   Resto del ciclo de vida del trayecto.
+     * @return Futuro del trayecto, como en {@link #launch(JourneyTask)}.
+     */
+    public CompletableFuture<Void> launch(UnbondedBTSignalInterface signal, JourneyTask task) {
+        return launch(scope -> {
+            scope.fork(() -> {
+                signal.BTbroadcast();
+                return null;
+            });
+            task.run(scope);
+            scope.cancelAll();
+        });
+    }
+
+    /**
+     * Deja de aceptar trayectos, interrumpe los que siguen activos y espera a que terminen.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Crea un grupo de hilos de plataforma acotado. No tiene cola: una tarea que no encuentra hilo libre
+     * se rechaza, porque encolarla detrás de trayectos bloqueados podría no ejecutarla nunca.
+     */
+    static ExecutorService platformExecutor(int maxThreads) {
+        return new ThreadPoolExecutor(0, maxThreads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+            Thread thread = new Thread(r, "journey-" + THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            // Java 17-20 (o hilos virtuales en vista previa sin habilitar)
+            return null;
+        }
+    }
+
+    /**
+     * Ámbito de las tareas secundarias de un trayecto. Al cerrarse cancela las que sigan en marcha; si
+     * una falla, cancela las demás e interrumpe el hilo del trayecto.
+     */
+    public static final class Scope implements AutoCloseable {
+        private final ExecutorService executor;
+        private final Thread owner;
+        private final List<Future<?>> forks = new ArrayList<>();
+        private volatile Throwable failure;
+        private boolean closed;
+
+        private Scope(ExecutorService executor) {
+            this.executor = executor;
+            this.owner = Thread.currentThread();
+        }
+
+        /**
+         * Lanza una tarea secundaria del trayecto.
+         *
+         * @param subtask Tarea a ejecutar.
+         * @param <T>     Tipo del resultado.
+         * @return Futuro de la tarea.
+         * @throws RejectedExecutionException Si el ejecutor no admite más tareas; la tarea no queda en el ámbito.
+         */
+        public <T> Future<T> fork(Callable<T> subtask) {
+            FutureTask<T> fork = new FutureTask<>(subtask) {
+                @Override
+                protected void setException(Throwable t) {
+                    super.setException(t);
+                    // Una tarea cancelada termina con InterruptedException, pero eso no es un fallo
+                    if (!isCancelled()) {
+                        fail(t);
+                    }
+                }
+            };
+            synchronized (forks) {
+                forks.add(fork);
+            }
+            try {
+                executor.execute(fork);
+            } catch (RejectedExecutionException e) {
+                // La tarea no llegará a ejecutarse: join() no debe esperarla
+                synchronized (forks) {
+                    forks.remove(fork);
+                }
+                fork.cancel(false);
+                throw e;
+            }
+            return fork;
+        }
+
+        /**
+         * Espera a que terminen todas las tareas secundarias.
+         *
+         * @throws Exception El error de la primera tarea que haya fallado.
+         */
+        public void join() throws Exception {
+            for (Future<?> fork : snapshot()) {
+                try {
+                    fork.get();
+                } catch (CancellationException ignored) {
+                    // Las tareas canceladas no cuentan como fallo del trayecto
+                } catch (ExecutionException ignored) {
+                    // Se notifica a través de 'failure'
+                }
+            }
+            Throwable first = failure;
+            if (first instanceof Exception) {
+                throw (Exception) first;
+            }
+            if (first != null) {
+                throw (Error) first;
+            }
+        }
+
+        /**
+         * Cancela todas las tareas secundarias que sigan en marcha.
+         */
+        public void cancelAll() {
+            for (Future<?> fork : snapshot()) {
+                fork.cancel(true);
+            }
+        }
+
+        @Override
+        public void close() {
+            synchronized (this) {
+                closed = true;
+            }
+            cancelAll();
+            if (owner == Thread.currentThread()) {
+                // Una interrupción por fallo de una tarea secundaria no debe afectar a la siguiente tarea del hilo
+                Thread.interrupted();
+            }
+        }
+
+        Throwable failure() {
+            return failure;
+        }
+
+        private void fail(Throwable t) {
+            synchronized (this) {
+                if (failure != null) {
+                    return;
+                }
+                failure = t;
+                if (!closed) {
+                    owner.interrupt();
+                }
+            }
+            cancelAll();
+        }
+
+        private List<Future<?>> snapshot() {
+            synchronized (forks) {
+                return new ArrayList<>(forks);
+            }
+        }
+    }
+}
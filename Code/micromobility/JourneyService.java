@@ -1,5 +1,6 @@
 package micromobility;
 
+import data.FixedPoint;
 import data.interfaces.GeographicPointInterface;
 import data.interfaces.StationIDInterface;
 
@@ -11,18 +12,19 @@ public class JourneyService implements JourneyServiceInterface {
     private LocalDateTime initDate; // Fecha y hora de inicio del viaje
     private int initHour; // Hora de inicio
     private int duration; // Duración del viaje en minutos
-    private BigDecimal distance; // Distancia del viaje en kilómetros
-    private BigDecimal avgSpeed; // Velocidad promedio durante el viaje
+    private long distanceMm; // Distancia del viaje en milímetros
+    private long avgSpeedMmPerMin; // Velocidad promedio durante el viaje, en milímetros por minuto
     private GeographicPointInterface originPoint; // Punto de origen del viaje
     private GeographicPointInterface endPoint; // Punto de destino del viaje
     private LocalDateTime endDate; // Fecha y hora de finalización del viaje
     private int endHour; // Hora de finalización
-    private BigDecimal importAmount; // Importe total a pagar
+    private long importCents; // Importe total a pagar, en céntimos
     private String serviceID; // Identificador del servicio de viaje
     private boolean inProgress; // Indica si el viaje está en progreso
     private StationIDInterface orgStatID; // Estación de origen
     private StationIDInterface endStatID; // Estación de destino
     private GeographicPointInterface currentLocation; // Ubicación actual del viaje
+    private final TrajectoryAccumulator trajectory = new TrajectoryAccumulator(); // Distancia recorrida según las posiciones recibidas
 
     /**
      * Constructor del servicio de viaje.
@@ -35,14 +37,15 @@ public class JourneyService implements JourneyServiceInterface {
         this.initDate = LocalDateTime.now(); // Se inicializa con la fecha y hora actual
         this.initHour = initDate.getHour();
         this.duration = 0; // Aún no ha comenzado el viaje
-        this.distance = BigDecimal.valueOf(0.0f);
-        this.avgSpeed = BigDecimal.valueOf(0.0f);
+        this.distanceMm = 0;
+        this.avgSpeedMmPerMin = 0;
         this.originPoint = vehicle.getLocation(); // Ubicación inicial del vehículo
         this.currentLocation = this.originPoint; // Inicialmente la ubicación es la de origen
+        this.trajectory.reset(this.originPoint);
         this.endPoint = null; // Se establecerá al finalizar el viaje
         this.endDate = null; // No hay fecha de finalización aún
         this.endHour = -1; // Valor inválido hasta que termine el viaje
-        this.importAmount = BigDecimal.ZERO;
+        this.importCents = 0;
         this.endStatID = null; // Se establecerá cuando termine el viaje
     }
 
@@ -76,31 +79,33 @@ public class JourneyService implements JourneyServiceInterface {
     }
 
     @Override
-    public void setDistance(BigDecimal distance) {
-        this.distance = distance;
+    public void setDistanceMm(long distanceMm) {
+        this.distanceMm = distanceMm;
     }
 
-    public BigDecimal getDistance() {
-        return distance;
+    @Override
+    public long getDistanceMm() {
+        return distanceMm;
     }
 
     @Override
-    public void setAvgSpeed(BigDecimal avgSpeed) {
-        this.avgSpeed = avgSpeed;
+    public void setAvgSpeedMmPerMin(long avgSpeedMmPerMin) {
+        this.avgSpeedMmPerMin = avgSpeedMmPerMin;
     }
 
-    public BigDecimal getAvgSpeed() {
-        return avgSpeed;
+    @Override
+    public long getAvgSpeedMmPerMin() {
+        return avgSpeedMmPerMin;
     }
 
     @Override
-    public void setImport(BigDecimal imp) {
-        this.importAmount = imp;
+    public void setImportCents(long importCents) {
+        this.importCents = importCents;
     }
 
     @Override
-    public double getImport() {
-        return this.importAmount.doubleValue();
+    public long getImportCents() {
+        return importCents;
     }
 
     @Override
@@ -126,17 +131,18 @@ public class JourneyService implements JourneyServiceInterface {
         this.initDate = initDate;
         this.originPoint = origin;
         this.currentLocation = origin;
+        this.trajectory.reset(origin);
         this.inProgress = true;
     }
 
     @Override
-    public void setServiceFinish(LocalDateTime endDate, GeographicPointInterface end, BigDecimal imp, BigDecimal avgSpeed, BigDecimal dist, float duration) {
+    public void setServiceFinish(LocalDateTime endDate, GeographicPointInterface end, long impCents, long avgSpeedMmPerMin, long distMm, int duration) {
         this.endDate = endDate;
         this.endPoint = end;
-        this.importAmount = imp;
-        this.avgSpeed = avgSpeed;
-        this.distance = dist;
-        this.duration = (int) duration;
+        this.importCents = impCents;
+        this.avgSpeedMmPerMin = avgSpeedMmPerMin;
+        this.distanceMm = distMm;
+        this.duration = duration;
         this.inProgress = false;
     }
 
@@ -152,6 +158,12 @@ public class JourneyService implements JourneyServiceInterface {
     @Override
     public void updateCurrentLocation(GeographicPointInterface location) {
         this.currentLocation = location;
+        this.trajectory.add(location);
+    }
+
+    @Override
+    public double getTraveledMeters() {
+        return trajectory.getDistanceMeters();
     }
 
     public GeographicPointInterface getCurrentLocation() {
@@ -175,7 +187,7 @@ public class JourneyService implements JourneyServiceInterface {
     }
 
     public BigDecimal getImportAmount() {
-        return importAmount;
+        return FixedPoint.fromCents(importCents);
     }
 
     public String getServiceID() {
@@ -1,6 +1,8 @@
 package micromobility;
 
+import data.FixedPoint;
 import data.interfaces.GeographicPointInterface;
+import data.interfaces.StationIDInterface;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -20,6 +22,9 @@ public interface JourneyServiceInterface {
 
     void updateCurrentLocation(GeographicPointInterface location);
 
+    // Distancia recorrida en metros, acumulada a partir de las ubicaciones recibidas
+    double getTraveledMeters();
+
     GeographicPointInterface getOriginPoint();
 
     // Obtener y establecer el punto de destino del viaje
@@ -38,17 +43,42 @@ public interface JourneyServiceInterface {
     void setDuration(double duration);
     double getDuration();
 
-    // Obtener y establecer la distancia del viaje
-    void setDistance(BigDecimal distance);
-    BigDecimal getDistance();
+    // Obtener y establecer la distancia del viaje, en milímetros
+    void setDistanceMm(long distanceMm);
+    long getDistanceMm();
+
+    // Obtener y establecer la velocidad promedio durante el viaje, en milímetros por minuto
+    void setAvgSpeedMmPerMin(long avgSpeedMmPerMin);
+    long getAvgSpeedMmPerMin();
+
+    // Obtener y establecer el importe del viaje, en céntimos
+    void setImportCents(long importCents);
+    long getImportCents();
+
+    // Equivalentes en BigDecimal (kilómetros, kilómetros por minuto y euros), solo para los extremos de la API
+    default void setDistance(BigDecimal distance) {
+        setDistanceMm(FixedPoint.kmToMillimetres(distance));
+    }
+
+    default BigDecimal getDistance() {
+        return FixedPoint.millimetresToKm(getDistanceMm());
+    }
 
-    // Obtener y establecer la velocidad promedio durante el viaje
-    void setAvgSpeed(BigDecimal avgSpeed);
-    BigDecimal getAvgSpeed();
+    default void setAvgSpeed(BigDecimal avgSpeed) {
+        setAvgSpeedMmPerMin(FixedPoint.kmToMillimetres(avgSpeed));
+    }
 
-    // Obtener y establecer el importe del viaje
-    void setImport(BigDecimal imp);
-    double getImport();
+    default BigDecimal getAvgSpeed() {
+        return FixedPoint.millimetresToKm(getAvgSpeedMmPerMin());
+    }
+
+    default void setImport(BigDecimal imp) {
+        setImportCents(FixedPoint.toCents(imp));
+    }
+
+    default double getImport() {
+        return getImportCents() / 100.0;
+    }
 
     // Obtener y establecer el estado de progreso del viaje
     void setInProgress(boolean inProgress);
@@ -56,9 +86,21 @@ public interface JourneyServiceInterface {
 
     void setServiceInit(LocalDateTime initDate, GeographicPointInterface Origin);
 
-    void setServiceFinish(LocalDateTime endDate, GeographicPointInterface End, BigDecimal imp, BigDecimal avSP, BigDecimal dist, float duration);
+    void setServiceFinish(LocalDateTime endDate, GeographicPointInterface End, long impCents, long avgSpeedMmPerMin, long distMm, int duration);
+
+    default void setServiceFinish(LocalDateTime endDate, GeographicPointInterface End, BigDecimal imp, BigDecimal avSP, BigDecimal dist, float duration) {
+        setServiceFinish(endDate, End, FixedPoint.toCents(imp), FixedPoint.kmToMillimetres(avSP), FixedPoint.kmToMillimetres(dist), (int) duration);
+    }
+
+
+    // Obtener y establecer las estaciones de origen y destino del viaje
+    void setOrgStatID(StationIDInterface orgStatID);
+    StationIDInterface getOrgStatID();
 
+    void setEndStatID(StationIDInterface endStatID);
+    StationIDInterface getEndStatID();
 
-    // Obtener el ID del servicio de viaje
+    // Obtener y establecer el ID del servicio de viaje
+    void setServiceID(String serviceID);
     String getServiceID();
 }
@@ -0,0 +1,11 @@
+package micromobility;
+
+/**
+ * Ciclo de vida de un trayecto ejecutado por {@link JourneyRuntime}: recepción de la estación, escaneo
+ * del QR, conducción, parada y desemparejamiento. Las tareas secundarias (por ejemplo, la difusión
+ * Bluetooth de la estación) se lanzan con {@link JourneyRuntime.Scope#fork} y no sobreviven al trayecto.
+ */
+@FunctionalInterface
+public interface JourneyTask {
+    void run(JourneyRuntime.Scope scope) throws Exception;
+}
@@ -0,0 +1,5 @@
+package micromobility;
+
+public enum PMVType {
+    Scooter, Bike, EBike, Moped;
+}
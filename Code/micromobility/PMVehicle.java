@@ -4,14 +4,27 @@ import data.GeographicPoint;
 import data.interfaces.GeographicPointInterface;
 import services.Exceptions.ProceduralException;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Representa un vehículo de micromovilidad dentro del sistema compartido.
- * Un vehículo tiene un estado (Disponible, No disponible, en Trayecto) y una ubicación geográfica.
+ * Un vehículo tiene un estado (Disponible, No disponible, en Trayecto, Aparcado temporalmente), un tipo y una
+ * ubicación geográfica.
+ *
+ * Cada vehículo tiene su propio estado, guardado en una única palabra que empaqueta el estado
+ * ({@link PMVState#ordinal()}) en los bits bajos y un contador de versión en los altos. Las transiciones
+ * se validan y publican con un compare-and-set sobre esa palabra, sin cerrojos: si dos hilos intentan
+ * cambiar el estado a la vez, uno gana y el otro vuelve a validar su transición sobre el estado nuevo.
  */
 public class PMVehicle {
     private final int vehicleID; // Identificador único del vehículo
-    private static PMVState state; // Estado actual del vehículo
+    private static final PMVState[] STATES = PMVState.values();
+    private static final int STATE_BITS = 8;
+    private static final int STATE_MASK = (1 << STATE_BITS) - 1;
+
+    private final AtomicInteger stateWord; // Estado actual del vehículo y versión de la última transición
     private GeographicPointInterface location; // Ubicación del vehículo
+    private final PMVType type; // Tipo de vehículo
 
     /**
      * Constructor del vehículo.
@@ -23,6 +36,19 @@ public class PMVehicle {
      * @throws IllegalArgumentException Si alguno de los parámetros es nulo o inválido.
      */
     public PMVehicle(int vehicleID, GeographicPointInterface initialLocation, PMVState initialState) {
+        this(vehicleID, initialLocation, initialState, PMVType.Scooter);
+    }
+
+    /**
+     * Constructor del vehículo indicando su tipo.
+     *
+     * @param vehicleID Identificador único del vehículo.
+     * @param initialLocation Ubicación inicial del vehículo.
+     * @param initialState Estado inicial del vehículo.
+     * @param type Tipo de vehículo.
+     * @throws IllegalArgumentException Si alguno de los parámetros es nulo o inválido.
+     */
+    public PMVehicle(int vehicleID, GeographicPointInterface initialLocation, PMVState initialState, PMVType type) {
         if (vehicleID == 0) {
             throw new IllegalArgumentException("Vehicle ID cannot be null or empty.");
         }
@@ -32,9 +58,13 @@ public class PMVehicle {
         if (initialState == null) {
             throw new IllegalArgumentException("Initial state cannot be null.");
         }
+        if (type == null) {
+            throw new IllegalArgumentException("Vehicle type cannot be null.");
+        }
         this.vehicleID = vehicleID;
+        this.type = type;
         this.location = initialLocation;
-        state = PMVState.Available; // Estado inicial por defecto
+        this.stateWord = new AtomicInteger(initialState.ordinal());
     }
 
     // Métodos getter para acceder a los atributos
@@ -43,13 +73,26 @@ public class PMVehicle {
     }
 
     public PMVState getState() {
-        return state;
+        return STATES[stateWord.get() & STATE_MASK];
+    }
+
+    /**
+     * Número de transiciones de estado realizadas desde la creación del vehículo (módulo 2^24).
+     *
+     * @return Versión del estado actual.
+     */
+    public int getStateVersion() {
+        return stateWord.get() >>> STATE_BITS;
     }
 
     public GeographicPointInterface getLocation() {
         return location;
     }
 
+    public PMVType getType() {
+        return type;
+    }
+
     // Métodos setter controlados con excepciones para asegurar cambios válidos de estado
 
     /**
@@ -59,26 +102,17 @@ public class PMVehicle {
      * @throws ProceduralException Si el vehículo ya está en estado "NotAvailable".
      */
     public void setNotAvailb() throws ProceduralException {
-        if (state == PMVState.NotAvailable) {
-            throw new ProceduralException("El vehículo ya está en estado NotAvailable.");
-        }
-        state = PMVState.NotAvailable;
+        transition(PMVState.NotAvailable);
     }
 
     /**
-     * Cambia el estado del vehículo a "En Trayecto".
+     * Cambia el estado del vehículo a "En Trayecto". También reanuda un trayecto aparcado temporalmente.
      * Si el vehículo no está disponible o ya está en trayecto, se lanza una excepción.
      *
      * @throws ProceduralException Si el vehículo ya está en trayecto o no está disponible.
      */
-    public static void setUnderWay() throws ProceduralException {
-        if (state == PMVState.UnderWay) {
-            throw new ProceduralException("El vehículo ya está en estado UnderWay.");
-        }
-        if (state == PMVState.NotAvailable) {
-            throw new ProceduralException("No se puede iniciar un trayecto si el vehículo no está disponible.");
-        }
-        state = PMVState.UnderWay;
+    public void setUnderWay() throws ProceduralException {
+        transition(PMVState.UnderWay);
     }
 
     /**
@@ -88,13 +122,62 @@ public class PMVehicle {
      * @throws ProceduralException Si el vehículo ya está en estado "Available" o está en movimiento.
      */
     public void setAvailb() throws ProceduralException {
-        if (state == PMVState.Available) {
-            throw new ProceduralException("El vehículo ya está en estado Available.");
+        transition(PMVState.Available);
+    }
+
+    /**
+     * Cambia el estado del vehículo a "Aparcado temporalmente", una pausa dentro de un trayecto.
+     * Solo un vehículo en trayecto puede aparcarse temporalmente.
+     *
+     * @throws ProceduralException Si el vehículo ya está aparcado temporalmente o no está en trayecto.
+     */
+    public void setTemporaryParking() throws ProceduralException {
+        transition(PMVState.TemporaryParking);
+    }
+
+    /**
+     * Aplica una transición de estado con compare-and-set. Si otro hilo cambia el estado entre la
+     * lectura y la escritura, la transición se valida de nuevo sobre el estado actualizado.
+     *
+     * @param target Estado de destino.
+     * @return Estado anterior a la transición.
+     * @throws ProceduralException Si la transición no está permitida desde el estado actual.
+     */
+    private PMVState transition(PMVState target) throws ProceduralException {
+        while (true) {
+            int word = stateWord.get();
+            PMVState current = STATES[word & STATE_MASK];
+            checkTransition(current, target);
+            int next = (((word >>> STATE_BITS) + 1) << STATE_BITS) | target.ordinal();
+            if (stateWord.compareAndSet(word, next)) {
+                return current;
+            }
+        }
+    }
+
+    private static void checkTransition(PMVState current, PMVState target) throws ProceduralException {
+        if (current == target) {
+            throw new ProceduralException("El vehículo ya está en estado " + target + ".");
         }
-        if (state == PMVState.UnderWay) {
-            throw new ProceduralException("No se puede cambiar a Available mientras el vehículo está en movimiento.");
+        switch (target) {
+            case UnderWay:
+                if (current == PMVState.NotAvailable) {
+                    throw new ProceduralException("No se puede iniciar un trayecto si el vehículo no está disponible.");
+                }
+                break;
+            case Available:
+                if (current == PMVState.UnderWay) {
+                    throw new ProceduralException("No se puede cambiar a Available mientras el vehículo está en movimiento.");
+                }
+                break;
+            case TemporaryParking:
+                if (current != PMVState.UnderWay) {
+                    throw new ProceduralException("Solo se puede aparcar temporalmente un vehículo en trayecto.");
+                }
+                break;
+            default:
+                break;
         }
-        state = PMVState.Available;
     }
 
     /**
@@ -0,0 +1,89 @@
+package micromobility;
+
+import data.GeographicDistance;
+import data.interfaces.GeographicPointInterface;
+
+/**
+ * Acumula la distancia recorrida a partir de las posiciones sucesivas de un trayecto.
+ *
+ * Solo se guarda la última posición (en radianes, junto con el coseno de su latitud) y la distancia
+ * total, por lo que la memoria es constante sea cual sea la longitud del trayecto y añadir una posición
+ * no reserva ningún objeto. Cada tramo se mide con la fórmula del haversine.
+ */
+public final class TrajectoryAccumulator {
+    private double lastLatRad;
+    private double lastLonRad;
+    private double lastCosLat;
+    private boolean hasLast;
+    private double totalMeters;
+    private long samples;
+
+    /**
+     * Vacía el acumulador: sin posición previa y con distancia cero.
+     */
+    public synchronized void reset() {
+        hasLast = false;
+        totalMeters = 0.0;
+        samples = 0;
+    }
+
+    /**
+     * Vacía el acumulador y toma el punto indicado como inicio del trayecto.
+     *
+     * @param origin Punto de inicio. Si es null, el trayecto empieza en la primera posición añadida.
+     */
+    public synchronized void reset(GeographicPointInterface origin) {
+        reset();
+        if (origin != null) {
+            add(origin.getLatitude(), origin.getLongitude());
+        }
+    }
+
+    /**
+     * Añade una posición al trayecto.
+     *
+     * @param point Nueva posición. Las posiciones null se ignoran.
+     */
+    public void add(GeographicPointInterface point) {
+        if (point != null) {
+            add(point.getLatitude(), point.getLongitude());
+        }
+    }
+
+    /**
+     * Añade una posición al trayecto y suma la distancia desde la posición anterior.
+     *
+     * @param latitude  Latitud en grados.
+     * @param longitude Longitud en grados.
+     */
+    public synchronized void add(float latitude, float longitude) {
+        double latRad = Math.toRadians(latitude);
+        double lonRad = Math.toRadians(longitude);
+        double cosLat = Math.cos(latRad);
+        if (hasLast) {
+            double sinDPhi = Math.sin((latRad - lastLatRad) * 0.5);
+            double sinDLambda = Math.sin((lonRad - lastLonRad) * 0.5);
+            double h = sinDPhi * sinDPhi + lastCosLat * cosLat * sinDLambda * sinDLambda;
+            totalMeters += 2.0 * GeographicDistance.EARTH_RADIUS_METERS * Math.asin(Math.min(1.0, Math.sqrt(h)));
+        }
+        lastLatRad = latRad;
+        lastLonRad = lonRad;
+        lastCosLat = cosLat;
+        hasLast = true;
+        samples++;
+    }
+
+    /**
+     * @return Distancia total recorrida en metros.
+     */
+    public synchronized double getDistanceMeters() {
+        return totalMeters;
+    }
+
+    /**
+     * @return Número de posiciones añadidas desde el último reinicio.
+     */
+    public synchronized long getSamples() {
+        return samples;
+    }
+}
@@ -0,0 +1,104 @@
+package micromobility.tariffs;
+
+import micromobility.PMVType;
+
+import java.util.Map;
+
+/**
+ * Tarifa compilada e inmutable.
+ *
+ * Al construirse a partir de unas {@link TariffRules}, todos los multiplicadores (tipo de vehículo y
+ * hora punta) se aplican de antemano y se guardan en tablas de primitivos indexadas por tipo y hora de
+ * inicio; los recargos por estación se guardan en tablas indexadas por el ID de la estación. Calcular un
+ * precio solo requiere unas pocas lecturas de array y operaciones con enteros, sin reservar memoria.
+ * Los importes intermedios se calculan en milésimas de céntimo para no acumular redondeos.
+ */
+public final class Tariff {
+    private static final int HOURS = 24;
+    private static final int MAX_STATION_ID = 1 << 20;
+
+    private final String name;
+    private final long[] unlockMilli; // [tipo * 24 + hora] milésimas de céntimo
+    private final long[] perMinuteMilli; // [tipo * 24 + hora] milésimas de céntimo por minuto
+    private final long[] perKmMilli; // [tipo * 24 + hora] milésimas de céntimo por kilómetro
+    private final long[] originSurcharge; // [ID de estación] céntimos
+    private final long[] destinationSurcharge; // [ID de estación] céntimos
+    private final long minimumFareCents;
+
+    /**
+     * Compila unas reglas de tarifa.
+     *
+     * @param name  Nombre de la tarifa.
+     * @param rules Reglas a compilar. Los cambios posteriores en las reglas no afectan a la tarifa.
+     * @throws IllegalArgumentException Si algún ID de estación con recargo no es válido.
+     */
+    public Tariff(String name, TariffRules rules) {
+        this.name = name;
+        PMVType[] types = PMVType.values();
+        this.unlockMilli = new long[types.length * HOURS];
+        this.perMinuteMilli = new long[types.length * HOURS];
+        this.perKmMilli = new long[types.length * HOURS];
+        for (PMVType type : types) {
+            for (int hour = 0; hour < HOURS; hour++) {
+                long hourPermille = rules.getHourPermille(hour);
+                long combined = rules.getTypePermille(type) * hourPermille; // millonésimas
+                int idx = type.ordinal() * HOURS + hour;
+                unlockMilli[idx] = rules.getUnlockFeeCents() * combined / 1000;
+                perMinuteMilli[idx] = rules.getPerMinuteCents() * combined / 1000;
+                perKmMilli[idx] = rules.getPerKmCents() * combined / 1000;
+            }
+        }
+        this.originSurcharge = compileStations(rules.getOriginSurchargeCents());
+        this.destinationSurcharge = compileStations(rules.getDestinationSurchargeCents());
+        this.minimumFareCents = rules.getMinimumFareCents();
+    }
+
+    /**
+     * Calcula el importe de un trayecto.
+     *
+     * @param durationMinutes      Duración en minutos.
+     * @param distanceMeters       Distancia recorrida en metros.
+     * @param startHour            Hora de inicio (0-23).
+     * @param originStationId      ID de la estación de origen, o 0 si no se conoce.
+     * @param destinationStationId ID de la estación de destino, o 0 si no se conoce.
+     * @param type                 Tipo de vehículo.
+     * @return Importe en céntimos.
+     */
+    public long priceCents(int durationMinutes, long distanceMeters, int startHour,
+                           int originStationId, int destinationStationId, PMVType type) {
+        int idx = type.ordinal() * HOURS + Math.floorMod(startHour, HOURS);
+        long milli = unlockMilli[idx]
+                + perMinuteMilli[idx] * Math.max(0, durationMinutes)
+                + perKmMilli[idx] * Math.max(0L, distanceMeters) / 1000;
+        long cents = (milli + 500) / 1000
+                + lookup(originSurcharge, originStationId)
+                + lookup(destinationSurcharge, destinationStationId);
+        return Math.max(cents, minimumFareCents);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return "Tariff{name='" + name + "'}";
+    }
+
+    private static long lookup(long[] table, int stationId) {
+        return stationId > 0 && stationId < table.length ? table[stationId] : 0L;
+    }
+
+    private static long[] compileStations(Map<Integer, Long> surcharges) {
+        int maxId = 0;
+        for (int id : surcharges.keySet()) {
+            if (id <= 0 || id > MAX_STATION_ID) {
+                throw new IllegalArgumentException("Invalid station ID in tariff: " + id);
+            }
+            maxId = Math.max(maxId, id);
+        }
+        long[] table = new long[surcharges.isEmpty() ? 0 : maxId + 1];
+        surcharges.forEach((id, cents) -> table[id] = cents);
+        return table;
+    }
+}
@@ -0,0 +1,84 @@
+package micromobility.tariffs;
+
+import micromobility.PMVType;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Implementación de TariffEngineInterface.
+ *
+ * La tarifa vigente se publica en una referencia atómica. Cada cálculo lee la referencia una sola vez y
+ * trabaja con esa tarifa inmutable, de modo que un cambio de tarifa nunca bloquea ni altera un cálculo
+ * que ya está en curso: los trayectos que terminan después del cambio usan la tarifa nueva.
+ */
+public class TariffEngine implements TariffEngineInterface {
+    private static volatile TariffEngine shared;
+
+    private final AtomicReference<Tariff> tariff = new AtomicReference<>();
+
+    /**
+     * Crea el motor con la tarifa estándar.
+     */
+    public TariffEngine() {
+        this(new Tariff("standard", TariffRules.standard()));
+    }
+
+    /**
+     * Crea el motor con la tarifa indicada.
+     *
+     * @param tariff Tarifa inicial.
+     * @throws IllegalArgumentException Si la tarifa es nula.
+     */
+    public TariffEngine(Tariff tariff) {
+        if (tariff == null) {
+            throw new IllegalArgumentException("Tariff cannot be null");
+        }
+        this.tariff.set(tariff);
+    }
+
+    /**
+     * Obtiene el motor compartido por toda la aplicación, con la tarifa estándar mientras no se sustituya.
+     * Un cambio de tarifa en este motor se aplica a todos los trayectos que lo usan.
+     *
+     * @return Motor compartido.
+     */
+    public static TariffEngine shared() {
+        TariffEngine engine = shared;
+        if (engine == null) {
+            synchronized (TariffEngine.class) {
+                engine = shared;
+                if (engine == null) {
+                    engine = new TariffEngine();
+                    shared = engine;
+                }
+            }
+        }
+        return engine;
+    }
+
+    @Override
+    public long priceCents(int durationMinutes, long distanceMeters, int startHour,
+                           int originStationId, int destinationStationId, PMVType type) {
+        return tariff.get().priceCents(durationMinutes, distanceMeters, startHour, originStationId, destinationStationId, type);
+    }
+
+    /**
+     * Sustituye la tarifa vigente.
+     *
+     * @param tariff Nueva tarifa.
+     * @return La tarifa anterior.
+     * @throws IllegalArgumentException Si la tarifa es nula.
+     */
+    @Override
+    public Tariff swapTariff(Tariff tariff) {
+        if (tariff == null) {
+            throw new IllegalArgumentException("Tariff cannot be null");
+        }
+        return this.tariff.getAndSet(tariff);
+    }
+
+    @Override
+    public Tariff getTariff() {
+        return tariff.get();
+    }
+}
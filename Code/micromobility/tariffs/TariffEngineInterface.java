@@ -0,0 +1,17 @@
+package micromobility.tariffs;
+
+import micromobility.PMVType;
+
+/**
+ * Servicio de cálculo del importe de los trayectos.
+ */
+public interface TariffEngineInterface {
+    // Calcula el importe de un trayecto en céntimos con la tarifa vigente
+    long priceCents(int durationMinutes, long distanceMeters, int startHour,
+                    int originStationId, int destinationStationId, PMVType type);
+
+    // Sustituye la tarifa vigente sin bloquear los cálculos en curso
+    Tariff swapTariff(Tariff tariff);
+
+    Tariff getTariff();
+}
@@ -0,0 +1,145 @@
+package micromobility.tariffs;
+
+import micromobility.PMVType;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Definición editable de una tarifa. Describe las reglas de precio en términos legibles
+ * (céntimos y multiplicadores en tantos por mil); para calcular precios se compila en un {@link Tariff}.
+ */
+public class TariffRules {
+    private long unlockFeeCents = 100; // Importe fijo por desbloquear el vehículo
+    private long perMinuteCents = 25; // Importe por minuto de trayecto
+    private long perKmCents = 0; // Importe por kilómetro recorrido
+    private long minimumFareCents = 100; // Importe mínimo de un trayecto
+    private final boolean[] peakHours = new boolean[24]; // Horas de inicio consideradas punta
+    private final int[] peakPermille = new int[24]; // Multiplicador de cada hora punta, en tantos por mil
+    private final EnumMap<PMVType, Integer> typePermille = new EnumMap<>(PMVType.class); // Multiplicador por tipo de vehículo
+    private final Map<Integer, Long> originSurchargeCents = new HashMap<>(); // Recargo (o descuento) por estación de origen
+    private final Map<Integer, Long> destinationSurchargeCents = new HashMap<>(); // Recargo (o descuento) por estación de destino
+
+    /**
+     * Crea unas reglas con los valores por defecto: 1 € por desbloqueo, 0,25 € por minuto,
+     * importe mínimo de 1 € y sin recargos.
+     */
+    public TariffRules() {
+        for (PMVType type : PMVType.values()) {
+            typePermille.put(type, 1000);
+        }
+    }
+
+    /**
+     * Tarifa estándar: horas punta de 7 a 9 y de 17 a 19 con un 20% de recargo, y multiplicadores
+     * según el tipo de vehículo.
+     *
+     * @return Reglas de la tarifa estándar.
+     */
+    public static TariffRules standard() {
+        TariffRules rules = new TariffRules();
+        rules.setPeakHours(7, 9, 1200);
+        rules.setPeakHours(17, 19, 1200);
+        rules.setTypePermille(PMVType.Bike, 600);
+        rules.setTypePermille(PMVType.EBike, 800);
+        rules.setTypePermille(PMVType.Moped, 1500);
+        return rules;
+    }
+
+    public long getUnlockFeeCents() {
+        return unlockFeeCents;
+    }
+
+    public void setUnlockFeeCents(long unlockFeeCents) {
+        this.unlockFeeCents = requireNonNegative(unlockFeeCents);
+    }
+
+    public long getPerMinuteCents() {
+        return perMinuteCents;
+    }
+
+    public void setPerMinuteCents(long perMinuteCents) {
+        this.perMinuteCents = requireNonNegative(perMinuteCents);
+    }
+
+    public long getPerKmCents() {
+        return perKmCents;
+    }
+
+    public void setPerKmCents(long perKmCents) {
+        this.perKmCents = requireNonNegative(perKmCents);
+    }
+
+    public long getMinimumFareCents() {
+        return minimumFareCents;
+    }
+
+    public void setMinimumFareCents(long minimumFareCents) {
+        this.minimumFareCents = requireNonNegative(minimumFareCents);
+    }
+
+    /**
+     * Marca como punta las horas de inicio del intervalo [fromHour, toHour), con su propio multiplicador.
+     * Los intervalos anteriores conservan el suyo.
+     *
+     * @param fromHour Primera hora punta (0-23).
+     * @param toHour   Hora en la que termina la punta (1-24).
+     * @param permille Multiplicador de la hora punta en tantos por mil.
+     * @throws IllegalArgumentException Si el intervalo o el multiplicador no son válidos.
+     */
+    public void setPeakHours(int fromHour, int toHour, int permille) {
+        if (fromHour < 0 || toHour > 24 || fromHour >= toHour) {
+            throw new IllegalArgumentException("Invalid peak hour range");
+        }
+        int value = (int) requireNonNegative(permille);
+        for (int h = fromHour; h < toHour; h++) {
+            peakHours[h] = true;
+            peakPermille[h] = value;
+        }
+    }
+
+    public boolean isPeakHour(int hour) {
+        return peakHours[Math.floorMod(hour, 24)];
+    }
+
+    /**
+     * @param hour Hora de inicio del trayecto.
+     * @return Multiplicador de esa hora en tantos por mil: el de su intervalo punta, o 1000 si no es punta.
+     */
+    public int getHourPermille(int hour) {
+        int h = Math.floorMod(hour, 24);
+        return peakHours[h] ? peakPermille[h] : 1000;
+    }
+
+    public void setTypePermille(PMVType type, int permille) {
+        typePermille.put(type, (int) requireNonNegative(permille));
+    }
+
+    public int getTypePermille(PMVType type) {
+        return typePermille.get(type);
+    }
+
+    public void setOriginSurchargeCents(int stationId, long cents) {
+        originSurchargeCents.put(stationId, cents);
+    }
+
+    public Map<Integer, Long> getOriginSurchargeCents() {
+        return originSurchargeCents;
+    }
+
+    public void setDestinationSurchargeCents(int stationId, long cents) {
+        destinationSurchargeCents.put(stationId, cents);
+    }
+
+    public Map<Integer, Long> getDestinationSurchargeCents() {
+        return destinationSurchargeCents;
+    }
+
+    private static long requireNonNegative(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Tariff values cannot be negative");
+        }
+        return value;
+    }
+}
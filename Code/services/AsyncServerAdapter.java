@@ -0,0 +1,157 @@
+package services;
+
+import data.interfaces.GeographicPointInterface;
+import data.interfaces.StationIDInterface;
+import data.interfaces.UserAccountInterface;
+import data.interfaces.VehicleIDInterface;
+import micromobility.JourneyServiceInterface;
+
+import java.net.ConnectException;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Adapta un {@link ServerInterface} síncrono a {@link AsyncServerInterface}: cada llamada se ejecuta en
+ * el {@link Executor} indicado y el hilo que la hace queda libre de inmediato.
+ *
+ * Por defecto se usa un grupo de hilos propio y no el {@code ForkJoinPool} común, porque las llamadas al
+ * servidor esperan a la red o al log y no deben ocupar los hilos de cálculo. El grupo está acotado a
+ * {@value #MAX_THREADS} hilos y {@value #MAX_QUEUED} llamadas en espera; si se llenan, la llamada no se
+ * encola y su futuro falla con una {@link ConnectException}, como cuando el servidor no responde, para que
+ * los llamadores la reintenten igual.
+ */
+public class AsyncServerAdapter implements AsyncServerInterface {
+    static final int MAX_THREADS = 32;
+    static final int MAX_QUEUED = 1024;
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    private static final ExecutorService SHARED_EXECUTOR = boundedExecutor(MAX_THREADS, MAX_QUEUED);
+
+    private final ServerInterface server;
+    private final Executor executor;
+
+    /**
+     * Crea un adaptador que ejecuta las llamadas en el grupo de hilos compartido.
+     *
+     * @param server Servidor síncrono.
+     */
+    public AsyncServerAdapter(ServerInterface server) {
+        this(server, SHARED_EXECUTOR);
+    }
+
+    /**
+     * Crea un adaptador que ejecuta las llamadas en el ejecutor indicado.
+     *
+     * @param server   Servidor síncrono.
+     * @param executor Ejecutor de las llamadas.
+     * @throws IllegalArgumentException Si alguno de los parámetros es nulo.
+     */
+    public AsyncServerAdapter(ServerInterface server, Executor executor) {
+        if (server == null || executor == null) {
+            throw new IllegalArgumentException("Server and executor cannot be null");
+        }
+        this.server = server;
+        this.executor = executor;
+    }
+
+    /**
+     * Crea un grupo de hilos acotado. Los hilos se crean según hace falta y terminan tras un minuto sin
+     * trabajo; una llamada que no cabe en la cola se rechaza en lugar de crear más hilos.
+     */
+    static ExecutorService boundedExecutor(int threads, int queued) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queued), r -> {
+                    Thread thread = new Thread(r, "server-async-" + THREAD_COUNT.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    @Override
+    public CompletableFuture<Void> checkPMVAvailAsync(VehicleIDInterface vhID) {
+        return run(() -> server.checkPMVAvail(vhID));
+    }
+
+    @Override
+    public CompletableFuture<String> reserveVehicleAsync(UserAccountInterface user, VehicleIDInterface veh, StationIDInterface st,
+                                                         GeographicPointInterface loc, LocalDateTime date, JourneyServiceInterface journey) {
+        return call(() -> server.reserveVehicle(user, veh, st, loc, date, journey));
+    }
+
+    @Override
+    public CompletableFuture<Void> registerPairingAsync(UserAccountInterface user, VehicleIDInterface veh, StationIDInterface st,
+                                                        GeographicPointInterface loc, LocalDateTime date, JourneyServiceInterface journey) {
+        return run(() -> server.registerPairing(user, veh, st, loc, date, journey));
+    }
+
+    @Override
+    public CompletableFuture<Void> stopPairingAsync(UserAccountInterface user, VehicleIDInterface veh, StationIDInterface st,
+                                                    GeographicPointInterface loc, LocalDateTime date, long avSp, long dist,
+                                                    int dur, long imp, JourneyServiceInterface journey) {
+        return run(() -> server.stopPairing(user, veh, st, loc, date, avSp, dist, dur, imp, journey));
+    }
+
+    @Override
+    public CompletableFuture<Void> stopPairingAsync(String requestKey, UserAccountInterface user, VehicleIDInterface veh,
+                                                    StationIDInterface st, GeographicPointInterface loc, LocalDateTime date,
+                                                    long avSp, long dist, int dur, long imp, JourneyServiceInterface journey) {
+        return run(() -> server.stopPairing(requestKey, user, veh, st, loc, date, avSp, dist, dur, imp, journey));
+    }
+
+    @Override
+    public CompletableFuture<Void> registerLocationAsync(VehicleIDInterface veh, StationIDInterface st) {
+        return run(() -> server.registerLocation(veh, st));
+    }
+
+    @Override
+    public CompletableFuture<LocationBatchResult> registerLocationsAsync(LocationBatch batch) {
+        return call(() -> server.registerLocations(batch));
+    }
+
+    /**
+     * Ejecuta una llamada en el ejecutor y traslada su resultado o su excepción, sin envolverla, al futuro.
+     * Si el ejecutor rechaza la llamada, el futuro falla con una {@link ConnectException} cuya causa es el rechazo.
+     */
+    private <T> CompletableFuture<T> call(ServerCall<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(call.call());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            ConnectException overloaded = new ConnectException("Connection failed: server overloaded.");
+            overloaded.initCause(e);
+            future.completeExceptionally(overloaded);
+        }
+        return future;
+    }
+
+    private CompletableFuture<Void> run(ServerAction action) {
+        return call(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    @FunctionalInterface
+    private interface ServerCall<T> {
+        T call() throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface ServerAction {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,41 @@
+package services;
+
+import data.interfaces.GeographicPointInterface;
+import data.interfaces.StationIDInterface;
+import data.interfaces.UserAccountInterface;
+import data.interfaces.VehicleIDInterface;
+import micromobility.JourneyServiceInterface;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Variante no bloqueante de {@link ServerInterface}. Cada operación devuelve inmediatamente un
+ * {@link CompletableFuture}; los errores no se lanzan, sino que completan el futuro excepcionalmente
+ * con la misma excepción que lanzaría la operación síncrona ({@code ConnectException},
+ * {@code PMVNotAvailException}, {@code InvalidPairingArgsException}...).
+ */
+public interface AsyncServerInterface {
+    CompletableFuture<Void> checkPMVAvailAsync(VehicleIDInterface vhID);
+
+    // Completes with the reservation token
+    CompletableFuture<String> reserveVehicleAsync(UserAccountInterface user, VehicleIDInterface veh, StationIDInterface st,
+                                                  GeographicPointInterface loc, LocalDateTime date, JourneyServiceInterface journey);
+
+    CompletableFuture<Void> registerPairingAsync(UserAccountInterface user, VehicleIDInterface veh, StationIDInterface st,
+                                                 GeographicPointInterface loc, LocalDateTime date, JourneyServiceInterface journey);
+
+    // avSp in millimetres per minute, dist in millimetres, imp in cents
+    CompletableFuture<Void> stopPairingAsync(UserAccountInterface user, VehicleIDInterface veh, StationIDInterface st,
+                                             GeographicPointInterface loc, LocalDateTime date, long avSp, long dist,
+                                             int dur, long imp, JourneyServiceInterface journey);
+
+    // Retry-safe variant: repeating a call with the same requestKey completes with the first outcome
+    CompletableFuture<Void> stopPairingAsync(String requestKey, UserAccountInterface user, VehicleIDInterface veh,
+                                             StationIDInterface st, GeographicPointInterface loc, LocalDateTime date,
+                                             long avSp, long dist, int dur, long imp, JourneyServiceInterface journey);
+
+    CompletableFuture<Void> registerLocationAsync(VehicleIDInterface veh, StationIDInterface st);
+
+    CompletableFuture<LocationBatchResult> registerLocationsAsync(LocationBatch batch);
+}
@@ -0,0 +1,292 @@
+package services;
+
+import data.GeographicDistance;
+
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntConsumer;
+
+/**
+ * Registro columnar de la flota, indexado directamente por el identificador entero del vehículo.
+ *
+ * En lugar de un objeto por vehículo, cada atributo se guarda en su propia columna de primitivos
+ * (latitud y longitud en {@code float}, estación en {@code int} y estado en un {@code byte}), unos
+ * 17 bytes por vehículo. Las columnas se reparten en páginas de {@value #PAGE_SIZE} vehículos que se
+ * reservan al escribir el primer vehículo de cada página, en el heap o fuera de él según se indique.
+ * Los recorridos de la flota leen las columnas de forma secuencial.
+ *
+ * Es una estructura independiente: el {@link Server} no la usa y sigue guardando un {@link VehicleState}
+ * por vehículo, con sus entradas en los mapas y en los índices espaciales, así que su consumo de memoria no
+ * se reduce. El registro sirve a quien solo necesita estas cuatro columnas de toda la flota.
+ *
+ * Cada vehículo debe tener un único escritor a la vez; quien use el registro es responsable de
+ * serializar las escrituras de un mismo vehículo. Los lectores no bloquean: un número de secuencia por vehículo (seqlock) les permite
+ * detectar una escritura concurrente y repetir la lectura, de modo que nunca observan una posición
+ * a medio actualizar.
+ */
+public class ColumnarFleetRegistry {
+    public static final byte UNREGISTERED = 0;
+    public static final byte AVAILABLE = 1;
+    public static final byte NOT_AVAILABLE = 2;
+    public static final byte RESERVED = 3;
+
+    static final int PAGE_SIZE = 1 << 14;
+    private static final int PAGE_SHIFT = 14;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final int LAT_OFFSET = 0;
+    private static final int LON_OFFSET = PAGE_SIZE * 4;
+    private static final int STATION_OFFSET = PAGE_SIZE * 8;
+    private static final int SEQ_OFFSET = PAGE_SIZE * 12;
+    private static final int STATE_OFFSET = PAGE_SIZE * 16;
+    private static final int PAGE_BYTES = PAGE_SIZE * 17;
+
+    private final int capacity;
+    private final boolean offHeap;
+    private final AtomicReferenceArray<ByteBuffer> pages;
+    private final AtomicInteger registered = new AtomicInteger();
+
+    /**
+     * Crea un registro en el heap que admite cualquier identificador de vehículo no negativo.
+     */
+    public ColumnarFleetRegistry() {
+        this(Integer.MAX_VALUE, false);
+    }
+
+    /**
+     * Crea un registro.
+     *
+     * @param capacity Identificador máximo admitido más uno.
+     * @param offHeap  Si es {@code true}, las columnas se guardan en memoria directa, fuera del heap.
+     * @throws IllegalArgumentException Si la capacidad no es positiva.
+     */
+    public ColumnarFleetRegistry(int capacity, boolean offHeap) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.offHeap = offHeap;
+        this.pages = new AtomicReferenceArray<>(((capacity - 1) >>> PAGE_SHIFT) + 1);
+    }
+
+    /**
+     * Escribe el estado de un vehículo. Las escrituras sobre un mismo vehículo deben serializarse
+     * externamente.
+     *
+     * @param vehicleId Identificador del vehículo.
+     * @param latitude  Latitud, o {@code NaN} si no se conoce.
+     * @param longitude Longitud, o {@code NaN} si no se conoce.
+     * @param stationId Identificador de la estación, o 0 si no se conoce.
+     * @param state     Estado del vehículo ({@link #AVAILABLE}, {@link #NOT_AVAILABLE}, {@link #RESERVED}
+     *                  o {@link #UNREGISTERED} para darlo de baja).
+     * @throws IllegalArgumentException Si el identificador está fuera de la capacidad del registro.
+     */
+    public void put(int vehicleId, float latitude, float longitude, int stationId, byte state) {
+        ByteBuffer page = pageForWrite(vehicleId);
+        int slot = vehicleId & PAGE_MASK;
+        int seqIndex = SEQ_OFFSET + slot * 4;
+        int seq = page.getInt(seqIndex);
+        page.putInt(seqIndex, seq + 1); // impar: escritura en curso
+        VarHandle.storeStoreFence();
+
+        byte previous = page.get(STATE_OFFSET + slot);
+        page.putFloat(LAT_OFFSET + slot * 4, latitude);
+        page.putFloat(LON_OFFSET + slot * 4, longitude);
+        page.putInt(STATION_OFFSET + slot * 4, stationId);
+        page.put(STATE_OFFSET + slot, state);
+
+        VarHandle.releaseFence();
+        page.putInt(seqIndex, seq + 2); // par: escritura completa
+
+        if (previous == UNREGISTERED && state != UNREGISTERED) {
+            registered.incrementAndGet();
+        } else if (previous != UNREGISTERED && state == UNREGISTERED) {
+            registered.decrementAndGet();
+        }
+    }
+
+    /**
+     * Lee el estado de un vehículo sin bloquear.
+     *
+     * @param vehicleId Identificador del vehículo.
+     * @return Estado del vehículo, o {@link #UNREGISTERED} si no está registrado.
+     */
+    public byte getState(int vehicleId) {
+        ByteBuffer page = pageForRead(vehicleId);
+        return page == null ? UNREGISTERED : page.get(STATE_OFFSET + (vehicleId & PAGE_MASK));
+    }
+
+    /**
+     * Lee de forma consistente todos los atributos de un vehículo.
+     *
+     * @param vehicleId Identificador del vehículo.
+     * @param into      Contenedor que recibe los atributos. Se puede reutilizar entre lecturas.
+     * @return {@code true} si el vehículo está registrado.
+     */
+    public boolean read(int vehicleId, Slot into) {
+        ByteBuffer page = pageForRead(vehicleId);
+        if (page == null) {
+            into.set(Float.NaN, Float.NaN, 0, UNREGISTERED);
+            return false;
+        }
+        int slot = vehicleId & PAGE_MASK;
+        int seqIndex = SEQ_OFFSET + slot * 4;
+        while (true) {
+            int before = page.getInt(seqIndex);
+            if ((before & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            VarHandle.acquireFence();
+            float latitude = page.getFloat(LAT_OFFSET + slot * 4);
+            float longitude = page.getFloat(LON_OFFSET + slot * 4);
+            int stationId = page.getInt(STATION_OFFSET + slot * 4);
+            byte state = page.get(STATE_OFFSET + slot);
+            VarHandle.acquireFence();
+            if (page.getInt(seqIndex) == before) {
+                into.set(latitude, longitude, stationId, state);
+                return state != UNREGISTERED;
+            }
+        }
+    }
+
+    /**
+     * @return Número de vehículos registrados.
+     */
+    public int size() {
+        return registered.get();
+    }
+
+    /**
+     * @return {@code true} si las columnas se guardan fuera del heap.
+     */
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    /**
+     * Cuenta los vehículos en un estado recorriendo solo la columna de estados.
+     *
+     * @param state Estado buscado.
+     * @return Número de vehículos en ese estado.
+     */
+    public int countInState(byte state) {
+        int count = 0;
+        for (int p = 0; p < pages.length(); p++) {
+            ByteBuffer page = pages.get(p);
+            if (page == null) {
+                continue;
+            }
+            for (int slot = 0; slot < PAGE_SIZE; slot++) {
+                if (page.get(STATE_OFFSET + slot) == state) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Recorre los vehículos disponibles situados a una distancia menor o igual que {@code radiusMeters}
+     * del punto. Se filtra primero por estado y por el rectángulo que envuelve el círculo, y solo los
+     * candidatos que lo superan se leen de forma consistente y se miden con el haversine.
+     *
+     * @param latitude     Latitud del punto.
+     * @param longitude    Longitud del punto.
+     * @param radiusMeters Radio de búsqueda en metros.
+     * @param action       Acción que recibe el identificador de cada vehículo encontrado.
+     * @return Número de vehículos encontrados.
+     * @throws IllegalArgumentException Si el radio es negativo.
+     */
+    public int forEachAvailableWithin(float latitude, float longitude, double radiusMeters, IntConsumer action) {
+        if (radiusMeters < 0) {
+            throw new IllegalArgumentException("Radius must not be negative");
+        }
+        double latSpan = radiusMeters / GeographicDistance.METERS_PER_DEGREE;
+        double cos = Math.cos(Math.toRadians(Math.min(90.0, Math.abs(latitude) + latSpan)));
+        double lonSpan = cos <= 1e-9 ? 360.0 : latSpan / cos;
+        Slot slotData = new Slot();
+        int found = 0;
+        for (int p = 0; p < pages.length(); p++) {
+            ByteBuffer page = pages.get(p);
+            if (page == null) {
+                continue;
+            }
+            for (int slot = 0; slot < PAGE_SIZE; slot++) {
+                if (page.get(STATE_OFFSET + slot) != AVAILABLE
+                        || Math.abs(page.getFloat(LAT_OFFSET + slot * 4) - latitude) > latSpan) {
+                    continue;
+                }
+                double dLon = Math.abs(page.getFloat(LON_OFFSET + slot * 4) - longitude);
+                if (Math.min(dLon, 360.0 - dLon) > lonSpan) {
+                    continue;
+                }
+                int vehicleId = (p << PAGE_SHIFT) | slot;
+                if (read(vehicleId, slotData) && slotData.state == AVAILABLE
+                        && GeographicDistance.haversineMeters(latitude, longitude, slotData.latitude, slotData.longitude) <= radiusMeters) {
+                    action.accept(vehicleId);
+                    found++;
+                }
+            }
+        }
+        return found;
+    }
+
+    private ByteBuffer pageForRead(int vehicleId) {
+        if (vehicleId < 0 || vehicleId >= capacity) {
+            return null;
+        }
+        return pages.get(vehicleId >>> PAGE_SHIFT);
+    }
+
+    private ByteBuffer pageForWrite(int vehicleId) {
+        if (vehicleId < 0 || vehicleId >= capacity) {
+            throw new IllegalArgumentException("Vehicle ID " + vehicleId + " is outside the registry capacity");
+        }
+        int index = vehicleId >>> PAGE_SHIFT;
+        ByteBuffer page = pages.get(index);
+        if (page == null) {
+            ByteBuffer created = (offHeap ? ByteBuffer.allocateDirect(PAGE_BYTES) : ByteBuffer.allocate(PAGE_BYTES))
+                    .order(ByteOrder.nativeOrder());
+            pages.compareAndSet(index, null, created);
+            page = pages.get(index);
+        }
+        return page;
+    }
+
+    /**
+     * Atributos de un vehículo leídos del registro. Es mutable para poder reutilizarse sin reservar
+     * un objeto por lectura.
+     */
+    public static final class Slot {
+        private float latitude = Float.NaN;
+        private float longitude = Float.NaN;
+        private int stationId;
+        private byte state;
+
+        private void set(float latitude, float longitude, int stationId, byte state) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.stationId = stationId;
+            this.state = state;
+        }
+
+        public float getLatitude() {
+            return latitude;
+        }
+
+        public float getLongitude() {
+            return longitude;
+        }
+
+        public int getStationId() {
+            return stationId;
+        }
+
+        public byte getState() {
+            return state;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package services.Exceptions;
+
+public class QRNotFoundException extends QRImgException {
+    public QRNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package services.Exceptions;
+
+public class WireFormatException extends Exception {
+    public WireFormatException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,223 @@
+package services;
+
+import data.interfaces.VehicleIDInterface;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Almacén concurrente del estado de la flota.
+ *
+ * Cada vehículo tiene un único {@link VehicleState} inmutable. Las lecturas no bloquean y siempre
+ * observan un estado completo. Las escrituras se serializan mediante un conjunto fijo de cerrojos
+ * (lock striping): dos vehículos que caen en franjas distintas se actualizan en paralelo, y no existe
+ * ningún cerrojo global. Las reservas, que solo dependen de la disponibilidad actual, no toman cerrojo:
+ * se resuelven con un único compare-and-set sobre el registro ({@link #compareAndSet}).
+ */
+public class FleetStateStore {
+    private static final int DEFAULT_STRIPES = 64;
+
+    private final ConcurrentHashMap<VehicleIDInterface, VehicleState> states = new ConcurrentHashMap<>();
+    // Los lotes de telemetría identifican los vehículos por su identificador entero
+    private final ConcurrentHashMap<Integer, VehicleIDInterface> vehiclesById = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    /**
+     * Crea un almacén con el número de franjas por defecto.
+     */
+    public FleetStateStore() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * Crea un almacén con, al menos, el número de franjas indicado (se redondea a potencia de dos).
+     *
+     * @param stripes Número mínimo de franjas de bloqueo.
+     * @throws IllegalArgumentException Si el número de franjas no es positivo.
+     */
+    public FleetStateStore(int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("Stripe count must be positive");
+        }
+        int size = Integer.highestOneBit(stripes);
+        if (size < stripes) {
+            size <<= 1;
+        }
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Obtiene el estado actual de un vehículo sin bloquear.
+     *
+     * @param veh Vehículo consultado.
+     * @return Estado del vehículo, o null si no está registrado.
+     */
+    public VehicleState get(VehicleIDInterface veh) {
+        return states.get(veh);
+    }
+
+    /**
+     * Indica si el vehículo está registrado en el almacén.
+     *
+     * @param veh Vehículo consultado.
+     * @return {@code true} si el vehículo tiene un estado registrado.
+     */
+    public boolean contains(VehicleIDInterface veh) {
+        return states.containsKey(veh);
+    }
+
+    /**
+     * Busca un vehículo registrado a partir de su identificador entero.
+     *
+     * @param vehicleId Identificador del vehículo.
+     * @return Vehículo registrado, o null si no hay ninguno con ese identificador.
+     */
+    public VehicleIDInterface find(int vehicleId) {
+        return vehiclesById.get(vehicleId);
+    }
+
+    /**
+     * Obtiene la instancia registrada de un vehículo, que es la que usan como clave el almacén y los índices.
+     *
+     * @param veh Vehículo.
+     * @return El vehículo registrado igual a {@code veh}, o el propio {@code veh} si no está registrado.
+     */
+    public VehicleIDInterface registered(VehicleIDInterface veh) {
+        VehicleIDInterface known = vehiclesById.get(veh.getId());
+        return known != null && (known == veh || known.equals(veh)) ? known : veh;
+    }
+
+    /**
+     * Devuelve el cerrojo de la franja a la que pertenece el vehículo. Quien necesite validar y
+     * actualizar el estado de forma atómica debe mantenerlo mientras llama a {@link #put}.
+     *
+     * @param veh Vehículo.
+     * @return Cerrojo de su franja.
+     */
+    public Lock lockFor(VehicleIDInterface veh) {
+        return stripes[stripeOf(veh)];
+    }
+
+    /**
+     * Devuelve el cerrojo de una franja concreta, para procesar de una vez varios vehículos que
+     * pertenecen a ella.
+     *
+     * @param stripe Índice de la franja, entre 0 y {@link #stripeCount()} - 1.
+     * @return Cerrojo de la franja.
+     */
+    public Lock lockForStripe(int stripe) {
+        return stripes[stripe];
+    }
+
+    /**
+     * @return Número de franjas de bloqueo.
+     */
+    public int stripeCount() {
+        return stripes.length;
+    }
+
+    /**
+     * Calcula la franja a la que pertenece un vehículo.
+     *
+     * @param veh Vehículo.
+     * @return Índice de su franja.
+     */
+    public int stripeOf(VehicleIDInterface veh) {
+        int h = veh.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Sustituye el estado de un vehículo. Debe invocarse con el cerrojo de su franja adquirido.
+     *
+     * @param veh   Vehículo.
+     * @param state Nuevo estado completo.
+     */
+    public void put(VehicleIDInterface veh, VehicleState state) {
+        if (states.put(veh, state) == null) {
+            vehiclesById.put(veh.getId(), veh);
+        }
+    }
+
+    /**
+     * Registra el estado de un vehículo solo si aún no tenía ninguno. No requiere el cerrojo de la franja.
+     *
+     * @param veh   Vehículo.
+     * @param state Estado inicial.
+     * @return {@code true} si el estado se registró; {@code false} si el vehículo ya tenía un estado.
+     */
+    public boolean putIfAbsent(VehicleIDInterface veh, VehicleState state) {
+        if (states.putIfAbsent(veh, state) != null) {
+            return false;
+        }
+        vehiclesById.put(veh.getId(), veh);
+        return true;
+    }
+
+    /**
+     * Sustituye el estado de un vehículo solo si sigue siendo exactamente {@code expected}.
+     * No requiere el cerrojo de la franja.
+     *
+     * @param veh      Vehículo.
+     * @param expected Estado leído previamente con {@link #get}.
+     * @param next     Nuevo estado completo.
+     * @return {@code true} si el estado se sustituyó; {@code false} si otro escritor se adelantó.
+     */
+    public boolean compareAndSet(VehicleIDInterface veh, VehicleState expected, VehicleState next) {
+        return states.replace(veh, expected, next);
+    }
+
+    /**
+     * Aplica una transición de estado a un vehículo de forma atómica respecto al resto de escritores.
+     *
+     * @param veh        Vehículo.
+     * @param transition Función que recibe el estado actual (o null) y devuelve el nuevo estado.
+     * @return El nuevo estado.
+     */
+    public VehicleState update(VehicleIDInterface veh, UnaryOperator<VehicleState> transition) {
+        Lock lock = lockFor(veh);
+        lock.lock();
+        try {
+            VehicleState next = transition.apply(states.get(veh));
+            put(veh, next);
+            return next;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Recorre el estado de todos los vehículos. El recorrido no bloquea a los escritores y cada
+     * estado observado es completo, aunque el conjunto no es una instantánea atómica de la flota.
+     *
+     * @param action Acción a ejecutar por cada vehículo.
+     */
+    public void forEach(BiConsumer<VehicleIDInterface, VehicleState> action) {
+        states.forEach(action);
+    }
+
+    /**
+     * @return Número de vehículos registrados.
+     */
+    public int size() {
+        return states.size();
+    }
+
+    /**
+     * Carga el estado inicial de varios vehículos.
+     *
+     * @param initial Estados a registrar.
+     */
+    public void putAll(Map<VehicleIDInterface, VehicleState> initial) {
+        initial.forEach((veh, state) -> update(veh, current -> state));
+    }
+}
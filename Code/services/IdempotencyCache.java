@@ -0,0 +1,193 @@
+package services;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongSupplier;
+
+/**
+ * Recuerda el resultado de las operaciones identificadas por una clave de idempotencia, para que repetir
+ * una llamada con la misma clave devuelva el resultado original sin volver a ejecutarla.
+ *
+ * Si la repetición llega mientras la primera llamada sigue en curso, espera a su resultado. Solo se
+ * recuerdan los resultados correctos: si la llamada falla, la clave se libera y la repetición vuelve a
+ * ejecutar la operación. Las claves caducan pasado el tiempo indicado y, si se supera el máximo de
+ * entradas, se descartan las más antiguas.
+ */
+public class IdempotencyCache {
+    /** Número máximo de claves recordadas por defecto. */
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+    /** Tiempo durante el que se recuerda una clave por defecto. */
+    public static final Duration DEFAULT_TTL = Duration.ofMinutes(10);
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final LinkedHashMap<String, Entry> entries; // En orden de llegada: las primeras son las que antes caducan
+
+    /**
+     * Crea una caché con el tamaño y la caducidad por defecto.
+     */
+    public IdempotencyCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_TTL);
+    }
+
+    /**
+     * Crea una caché con el tamaño y la caducidad indicados.
+     *
+     * @param maxEntries Número máximo de claves recordadas.
+     * @param ttl        Tiempo durante el que se recuerda cada clave.
+     * @throws IllegalArgumentException Si el tamaño no es positivo o la caducidad es nula o no positiva.
+     */
+    public IdempotencyCache(int maxEntries, Duration ttl) {
+        this(maxEntries, ttl, System::nanoTime);
+    }
+
+    IdempotencyCache(int maxEntries, Duration ttl, LongSupplier clock) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Max entries must be positive");
+        }
+        if (ttl == null || ttl.isZero() || ttl.isNegative()) {
+            throw new IllegalArgumentException("TTL must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > IdempotencyCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Reserva una clave antes de ejecutar la operación que protege.
+     *
+     * Si la clave ya tiene un resultado, se devuelve un ticket de repetición con ese resultado. Si otra llamada
+     * con la misma clave está en curso, se espera a que termine. En otro caso el ticket es del llamador, que
+     * ejecuta la operación y guarda su resultado con {@link Ticket#complete(Object)}, o libera la clave con
+     * {@link Ticket#release()} si la operación falla.
+     *
+     * @param key Clave de idempotencia. El llamador debe usar claves distintas para operaciones distintas.
+     * @return Ticket de la clave.
+     * @throws IllegalArgumentException Si la clave es nula.
+     */
+    public Ticket acquire(String key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Request key cannot be null");
+        }
+        while (true) {
+            Entry entry;
+            synchronized (entries) {
+                long now = clock.getAsLong();
+                expire(now);
+                entry = entries.get(key);
+                if (entry == null) {
+                    entry = new Entry(now);
+                    entries.put(key, entry);
+                    return new Ticket(key, entry, false);
+                }
+            }
+            // Se espera fuera del cerrojo para no bloquear a la llamada original
+            try {
+                entry.outcome.join();
+                return new Ticket(key, entry, true);
+            } catch (CancellationException e) {
+                // La llamada original falló sin guardar nada: esta pasa a ejecutar la operación
+            }
+        }
+    }
+
+    /**
+     * @return Número de claves recordadas, incluidas las de operaciones en curso.
+     */
+    public int size() {
+        synchronized (entries) {
+            expire(clock.getAsLong());
+            return entries.size();
+        }
+    }
+
+    private void expire(long now) {
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            // Una operación en curso no caduca: quien la repita debe esperar a su resultado
+            if (now - entry.createdNanos < ttlNanos || !entry.outcome.isDone()) {
+                return;
+            }
+            it.remove();
+        }
+    }
+
+    private void forget(String key, Entry entry) {
+        synchronized (entries) {
+            entries.remove(key, entry);
+        }
+    }
+
+    /**
+     * Clave reservada por una llamada. Un ticket de repetición lleva el resultado de la llamada original;
+     * el resto debe completarse o liberarse, normalmente en un bloque {@code finally}.
+     */
+    public final class Ticket {
+        private final String key;
+        private final Entry entry;
+        private final boolean replay;
+
+        private Ticket(String key, Entry entry, boolean replay) {
+            this.key = key;
+            this.entry = entry;
+            this.replay = replay;
+        }
+
+        /**
+         * @return {@code true} si la operación ya se ejecutó con esta clave y no debe repetirse.
+         */
+        public boolean isReplay() {
+            return replay;
+        }
+
+        /**
+         * @return Resultado de la llamada original, en un ticket de repetición.
+         */
+        public Object getResult() {
+            return replay ? entry.outcome.join() : null;
+        }
+
+        /**
+         * Guarda el resultado de la operación para las repeticiones de la clave.
+         *
+         * @param result Resultado de la operación. Puede ser null.
+         */
+        public void complete(Object result) {
+            if (!replay) {
+                entry.outcome.complete(result);
+            }
+        }
+
+        /**
+         * Libera la clave sin guardar resultado, de modo que una repetición vuelve a ejecutar la operación.
+         * No tiene efecto si el ticket ya se ha completado.
+         */
+        public void release() {
+            if (!replay && !entry.outcome.isDone()) {
+                forget(key, entry);
+                entry.outcome.cancel(false);
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final long createdNanos;
+        private final CompletableFuture<Object> outcome = new CompletableFuture<>();
+
+        Entry(long createdNanos) {
+            this.createdNanos = createdNanos;
+        }
+    }
+}
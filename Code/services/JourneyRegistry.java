@@ -0,0 +1,252 @@
+package services;
+
+import data.interfaces.GeographicPointInterface;
+import data.interfaces.UserAccountInterface;
+import data.interfaces.VehicleIDInterface;
+import micromobility.JourneyServiceInterface;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Registro de los viajes en curso con acceso directo por usuario, por vehículo, por identificador
+ * de servicio y por el propio servicio de viaje.
+ *
+ * Cada viaje se guarda como un único {@link JourneyRecord} referenciado desde cuatro índices, de modo
+ * que cualquier consulta o baja es O(1) y no requiere recorrer los viajes activos. Las altas y bajas
+ * se serializan por franjas según el usuario, que es la clave principal del registro.
+ *
+ * Los viajes restaurados del log o de una instantánea no tienen servicio de viaje: se guardan solo con su
+ * identificador, fecha y punto de inicio, y se localizan por usuario, vehículo o identificador.
+ */
+public class JourneyRegistry {
+    private static final int STRIPES = 64;
+
+    private final ConcurrentHashMap<UserAccountInterface, JourneyRecord> byUser = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<VehicleIDInterface, JourneyRecord> byVehicle = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, JourneyRecord> byServiceId = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<JourneyServiceInterface, JourneyRecord> byJourney = new ConcurrentHashMap<>();
+    private final Object[] stripes = new Object[STRIPES];
+
+    /**
+     * Crea un registro vacío.
+     */
+    public JourneyRegistry() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+    }
+
+    /**
+     * Registra el viaje en curso de un usuario, sustituyendo el que tuviera anteriormente.
+     *
+     * @param user    Usuario que realiza el viaje.
+     * @param vehicle Vehículo del viaje. Puede ser null si no se conoce.
+     * @param journey Servicio de viaje.
+     * @return El registro creado.
+     */
+    public JourneyRecord register(UserAccountInterface user, VehicleIDInterface vehicle, JourneyServiceInterface journey) {
+        return index(new JourneyRecord(user, vehicle, journey, journey.getServiceID(), null, null));
+    }
+
+    /**
+     * Registra un viaje en curso restaurado del log o de una instantánea, del que solo se conservan los
+     * datos persistidos. Sustituye el viaje que tuviera el usuario.
+     *
+     * @param user      Usuario que realiza el viaje.
+     * @param vehicle   Vehículo del viaje. Puede ser null si no se conoce.
+     * @param serviceId Identificador del servicio de viaje.
+     * @param initDate  Fecha de inicio. Puede ser null.
+     * @param origin    Punto de inicio. Puede ser null.
+     * @return El registro creado.
+     */
+    public JourneyRecord restore(UserAccountInterface user, VehicleIDInterface vehicle, String serviceId,
+                                 LocalDateTime initDate, GeographicPointInterface origin) {
+        return index(new JourneyRecord(user, vehicle, null, serviceId, initDate, origin));
+    }
+
+    private JourneyRecord index(JourneyRecord record) {
+        synchronized (stripeOf(record.user)) {
+            JourneyRecord previous = byUser.put(record.user, record);
+            if (previous != null) {
+                unindex(previous);
+            }
+            if (record.vehicle != null) {
+                byVehicle.put(record.vehicle, record);
+            }
+            if (record.serviceId != null) {
+                byServiceId.put(record.serviceId, record);
+            }
+            if (record.journey != null) {
+                byJourney.put(record.journey, record);
+            }
+        }
+        return record;
+    }
+
+    /**
+     * @param user Usuario.
+     * @return El viaje en curso del usuario, o null si no tiene ninguno.
+     */
+    public JourneyRecord findByUser(UserAccountInterface user) {
+        return byUser.get(user);
+    }
+
+    /**
+     * @param vehicle Vehículo.
+     * @return El viaje en curso del vehículo, o null si no tiene ninguno.
+     */
+    public JourneyRecord findByVehicle(VehicleIDInterface vehicle) {
+        return byVehicle.get(vehicle);
+    }
+
+    /**
+     * @param serviceId Identificador del servicio de viaje.
+     * @return El viaje en curso con ese identificador, o null si no existe.
+     */
+    public JourneyRecord findByServiceId(String serviceId) {
+        return byServiceId.get(serviceId);
+    }
+
+    /**
+     * @param journey Servicio de viaje.
+     * @return El registro del servicio, o null si no está en curso.
+     */
+    public JourneyRecord findByJourney(JourneyServiceInterface journey) {
+        return byJourney.get(journey);
+    }
+
+    /**
+     * Da de baja el viaje en curso de un usuario.
+     *
+     * @param user Usuario.
+     * @return El registro eliminado, o null si el usuario no tenía ningún viaje en curso.
+     */
+    public JourneyRecord removeByUser(UserAccountInterface user) {
+        synchronized (stripeOf(user)) {
+            JourneyRecord record = byUser.remove(user);
+            if (record != null) {
+                unindex(record);
+            }
+            return record;
+        }
+    }
+
+    /**
+     * Da de baja un servicio de viaje.
+     *
+     * @param journey Servicio de viaje.
+     * @return El registro eliminado, o null si el servicio no estaba en curso.
+     */
+    public JourneyRecord removeByJourney(JourneyServiceInterface journey) {
+        return remove(byJourney.get(journey));
+    }
+
+    /**
+     * Da de baja el viaje con un identificador de servicio.
+     *
+     * @param serviceId Identificador del servicio de viaje.
+     * @return El registro eliminado, o null si no había ningún viaje en curso con ese identificador.
+     */
+    public JourneyRecord removeByServiceId(String serviceId) {
+        return remove(byServiceId.get(serviceId));
+    }
+
+    private JourneyRecord remove(JourneyRecord record) {
+        if (record == null) {
+            return null;
+        }
+        synchronized (stripeOf(record.user)) {
+            // Solo se elimina si el registro sigue siendo el vigente para su usuario
+            if (!byUser.remove(record.user, record)) {
+                return null;
+            }
+            unindex(record);
+            return record;
+        }
+    }
+
+    /**
+     * Recorre los viajes en curso sin bloquear las altas y bajas concurrentes.
+     *
+     * @param action Acción a ejecutar por cada viaje.
+     */
+    public void forEach(Consumer<JourneyRecord> action) {
+        byUser.values().forEach(action);
+    }
+
+    /**
+     * @return Número de viajes en curso.
+     */
+    public int size() {
+        return byUser.size();
+    }
+
+    private void unindex(JourneyRecord record) {
+        if (record.vehicle != null) {
+            byVehicle.remove(record.vehicle, record);
+        }
+        if (record.serviceId != null) {
+            byServiceId.remove(record.serviceId, record);
+        }
+        if (record.journey != null) {
+            byJourney.remove(record.journey, record);
+        }
+    }
+
+    private Object stripeOf(UserAccountInterface user) {
+        int h = user.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+
+    /**
+     * Viaje en curso: usuario, vehículo, servicio de viaje e identificador de servicio.
+     */
+    public static final class JourneyRecord {
+        private final UserAccountInterface user;
+        private final VehicleIDInterface vehicle;
+        private final JourneyServiceInterface journey;
+        private final String serviceId;
+        // Inicio de los viajes restaurados, que no tienen servicio de viaje
+        private final LocalDateTime initDate;
+        private final GeographicPointInterface origin;
+
+        private JourneyRecord(UserAccountInterface user, VehicleIDInterface vehicle, JourneyServiceInterface journey,
+                              String serviceId, LocalDateTime initDate, GeographicPointInterface origin) {
+            this.user = user;
+            this.vehicle = vehicle;
+            this.journey = journey;
+            this.serviceId = serviceId;
+            this.initDate = initDate;
+            this.origin = origin;
+        }
+
+        public UserAccountInterface getUser() {
+            return user;
+        }
+
+        public VehicleIDInterface getVehicle() {
+            return vehicle;
+        }
+
+        /**
+         * @return Servicio de viaje, o null si el viaje se restauró del log o de una instantánea.
+         */
+        public JourneyServiceInterface getJourney() {
+            return journey;
+        }
+
+        public LocalDateTime getInitDate() {
+            return journey != null ? journey.getInitDate() : initDate;
+        }
+
+        public GeographicPointInterface getOrigin() {
+            return journey != null ? journey.getOriginPoint() : origin;
+        }
+
+        public String getServiceId() {
+            return serviceId;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package services;
+
+import java.util.Arrays;
+
+/**
+ * Lote de lecturas de ubicación enviado por la flota, almacenado por columnas de primitivos.
+ *
+ * Cada registro contiene el identificador del vehículo, la latitud y la longitud leídas, el
+ * identificador de la estación donde se encuentra y el instante de la lectura en milisegundos desde
+ * la época. El lote crece bajo demanda y puede reutilizarse con {@link #clear()}.
+ */
+public final class LocationBatch {
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private int[] vehicleIds;
+    private float[] latitudes;
+    private float[] longitudes;
+    private int[] stationIds;
+    private long[] timestamps;
+    private int size;
+
+    /**
+     * Crea un lote vacío con la capacidad inicial por defecto.
+     */
+    public LocationBatch() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Crea un lote vacío con la capacidad inicial indicada.
+     *
+     * @param capacity Número de registros que caben sin redimensionar.
+     * @throws IllegalArgumentException Si la capacidad es negativa.
+     */
+    public LocationBatch(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative");
+        }
+        vehicleIds = new int[capacity];
+        latitudes = new float[capacity];
+        longitudes = new float[capacity];
+        stationIds = new int[capacity];
+        timestamps = new long[capacity];
+    }
+
+    /**
+     * Añade una lectura al lote.
+     *
+     * @param vehicleId Identificador del vehículo.
+     * @param latitude  Latitud leída.
+     * @param longitude Longitud leída.
+     * @param stationId Identificador de la estación donde se encuentra el vehículo.
+     * @param timestamp Instante de la lectura, en milisegundos desde la época.
+     * @return El propio lote, para encadenar llamadas.
+     */
+    public LocationBatch add(int vehicleId, float latitude, float longitude, int stationId, long timestamp) {
+        if (size == vehicleIds.length) {
+            grow();
+        }
+        vehicleIds[size] = vehicleId;
+        latitudes[size] = latitude;
+        longitudes[size] = longitude;
+        stationIds[size] = stationId;
+        timestamps[size] = timestamp;
+        size++;
+        return this;
+    }
+
+    /**
+     * @return Número de registros del lote.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Vacía el lote conservando la memoria reservada.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    public int getVehicleId(int index) {
+        return vehicleIds[checkIndex(index)];
+    }
+
+    public float getLatitude(int index) {
+        return latitudes[checkIndex(index)];
+    }
+
+    public float getLongitude(int index) {
+        return longitudes[checkIndex(index)];
+    }
+
+    public int getStationId(int index) {
+        return stationIds[checkIndex(index)];
+    }
+
+    public long getTimestamp(int index) {
+        return timestamps[checkIndex(index)];
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of batch of size " + size);
+        }
+        return index;
+    }
+
+    private void grow() {
+        int capacity = Math.max(DEFAULT_CAPACITY, vehicleIds.length * 2);
+        vehicleIds = Arrays.copyOf(vehicleIds, capacity);
+        latitudes = Arrays.copyOf(latitudes, capacity);
+        longitudes = Arrays.copyOf(longitudes, capacity);
+        stationIds = Arrays.copyOf(stationIds, capacity);
+        timestamps = Arrays.copyOf(timestamps, capacity);
+    }
+}
@@ -0,0 +1,91 @@
+package services;
+
+import java.net.ConnectException;
+
+/**
+ * Resultado de aplicar un {@link LocationBatch}: indica, registro a registro, si la lectura se aplicó,
+ * si fue descartada por existir en el lote otra más reciente del mismo vehículo, o el error que
+ * impidió aplicarla.
+ */
+public final class LocationBatchResult {
+    private final ConnectException[] failures;
+    private final boolean[] superseded;
+    private int failureCount;
+    private int supersededCount;
+
+    LocationBatchResult(int size) {
+        this.failures = new ConnectException[size];
+        this.superseded = new boolean[size];
+    }
+
+    void fail(int index, ConnectException failure) {
+        if (failures[index] == null) {
+            failureCount++;
+        }
+        failures[index] = failure;
+    }
+
+    void supersede(int index) {
+        superseded[index] = true;
+        supersededCount++;
+    }
+
+    /**
+     * @return Número de registros del lote.
+     */
+    public int size() {
+        return failures.length;
+    }
+
+    /**
+     * @return Número de registros aplicados al estado de la flota.
+     */
+    public int getAppliedCount() {
+        return failures.length - failureCount - supersededCount;
+    }
+
+    /**
+     * @return Número de registros rechazados.
+     */
+    public int getFailureCount() {
+        return failureCount;
+    }
+
+    /**
+     * @return Número de registros descartados por existir otra lectura más reciente del mismo vehículo.
+     */
+    public int getSupersededCount() {
+        return supersededCount;
+    }
+
+    /**
+     * Indica si un registro fue rechazado.
+     *
+     * @param index Posición del registro en el lote.
+     * @return {@code true} si el registro no se aplicó por un error.
+     */
+    public boolean isFailed(int index) {
+        return failures[index] != null;
+    }
+
+    /**
+     * Indica si un registro se descartó porque el lote contenía una lectura más reciente del mismo vehículo.
+     *
+     * @param index Posición del registro en el lote.
+     * @return {@code true} si el registro fue sustituido por otro posterior.
+     */
+    public boolean isSuperseded(int index) {
+        return superseded[index];
+    }
+
+    /**
+     * Obtiene el error que impidió aplicar un registro, con los mismos mensajes que
+     * {@link ServerInterface#registerLocation}.
+     *
+     * @param index Posición del registro en el lote.
+     * @return Error del registro, o null si no falló.
+     */
+    public ConnectException getFailure(int index) {
+        return failures[index];
+    }
+}
@@ -0,0 +1,268 @@
+package services;
+
+import data.GeographicPoint;
+import data.StationRegistry;
+import data.VehicleID;
+import data.interfaces.GeographicPointInterface;
+import data.interfaces.StationIDInterface;
+import data.interfaces.VehicleIDInterface;
+import services.Exceptions.InvalidPairingArgsException;
+import services.Exceptions.PMVNotAvailException;
+import services.Exceptions.PairingNotFoundException;
+import services.Exceptions.WireFormatException;
+import services.wire.WireFormat;
+
+import java.net.ConnectException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tramas y respuestas del protocolo entre {@link RemoteServer} y {@link ServerEndpoint}.
+ *
+ * Cada trama es un entero de 4 bytes con la longitud del resto, el identificador de la petición (varint) y
+ * el mensaje: una petición codificada con {@code WireCodec} o una respuesta. Los identificadores permiten
+ * enviar varias peticiones sin esperar las respuestas y emparejarlas al llegar.
+ *
+ * Una respuesta empieza por un byte de estado seguido de su contenido; los errores llevan el tipo de la
+ * excepción y su mensaje, y el cliente vuelve a lanzar la misma excepción que habría lanzado el servidor
+ * local.
+ */
+final class RemoteProtocol {
+    static final int LENGTH_BYTES = 4;
+    static final int MAX_FRAME_BYTES = 16 * 1024 * 1024;
+
+    static final byte OK = 0;
+    static final byte TOKEN = 1;
+    static final byte ERROR = 2;
+    static final byte VEHICLES = 3;
+    static final byte STATIONS = 4;
+    static final byte BATCH = 5;
+
+    private static final byte CONNECT = 1;
+    private static final byte NOT_AVAILABLE = 2;
+    private static final byte INVALID_PAIRING = 3;
+    private static final byte PAIRING_NOT_FOUND = 4;
+    private static final byte ILLEGAL_ARGUMENT = 5;
+    private static final byte OTHER = 6;
+
+    private static final byte APPLIED = 0;
+    private static final byte SUPERSEDED = 1;
+    private static final byte FAILED = 2;
+
+    // Tamaño máximo de una estación y de un vehículo en una respuesta
+    private static final int MAX_STATION_BYTES = 15;
+    private static final int MAX_VEHICLE_BYTES = 5 + MAX_STATION_BYTES;
+    private static final int MAX_MESSAGE_BYTES = 2 + WireFormat.MAX_STRING_BYTES;
+
+    private RemoteProtocol() {
+    }
+
+    /**
+     * Empieza una trama: reserva la longitud y escribe el identificador de la petición.
+     *
+     * @return Posición de inicio de la trama, que se pasa a {@link #endFrame}.
+     */
+    static int beginFrame(ByteBuffer out, long requestId) {
+        int start = out.position();
+        out.putInt(0);
+        WireFormat.putVarLong(out, requestId);
+        return start;
+    }
+
+    static void endFrame(ByteBuffer out, int start) {
+        out.putInt(start, out.position() - start - LENGTH_BYTES);
+    }
+
+    /**
+     * Devuelve un buffer con al menos {@code needed} bytes libres, copiando el contenido si hay que crecer.
+     */
+    static ByteBuffer ensureRemaining(ByteBuffer buffer, int needed) {
+        if (buffer.remaining() >= needed) {
+            return buffer;
+        }
+        int capacity = Math.max(buffer.capacity() * 2, buffer.position() + needed);
+        ByteBuffer larger = ByteBuffer.allocate(capacity);
+        buffer.flip();
+        larger.put(buffer);
+        return larger;
+    }
+
+    static void putOk(ByteBuffer out) {
+        out.put(OK);
+    }
+
+    static void putToken(ByteBuffer out, String token) {
+        out.put(TOKEN);
+        WireFormat.putString(out, truncate(token));
+    }
+
+    static int maxErrorBytes() {
+        return 2 + MAX_MESSAGE_BYTES;
+    }
+
+    static void putError(ByteBuffer out, Throwable failure) {
+        byte kind;
+        if (failure instanceof ConnectException) {
+            kind = CONNECT;
+        } else if (failure instanceof PMVNotAvailException) {
+            kind = NOT_AVAILABLE;
+        } else if (failure instanceof InvalidPairingArgsException) {
+            kind = INVALID_PAIRING;
+        } else if (failure instanceof PairingNotFoundException) {
+            kind = PAIRING_NOT_FOUND;
+        } else if (failure instanceof IllegalArgumentException) {
+            kind = ILLEGAL_ARGUMENT;
+        } else {
+            kind = OTHER;
+        }
+        out.put(ERROR);
+        out.put(kind);
+        String message = failure.getMessage();
+        WireFormat.putString(out, truncate(message != null ? message : failure.getClass().getSimpleName()));
+    }
+
+    /**
+     * Reconstruye la excepción de una respuesta de error.
+     */
+    static Exception getError(ByteBuffer in) throws WireFormatException {
+        byte kind = in.get();
+        String message = WireFormat.getString(in);
+        switch (kind) {
+            case CONNECT: return new ConnectException(message);
+            case NOT_AVAILABLE: return new PMVNotAvailException(message);
+            case INVALID_PAIRING: return new InvalidPairingArgsException(message);
+            case PAIRING_NOT_FOUND: return new PairingNotFoundException(message);
+            case ILLEGAL_ARGUMENT: return new IllegalArgumentException(message);
+            default: return new IllegalStateException(message);
+        }
+    }
+
+    static int maxVehiclesBytes(int count) {
+        return 6 + count * MAX_VEHICLE_BYTES;
+    }
+
+    static void putVehicles(ByteBuffer out, List<VehicleIDInterface> vehicles) {
+        out.put(VEHICLES);
+        WireFormat.putVarInt(out, vehicles.size());
+        for (VehicleIDInterface vehicle : vehicles) {
+            WireFormat.putSignedInt(out, vehicle.getId());
+            putStation(out, vehicle.getStation());
+        }
+    }
+
+    static List<VehicleIDInterface> getVehicles(ByteBuffer in) throws WireFormatException {
+        int count = readCount(in);
+        List<VehicleIDInterface> vehicles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int id = WireFormat.getSignedInt(in);
+            vehicles.add(new VehicleID(id, getStation(in)));
+        }
+        return vehicles;
+    }
+
+    static int maxStationsBytes(int count) {
+        return 6 + count * MAX_STATION_BYTES;
+    }
+
+    static void putStations(ByteBuffer out, List<StationIDInterface> stations) {
+        out.put(STATIONS);
+        WireFormat.putVarInt(out, stations.size());
+        for (StationIDInterface station : stations) {
+            putStation(out, station);
+        }
+    }
+
+    static List<StationIDInterface> getStations(ByteBuffer in) throws WireFormatException {
+        int count = readCount(in);
+        List<StationIDInterface> stations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            stations.add(getStation(in));
+        }
+        return stations;
+    }
+
+    static int maxBatchResultBytes(int size) {
+        return 6 + size * (1 + MAX_MESSAGE_BYTES);
+    }
+
+    static void putBatchResult(ByteBuffer out, LocationBatchResult result) {
+        out.put(BATCH);
+        WireFormat.putVarInt(out, result.size());
+        for (int i = 0; i < result.size(); i++) {
+            if (result.isSuperseded(i)) {
+                out.put(SUPERSEDED);
+            } else if (result.isFailed(i)) {
+                out.put(FAILED);
+                WireFormat.putString(out, truncate(result.getFailure(i).getMessage()));
+            } else {
+                out.put(APPLIED);
+            }
+        }
+    }
+
+    static LocationBatchResult getBatchResult(ByteBuffer in) throws WireFormatException {
+        int size = readCount(in);
+        LocationBatchResult result = new LocationBatchResult(size);
+        for (int i = 0; i < size; i++) {
+            byte state = in.get();
+            if (state == SUPERSEDED) {
+                result.supersede(i);
+            } else if (state == FAILED) {
+                result.fail(i, new ConnectException(WireFormat.getString(in)));
+            } else if (state != APPLIED) {
+                throw new WireFormatException("Invalid batch record state " + state);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Resultado de un lote en el que ningún registro ha llegado al servidor.
+     */
+    static LocationBatchResult failedBatch(int size, ConnectException failure) {
+        LocationBatchResult result = new LocationBatchResult(size);
+        for (int i = 0; i < size; i++) {
+            result.fail(i, failure);
+        }
+        return result;
+    }
+
+    private static void putStation(ByteBuffer out, StationIDInterface station) {
+        GeographicPointInterface point = station.getgeoPoint();
+        WireFormat.putSignedInt(out, station.getID());
+        WireFormat.putCoordinate(out, point.getLatitude());
+        WireFormat.putCoordinate(out, point.getLongitude());
+    }
+
+    private static StationIDInterface getStation(ByteBuffer in) throws WireFormatException {
+        int id = WireFormat.getSignedInt(in);
+        float latitude = WireFormat.getCoordinate(in);
+        float longitude = WireFormat.getCoordinate(in);
+        // Las respuestas repiten las mismas estaciones: se reutiliza la instancia canónica
+        return StationRegistry.shared().intern(id, new GeographicPoint(latitude, longitude));
+    }
+
+    private static int readCount(ByteBuffer in) throws WireFormatException {
+        int count = WireFormat.getVarInt(in);
+        if (count < 0 || count > in.remaining()) {
+            throw new WireFormatException("Invalid element count " + count);
+        }
+        return count;
+    }
+
+    /**
+     * Recorta un texto para que quepa en una cadena del protocolo.
+     */
+    private static String truncate(String text) {
+        if (text == null) {
+            return "";
+        }
+        String result = text.length() > WireFormat.MAX_STRING_BYTES ? text.substring(0, WireFormat.MAX_STRING_BYTES) : text;
+        while (WireFormat.utf8Length(result) > WireFormat.MAX_STRING_BYTES
+                || !result.isEmpty() && Character.isHighSurrogate(result.charAt(result.length() - 1))) {
+            result = result.substring(0, result.length() - 1);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,629 @@
+package services;
+
+import data.interfaces.GeographicPointInterface;
+import data.interfaces.StationIDInterface;
+import data.interfaces.UserAccountInterface;
+import data.interfaces.VehicleIDInterface;
+import micromobility.JourneyService;
+import micromobility.JourneyServiceInterface;
+import services.Exceptions.InvalidPairingArgsException;
+import services.Exceptions.PMVNotAvailException;
+import services.Exceptions.PairingNotFoundException;
+import services.Exceptions.WireFormatException;
+import services.wire.MessageType;
+import services.wire.WireCodec;
+import services.wire.WireFormat;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cliente de un {@link ServerEndpoint}: implementa {@link ServerInterface} y {@link AsyncServerInterface}
+ * enviando cada llamada por una única conexión TCP.
+ *
+ * Las peticiones se encadenan sin esperar a las respuestas, que se asocian a su petición por un
+ * identificador. Las peticiones que se hacen mientras otro hilo escribe se acumulan y se envían juntas en
+ * la siguiente escritura. Las llamadas síncronas esperan a su respuesta y lanzan las mismas excepciones que
+ * {@link Server}; si se pierde la conexión, todas las pendientes fallan con {@link ConnectException} y la
+ * siguiente llamada abre una conexión nueva. Las variantes con clave de idempotencia se pueden repetir tras
+ * ese fallo sin riesgo de que el servidor las aplique dos veces.
+ *
+ * Los cambios que el servidor hace sobre el {@link JourneyServiceInterface} (identificador de servicio,
+ * inicio y final del viaje) se aplican aquí al recibir la respuesta. Los futuros se completan en el hilo
+ * que lee las respuestas, por lo que las acciones encadenadas a ellos no deben bloquearse.
+ */
+public class RemoteServer implements ServerInterface, AsyncServerInterface, Closeable {
+    private static final int READ_BUFFER_BYTES = 64 * 1024;
+    private static final int FRAME_HEADER_BYTES = RemoteProtocol.LENGTH_BYTES + 10;
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private final InetSocketAddress address;
+    private final Object connectLock = new Object();
+    private volatile Connection connection;
+    private volatile boolean closed;
+
+    /**
+     * Se conecta a un punto de acceso del servidor.
+     *
+     * @param address Dirección del {@link ServerEndpoint}.
+     * @throws IOException              Si no se puede establecer la conexión.
+     * @throws IllegalArgumentException Si la dirección es nula.
+     */
+    public RemoteServer(InetSocketAddress address) throws IOException {
+        if (address == null) {
+            throw new IllegalArgumentException("Address cannot be null");
+        }
+        this.address = address;
+        this.connection = new Connection(SocketChannel.open(address));
+    }
+
+    /**
+     * Cierra la conexión. Las peticiones pendientes y las posteriores fallan con {@link ConnectException}.
+     */
+    @Override
+    public void close() {
+        synchronized (connectLock) {
+            closed = true;
+        }
+        connection.fail(new ConnectException("Connection to the server closed."));
+    }
+
+    @Override
+    public void checkPMVAvail(VehicleIDInterface vhID) throws PMVNotAvailException, ConnectException {
+        await(checkPMVAvailAsync(vhID), PMVNotAvailException.class, PMVNotAvailException.class);
+    }
+
+    @Override
+    public String reserveVehicle(UserAccountInterface user, VehicleIDInterface veh, StationIDInterface st,
+                                 GeographicPointInterface loc, LocalDateTime date, JourneyServiceInterface journey)
+            throws PMVNotAvailException, InvalidPairingArgsException, ConnectException {
+        return reserveVehicle(null, user, veh, st, loc, date, journey);
+    }
+
+    @Override
+    public String reserveVehicle(String requestKey, UserAccountInterface user, VehicleIDInterface veh,
+                                 StationIDInterface st, GeographicPointInterface loc, LocalDateTime date,
+                                 JourneyServiceInterface journey)
+            throws PMVNotAvailException, InvalidPairingArgsException, ConnectException {
+        return await(reserveVehicleAsync(requestKey, user, veh, st, loc, date, journey),
+                PMVNotAvailException.class, InvalidPairingArgsException.class);
+    }
+
+    @Override
+    public void registerPairing(UserAccountInterface user, VehicleIDInterface veh, StationIDInterface st,
+                                GeographicPointInterface loc, LocalDateTime date, JourneyServiceInterface journey)
+            throws InvalidPairingArgsException, ConnectException {
+        registerPairing(null, user, veh, st, loc, date, journey);
+    }
+
+    @Override
+    public void registerPairing(String requestKey, UserAccountInterface user, VehicleIDInterface veh,
+                                StationIDInterface st, GeographicPointInterface loc, LocalDateTime date,
+                                JourneyServiceInterface journey)
+            throws InvalidPairingArgsException, ConnectException {
+        await(registerPairingAsync(requestKey, user, veh, st, loc, date, journey),
+                InvalidPairingArgsException.class, InvalidPairingArgsException.class);
+    }
+
+    @Override
+    public void stopPairing(UserAccountInterface user, VehicleIDInterface veh, StationIDInterface st,
+                            GeographicPointInterface loc, LocalDateTime date, long avSp, long dist,
+                            int dur, long imp, JourneyServiceInterface journey)
+            throws InvalidPairingArgsException, ConnectException {
+        stopPairing(null, user, veh, st, loc, date, avSp, dist, dur, imp, journey);
+    }
+
+    @Override
+    public void stopPairing(String requestKey, UserAccountInterface user, VehicleIDInterface veh,
+                            StationIDInterface st, GeographicPointInterface loc, LocalDateTime date, long avSp,
+                            long dist, int dur, long imp, JourneyServiceInterface journey)
+            throws InvalidPairingArgsException, ConnectException {
+        await(stopPairingAsync(requestKey, user, veh, st, loc, date, avSp, dist, dur, imp, journey),
+                InvalidPairingArgsException.class, InvalidPairingArgsException.class);
+    }
+
+    /**
+     * Igual que {@link Server#setPairing}: la pérdida de conexión se lanza como {@link UncheckedIOException}.
+     */
+    @Override
+    public void setPairing(UserAccountInterface user, VehicleIDInterface veh, StationIDInterface st,
+                           GeographicPointInterface loc, LocalDateTime date, JourneyServiceInterface journey) {
+        String serviceId = journey.getServiceID();
+        awaitUnchecked(this.<String>send(out -> WireCodec.encodeSetPairing(out, user, veh, st, loc, date, serviceId),
+                        WireCodec.MAX_MESSAGE_BYTES, RemoteServer::token)
+                .thenApply(token -> startJourney(journey, token, date, loc)));
+    }
+
+    /**
+     * Desempareja el viaje, que el servidor identifica por su identificador de servicio.
+     *
+     * @throws PairingNotFoundException Si el viaje no tiene identificador o el servidor no lo conoce.
+     * @throws UncheckedIOException     Si se pierde la conexión.
+     */
+    @Override
+    public void unPairRegisterService(JourneyService s) throws PairingNotFoundException {
+        unPairRegisterService(null, s);
+    }
+
+    @Override
+    public void unPairRegisterService(String requestKey, JourneyService s) throws PairingNotFoundException {
+        unPairByServiceId(requestKey, s.getServiceID());
+    }
+
+    @Override
+    public void unPairByServiceId(String requestKey, String serviceId) throws PairingNotFoundException {
+        if (serviceId == null) {
+            throw new PairingNotFoundException("No matching journey service record found.");
+        }
+        try {
+            await(send(out -> WireCodec.encodeUnpair(out, serviceId, requestKey), WireCodec.MAX_MESSAGE_BYTES,
+                    RemoteServer::ok), PairingNotFoundException.class, PairingNotFoundException.class);
+        } catch (ConnectException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void registerLocation(VehicleIDInterface veh, StationIDInterface st) throws ConnectException {
+        await(registerLocationAsync(veh, st));
+    }
+
+    @Override
+    public LocationBatchResult registerLocations(LocationBatch batch) {
+        return registerLocationsAsync(batch).join();
+    }
+
+    @Override
+    public List<VehicleIDInterface> findNearestAvailableVehicles(GeographicPointInterface loc, int k) {
+        return awaitUnchecked(send(out -> WireCodec.encodeNearestQuery(out, MessageType.NEAREST_VEHICLES, loc, k),
+                WireCodec.MAX_MESSAGE_BYTES, RemoteServer::vehicles));
+    }
+
+    @Override
+    public List<VehicleIDInterface> findAvailableVehiclesWithin(GeographicPointInterface loc, double radiusMeters) {
+        return awaitUnchecked(send(out -> WireCodec.encodeRadiusQuery(out, MessageType.VEHICLES_WITHIN, loc, radiusMeters),
+                WireCodec.MAX_MESSAGE_BYTES, RemoteServer::vehicles));
+    }
+
+    @Override
+    public List<StationIDInterface> findNearestStations(GeographicPointInterface loc, int k) {
+        return awaitUnchecked(send(out -> WireCodec.encodeNearestQuery(out, MessageType.NEAREST_STATIONS, loc, k),
+                WireCodec.MAX_MESSAGE_BYTES, RemoteServer::stations));
+    }
+
+    @Override
+    public List<StationIDInterface> findStationsWithin(GeographicPointInterface loc, double radiusMeters) {
+        return awaitUnchecked(send(out -> WireCodec.encodeRadiusQuery(out, MessageType.STATIONS_WITHIN, loc, radiusMeters),
+                WireCodec.MAX_MESSAGE_BYTES, RemoteServer::stations));
+    }
+
+    @Override
+    public CompletableFuture<Void> checkPMVAvailAsync(VehicleIDInterface vhID) {
+        return send(out -> WireCodec.encodeCheckAvailability(out, vhID), WireCodec.MAX_MESSAGE_BYTES, RemoteServer::ok);
+    }
+
+    @Override
+    public CompletableFuture<String> reserveVehicleAsync(UserAccountInterface user, VehicleIDInterface veh, StationIDInterface st,
+                                                         GeographicPointInterface loc, LocalDateTime date, JourneyServiceInterface journey) {
+        return reserveVehicleAsync(null, user, veh, st, loc, date, journey);
+    }
+
+    private CompletableFuture<String> reserveVehicleAsync(String requestKey, UserAccountInterface user,
+                                                          VehicleIDInterface veh, StationIDInterface st,
+                                                          GeographicPointInterface loc, LocalDateTime date,
+                                                          JourneyServiceInterface journey) {
+        return this.<String>send(out -> WireCodec.encodeReserve(out, user, veh, st, loc, date, requestKey),
+                        WireCodec.MAX_MESSAGE_BYTES, RemoteServer::token)
+                .thenApply(token -> {
+                    journey.setServiceID(token);
+                    journey.setServiceInit(date, loc);
+                    return token;
+                });
+    }
+
+    @Override
+    public CompletableFuture<Void> registerPairingAsync(UserAccountInterface user, VehicleIDInterface veh, StationIDInterface st,
+                                                        GeographicPointInterface loc, LocalDateTime date, JourneyServiceInterface journey) {
+        return registerPairingAsync(null, user, veh, st, loc, date, journey);
+    }
+
+    private CompletableFuture<Void> registerPairingAsync(String requestKey, UserAccountInterface user,
+                                                         VehicleIDInterface veh, StationIDInterface st,
+                                                         GeographicPointInterface loc, LocalDateTime date,
+                                                         JourneyServiceInterface journey) {
+        String serviceId = journey.getServiceID();
+        return this.<String>send(out -> WireCodec.encodePairing(out, user, veh, st, loc, date, serviceId, requestKey),
+                        WireCodec.MAX_MESSAGE_BYTES, RemoteServer::token)
+                .thenApply(token -> startJourney(journey, token, date, loc));
+    }
+
+    @Override
+    public CompletableFuture<Void> stopPairingAsync(UserAccountInterface user, VehicleIDInterface veh, StationIDInterface st,
+                                                    GeographicPointInterface loc, LocalDateTime date, long avSp, long dist,
+                                                    int dur, long imp, JourneyServiceInterface journey) {
+        return stopPairingAsync(null, user, veh, st, loc, date, avSp, dist, dur, imp, journey);
+    }
+
+    @Override
+    public CompletableFuture<Void> stopPairingAsync(String requestKey, UserAccountInterface user, VehicleIDInterface veh,
+                                                    StationIDInterface st, GeographicPointInterface loc, LocalDateTime date,
+                                                    long avSp, long dist, int dur, long imp, JourneyServiceInterface journey) {
+        return this.<Void>send(out -> WireCodec.encodeStopPairing(out, user, veh, st, loc, date, avSp, dist, dur, imp,
+                        requestKey), WireCodec.MAX_MESSAGE_BYTES, RemoteServer::ok)
+                .thenApply(ignored -> {
+                    journey.setServiceFinish(date, loc, imp, avSp, dist, dur);
+                    return null;
+                });
+    }
+
+    @Override
+    public CompletableFuture<Void> registerLocationAsync(VehicleIDInterface veh, StationIDInterface st) {
+        return send(out -> WireCodec.encodeLocation(out, veh, st), WireCodec.MAX_MESSAGE_BYTES, RemoteServer::ok);
+    }
+
+    /**
+     * Envía el lote en una sola petición. Como {@link Server#registerLocations}, no falla: si se pierde la
+     * conexión, todos los registros se marcan como fallidos.
+     */
+    @Override
+    public CompletableFuture<LocationBatchResult> registerLocationsAsync(LocationBatch batch) {
+        int size = batch.size();
+        return this.<LocationBatchResult>send(out -> WireCodec.encodeLocationBatch(out, batch),
+                        WireCodec.maxLocationBatchBytes(size), RemoteServer::batchResult)
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                    if (cause instanceof ConnectException) {
+                        return RemoteProtocol.failedBatch(size, (ConnectException) cause);
+                    }
+                    throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+                });
+    }
+
+    private static Void startJourney(JourneyServiceInterface journey, String token, LocalDateTime date,
+                                     GeographicPointInterface loc) {
+        if (journey.getServiceID() == null) {
+            journey.setServiceID(token);
+        }
+        journey.setServiceInit(date, loc);
+        return null;
+    }
+
+    /**
+     * Envía la petición por la conexión actual, abriendo una nueva si la anterior se ha perdido.
+     *
+     * @param request  Codifica el mensaje.
+     * @param maxBytes Tamaño máximo del mensaje codificado.
+     * @param response Interpreta la respuesta correcta.
+     */
+    private <T> CompletableFuture<T> send(Request request, int maxBytes, Response<T> response) {
+        Connection current = connection;
+        if (current.failure != null) {
+            try {
+                current = reconnect();
+            } catch (ConnectException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        return current.send(request, maxBytes, response);
+    }
+
+    private Connection reconnect() throws ConnectException {
+        synchronized (connectLock) {
+            if (closed) {
+                throw new ConnectException("Connection to the server closed.");
+            }
+            if (connection.failure == null) {
+                return connection;
+            }
+            try {
+                connection = new Connection(SocketChannel.open(address));
+            } catch (IOException e) {
+                throw new ConnectException("Cannot connect to the server: " + e.getMessage());
+            }
+            return connection;
+        }
+    }
+
+    /**
+     * Conexión TCP con el servidor y las peticiones que esperan respuesta por ella. Una conexión perdida no
+     * se reutiliza.
+     */
+    private static final class Connection {
+        private final SocketChannel channel;
+        private final ConcurrentHashMap<Long, Pending<?>> pending = new ConcurrentHashMap<>();
+        private final AtomicLong nextRequestId = new AtomicLong();
+        private final ReentrantLock sendLock = new ReentrantLock(); // Protege 'outgoing'
+        private final ReentrantLock writeLock = new ReentrantLock(); // Protege 'writing' y las escrituras
+        private ByteBuffer outgoing = ByteBuffer.allocate(READ_BUFFER_BYTES);
+        private ByteBuffer writing = ByteBuffer.allocate(READ_BUFFER_BYTES);
+        private volatile ConnectException failure;
+
+        Connection(SocketChannel channel) throws IOException {
+            this.channel = channel;
+            try {
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+            Thread reader = new Thread(this::readLoop, "remote-server-" + THREAD_COUNT.incrementAndGet());
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        /**
+         * Escribe la petición en el buffer de salida y la envía, junto con las que se hayan acumulado.
+         */
+        <T> CompletableFuture<T> send(Request request, int maxBytes, Response<T> response) {
+            Pending<T> call = new Pending<>(response);
+            if (maxBytes > RemoteProtocol.MAX_FRAME_BYTES - 10) {
+                call.future.completeExceptionally(new IllegalArgumentException("Request too large: " + maxBytes + " bytes"));
+                return call.future;
+            }
+            long requestId = nextRequestId.incrementAndGet();
+            pending.put(requestId, call);
+            // fail() marca el fallo antes de vaciar 'pending': o se ve aquí o la vacía fail()
+            ConnectException lost = failure;
+            if (lost != null) {
+                pending.remove(requestId);
+                call.future.completeExceptionally(lost);
+                return call.future;
+            }
+            sendLock.lock();
+            try {
+                outgoing = RemoteProtocol.ensureRemaining(outgoing, FRAME_HEADER_BYTES + maxBytes);
+                int start = RemoteProtocol.beginFrame(outgoing, requestId);
+                try {
+                    request.encode(outgoing);
+                } catch (RuntimeException e) {
+                    // Un mensaje rechazado no deja nada en el buffer
+                    outgoing.position(start);
+                    pending.remove(requestId);
+                    call.future.completeExceptionally(e);
+                    return call.future;
+                }
+                RemoteProtocol.endFrame(outgoing, start);
+            } finally {
+                sendLock.unlock();
+            }
+            flush();
+            return call.future;
+        }
+
+        /**
+         * Envía lo acumulado. Si otro hilo ya está escribiendo, él se encarga: al soltar el cerrojo vuelve a
+         * comprobar si han llegado peticiones mientras escribía.
+         */
+        private void flush() {
+            do {
+                if (!writeLock.tryLock()) {
+                    return;
+                }
+                try {
+                    drain();
+                } catch (IOException e) {
+                    fail(new ConnectException("Connection to the server lost: " + e.getMessage()));
+                    return;
+                } finally {
+                    writeLock.unlock();
+                }
+            } while (hasOutgoing());
+        }
+
+        private void drain() throws IOException {
+            while (true) {
+                sendLock.lock();
+                try {
+                    if (outgoing.position() == 0) {
+                        return;
+                    }
+                    ByteBuffer full = outgoing;
+                    outgoing = writing;
+                    writing = full;
+                } finally {
+                    sendLock.unlock();
+                }
+                writing.flip();
+                while (writing.hasRemaining()) {
+                    channel.write(writing);
+                }
+                writing.clear();
+            }
+        }
+
+        private boolean hasOutgoing() {
+            sendLock.lock();
+            try {
+                return outgoing.position() > 0 && failure == null;
+            } finally {
+                sendLock.unlock();
+            }
+        }
+
+        private void readLoop() {
+            ByteBuffer input = ByteBuffer.allocate(READ_BUFFER_BYTES);
+            try {
+                while (true) {
+                    if (channel.read(input) < 0) {
+                        fail(new ConnectException("Connection closed by the server."));
+                        return;
+                    }
+                    input.flip();
+                    while (input.remaining() >= RemoteProtocol.LENGTH_BYTES) {
+                        int length = input.getInt(input.position());
+                        if (length <= 0 || length > RemoteProtocol.MAX_FRAME_BYTES) {
+                            throw new WireFormatException("Invalid frame length " + length);
+                        }
+                        if (input.remaining() - RemoteProtocol.LENGTH_BYTES < length) {
+                            break;
+                        }
+                        input.position(input.position() + RemoteProtocol.LENGTH_BYTES);
+                        ByteBuffer frame = input.slice();
+                        frame.limit(length);
+                        input.position(input.position() + length);
+                        complete(frame);
+                    }
+                    input.compact();
+                    if (!input.hasRemaining()) {
+                        // Una trama no cabe en el buffer
+                        ByteBuffer larger = ByteBuffer.allocate(input.capacity() * 2);
+                        input.flip();
+                        larger.put(input);
+                        input = larger;
+                    }
+                }
+            } catch (IOException e) {
+                fail(new ConnectException("Connection to the server lost: " + e.getMessage()));
+            } catch (WireFormatException | RuntimeException e) {
+                fail(new ConnectException("Invalid response from the server: " + e.getMessage()));
+            }
+        }
+
+        private void complete(ByteBuffer frame) throws WireFormatException {
+            Pending<?> call = pending.remove(WireFormat.getVarLong(frame));
+            if (call == null) {
+                return;
+            }
+            byte status = frame.get();
+            if (status == RemoteProtocol.ERROR) {
+                call.future.completeExceptionally(RemoteProtocol.getError(frame));
+            } else {
+                call.complete(status, frame);
+            }
+        }
+
+        /**
+         * Cierra la conexión y hace fallar todas las peticiones pendientes. Solo el primer fallo cuenta.
+         */
+        private void fail(ConnectException cause) {
+            synchronized (pending) {
+                if (failure != null) {
+                    return;
+                }
+                failure = cause;
+            }
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // La conexión ya no se usa
+            }
+            for (Long requestId : pending.keySet()) {
+                Pending<?> call = pending.remove(requestId);
+                if (call != null) {
+                    call.future.completeExceptionally(cause);
+                }
+            }
+        }
+    }
+
+    /**
+     * Espera una respuesta y lanza, sin envolverla, la excepción con la que haya fallado.
+     */
+    private static <T, A extends Exception, B extends Exception> T await(CompletableFuture<T> future, Class<A> first,
+                                                                           Class<B> second) throws A, B, ConnectException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (first.isInstance(cause)) {
+                throw first.cast(cause);
+            }
+            if (second.isInstance(cause)) {
+                throw second.cast(cause);
+            }
+            if (cause instanceof ConnectException) {
+                throw (ConnectException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws ConnectException {
+        return await(future, ConnectException.class, ConnectException.class);
+    }
+
+    private static <T> T awaitUnchecked(CompletableFuture<T> future) {
+        try {
+            return await(future);
+        } catch (ConnectException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Void ok(byte status, ByteBuffer in) throws WireFormatException {
+        expect(status, RemoteProtocol.OK);
+        return null;
+    }
+
+    private static String token(byte status, ByteBuffer in) throws WireFormatException {
+        expect(status, RemoteProtocol.TOKEN);
+        return WireFormat.getString(in);
+    }
+
+    private static List<VehicleIDInterface> vehicles(byte status, ByteBuffer in) throws WireFormatException {
+        expect(status, RemoteProtocol.VEHICLES);
+        return RemoteProtocol.getVehicles(in);
+    }
+
+    private static List<StationIDInterface> stations(byte status, ByteBuffer in) throws WireFormatException {
+        expect(status, RemoteProtocol.STATIONS);
+        return RemoteProtocol.getStations(in);
+    }
+
+    private static LocationBatchResult batchResult(byte status, ByteBuffer in) throws WireFormatException {
+        expect(status, RemoteProtocol.BATCH);
+        return RemoteProtocol.getBatchResult(in);
+    }
+
+    private static void expect(byte status, byte expected) throws WireFormatException {
+        if (status != expected) {
+            throw new WireFormatException("Unexpected response status " + status);
+        }
+    }
+
+    /**
+     * Petición en espera de respuesta.
+     */
+    private static final class Pending<T> {
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private final Response<T> response;
+
+        Pending(Response<T> response) {
+            this.response = response;
+        }
+
+        void complete(byte status, ByteBuffer in) throws WireFormatException {
+            future.complete(response.read(status, in));
+        }
+    }
+
+    @FunctionalInterface
+    private interface Request {
+        void encode(ByteBuffer out);
+    }
+
+    @FunctionalInterface
+    private interface Response<T> {
+        T read(byte status, ByteBuffer in) throws WireFormatException;
+    }
+}
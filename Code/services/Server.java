@@ -1,34 +1,68 @@
 package services;
 
-import java.math.BigDecimal;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.ConnectException;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
 
 import micromobility.JourneyServiceInterface;
 import data.interfaces.GeographicPointInterface;
 import data.interfaces.StationIDInterface;
 import data.interfaces.UserAccountInterface;
 import data.interfaces.VehicleIDInterface;
+import data.GeographicPoint;
+import data.VehicleID;
+import data.StationRegistry;
 import micromobility.JourneyService;
 import services.Exceptions.InvalidPairingArgsException;
 import services.Exceptions.PMVNotAvailException;
 import services.Exceptions.PairingNotFoundException;
+import services.persistence.FleetSnapshotStore;
+import services.persistence.ServerEventJournal;
+import services.persistence.Interfaces.ServerEventListener;
+import services.persistence.Interfaces.SnapshotListener;
 
 /**
  * Clase que simula un servidor que gestiona la disponibilidad de vehículos,
  * su ubicación y la asignación de viajes a los usuarios.
+ * El estado de cada vehículo se guarda como un único registro en un {@link FleetStateStore},
+ * de modo que las llamadas concurrentes sobre un mismo vehículo no dejan estados inconsistentes.
+ * Si se le proporciona un {@link ServerEventJournal}, cada cambio de estado se registra en el log de
+ * eventos antes de responder, y al arrancar el estado se reconstruye reproduciendo ese log. Con un
+ * {@link FleetSnapshotStore}, el arranque parte de la última instantánea y solo reproduce la cola del log.
+ * Las operaciones de emparejamiento aceptan una clave de idempotencia para que los clientes puedan
+ * reintentarlas sin riesgo de aplicarlas dos veces.
  */
 public class Server implements ServerInterface {
     // Almacenamiento simulado para datos persistentes
-    private final Map<VehicleIDInterface, Boolean> vehicleAvailability = new HashMap<>();
-    private final Map<VehicleIDInterface, GeographicPointInterface> vehicleLocations = new HashMap<>();
-    private final Map<VehicleIDInterface, StationIDInterface> vehicleStation = new HashMap<>();
-    private final Map<UserAccountInterface, JourneyServiceInterface> userJourneyRecords = new HashMap<>();
+    private final FleetStateStore fleet = new FleetStateStore();
+    private final JourneyRegistry journeys = new JourneyRegistry();
+    private final String serviceIdPrefix = Long.toString(System.currentTimeMillis(), 36) + "-";
+    private final AtomicLong serviceIdSeq = new AtomicLong();
+    // Índices espaciales: solo los vehículos disponibles, y todas las estaciones conocidas
+    private final SpatialIndex<VehicleIDInterface> availableVehicleIndex = new SpatialIndex<>();
+    private final SpatialIndex<StationIDInterface> stationIndex = new SpatialIndex<>();
+    // Estaciones canónicas: el estado de toda la flota comparte una instancia por estación y por punto de estación
+    private final StationRegistry stations = StationRegistry.shared();
+    // Log de eventos para la persistencia. Es null si el servidor solo trabaja en memoria
+    private final ServerEventJournal journal;
+    // Instantáneas del estado completo. Es null si el servidor no las utiliza
+    private final FleetSnapshotStore snapshots;
+    private final Object snapshotMonitor = new Object();
+    // Resultados de las llamadas con clave de idempotencia: un reintento no vuelve a aplicar la operación
+    private final IdempotencyCache requests = new IdempotencyCache();
 
     /**
      * Constructor que inicializa el servidor con datos preexistentes.
+     * Solo se consideran registrados los vehículos presentes en el mapa de disponibilidad;
+     * su ubicación y su estación se toman de los otros dos mapas.
      *
      * @param vehicleAvailability Mapa que indica la disponibilidad de los vehículos.
      * @param vehicleLocations    Mapa que almacena la ubicación actual de los vehículos.
@@ -39,10 +73,70 @@ public class Server implements ServerInterface {
                   Map<VehicleIDInterface, GeographicPointInterface> vehicleLocations,
                   Map<VehicleIDInterface, StationIDInterface> vehicleStation,
                   Map<UserAccountInterface, JourneyServiceInterface> userJourneyRecords) {
-        this.vehicleAvailability.putAll(vehicleAvailability);
-        this.vehicleLocations.putAll(vehicleLocations);
-        this.vehicleStation.putAll(vehicleStation);
-        this.userJourneyRecords.putAll(userJourneyRecords);
+        this.journal = null;
+        this.snapshots = null;
+        load(vehicleAvailability, vehicleLocations, vehicleStation, userJourneyRecords);
+    }
+
+    /**
+     * Constructor que inicializa el servidor con datos preexistentes y un log de eventos persistente.
+     * Tras cargar los mapas se reproduce el log completo, de modo que el estado resultante es el que
+     * había al detenerse el servidor. Los cambios posteriores se registran en el mismo log.
+     *
+     * @param vehicleAvailability Mapa que indica la disponibilidad de los vehículos.
+     * @param vehicleLocations    Mapa que almacena la ubicación actual de los vehículos.
+     * @param vehicleStation      Mapa que asocia cada vehículo con su estación de origen.
+     * @param userJourneyRecords  Mapa que registra los viajes en curso de los usuarios.
+     * @param journal             Log de eventos del servidor.
+     * @throws IOException Si el log no se puede leer.
+     */
+    public Server(Map<VehicleIDInterface, Boolean> vehicleAvailability,
+                  Map<VehicleIDInterface, GeographicPointInterface> vehicleLocations,
+                  Map<VehicleIDInterface, StationIDInterface> vehicleStation,
+                  Map<UserAccountInterface, JourneyServiceInterface> userJourneyRecords,
+                  ServerEventJournal journal) throws IOException {
+        this(vehicleAvailability, vehicleLocations, vehicleStation, userJourneyRecords, journal, null);
+    }
+
+    /**
+     * Constructor que inicializa el servidor con datos preexistentes, un log de eventos persistente y
+     * un almacén de instantáneas. Tras cargar los mapas se carga la última instantánea, si existe, y se
+     * reproducen solo los eventos del log posteriores a ella.
+     *
+     * @param vehicleAvailability Mapa que indica la disponibilidad de los vehículos.
+     * @param vehicleLocations    Mapa que almacena la ubicación actual de los vehículos.
+     * @param vehicleStation      Mapa que asocia cada vehículo con su estación de origen.
+     * @param userJourneyRecords  Mapa que registra los viajes en curso de los usuarios.
+     * @param journal             Log de eventos del servidor.
+     * @param snapshots           Almacén de instantáneas. Puede ser null.
+     * @throws IOException Si la instantánea o el log no se pueden leer.
+     */
+    public Server(Map<VehicleIDInterface, Boolean> vehicleAvailability,
+                  Map<VehicleIDInterface, GeographicPointInterface> vehicleLocations,
+                  Map<VehicleIDInterface, StationIDInterface> vehicleStation,
+                  Map<UserAccountInterface, JourneyServiceInterface> userJourneyRecords,
+                  ServerEventJournal journal, FleetSnapshotStore snapshots) throws IOException {
+        this.journal = Objects.requireNonNull(journal, "journal");
+        this.snapshots = snapshots;
+        load(vehicleAvailability, vehicleLocations, vehicleStation, userJourneyRecords);
+        Replayer replayer = new Replayer();
+        long from = snapshots != null ? snapshots.load(replayer) : 0;
+        journal.replay(from, replayer);
+    }
+
+    private void load(Map<VehicleIDInterface, Boolean> vehicleAvailability,
+                      Map<VehicleIDInterface, GeographicPointInterface> vehicleLocations,
+                      Map<VehicleIDInterface, StationIDInterface> vehicleStation,
+                      Map<UserAccountInterface, JourneyServiceInterface> userJourneyRecords) {
+        Map<VehicleIDInterface, VehicleState> initial = new HashMap<>();
+        vehicleAvailability.forEach((veh, available) -> {
+            // La estación se interna antes que la ubicación, que suele ser su mismo punto
+            StationIDInterface station = stations.intern(vehicleStation.get(veh));
+            initial.put(keyOf(veh), new VehicleState(available, stations.internPoint(vehicleLocations.get(veh)), station));
+        });
+        this.fleet.putAll(initial);
+        initial.keySet().forEach(this::reindex);
+        userJourneyRecords.forEach((user, journey) -> journeys.register(user, null, journey));
     }
 
     /**
@@ -54,14 +148,88 @@ public class Server implements ServerInterface {
      */
     @Override
     public void checkPMVAvail(VehicleIDInterface vhID) throws PMVNotAvailException, ConnectException {
-        if (!vehicleAvailability.containsKey(vhID)) {
+        VehicleState state = fleet.get(vhID);
+        if (state == null) {
             throw new ConnectException("Connection failed: Vehicle ID not found in the server.");
         }
-        if (!vehicleAvailability.get(vhID)) {
+        if (!state.isAvailable()) {
             throw new PMVNotAvailException("The vehicle is not available for pairing.");
         }
     }
 
+    /**
+     * Comprueba la disponibilidad de un vehículo y lo reserva para el usuario en un único paso atómico.
+     * La reserva se resuelve con un compare-and-set sobre el estado del vehículo, sin cerrojos: si dos
+     * usuarios intentan reservar el mismo vehículo a la vez, solo uno de ellos lo consigue.
+     *
+     * @param user    Usuario que realiza la reserva.
+     * @param veh     Vehículo a reservar.
+     * @param st      Estación donde se encuentra el vehículo.
+     * @param loc     Ubicación del emparejamiento.
+     * @param date    Fecha y hora del emparejamiento.
+     * @param journey Servicio de viaje asociado. Recibe el token de reserva como identificador de servicio.
+     * @return Token que identifica la reserva.
+     * @throws PMVNotAvailException        Si el vehículo no está disponible.
+     * @throws InvalidPairingArgsException Si la estación o la ubicación no coinciden con las del vehículo.
+     * @throws ConnectException            Si el vehículo no está registrado en el servidor.
+     */
+    @Override
+    public String reserveVehicle(UserAccountInterface user, VehicleIDInterface veh, StationIDInterface st,
+                                 GeographicPointInterface loc, LocalDateTime date, JourneyServiceInterface journey)
+            throws PMVNotAvailException, InvalidPairingArgsException, ConnectException {
+        return reserve(user, veh, st, loc, date, journey, null);
+    }
+
+    private String reserve(UserAccountInterface user, VehicleIDInterface veh, StationIDInterface st,
+                           GeographicPointInterface loc, LocalDateTime date, JourneyServiceInterface journey,
+                           IdempotencyCache.Ticket ticket)
+            throws PMVNotAvailException, InvalidPairingArgsException, ConnectException {
+        veh = keyOf(veh);
+
+        String token = nextServiceId();
+        StationIDInterface station = stations.intern(st);
+        GeographicPointInterface point = stations.internPoint(loc);
+        VehicleState current;
+        VehicleState next;
+        do {
+            current = fleet.get(veh);
+            if (current == null) {
+                throw new ConnectException("Connection failed: Vehicle ID not found in the server.");
+            }
+            if (!current.isAvailable()) {
+                throw new PMVNotAvailException("The vehicle is not available for pairing.");
+            }
+            if (!StationRegistry.sameStation(veh.getStation(), st)) {
+                throw new InvalidPairingArgsException("La estación proporcionada no coincide con la estación del vehículo.");
+            }
+            if (!sameLocation(st.getgeoPoint(), loc)) {
+                throw new InvalidPairingArgsException("La ubicación proporcionada no coincide con la de la estación.");
+            }
+            next = VehicleState.successor(current, false, point, station, token);
+        } while (!fleet.compareAndSet(veh, current, next));
+
+        Lock lock = fleet.lockFor(veh);
+        lock.lock();
+        try {
+            reindex(veh);
+        } finally {
+            lock.unlock();
+        }
+
+        journey.setServiceID(token);
+        journey.setServiceInit(date, loc);
+        journeys.register(user, veh, journey);
+        committed(ticket, token);
+        if (journal != null) {
+            try {
+                journal.awaitDurable(journal.pairing(veh, next, user, token, date, loc));
+            } catch (IOException e) {
+                throw persistenceFailure(e);
+            }
+        }
+        return token;
+    }
+
     /**
      * Registra el emparejamiento de un usuario con un vehículo en una estación específica.
      *
@@ -78,20 +246,29 @@ public class Server implements ServerInterface {
     public void registerPairing(UserAccountInterface user, VehicleIDInterface veh, StationIDInterface st,
                                 GeographicPointInterface loc, LocalDateTime date, JourneyServiceInterface journey)
             throws InvalidPairingArgsException, ConnectException {
+        register(user, veh, st, loc, date, journey, null);
+    }
+
+    private void register(UserAccountInterface user, VehicleIDInterface veh, StationIDInterface st,
+                          GeographicPointInterface loc, LocalDateTime date, JourneyServiceInterface journey,
+                          IdempotencyCache.Ticket ticket)
+            throws InvalidPairingArgsException, ConnectException {
+        veh = keyOf(veh);
 
-        if (!vehicleAvailability.containsKey(veh)) {
+        // Las validaciones solo dependen de datos inmutables: un vehículo registrado nunca se da de baja
+        if (!fleet.contains(veh)) {
             throw new ConnectException("El vehículo no está registrado en el servidor.");
         }
 
-        if (!veh.getStation().equals(st)) {
+        if (!StationRegistry.sameStation(veh.getStation(), st)) {
             throw new InvalidPairingArgsException("La estación proporcionada no coincide con la estación del vehículo.");
         }
 
-        if (!st.getgeoPoint().equals(loc)) {
+        if (!sameLocation(st.getgeoPoint(), loc)) {
             throw new InvalidPairingArgsException("La ubicación proporcionada no coincide con la de la estación.");
         }
 
-        setPairing(user, veh, st, loc, date, journey);
+        pair(user, veh, st, loc, date, journey, ticket);
     }
 
     /**
@@ -102,46 +279,71 @@ public class Server implements ServerInterface {
      * @param st      Estación donde finaliza el trayecto.
      * @param loc     Ubicación del final del trayecto.
      * @param date    Fecha y hora de finalización.
-     * @param avSp    Velocidad media del trayecto.
-     * @param dist    Distancia recorrida.
+     * @param avSp    Velocidad media del trayecto, en milímetros por minuto.
+     * @param dist    Distancia recorrida, en milímetros.
      * @param dur     Duración del trayecto en minutos.
-     * @param imp     Importe total del trayecto.
+     * @param imp     Importe total del trayecto, en céntimos.
      * @param journey Servicio de viaje asociado.
      * @throws InvalidPairingArgsException Si no hay un emparejamiento válido para finalizar.
      * @throws ConnectException            Si el vehículo no está registrado en el servidor.
      */
     @Override
     public void stopPairing(UserAccountInterface user, VehicleIDInterface veh, StationIDInterface st,
-                            GeographicPointInterface loc, LocalDateTime date, BigDecimal avSp, BigDecimal dist,
-                            int dur, BigDecimal imp, JourneyServiceInterface journey)
+                            GeographicPointInterface loc, LocalDateTime date, long avSp, long dist,
+                            int dur, long imp, JourneyServiceInterface journey)
             throws InvalidPairingArgsException, ConnectException {
+        stop(user, veh, st, loc, date, avSp, dist, dur, imp, journey, null);
+    }
 
-        if (!vehicleAvailability.containsKey(veh)) {
-            throw new ConnectException("El vehículo no está registrado en el servidor.");
-        }
+    private void stop(UserAccountInterface user, VehicleIDInterface veh, StationIDInterface st,
+                      GeographicPointInterface loc, LocalDateTime date, long avSp, long dist,
+                      int dur, long imp, JourneyServiceInterface journey, IdempotencyCache.Ticket ticket)
+            throws InvalidPairingArgsException, ConnectException {
+        veh = keyOf(veh);
 
-        if (!vehicleStation.containsKey(veh)) {
-            throw new InvalidPairingArgsException("El vehículo no tiene una estación registrada.");
-        }
+        VehicleState next;
+        JourneyRegistry.JourneyRecord record;
+        Lock lock = fleet.lockFor(veh);
+        lock.lock();
+        try {
+            VehicleState state = fleet.get(veh);
+            if (state == null) {
+                throw new ConnectException("El vehículo no está registrado en el servidor.");
+            }
 
-        if (!veh.getStation().equals(st)) {
-            throw new InvalidPairingArgsException("La estación proporcionada no coincide con la estación del vehículo.");
-        }
+            if (state.getStation() == null) {
+                throw new InvalidPairingArgsException("El vehículo no tiene una estación registrada.");
+            }
 
-        if (!st.getgeoPoint().equals(loc)) {
-            throw new InvalidPairingArgsException("La ubicación proporcionada no coincide con la de la estación.");
-        }
+            if (!StationRegistry.sameStation(veh.getStation(), st)) {
+                throw new InvalidPairingArgsException("La estación proporcionada no coincide con la estación del vehículo.");
+            }
 
-        if (!userJourneyRecords.containsKey(user)) {
-            throw new InvalidPairingArgsException("No hay un viaje en curso asociado a este usuario.");
-        }
+            if (!sameLocation(st.getgeoPoint(), loc)) {
+                throw new InvalidPairingArgsException("La ubicación proporcionada no coincide con la de la estación.");
+            }
+
+            if (journeys.findByUser(user) == null) {
+                throw new InvalidPairingArgsException("No hay un viaje en curso asociado a este usuario.");
+            }
 
-        journey.setServiceFinish(date, loc, imp, avSp, dist, dur);
+            journey.setServiceFinish(date, loc, imp, avSp, dist, dur);
 
-        registerLocation(veh, st);
-        vehicleAvailability.put(veh, true);
-        vehicleLocations.put(veh, loc);
-        userJourneyRecords.remove(user);
+            next = transition(veh, true, loc, st, null);
+            reindex(veh);
+            record = journeys.removeByUser(user);
+        } finally {
+            lock.unlock();
+        }
+        committed(ticket, null);
+        if (journal != null) {
+            try {
+                String serviceId = record != null ? record.getServiceId() : null;
+                journal.awaitDurable(journal.stop(veh, next, user, serviceId, date, loc, avSp, dist, dur, imp));
+            } catch (IOException e) {
+                throw persistenceFailure(e);
+            }
+        }
     }
 
     /**
@@ -157,11 +359,40 @@ public class Server implements ServerInterface {
     @Override
     public void setPairing(UserAccountInterface user, VehicleIDInterface veh, StationIDInterface st,
                            GeographicPointInterface loc, LocalDateTime date, JourneyServiceInterface journey) {
-        vehicleAvailability.put(veh, false);
-        vehicleLocations.put(veh, loc);
-        vehicleStation.put(veh, st);
+        try {
+            pair(user, veh, st, loc, date, journey, null);
+        } catch (ConnectException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void pair(UserAccountInterface user, VehicleIDInterface veh, StationIDInterface st,
+                      GeographicPointInterface loc, LocalDateTime date, JourneyServiceInterface journey,
+                      IdempotencyCache.Ticket ticket)
+            throws ConnectException {
+        veh = keyOf(veh);
+        VehicleState next;
+        Lock lock = fleet.lockFor(veh);
+        lock.lock();
+        try {
+            next = transition(veh, false, loc, st, null);
+            reindex(veh);
+        } finally {
+            lock.unlock();
+        }
+        if (journey.getServiceID() == null) {
+            journey.setServiceID(nextServiceId());
+        }
         journey.setServiceInit(date, loc);
-        userJourneyRecords.put(user, journey);
+        journeys.register(user, veh, journey);
+        committed(ticket, null);
+        if (journal != null) {
+            try {
+                journal.awaitDurable(journal.pairing(veh, next, user, journey.getServiceID(), date, loc));
+            } catch (IOException e) {
+                throw persistenceFailure(e);
+            }
+        }
     }
 
     /**
@@ -172,11 +403,159 @@ public class Server implements ServerInterface {
      */
     @Override
     public void unPairRegisterService(JourneyService s) throws PairingNotFoundException {
-        if (!userJourneyRecords.containsValue(s)) {
+        unpair(s, null);
+    }
+
+    /**
+     * Desempareja el viaje con un identificador de servicio, para quien solo conserva el identificador.
+     *
+     * @param requestKey Clave de idempotencia. Si es null, la llamada no se deduplica.
+     * @param serviceId  Identificador del servicio de viaje.
+     * @throws PairingNotFoundException Si no hay ningún viaje en curso con ese identificador.
+     */
+    @Override
+    public void unPairByServiceId(String requestKey, String serviceId) throws PairingNotFoundException {
+        if (requestKey == null) {
+            unpair(serviceId != null ? journeys.removeByServiceId(serviceId) : null, null);
+            return;
+        }
+        IdempotencyCache.Ticket ticket = requests.acquire("unpair:" + requestKey);
+        if (ticket.isReplay()) {
+            return;
+        }
+        try {
+            unpair(serviceId != null ? journeys.removeByServiceId(serviceId) : null, ticket);
+        } finally {
+            ticket.release();
+        }
+    }
+
+    private void unpair(JourneyService s, IdempotencyCache.Ticket ticket) throws PairingNotFoundException {
+        JourneyRegistry.JourneyRecord record = journeys.removeByJourney(s);
+        if (record == null && s.getServiceID() != null) {
+            // Los viajes restaurados del log o de una instantánea no conservan el servicio, sino su identificador
+            record = journeys.removeByServiceId(s.getServiceID());
+        }
+        unpair(record, ticket);
+    }
+
+    private void unpair(JourneyRegistry.JourneyRecord record, IdempotencyCache.Ticket ticket)
+            throws PairingNotFoundException {
+        if (record == null) {
             throw new PairingNotFoundException("No matching journey service record found.");
         }
+        committed(ticket, null);
+        if (journal != null) {
+            try {
+                journal.awaitDurable(journal.unpair(record.getUser(), record.getServiceId()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(persistenceFailure(e));
+            }
+        }
+    }
+
+    /**
+     * Variante de {@link #reserveVehicle(UserAccountInterface, VehicleIDInterface, StationIDInterface,
+     * GeographicPointInterface, LocalDateTime, JourneyServiceInterface)} que se puede reintentar: repetida
+     * con la misma clave, devuelve el token de la primera reserva sin reservar de nuevo ni modificar el viaje.
+     *
+     * @param requestKey Clave de idempotencia. Si es null, la llamada no se deduplica.
+     */
+    @Override
+    public String reserveVehicle(String requestKey, UserAccountInterface user, VehicleIDInterface veh,
+                                 StationIDInterface st, GeographicPointInterface loc, LocalDateTime date,
+                                 JourneyServiceInterface journey)
+            throws PMVNotAvailException, InvalidPairingArgsException, ConnectException {
+        if (requestKey == null) {
+            return reserveVehicle(user, veh, st, loc, date, journey);
+        }
+        IdempotencyCache.Ticket ticket = requests.acquire("reserve:" + requestKey);
+        if (ticket.isReplay()) {
+            return (String) ticket.getResult();
+        }
+        try {
+            return reserve(user, veh, st, loc, date, journey, ticket);
+        } finally {
+            ticket.release();
+        }
+    }
 
-        userJourneyRecords.values().remove(s);
+    /**
+     * Variante de {@link #registerPairing(UserAccountInterface, VehicleIDInterface, StationIDInterface,
+     * GeographicPointInterface, LocalDateTime, JourneyServiceInterface)} que se puede reintentar: repetida
+     * con la misma clave, no vuelve a emparejar ni a modificar el viaje.
+     *
+     * @param requestKey Clave de idempotencia. Si es null, la llamada no se deduplica.
+     */
+    @Override
+    public void registerPairing(String requestKey, UserAccountInterface user, VehicleIDInterface veh,
+                                StationIDInterface st, GeographicPointInterface loc, LocalDateTime date,
+                                JourneyServiceInterface journey)
+            throws InvalidPairingArgsException, ConnectException {
+        if (requestKey == null) {
+            registerPairing(user, veh, st, loc, date, journey);
+            return;
+        }
+        IdempotencyCache.Ticket ticket = requests.acquire("pairing:" + requestKey);
+        if (ticket.isReplay()) {
+            return;
+        }
+        try {
+            register(user, veh, st, loc, date, journey, ticket);
+        } finally {
+            ticket.release();
+        }
+    }
+
+    /**
+     * Variante de {@link #stopPairing(UserAccountInterface, VehicleIDInterface, StationIDInterface,
+     * GeographicPointInterface, LocalDateTime, long, long, int, long, JourneyServiceInterface)} que se puede
+     * reintentar: repetida con la misma clave, termina sin error aunque el viaje ya no esté en curso, y no
+     * vuelve a registrar el final del viaje ni su importe.
+     *
+     * @param requestKey Clave de idempotencia. Si es null, la llamada no se deduplica.
+     */
+    @Override
+    public void stopPairing(String requestKey, UserAccountInterface user, VehicleIDInterface veh,
+                            StationIDInterface st, GeographicPointInterface loc, LocalDateTime date, long avSp,
+                            long dist, int dur, long imp, JourneyServiceInterface journey)
+            throws InvalidPairingArgsException, ConnectException {
+        if (requestKey == null) {
+            stopPairing(user, veh, st, loc, date, avSp, dist, dur, imp, journey);
+            return;
+        }
+        IdempotencyCache.Ticket ticket = requests.acquire("stop:" + requestKey);
+        if (ticket.isReplay()) {
+            return;
+        }
+        try {
+            stop(user, veh, st, loc, date, avSp, dist, dur, imp, journey, ticket);
+        } finally {
+            ticket.release();
+        }
+    }
+
+    /**
+     * Variante de {@link #unPairRegisterService(JourneyService)} que se puede reintentar: repetida con la
+     * misma clave, termina sin error aunque el emparejamiento ya no exista.
+     *
+     * @param requestKey Clave de idempotencia. Si es null, la llamada no se deduplica.
+     */
+    @Override
+    public void unPairRegisterService(String requestKey, JourneyService s) throws PairingNotFoundException {
+        if (requestKey == null) {
+            unPairRegisterService(s);
+            return;
+        }
+        IdempotencyCache.Ticket ticket = requests.acquire("unpair:" + requestKey);
+        if (ticket.isReplay()) {
+            return;
+        }
+        try {
+            unpair(s, ticket);
+        } finally {
+            ticket.release();
+        }
     }
 
     /**
@@ -188,21 +567,406 @@ public class Server implements ServerInterface {
      */
     @Override
     public void registerLocation(VehicleIDInterface veh, StationIDInterface st) throws ConnectException {
-        if (!vehicleAvailability.containsKey(veh)) {
-            throw new ConnectException("El vehículo no está registrado en el servidor.");
+        veh = keyOf(veh);
+        VehicleState next;
+        Lock lock = fleet.lockFor(veh);
+        lock.lock();
+        try {
+            VehicleState state = fleet.get(veh);
+            if (state == null) {
+                throw new ConnectException("El vehículo no está registrado en el servidor.");
+            }
+
+            if (state.getStation() == null) {
+                throw new ConnectException("El vehículo no tiene una estación registrada.");
+            }
+
+            if (!StationRegistry.sameStation(veh.getStation(), st)) {
+                throw new ConnectException("La estación proporcionada no coincide con la estación registrada para el vehículo.");
+            }
+
+            next = transition(veh, true, st.getgeoPoint(), st, null);
+            reindex(veh);
+        } finally {
+            lock.unlock();
         }
+        if (journal != null) {
+            try {
+                journal.awaitDurable(journal.location(veh, next));
+            } catch (IOException e) {
+                throw persistenceFailure(e);
+            }
+        }
+    }
 
-        if (!vehicleStation.containsKey(veh)) {
-            throw new ConnectException("El vehículo no tiene una estación registrada.");
+    /**
+     * Aplica de una sola pasada un lote de lecturas de ubicación. Cada vehículo queda disponible en la
+     * posición leída, igual que con {@link #registerLocation}. Los registros se agrupan por franja de
+     * bloqueo, de modo que cada cerrojo se adquiere una sola vez por lote, y los eventos del log se
+     * confirman juntos al final. Si el lote contiene varias lecturas del mismo vehículo, solo se aplica
+     * la más reciente.
+     *
+     * @param batch Lote de lecturas.
+     * @return Resultado registro a registro. Los errores no interrumpen el resto del lote.
+     */
+    @Override
+    public LocationBatchResult registerLocations(LocationBatch batch) {
+        int size = batch.size();
+        LocationBatchResult result = new LocationBatchResult(size);
+        VehicleIDInterface[] vehicles = new VehicleIDInterface[size];
+        Map<Integer, Integer> newest = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            VehicleIDInterface veh = fleet.find(batch.getVehicleId(i));
+            if (veh == null) {
+                result.fail(i, new ConnectException("El vehículo no está registrado en el servidor."));
+                continue;
+            }
+            vehicles[i] = veh;
+            Integer previous = newest.get(veh.getId());
+            if (previous == null || batch.getTimestamp(i) >= batch.getTimestamp(previous)) {
+                newest.put(veh.getId(), i);
+                if (previous != null) {
+                    result.supersede(previous);
+                    vehicles[previous] = null;
+                }
+            } else {
+                result.supersede(i);
+                vehicles[i] = null;
+            }
+        }
+
+        // Ordenación por recuento: los registros de cada franja quedan contiguos en 'order'
+        int stripeCount = fleet.stripeCount();
+        int[] start = new int[stripeCount + 1];
+        for (int i = 0; i < size; i++) {
+            if (vehicles[i] != null) {
+                start[fleet.stripeOf(vehicles[i]) + 1]++;
+            }
+        }
+        for (int stripe = 0; stripe < stripeCount; stripe++) {
+            start[stripe + 1] += start[stripe];
         }
+        int[] order = new int[start[stripeCount]];
+        int[] fill = Arrays.copyOf(start, stripeCount);
+        for (int i = 0; i < size; i++) {
+            if (vehicles[i] != null) {
+                order[fill[fleet.stripeOf(vehicles[i])]++] = i;
+            }
+        }
+
+        VehicleState[] applied = new VehicleState[size];
+        for (int stripe = 0; stripe < stripeCount; stripe++) {
+            if (start[stripe] == start[stripe + 1]) {
+                continue;
+            }
+            Lock lock = fleet.lockForStripe(stripe);
+            lock.lock();
+            try {
+                for (int k = start[stripe]; k < start[stripe + 1]; k++) {
+                    int i = order[k];
+                    applied[i] = applyLocation(vehicles[i], batch, i, result);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        if (journal != null) {
+            long last = -1;
+            try {
+                for (int i = 0; i < size; i++) {
+                    if (applied[i] != null) {
+                        last = journal.location(vehicles[i], applied[i]);
+                    }
+                }
+                if (last >= 0) {
+                    journal.awaitDurable(last);
+                }
+            } catch (IOException e) {
+                ConnectException failure = persistenceFailure(e);
+                for (int i = 0; i < size; i++) {
+                    if (applied[i] != null) {
+                        result.fail(i, failure);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Valida y aplica un registro de un lote de ubicaciones.
+     * Debe invocarse con el cerrojo de la franja del vehículo adquirido.
+     *
+     * @return El nuevo estado del vehículo, o null si el registro se rechazó.
+     */
+    private VehicleState applyLocation(VehicleIDInterface veh, LocationBatch batch, int i, LocationBatchResult result) {
+        VehicleState state = fleet.get(veh);
+        if (state.getStation() == null) {
+            result.fail(i, new ConnectException("El vehículo no tiene una estación registrada."));
+            return null;
+        }
+        StationIDInterface st = veh.getStation();
+        if (st.getID() != batch.getStationId(i)) {
+            result.fail(i, new ConnectException("La estación proporcionada no coincide con la estación registrada para el vehículo."));
+            return null;
+        }
+        // Si el vehículo informa de la posición exacta de la estación se reutiliza su punto
+        GeographicPointInterface stationPoint = st.getgeoPoint();
+        float latitude = batch.getLatitude(i);
+        float longitude = batch.getLongitude(i);
+        GeographicPointInterface loc = stationPoint != null
+                && stationPoint.getLatitude() == latitude && stationPoint.getLongitude() == longitude
+                ? stationPoint : new GeographicPoint(latitude, longitude);
+        VehicleState next = transition(veh, true, loc, st, null);
+        reindex(veh);
+        return next;
+    }
+
+    /**
+     * Busca los vehículos disponibles más cercanos a una ubicación.
+     *
+     * @param loc Ubicación de referencia.
+     * @param k   Número máximo de vehículos a devolver.
+     * @return Vehículos disponibles ordenados de menor a mayor distancia.
+     */
+    @Override
+    public List<VehicleIDInterface> findNearestAvailableVehicles(GeographicPointInterface loc, int k) {
+        return availableVehicleIndex.nearest(loc, k, this::isAvailable);
+    }
 
-        if (!veh.getStation().equals(st)) {
-            throw new ConnectException("La estación proporcionada no coincide con la estación registrada para el vehículo.");
+    /**
+     * Busca los vehículos disponibles situados dentro de un radio alrededor de una ubicación.
+     *
+     * @param loc          Ubicación de referencia.
+     * @param radiusMeters Radio de búsqueda en metros.
+     * @return Vehículos disponibles dentro del radio.
+     */
+    @Override
+    public List<VehicleIDInterface> findAvailableVehiclesWithin(GeographicPointInterface loc, double radiusMeters) {
+        return availableVehicleIndex.within(loc, radiusMeters, this::isAvailable);
+    }
+
+    /**
+     * Busca las estaciones más cercanas a una ubicación.
+     *
+     * @param loc Ubicación de referencia.
+     * @param k   Número máximo de estaciones a devolver.
+     * @return Estaciones ordenadas de menor a mayor distancia.
+     */
+    @Override
+    public List<StationIDInterface> findNearestStations(GeographicPointInterface loc, int k) {
+        return stationIndex.nearest(loc, k);
+    }
+
+    /**
+     * Busca las estaciones situadas dentro de un radio alrededor de una ubicación.
+     *
+     * @param loc          Ubicación de referencia.
+     * @param radiusMeters Radio de búsqueda en metros.
+     * @return Estaciones dentro del radio.
+     */
+    @Override
+    public List<StationIDInterface> findStationsWithin(GeographicPointInterface loc, double radiusMeters) {
+        return stationIndex.within(loc, radiusMeters);
+    }
+
+    /**
+     * Escribe una instantánea del estado completo del servidor y elimina los segmentos del log que
+     * quedan cubiertos por ella. La instantánea se toma sin detener las peticiones: los cambios que
+     * se produzcan mientras se escribe están en el log a partir de la posición registrada y se
+     * vuelven a aplicar, de forma idempotente, al reproducirlo.
+     *
+     * @return Posición del log a partir de la cual habrá que reproducir tras cargar la instantánea.
+     * @throws IOException           Si la instantánea no se puede escribir.
+     * @throws IllegalStateException Si el servidor no tiene log de eventos o almacén de instantáneas.
+     */
+    public long takeSnapshot() throws IOException {
+        if (journal == null || snapshots == null) {
+            throw new IllegalStateException("Snapshots require an event journal and a snapshot store");
         }
+        synchronized (snapshotMonitor) {
+            // La posición se lee antes de recorrer el estado: todo evento anterior ya está aplicado en memoria
+            long position = journal.position();
+            try (FleetSnapshotStore.Writer writer = snapshots.begin(position)) {
+                fleet.forEach(writer::vehicle);
+                journeys.forEach(record -> writer.journey(record.getUser(), record.getVehicle(), record.getServiceId(),
+                        record.getInitDate(), record.getOrigin()));
+                writer.commit();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            journal.getLog().truncateBefore(position);
+            return position;
+        }
+    }
 
-        GeographicPointInterface stationLocation = st.getgeoPoint();
-        vehicleLocations.put(veh, stationLocation);
-        vehicleAvailability.put(veh, true);
-        vehicleStation.put(veh, st);
+    /**
+     * Identificador con el que el servidor guarda un vehículo: el ya registrado si lo hay y, si no, uno cuya
+     * estación es la canónica. Así las claves de la flota, los índices y los viajes no guardan copias propias
+     * de la estación, y las comparaciones con ella se resuelven por identidad.
+     */
+    private VehicleIDInterface keyOf(VehicleIDInterface veh) {
+        VehicleIDInterface registered = fleet.registered(veh);
+        if (registered != veh || !(veh instanceof VehicleID)) {
+            return registered;
+        }
+        // Solo se consulta el registro: un vehículo aún sin validar no debe cambiar la estación canónica
+        StationIDInterface station = stations.lookup(veh.getStation().getID());
+        return station == null || station == veh.getStation() || !station.equals(veh.getStation())
+                ? veh : new VehicleID(veh.getId(), station);
+    }
+
+    /**
+     * Sustituye el estado de un vehículo por su sucesor. Se reintenta si una reserva sin cerrojo se
+     * adelanta, para que cada versión del estado se publique una sola vez.
+     * Debe invocarse con el cerrojo de la franja del vehículo adquirido.
+     *
+     * @return El nuevo estado.
+     */
+    private VehicleState transition(VehicleIDInterface veh, boolean available, GeographicPointInterface loc,
+                                    StationIDInterface st, String reservation) {
+        st = stations.intern(st);
+        loc = stations.internPoint(loc);
+        VehicleState current;
+        VehicleState next;
+        do {
+            current = fleet.get(veh);
+            next = VehicleState.successor(current, available, loc, st, reservation);
+        } while (current == null ? !fleet.putIfAbsent(veh, next) : !fleet.compareAndSet(veh, current, next));
+        return next;
+    }
+
+    /**
+     * Aplica un estado leído del log si es más reciente que el actual.
+     */
+    private void restoreState(VehicleIDInterface veh, VehicleState state) {
+        Lock lock = fleet.lockFor(veh);
+        lock.lock();
+        try {
+            VehicleState current = fleet.get(veh);
+            if (current == null || state.getVersion() > current.getVersion()) {
+                fleet.put(veh, state);
+                reindex(veh);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Comprueba si dos ubicaciones coinciden, resolviendo por identidad el caso habitual en que ambas
+     * proceden de la misma estación internada.
+     */
+    private static boolean sameLocation(GeographicPointInterface a, GeographicPointInterface b) {
+        return a == b || (a != null && a.equals(b));
+    }
+
+    /**
+     * Guarda el resultado de una llamada con clave en cuanto el cambio en memoria está hecho, antes de
+     * registrarlo en el log: si el registro falla, el cambio ya es visible y una repetición de la llamada
+     * debe recibir este resultado en lugar de volver a aplicarlo.
+     */
+    private static void committed(IdempotencyCache.Ticket ticket, Object result) {
+        if (ticket != null) {
+            ticket.complete(result);
+        }
+    }
+
+    private static ConnectException persistenceFailure(IOException e) {
+        return new ConnectException("No se pudo registrar el evento en el log: " + e.getMessage());
+    }
+
+    /**
+     * Sincroniza los índices espaciales con el estado actual de un vehículo.
+     * Debe invocarse con el cerrojo de la franja del vehículo adquirido.
+     *
+     * @param veh Vehículo cuyo estado acaba de cambiar.
+     */
+    private void reindex(VehicleIDInterface veh) {
+        VehicleState state = fleet.get(veh);
+        if (state != null && state.isAvailable() && state.getLocation() != null) {
+            availableVehicleIndex.put(veh, state.getLocation());
+        } else {
+            availableVehicleIndex.remove(veh);
+        }
+        if (state != null && state.getStation() != null && state.getStation().getgeoPoint() != null) {
+            stationIndex.put(state.getStation(), state.getStation().getgeoPoint());
+        }
+    }
+
+    /**
+     * Genera un identificador de servicio único para esta instancia del servidor.
+     *
+     * @return Nuevo identificador de servicio.
+     */
+    private String nextServiceId() {
+        return serviceIdPrefix + serviceIdSeq.incrementAndGet();
+    }
+
+    private boolean isAvailable(VehicleIDInterface veh) {
+        VehicleState state = fleet.get(veh);
+        return state != null && state.isAvailable();
+    }
+
+    /**
+     * Reconstruye el estado del servidor a partir de una instantánea y de los eventos del log.
+     */
+    private final class Replayer implements ServerEventListener, SnapshotListener {
+
+        @Override
+        public void onVehicle(VehicleIDInterface veh, VehicleState state) {
+            restoreState(veh, state);
+        }
+
+        @Override
+        public void onJourney(UserAccountInterface user, VehicleIDInterface veh, String serviceId,
+                              LocalDateTime date, GeographicPointInterface loc) {
+            restoreJourney(user, veh, serviceId, date, loc, null);
+        }
+
+        @Override
+        public void onPairing(VehicleIDInterface veh, VehicleState state, UserAccountInterface user, String serviceId,
+                              LocalDateTime date, GeographicPointInterface loc) {
+            restoreState(veh, state);
+            restoreJourney(user, veh, serviceId, date, loc, state.getLocation());
+        }
+
+        @Override
+        public void onStop(VehicleIDInterface veh, VehicleState state, UserAccountInterface user, String serviceId,
+                           LocalDateTime date, GeographicPointInterface loc, long avSp, long dist, int dur, long imp) {
+            restoreState(veh, state);
+            removeJourney(user, serviceId);
+        }
+
+        @Override
+        public void onLocation(VehicleIDInterface veh, VehicleState state) {
+            restoreState(veh, state);
+        }
+
+        @Override
+        public void onUnpair(UserAccountInterface user, String serviceId) {
+            removeJourney(user, serviceId);
+        }
+
+        /**
+         * Elimina el viaje en curso del usuario solo si es el del evento: un evento de un viaje anterior
+         * puede quedar en el log detrás del emparejamiento del siguiente.
+         */
+        private void removeJourney(UserAccountInterface user, String serviceId) {
+            JourneyRegistry.JourneyRecord record = journeys.findByUser(user);
+            if (record != null && Objects.equals(serviceId, record.getServiceId())) {
+                journeys.removeByUser(user);
+            }
+        }
+
+        private void restoreJourney(UserAccountInterface user, VehicleIDInterface veh, String serviceId,
+                                    LocalDateTime date, GeographicPointInterface loc, GeographicPointInterface fallback) {
+            JourneyRegistry.JourneyRecord record = journeys.findByUser(user);
+            if (record != null && serviceId != null && serviceId.equals(record.getServiceId())) {
+                return;
+            }
+            journeys.restore(user, veh, serviceId, date, loc != null ? loc : fallback);
+        }
     }
 }
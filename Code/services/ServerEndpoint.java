@@ -0,0 +1,534 @@
+package services;
+
+import data.GeographicPoint;
+import data.StationRegistry;
+import data.UserAccount;
+import data.VehicleID;
+import data.interfaces.GeographicPointInterface;
+import data.interfaces.StationIDInterface;
+import data.interfaces.UserAccountInterface;
+import data.interfaces.VehicleIDInterface;
+import micromobility.JourneyService;
+import micromobility.PMVState;
+import micromobility.PMVehicle;
+import services.Exceptions.WireFormatException;
+import services.wire.MessageType;
+import services.wire.WireCodec;
+import services.wire.WireFormat;
+import services.wire.WireMessage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Expone un {@link ServerInterface} a través de un socket TCP, para ejecutar el servidor en un proceso
+ * propio y escalar por separado los nodos que atienden a los usuarios.
+ *
+ * Un único hilo con un {@link Selector} atiende todas las conexiones sin bloquearse. Las tramas completas
+ * recibidas en cada lectura se procesan como un lote en un grupo fijo de tantos hilos como procesadores, en
+ * orden y de una en una por conexión, y sus respuestas se envían juntas en una sola escritura. Los clientes pueden encadenar
+ * peticiones sin esperar las respuestas anteriores.
+ *
+ * Los usuarios, vehículos y estaciones llegan como identificadores y se resuelven aquí: las estaciones en el
+ * {@link StationRegistry} compartido, y los viajes iniciados por esta conexión en una copia local de cada
+ * {@link JourneyService}, que es la que recibe el servidor. Las peticiones con clave de idempotencia
+ * se pasan al servidor con su clave, y sus reintentos reciben la misma copia del viaje que el primer intento.
+ */
+public class ServerEndpoint implements Closeable {
+    // Las credenciales no viajan por la red y el servidor no las consulta
+    private static final String REMOTE_PASSWORD = "remote-session";
+    private static final int READ_BUFFER_BYTES = 64 * 1024;
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private final ServerInterface server;
+    private final StationRegistry stations = StationRegistry.shared();
+    private final ServerSocketChannel acceptor;
+    private final Selector selector;
+    private final Thread selectorThread;
+    private final ExecutorService workers;
+    private final Queue<Connection> pendingWrites = new ConcurrentLinkedQueue<>();
+    // Conexiones que un hilo del grupo ha dado por rotas; las cierra el hilo del selector
+    private final Queue<Connection> pendingCloses = new ConcurrentLinkedQueue<>();
+    private final ConcurrentHashMap<UserAccountInterface, JourneyService> journeysByUser = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, JourneyService> journeysByService = new ConcurrentHashMap<>();
+    // Viaje usado en el primer intento de cada petición con clave de idempotencia
+    private final IdempotencyCache attempts = new IdempotencyCache();
+    private volatile boolean closed;
+
+    /**
+     * Crea un punto de acceso en un puerto libre de la interfaz de bucle local.
+     *
+     * @param server Servidor que atiende las peticiones.
+     * @throws IOException Si no se puede abrir el socket.
+     */
+    public ServerEndpoint(ServerInterface server) throws IOException {
+        this(server, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+
+    /**
+     * Crea un punto de acceso en la dirección indicada.
+     *
+     * @param server  Servidor que atiende las peticiones.
+     * @param address Dirección local; con el puerto 0 se elige uno libre.
+     * @throws IOException              Si no se puede abrir el socket.
+     * @throws IllegalArgumentException Si alguno de los parámetros es nulo.
+     */
+    public ServerEndpoint(ServerInterface server, InetSocketAddress address) throws IOException {
+        if (server == null || address == null) {
+            throw new IllegalArgumentException("Server and address cannot be null");
+        }
+        this.server = server;
+        this.selector = Selector.open();
+        this.acceptor = ServerSocketChannel.open();
+        try {
+            acceptor.bind(address);
+            acceptor.configureBlocking(false);
+            acceptor.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            acceptor.close();
+            selector.close();
+            throw e;
+        }
+        // Cada conexión ocupa como mucho un hilo a la vez, así que la cola no crece más que las conexiones
+        this.workers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+            Thread thread = new Thread(r, "server-endpoint-worker-" + THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.selectorThread = new Thread(this::selectLoop, "server-endpoint-" + THREAD_COUNT.incrementAndGet());
+        this.selectorThread.setDaemon(true);
+        this.selectorThread.start();
+    }
+
+    /**
+     * @return Dirección en la que el punto de acceso acepta conexiones.
+     */
+    public InetSocketAddress getAddress() {
+        try {
+            return (InetSocketAddress) acceptor.getLocalAddress();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Deja de aceptar conexiones y cierra las abiertas. Las peticiones en curso terminan, pero sus
+     * respuestas ya no se envían.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        selector.wakeup();
+        try {
+            selectorThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        workers.shutdown();
+    }
+
+    private void selectLoop() {
+        try {
+            while (!closed) {
+                selector.select();
+                Connection connection;
+                while ((connection = pendingWrites.poll()) != null) {
+                    if (connection.key.isValid()) {
+                        connection.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    }
+                }
+                while ((connection = pendingCloses.poll()) != null) {
+                    connection.close();
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else {
+                            if (key.isReadable()) {
+                                ((Connection) key.attachment()).read();
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                ((Connection) key.attachment()).write();
+                            }
+                        }
+                    } catch (IOException e) {
+                        // Un error en una conexión no afecta a las demás
+                        if (key.attachment() != null) {
+                            ((Connection) key.attachment()).close();
+                        }
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            closed = true;
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                try {
+                    key.channel().close();
+                } catch (IOException ignored) {
+                    // Se está cerrando el punto de acceso
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+                // Se está cerrando el punto de acceso
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = acceptor.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        key.attach(new Connection(channel, key));
+    }
+
+    /**
+     * Conexión con un cliente. La lectura y la escritura las hace el hilo del selector; el procesamiento,
+     * un hilo del grupo, nunca dos a la vez para la misma conexión.
+     */
+    private final class Connection {
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private ByteBuffer input = ByteBuffer.allocate(READ_BUFFER_BYTES);
+        private final Queue<byte[]> inbound = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean processing = new AtomicBoolean();
+        private final Queue<ByteBuffer> outbound = new ConcurrentLinkedQueue<>();
+        private final WireMessage message = new WireMessage();
+        // Solo lo usa el hilo que procesa la conexión
+        private boolean broken;
+
+        Connection(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+
+        void read() throws IOException {
+            if (channel.read(input) < 0) {
+                close();
+                return;
+            }
+            input.flip();
+            int start = input.position();
+            int end = start;
+            while (input.limit() - end >= RemoteProtocol.LENGTH_BYTES) {
+                int length = input.getInt(end);
+                if (length <= 0 || length > RemoteProtocol.MAX_FRAME_BYTES) {
+                    throw new IOException("Invalid frame length " + length);
+                }
+                if (input.limit() - end - RemoteProtocol.LENGTH_BYTES < length) {
+                    if (input.capacity() < length + RemoteProtocol.LENGTH_BYTES) {
+                        grow(length + RemoteProtocol.LENGTH_BYTES);
+                    }
+                    break;
+                }
+                end += RemoteProtocol.LENGTH_BYTES + length;
+            }
+            if (end > start) {
+                // Todas las tramas completas de esta lectura forman un lote
+                byte[] frames = new byte[end - start];
+                input.get(frames);
+                inbound.add(frames);
+                schedule();
+            }
+            input.compact();
+        }
+
+        private void grow(int capacity) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(capacity, input.capacity() * 2));
+            larger.put(input);
+            larger.flip();
+            // El llamador hace compact(): se deja el buffer nuevo en modo lectura y sin consumir
+            input = larger;
+        }
+
+        private void schedule() {
+            if (processing.compareAndSet(false, true)) {
+                try {
+                    workers.execute(this::process);
+                } catch (RejectedExecutionException e) {
+                    processing.set(false);
+                }
+            }
+        }
+
+        private void process() {
+            while (true) {
+                byte[] frames = inbound.poll();
+                if (frames == null) {
+                    processing.set(false);
+                    // Un lote puede haber llegado entre el último poll y la liberación
+                    if (inbound.isEmpty() || !processing.compareAndSet(false, true)) {
+                        return;
+                    }
+                    continue;
+                }
+                ByteBuffer responses = ByteBuffer.allocate(Math.max(256, frames.length));
+                ByteBuffer in = ByteBuffer.wrap(frames);
+                while (in.hasRemaining() && !broken) {
+                    int length = in.getInt();
+                    int next = in.position() + length;
+                    ByteBuffer frame = in.slice();
+                    frame.limit(length);
+                    in.position(next);
+                    responses = handle(frame, responses);
+                }
+                if (broken) {
+                    // processing queda activo: la conexión no vuelve a procesarse antes de cerrarse
+                    pendingCloses.add(this);
+                    selector.wakeup();
+                    return;
+                }
+                responses.flip();
+                outbound.add(responses);
+                pendingWrites.add(this);
+                selector.wakeup();
+            }
+        }
+
+        private ByteBuffer handle(ByteBuffer frame, ByteBuffer out) {
+            long requestId;
+            try {
+                requestId = WireFormat.getVarLong(frame);
+            } catch (WireFormatException e) {
+                broken = true;
+                return out;
+            }
+            out = RemoteProtocol.ensureRemaining(out, RemoteProtocol.LENGTH_BYTES + 10 + RemoteProtocol.maxErrorBytes());
+            int start = RemoteProtocol.beginFrame(out, requestId);
+            try {
+                MessageType type = WireCodec.decode(frame, message);
+                out = dispatch(type, out);
+            } catch (Exception e) {
+                RemoteProtocol.putError(out, e instanceof UncheckedIOException ? e.getCause() : e);
+            }
+            RemoteProtocol.endFrame(out, start);
+            return out;
+        }
+
+        /**
+         * Ejecuta la petición y escribe su respuesta. Si la respuesta puede no caber, el buffer se amplía
+         * antes de empezar a escribirla.
+         */
+        private ByteBuffer dispatch(MessageType type, ByteBuffer out) throws Exception {
+            switch (type) {
+                case CHECK_AVAILABILITY:
+                    server.checkPMVAvail(vehicle());
+                    RemoteProtocol.putOk(out);
+                    return out;
+                case RESERVE: {
+                    VehicleIDInterface veh = vehicle();
+                    UserAccountInterface user = user();
+                    JourneyService journey = firstAttempt(type, localJourney(veh));
+                    String token = server.reserveVehicle(message.getRequestKey(), user, veh, station(), message.getLocation(),
+                            message.getDate(), journey);
+                    remember(user, journey);
+                    RemoteProtocol.putToken(out, token);
+                    return out;
+                }
+                case PAIRING:
+                case SET_PAIRING: {
+                    VehicleIDInterface veh = vehicle();
+                    UserAccountInterface user = user();
+                    JourneyService journey = firstAttempt(type, localJourney(veh));
+                    if (message.getServiceId() != null) {
+                        journey.setServiceID(message.getServiceId());
+                    }
+                    if (type == MessageType.PAIRING) {
+                        server.registerPairing(message.getRequestKey(), user, veh, station(), message.getLocation(),
+                                message.getDate(), journey);
+                    } else {
+                        server.setPairing(user, veh, station(), message.getLocation(), message.getDate(), journey);
+                    }
+                    remember(user, journey);
+                    RemoteProtocol.putToken(out, journey.getServiceID());
+                    return out;
+                }
+                case STOP_PAIRING: {
+                    VehicleIDInterface veh = vehicle();
+                    UserAccountInterface user = user();
+                    JourneyService journey = journeysByUser.get(user);
+                    server.stopPairing(message.getRequestKey(), user, veh, station(), message.getLocation(), message.getDate(),
+                            message.getAvgSpeedMmPerMin(), message.getDistanceMm(), message.getDuration(),
+                            message.getImportCents(), journey != null ? journey : localJourney(veh));
+                    forget(user);
+                    RemoteProtocol.putOk(out);
+                    return out;
+                }
+                case UNPAIR: {
+                    // Un reintento ya no encuentra el viaje en los índices, pero sí el del primer intento
+                    JourneyService journey = firstAttempt(type, journeysByService.get(message.getServiceId()));
+                    if (journey == null) {
+                        // Viaje iniciado por otra conexión o antes de reiniciar: el servidor lo busca por su identificador
+                        server.unPairByServiceId(message.getRequestKey(), message.getServiceId());
+                    } else {
+                        server.unPairRegisterService(message.getRequestKey(), journey);
+                        journeysByService.remove(message.getServiceId(), journey);
+                        journeysByUser.values().remove(journey);
+                    }
+                    RemoteProtocol.putOk(out);
+                    return out;
+                }
+                case LOCATION:
+                    server.registerLocation(vehicle(), station());
+                    RemoteProtocol.putOk(out);
+                    return out;
+                case LOCATION_BATCH: {
+                    LocationBatchResult result = server.registerLocations(message.getBatch());
+                    out = RemoteProtocol.ensureRemaining(out, RemoteProtocol.maxBatchResultBytes(result.size()));
+                    RemoteProtocol.putBatchResult(out, result);
+                    return out;
+                }
+                case NEAREST_VEHICLES:
+                case VEHICLES_WITHIN: {
+                    List<VehicleIDInterface> vehicles = type == MessageType.NEAREST_VEHICLES
+                            ? server.findNearestAvailableVehicles(message.getLocation(), message.getLimit())
+                            : server.findAvailableVehiclesWithin(message.getLocation(), message.getRadiusMeters());
+                    out = RemoteProtocol.ensureRemaining(out, RemoteProtocol.maxVehiclesBytes(vehicles.size()));
+                    RemoteProtocol.putVehicles(out, vehicles);
+                    return out;
+                }
+                case NEAREST_STATIONS:
+                case STATIONS_WITHIN: {
+                    List<StationIDInterface> found = type == MessageType.NEAREST_STATIONS
+                            ? server.findNearestStations(message.getLocation(), message.getLimit())
+                            : server.findStationsWithin(message.getLocation(), message.getRadiusMeters());
+                    out = RemoteProtocol.ensureRemaining(out, RemoteProtocol.maxStationsBytes(found.size()));
+                    RemoteProtocol.putStations(out, found);
+                    return out;
+                }
+                default:
+                    throw new IllegalArgumentException("Unsupported request " + type);
+            }
+        }
+
+        private UserAccountInterface user() {
+            return new UserAccount(message.getUserId(), message.getUsername(), message.getEmail(), REMOTE_PASSWORD,
+                    message.getMonedero());
+        }
+
+        private VehicleIDInterface vehicle() throws ConnectException {
+            StationIDInterface home = stations.lookup(message.getVehicleStationId());
+            if (home == null) {
+                throw new ConnectException("Unknown station " + message.getVehicleStationId());
+            }
+            return new VehicleID(message.getVehicleId(), home);
+        }
+
+        private StationIDInterface station() throws ConnectException {
+            if (!message.hasStation()) {
+                return null;
+            }
+            StationIDInterface station = stations.lookup(message.getStationId());
+            if (station == null) {
+                throw new ConnectException("Unknown station " + message.getStationId());
+            }
+            return station;
+        }
+
+        /**
+         * Copia local del viaje que se usó en el primer intento de la petición, si la petición tiene clave de
+         * idempotencia y ya se recibió antes. Así, al repetirla, el servidor encuentra el mismo viaje.
+         *
+         * @param journey Viaje para esta petición si es el primer intento. Puede ser null.
+         */
+        private JourneyService firstAttempt(MessageType type, JourneyService journey) {
+            String requestKey = message.getRequestKey();
+            if (requestKey == null) {
+                return journey;
+            }
+            IdempotencyCache.Ticket ticket = attempts.acquire(type + ":" + requestKey);
+            if (ticket.isReplay()) {
+                return (JourneyService) ticket.getResult();
+            }
+            ticket.complete(journey);
+            return journey;
+        }
+
+        /**
+         * Copia local del viaje del cliente, que recibe las modificaciones que hace el servidor.
+         */
+        private JourneyService localJourney(VehicleIDInterface veh) {
+            GeographicPointInterface location = message.hasLocation() ? message.getLocation()
+                    : veh.getStation().getgeoPoint();
+            return new JourneyService(new PMVehicle(veh.getId(), new GeographicPoint(location.getLatitude(),
+                    location.getLongitude()), PMVState.NotAvailable));
+        }
+
+        private void remember(UserAccountInterface user, JourneyService journey) {
+            JourneyService previous = journeysByUser.put(user, journey);
+            if (previous != null && previous.getServiceID() != null) {
+                journeysByService.remove(previous.getServiceID(), previous);
+            }
+            if (journey.getServiceID() != null) {
+                journeysByService.put(journey.getServiceID(), journey);
+            }
+        }
+
+        private void forget(UserAccountInterface user) {
+            JourneyService journey = journeysByUser.remove(user);
+            if (journey != null && journey.getServiceID() != null) {
+                journeysByService.remove(journey.getServiceID(), journey);
+            }
+        }
+
+        void write() throws IOException {
+            ByteBuffer[] buffers = outbound.toArray(new ByteBuffer[0]);
+            channel.write(buffers);
+            for (ByteBuffer buffer : buffers) {
+                if (buffer.hasRemaining()) {
+                    return;
+                }
+                outbound.poll();
+            }
+            key.interestOps(SelectionKey.OP_READ);
+            // Una respuesta puede haberse encolado mientras se escribía
+            if (!outbound.isEmpty()) {
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+        }
+
+        void close() {
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // La conexión ya no se usa
+            }
+        }
+    }
+}
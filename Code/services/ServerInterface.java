@@ -1,6 +1,7 @@
 package services;
 
 import java.net.ConnectException;
+import data.FixedPoint;
 import data.interfaces.GeographicPointInterface;
 import data.interfaces.StationIDInterface;
 import data.interfaces.UserAccountInterface;
@@ -13,22 +14,63 @@ import services.Exceptions.PairingNotFoundException;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
 
 public interface ServerInterface { // External service for the persistent storage
     // To be invoked by the use case controller
     void checkPMVAvail(VehicleIDInterface vhID)
             throws PMVNotAvailException, ConnectException;
+    // Checks availability and claims the vehicle in a single atomic step; returns the reservation token
+    String reserveVehicle(UserAccountInterface user, VehicleIDInterface veh, StationIDInterface st, GeographicPointInterface loc, LocalDateTime date, JourneyServiceInterface journey)
+            throws PMVNotAvailException, InvalidPairingArgsException, ConnectException;
     void registerPairing(UserAccountInterface user, VehicleIDInterface veh, StationIDInterface st, GeographicPointInterface loc, LocalDateTime date, JourneyServiceInterface journey)
             throws InvalidPairingArgsException, ConnectException;
+    // avSp in millimetres per minute, dist in millimetres, imp in cents
     void stopPairing(UserAccountInterface user, VehicleIDInterface veh, StationIDInterface st,
-                     GeographicPointInterface loc, LocalDateTime date, BigDecimal avSp, BigDecimal dist,
-                     int dur, BigDecimal imp, JourneyServiceInterface journey)
+                     GeographicPointInterface loc, LocalDateTime date, long avSp, long dist,
+                     int dur, long imp, JourneyServiceInterface journey)
             throws InvalidPairingArgsException, ConnectException;
+    // BigDecimal edge (km/min, km, euros), converted once to fixed point
+    default void stopPairing(UserAccountInterface user, VehicleIDInterface veh, StationIDInterface st,
+                             GeographicPointInterface loc, LocalDateTime date, BigDecimal avSp, BigDecimal dist,
+                             int dur, BigDecimal imp, JourneyServiceInterface journey)
+            throws InvalidPairingArgsException, ConnectException {
+        stopPairing(user, veh, st, loc, date, FixedPoint.kmToMillimetres(avSp), FixedPoint.kmToMillimetres(dist),
+                dur, FixedPoint.toCents(imp), journey);
+    }
     // Internal operations
     void setPairing(UserAccountInterface user, VehicleIDInterface veh, StationIDInterface st, GeographicPointInterface loc, LocalDateTime date, JourneyServiceInterface journey);
 
     void unPairRegisterService(JourneyService s)
             throws PairingNotFoundException;
 
+    // Retry-safe variants: repeating a call with the same requestKey returns the first outcome
+    // instead of applying the operation again
+    String reserveVehicle(String requestKey, UserAccountInterface user, VehicleIDInterface veh, StationIDInterface st, GeographicPointInterface loc, LocalDateTime date, JourneyServiceInterface journey)
+            throws PMVNotAvailException, InvalidPairingArgsException, ConnectException;
+    void registerPairing(String requestKey, UserAccountInterface user, VehicleIDInterface veh, StationIDInterface st, GeographicPointInterface loc, LocalDateTime date, JourneyServiceInterface journey)
+            throws InvalidPairingArgsException, ConnectException;
+    void stopPairing(String requestKey, UserAccountInterface user, VehicleIDInterface veh, StationIDInterface st,
+                     GeographicPointInterface loc, LocalDateTime date, long avSp, long dist,
+                     int dur, long imp, JourneyServiceInterface journey)
+            throws InvalidPairingArgsException, ConnectException;
+    // Unpairs by service id, for callers that no longer hold the journey object (e.g. after a restart)
+    void unPairByServiceId(String requestKey, String serviceId)
+            throws PairingNotFoundException;
+    void unPairRegisterService(String requestKey, JourneyService s)
+            throws PairingNotFoundException;
+
     void registerLocation(VehicleIDInterface veh, StationIDInterface st) throws ConnectException;
+
+    // Bulk telemetry: applies every record it can and reports per-record failures instead of throwing
+    LocationBatchResult registerLocations(LocationBatch batch);
+
+    // Spatial queries
+    List<VehicleIDInterface> findNearestAvailableVehicles(GeographicPointInterface loc, int k);
+
+    List<VehicleIDInterface> findAvailableVehiclesWithin(GeographicPointInterface loc, double radiusMeters);
+
+    List<StationIDInterface> findNearestStations(GeographicPointInterface loc, int k);
+
+    List<StationIDInterface> findStationsWithin(GeographicPointInterface loc, double radiusMeters);
 }
@@ -0,0 +1,344 @@
+package services;
+
+import data.GeographicDistance;
+import data.interfaces.GeographicPointInterface;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Índice espacial de rejilla uniforme sobre coordenadas geográficas.
+ *
+ * El globo se divide en celdas de {@code cellDegrees} grados de lado. Cada elemento se guarda en la
+ * celda que contiene su posición, de forma que las consultas de los k más cercanos y por radio solo
+ * recorren las celdas próximas al punto consultado en lugar de toda la flota.
+ *
+ * Las lecturas y escrituras son seguras entre hilos. Las escrituras sobre una misma clave deben
+ * serializarse externamente (el servidor las realiza con el cerrojo de la franja del vehículo).
+ *
+ * @param <K> Tipo de la clave indexada.
+ */
+public class SpatialIndex<K> {
+    /** Lado de celda por defecto, unos 550 metros en latitud. */
+    public static final double DEFAULT_CELL_DEGREES = 0.005;
+
+    private final double cellDegrees;
+    private final int rows;
+    private final int cols;
+    private final ConcurrentHashMap<Long, Set<K>> cells = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<K, Position> positions = new ConcurrentHashMap<>();
+
+    /**
+     * Crea un índice con el tamaño de celda por defecto.
+     */
+    public SpatialIndex() {
+        this(DEFAULT_CELL_DEGREES);
+    }
+
+    /**
+     * Crea un índice con el tamaño de celda indicado.
+     *
+     * @param cellDegrees Lado de cada celda en grados.
+     * @throws IllegalArgumentException Si el tamaño de celda no está en el rango (0, 90].
+     */
+    public SpatialIndex(double cellDegrees) {
+        if (!(cellDegrees > 0) || cellDegrees > 90) {
+            throw new IllegalArgumentException("Cell size must be in (0, 90] degrees");
+        }
+        this.cellDegrees = cellDegrees;
+        this.rows = (int) Math.ceil(180.0 / cellDegrees);
+        this.cols = (int) Math.ceil(360.0 / cellDegrees);
+    }
+
+    /**
+     * Inserta o mueve un elemento a la posición indicada.
+     *
+     * @param key   Elemento.
+     * @param point Posición del elemento.
+     */
+    public void put(K key, GeographicPointInterface point) {
+        float lat = point.getLatitude();
+        float lon = point.getLongitude();
+        long cell = cellOf(rowOf(lat), colOf(lon));
+        Position previous = positions.put(key, new Position(lat, lon, cell));
+        if (previous == null || previous.cell != cell) {
+            cells.compute(cell, (c, keys) -> {
+                Set<K> target = keys != null ? keys : ConcurrentHashMap.newKeySet();
+                target.add(key);
+                return target;
+            });
+            if (previous != null) {
+                removeFromCell(previous.cell, key);
+            }
+        }
+    }
+
+    /**
+     * Elimina un elemento del índice. No hace nada si el elemento no está indexado.
+     *
+     * @param key Elemento.
+     */
+    public void remove(K key) {
+        Position previous = positions.remove(key);
+        if (previous != null) {
+            removeFromCell(previous.cell, key);
+        }
+    }
+
+    /**
+     * @param key Elemento.
+     * @return {@code true} si el elemento está indexado.
+     */
+    public boolean contains(K key) {
+        return positions.containsKey(key);
+    }
+
+    /**
+     * @return Número de elementos indexados.
+     */
+    public int size() {
+        return positions.size();
+    }
+
+    /**
+     * Devuelve los {@code k} elementos más cercanos al punto, ordenados de menor a mayor distancia.
+     *
+     * @param point Punto de referencia.
+     * @param k     Número máximo de resultados.
+     * @return Lista con, como mucho, {@code k} elementos.
+     */
+    public List<K> nearest(GeographicPointInterface point, int k) {
+        return nearest(point, k, key -> true);
+    }
+
+    /**
+     * Devuelve los {@code k} elementos más cercanos al punto que cumplen el filtro, ordenados de menor
+     * a mayor distancia. La búsqueda recorre anillos de celdas concéntricos y termina en cuanto ningún
+     * anillo pendiente puede contener un elemento más cercano que el k-ésimo encontrado. Si los anillos
+     * llegan a sumar más celdas que celdas ocupadas tiene el índice, por ejemplo porque hay pocos elementos
+     * y muy dispersos, se recorren directamente las celdas ocupadas.
+     *
+     * @param point  Punto de referencia.
+     * @param k      Número máximo de resultados.
+     * @param filter Condición que deben cumplir los elementos devueltos.
+     * @return Lista con, como mucho, {@code k} elementos.
+     * @throws IllegalArgumentException Si {@code k} es negativo.
+     */
+    public List<K> nearest(GeographicPointInterface point, int k, Predicate<K> filter) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative");
+        }
+        if (k == 0 || positions.isEmpty()) {
+            return new ArrayList<>();
+        }
+        double lat = point.getLatitude();
+        double lon = point.getLongitude();
+        int row0 = rowOf(lat);
+        int col0 = colOf(lon);
+        int dcLo = -((cols - 1) / 2);
+        int dcHi = cols / 2;
+        int maxRing = Math.max(rows, cols / 2);
+        PriorityQueue<Candidate<K>> best = new PriorityQueue<>(k + 1, Comparator.comparingDouble((Candidate<K> c) -> c.distance).reversed());
+        int visited = 0;
+        int total = positions.size();
+        long probed = 0;
+        int occupied = cells.size();
+
+        for (int r = 0; r <= maxRing; r++) {
+            probed += r == 0 ? 1 : 8L * r;
+            if (probed > occupied) {
+                return scanOccupied(lat, lon, k, filter);
+            }
+            for (int dr = -r; dr <= r; dr++) {
+                int row = row0 + dr;
+                if (row < 0 || row >= rows) {
+                    continue;
+                }
+                if (Math.abs(dr) == r) {
+                    for (int dc = Math.max(-r, dcLo); dc <= Math.min(r, dcHi); dc++) {
+                        visited += collect(row, col0 + dc, lat, lon, k, filter, best);
+                    }
+                } else {
+                    if (-r >= dcLo) {
+                        visited += collect(row, col0 - r, lat, lon, k, filter, best);
+                    }
+                    if (r != 0 && r <= dcHi) {
+                        visited += collect(row, col0 + r, lat, lon, k, filter, best);
+                    }
+                }
+            }
+            if (visited >= total) {
+                break;
+            }
+            if (best.size() == k && best.peek().distance <= unvisitedLowerBound(r, lat)) {
+                break;
+            }
+        }
+
+        return drain(best);
+    }
+
+    private List<K> scanOccupied(double lat, double lon, int k, Predicate<K> filter) {
+        PriorityQueue<Candidate<K>> best = new PriorityQueue<>(k + 1, Comparator.comparingDouble((Candidate<K> c) -> c.distance).reversed());
+        for (Set<K> keys : cells.values()) {
+            offer(keys, lat, lon, k, filter, best);
+        }
+        return drain(best);
+    }
+
+    /**
+     * Devuelve los elementos situados a una distancia menor o igual que {@code radiusMeters} del punto.
+     *
+     * @param point        Punto de referencia.
+     * @param radiusMeters Radio de búsqueda en metros.
+     * @return Elementos dentro del radio, sin un orden concreto.
+     */
+    public List<K> within(GeographicPointInterface point, double radiusMeters) {
+        return within(point, radiusMeters, key -> true);
+    }
+
+    /**
+     * Devuelve los elementos que cumplen el filtro y están a una distancia menor o igual que
+     * {@code radiusMeters} del punto. Solo se recorren las celdas del rectángulo que envuelve el círculo.
+     *
+     * @param point        Punto de referencia.
+     * @param radiusMeters Radio de búsqueda en metros.
+     * @param filter       Condición que deben cumplir los elementos devueltos.
+     * @return Elementos dentro del radio, sin un orden concreto.
+     * @throws IllegalArgumentException Si el radio es negativo.
+     */
+    public List<K> within(GeographicPointInterface point, double radiusMeters, Predicate<K> filter) {
+        if (radiusMeters < 0) {
+            throw new IllegalArgumentException("Radius must not be negative");
+        }
+        List<K> result = new ArrayList<>();
+        double lat = point.getLatitude();
+        double lon = point.getLongitude();
+        double latSpan = radiusMeters / GeographicDistance.METERS_PER_DEGREE;
+        int rowLo = rowOf(lat - latSpan);
+        int rowHi = rowOf(lat + latSpan);
+        double maxAbsLat = Math.min(90.0, Math.abs(lat) + latSpan);
+        double cos = Math.cos(Math.toRadians(maxAbsLat));
+        int colCount;
+        int colStart;
+        if (cos <= 1e-9 || latSpan / cos >= 180.0) {
+            colCount = cols;
+            colStart = 0;
+        } else {
+            double lonSpan = latSpan / cos;
+            colStart = colOf(lon - lonSpan);
+            colCount = Math.min(cols, (int) Math.ceil(2 * lonSpan / cellDegrees) + 2);
+        }
+
+        for (int row = rowLo; row <= rowHi; row++) {
+            for (int i = 0; i < colCount; i++) {
+                Set<K> keys = cells.get(cellOf(row, (colStart + i) % cols));
+                if (keys == null) {
+                    continue;
+                }
+                for (K key : keys) {
+                    Position p = positions.get(key);
+                    if (p != null && filter.test(key)
+                            && GeographicDistance.haversineMeters(lat, lon, p.lat, p.lon) <= radiusMeters) {
+                        result.add(key);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private int collect(int row, int col, double lat, double lon, int k, Predicate<K> filter,
+                        PriorityQueue<Candidate<K>> best) {
+        Set<K> keys = cells.get(cellOf(row, Math.floorMod(col, cols)));
+        return keys == null ? 0 : offer(keys, lat, lon, k, filter, best);
+    }
+
+    private int offer(Set<K> keys, double lat, double lon, int k, Predicate<K> filter,
+                      PriorityQueue<Candidate<K>> best) {
+        int count = 0;
+        for (K key : keys) {
+            count++;
+            Position p = positions.get(key);
+            if (p == null || !filter.test(key)) {
+                continue;
+            }
+            double distance = GeographicDistance.haversineMeters(lat, lon, p.lat, p.lon);
+            if (best.size() < k) {
+                best.add(new Candidate<>(key, distance));
+            } else if (distance < best.peek().distance) {
+                best.poll();
+                best.add(new Candidate<>(key, distance));
+            }
+        }
+        return count;
+    }
+
+    private static <K> List<K> drain(PriorityQueue<Candidate<K>> best) {
+        List<K> result = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            result.add(best.poll().key);
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * Cota inferior de la distancia a cualquier elemento situado fuera de los anillos 0..r.
+     * Esos elementos distan al menos {@code r} celdas del punto en latitud o en longitud.
+     */
+    private double unvisitedLowerBound(int r, double lat) {
+        double edgeLat = Math.min(90.0, Math.abs(lat) + (r + 1) * cellDegrees);
+        double cos = Math.cos(Math.toRadians(edgeLat));
+        return r * cellDegrees * GeographicDistance.METERS_PER_DEGREE * Math.min(1.0, cos);
+    }
+
+    private void removeFromCell(long cell, K key) {
+        // Las celdas vacías se eliminan para que el mapa solo contenga celdas ocupadas
+        cells.computeIfPresent(cell, (c, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    private int rowOf(double lat) {
+        int row = (int) Math.floor((lat + 90.0) / cellDegrees);
+        return Math.max(0, Math.min(rows - 1, row));
+    }
+
+    private int colOf(double lon) {
+        return Math.floorMod((int) Math.floor((lon + 180.0) / cellDegrees), cols);
+    }
+
+    private long cellOf(int row, int col) {
+        return (long) row * cols + col;
+    }
+
+    private static final class Position {
+        private final float lat;
+        private final float lon;
+        private final long cell;
+
+        private Position(float lat, float lon, long cell) {
+            this.lat = lat;
+            this.lon = lon;
+            this.cell = cell;
+        }
+    }
+
+    private static final class Candidate<K> {
+        private final K key;
+        private final double distance;
+
+        private Candidate(K key, double distance) {
+            this.key = key;
+            this.distance = distance;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package services;
+
+import data.interfaces.GeographicPointInterface;
+import data.interfaces.StationIDInterface;
+
+/**
+ * Estado de un vehículo tal como lo conoce el servidor: disponibilidad, ubicación, estación y reserva.
+ * Esta clase es inmutable; cada cambio de estado produce una nueva instancia, de forma que
+ * todos los campos se publican siempre juntos y nunca se observa un estado a medio actualizar.
+ * Cada transición incrementa la versión del estado, lo que permite aplicar de forma idempotente
+ * los eventos del log de persistencia aunque se repitan o lleguen desordenados.
+ */
+public final class VehicleState {
+    private final boolean available;
+    private final GeographicPointInterface location;
+    private final StationIDInterface station;
+    private final String reservation;
+    private final long version;
+
+    /**
+     * Crea un estado de vehículo sin reserva asociada.
+     *
+     * @param available Indica si el vehículo está disponible para ser emparejado.
+     * @param location  Ubicación actual del vehículo. Puede ser null si aún no se conoce.
+     * @param station   Estación registrada para el vehículo. Puede ser null si aún no se conoce.
+     */
+    public VehicleState(boolean available, GeographicPointInterface location, StationIDInterface station) {
+        this(available, location, station, null);
+    }
+
+    /**
+     * Crea un estado de vehículo.
+     *
+     * @param available   Indica si el vehículo está disponible para ser emparejado.
+     * @param location    Ubicación actual del vehículo. Puede ser null si aún no se conoce.
+     * @param station     Estación registrada para el vehículo. Puede ser null si aún no se conoce.
+     * @param reservation Token de la reserva que ocupa el vehículo, o null si no hay ninguna.
+     */
+    public VehicleState(boolean available, GeographicPointInterface location, StationIDInterface station,
+                        String reservation) {
+        this(available, location, station, reservation, 0);
+    }
+
+    /**
+     * Crea un estado de vehículo con una versión concreta.
+     *
+     * @param available   Indica si el vehículo está disponible para ser emparejado.
+     * @param location    Ubicación actual del vehículo. Puede ser null si aún no se conoce.
+     * @param station     Estación registrada para el vehículo. Puede ser null si aún no se conoce.
+     * @param reservation Token de la reserva que ocupa el vehículo, o null si no hay ninguna.
+     * @param version     Versión del estado. Los estados cargados al arrancar tienen versión 0.
+     */
+    public VehicleState(boolean available, GeographicPointInterface location, StationIDInterface station,
+                        String reservation, long version) {
+        this.available = available;
+        this.location = location;
+        this.station = station;
+        this.reservation = reservation;
+        this.version = version;
+    }
+
+    /**
+     * Crea el estado que sucede a {@code current}, con la versión siguiente.
+     *
+     * @param current     Estado actual, o null si el vehículo no estaba registrado.
+     * @param available   Nueva disponibilidad.
+     * @param location    Nueva ubicación.
+     * @param station     Nueva estación.
+     * @param reservation Nueva reserva, o null si no hay ninguna.
+     * @return Nuevo estado.
+     */
+    public static VehicleState successor(VehicleState current, boolean available, GeographicPointInterface location,
+                                         StationIDInterface station, String reservation) {
+        long version = current == null ? 1 : current.version + 1;
+        return new VehicleState(available, location, station, reservation, version);
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    public GeographicPointInterface getLocation() {
+        return location;
+    }
+
+    public StationIDInterface getStation() {
+        return station;
+    }
+
+    public String getReservation() {
+        return reservation;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Devuelve una copia del estado con la disponibilidad indicada.
+     *
+     * @param available Nueva disponibilidad.
+     * @return Nuevo estado.
+     */
+    public VehicleState withAvailable(boolean available) {
+        return new VehicleState(available, location, station, reservation, version);
+    }
+
+    @Override
+    public String toString() {
+        return "VehicleState{" +
+                "available=" + available +
+                ", location=" + location +
+                ", station=" + station +
+                ", reservation=" + reservation +
+                ", version=" + version +
+                '}';
+    }
+}
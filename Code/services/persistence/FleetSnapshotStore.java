@@ -0,0 +1,231 @@
+package services.persistence;
+
+import data.interfaces.GeographicPointInterface;
+import data.interfaces.UserAccountInterface;
+import data.interfaces.VehicleIDInterface;
+import services.VehicleState;
+import services.persistence.Interfaces.SnapshotListener;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.zip.CRC32;
+
+/**
+ * Instantáneas binarias del estado completo del servidor: todos los vehículos y todos los viajes en
+ * curso, junto con la posición del log de eventos a partir de la cual hay que reproducir.
+ *
+ * La instantánea se escribe en un fichero temporal que, una vez volcado a disco, sustituye al anterior
+ * con un renombrado atómico; nunca se observa una instantánea a medio escribir. La carga proyecta el
+ * fichero en memoria, comprueba su CRC32 y lo recorre sin copias intermedias.
+ */
+public class FleetSnapshotStore {
+    private static final String FILE = "fleet.snapshot";
+    private static final String TEMP_FILE = FILE + ".tmp";
+    private static final int MAGIC = 0x464C5453; // "FLTS"
+    private static final int FORMAT = 1;
+    private static final byte END = 0;
+    private static final byte VEHICLE = 1;
+    private static final byte JOURNEY = 2;
+    private static final int CHUNK_BYTES = 1 << 20;
+
+    private final Path directory;
+
+    /**
+     * Crea el almacén de instantáneas en el directorio indicado.
+     *
+     * @param directory Directorio de las instantáneas.
+     * @throws IOException Si no se puede crear el directorio.
+     */
+    public FleetSnapshotStore(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+    }
+
+    /**
+     * @return {@code true} si existe una instantánea completa.
+     */
+    public boolean exists() {
+        return Files.exists(directory.resolve(FILE));
+    }
+
+    /**
+     * Empieza a escribir una nueva instantánea. No sustituye a la vigente hasta {@link Writer#commit()}.
+     *
+     * @param logPosition Posición del log desde la que habrá que reproducir tras cargar la instantánea.
+     * @return Escritor de la instantánea.
+     * @throws IOException Si no se puede crear el fichero temporal.
+     */
+    public Writer begin(long logPosition) throws IOException {
+        return new Writer(logPosition);
+    }
+
+    /**
+     * Carga la instantánea vigente.
+     *
+     * @param listener Receptor del contenido de la instantánea.
+     * @return Posición del log desde la que hay que reproducir, o 0 si no hay instantánea.
+     * @throws IOException Si la instantánea existe pero está dañada o no se puede leer.
+     */
+    public long load(SnapshotListener listener) throws IOException {
+        Path file = directory.resolve(FILE);
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        MappedByteBuffer in;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < 21 || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Invalid snapshot size: " + channel.size());
+            }
+            in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        int end = in.limit() - 4;
+        CRC32 crc = new CRC32();
+        crc.update(in.duplicate().limit(end));
+        if ((int) crc.getValue() != in.getInt(end)) {
+            throw new IOException("Snapshot checksum mismatch");
+        }
+        if (in.getInt() != MAGIC || in.getInt() != FORMAT) {
+            throw new IOException("Unknown snapshot format");
+        }
+        long position = in.getLong();
+        for (byte tag = in.get(); tag != END; tag = in.get()) {
+            if (tag == VEHICLE) {
+                listener.onVehicle(ServerEventCodec.getVehicle(in), ServerEventCodec.getState(in));
+            } else if (tag == JOURNEY) {
+                UserAccountInterface user = ServerEventCodec.getUser(in);
+                VehicleIDInterface veh = in.get() == 0 ? null : ServerEventCodec.getVehicle(in);
+                listener.onJourney(user, veh, ServerEventCodec.getString(in),
+                        ServerEventCodec.getDate(in), ServerEventCodec.getPoint(in));
+            } else {
+                throw new IOException("Unknown snapshot entry " + tag);
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Escritor de una instantánea. Los registros se acumulan en un búfer que se vuelca al fichero
+     * temporal a medida que se llena. Si se cierra sin confirmar, el fichero temporal se descarta.
+     */
+    public final class Writer implements Closeable {
+        private final Path temp = directory.resolve(TEMP_FILE);
+        private final FileChannel channel;
+        private final ByteBuffer chunk = ByteBuffer.allocateDirect(CHUNK_BYTES);
+        private final CRC32 crc = new CRC32();
+        private boolean committed;
+
+        private Writer(long logPosition) throws IOException {
+            channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            chunk.putInt(MAGIC).putInt(FORMAT).putLong(logPosition);
+        }
+
+        /**
+         * Añade el estado de un vehículo.
+         *
+         * @throws UncheckedIOException Si no se puede escribir en el fichero temporal.
+         */
+        public void vehicle(VehicleIDInterface veh, VehicleState state) {
+            int start = chunk.position();
+            try {
+                putVehicle(veh, state);
+            } catch (BufferOverflowException e) {
+                chunk.position(start);
+                drain();
+                putVehicle(veh, state);
+            }
+        }
+
+        /**
+         * Añade un viaje en curso.
+         *
+         * @throws UncheckedIOException Si no se puede escribir en el fichero temporal.
+         */
+        public void journey(UserAccountInterface user, VehicleIDInterface veh, String serviceId,
+                            LocalDateTime date, GeographicPointInterface loc) {
+            int start = chunk.position();
+            try {
+                putJourney(user, veh, serviceId, date, loc);
+            } catch (BufferOverflowException e) {
+                chunk.position(start);
+                drain();
+                putJourney(user, veh, serviceId, date, loc);
+            }
+        }
+
+        /**
+         * Completa la instantánea, la vuelca a disco y sustituye con ella a la vigente.
+         *
+         * @throws IOException Si no se puede escribir o renombrar el fichero.
+         */
+        public void commit() throws IOException {
+            try {
+                if (chunk.remaining() < 1) {
+                    drain();
+                }
+                chunk.put(END);
+                drain();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            ByteBuffer trailer = ByteBuffer.allocate(4).putInt(0, (int) crc.getValue());
+            while (trailer.hasRemaining()) {
+                channel.write(trailer);
+            }
+            channel.force(true);
+            channel.close();
+            Files.move(temp, directory.resolve(FILE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            committed = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                channel.close();
+                Files.deleteIfExists(temp);
+            }
+        }
+
+        private void putVehicle(VehicleIDInterface veh, VehicleState state) {
+            chunk.put(VEHICLE);
+            ServerEventCodec.putVehicle(chunk, veh);
+            ServerEventCodec.putState(chunk, state);
+        }
+
+        private void putJourney(UserAccountInterface user, VehicleIDInterface veh, String serviceId,
+                                LocalDateTime date, GeographicPointInterface loc) {
+            chunk.put(JOURNEY);
+            ServerEventCodec.putUser(chunk, user);
+            chunk.put((byte) (veh == null ? 0 : 1));
+            if (veh != null) {
+                ServerEventCodec.putVehicle(chunk, veh);
+            }
+            ServerEventCodec.putString(chunk, serviceId);
+            ServerEventCodec.putDate(chunk, date);
+            ServerEventCodec.putPoint(chunk, loc);
+        }
+
+        private void drain() {
+            chunk.flip();
+            crc.update(chunk.duplicate());
+            try {
+                while (chunk.hasRemaining()) {
+                    channel.write(chunk);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            chunk.clear();
+        }
+    }
+}
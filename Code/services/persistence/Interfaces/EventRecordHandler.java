@@ -0,0 +1,18 @@
+package services.persistence.Interfaces;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Receptor de los registros leídos del log de eventos durante la reproducción.
+ */
+public interface EventRecordHandler {
+
+    /**
+     * Procesa un registro del log.
+     *
+     * @param position Posición del registro dentro del log.
+     * @param type     Tipo del evento.
+     * @param payload  Contenido del registro. Solo es válido durante la llamada.
+     */
+    void onRecord(long position, byte type, ByteBuffer payload);
+}
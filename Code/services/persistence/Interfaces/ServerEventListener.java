@@ -0,0 +1,38 @@
+package services.persistence.Interfaces;
+
+import data.interfaces.GeographicPointInterface;
+import data.interfaces.UserAccountInterface;
+import data.interfaces.VehicleIDInterface;
+import services.VehicleState;
+
+import java.time.LocalDateTime;
+
+/**
+ * Receptor de los eventos del servidor reconstruidos a partir del log de persistencia.
+ * Cada evento lleva el estado completo del vehículo, no un incremento, por lo que aplicarlo
+ * es idempotente.
+ */
+public interface ServerEventListener {
+
+    /**
+     * Un usuario ha emparejado (o reservado) un vehículo.
+     */
+    void onPairing(VehicleIDInterface veh, VehicleState state, UserAccountInterface user, String serviceId,
+                   LocalDateTime date, GeographicPointInterface loc);
+
+    /**
+     * Un usuario ha finalizado el trayecto y el vehículo vuelve a estar disponible.
+     */
+    void onStop(VehicleIDInterface veh, VehicleState state, UserAccountInterface user, String serviceId,
+                LocalDateTime date, GeographicPointInterface loc, long avSp, long dist, int dur, long imp);
+
+    /**
+     * Se ha registrado la ubicación de un vehículo.
+     */
+    void onLocation(VehicleIDInterface veh, VehicleState state);
+
+    /**
+     * Se ha desemparejado un servicio de viaje.
+     */
+    void onUnpair(UserAccountInterface user, String serviceId);
+}
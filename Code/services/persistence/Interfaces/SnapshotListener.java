@@ -0,0 +1,25 @@
+package services.persistence.Interfaces;
+
+import data.interfaces.GeographicPointInterface;
+import data.interfaces.UserAccountInterface;
+import data.interfaces.VehicleIDInterface;
+import services.VehicleState;
+
+import java.time.LocalDateTime;
+
+/**
+ * Receptor del contenido de una instantánea del estado del servidor.
+ */
+public interface SnapshotListener {
+
+    /**
+     * Estado de un vehículo en el momento de la instantánea.
+     */
+    void onVehicle(VehicleIDInterface veh, VehicleState state);
+
+    /**
+     * Viaje en curso en el momento de la instantánea. El vehículo puede ser null si no se conocía.
+     */
+    void onJourney(UserAccountInterface user, VehicleIDInterface veh, String serviceId,
+                   LocalDateTime date, GeographicPointInterface loc);
+}
@@ -0,0 +1,433 @@
+package services.persistence;
+
+import services.persistence.Interfaces.EventRecordHandler;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Log de eventos de solo escritura al final (write-ahead log) sobre ficheros de segmento proyectados
+ * en memoria.
+ *
+ * Cada registro ocupa {@code [longitud][tipo][contenido][CRC32]} y queda identificado por su posición
+ * global, que crece de forma continua de un segmento al siguiente. Escribir un registro es solo una
+ * copia a memoria; la durabilidad la da un hilo de volcado que agrupa todos los registros pendientes
+ * y fuerza el segmento a disco una sola vez por lote (group commit). Quien necesite que un registro
+ * sea durable espera con {@link #awaitDurable(long)}.
+ *
+ * Los segmentos ya cubiertos por una instantánea se eliminan con {@link #truncateBefore(long)}.
+ *
+ * Al abrir el log se recorre el último segmento hasta el primer registro incompleto o corrupto, que
+ * marca el final: un registro a medio escribir por una caída se descarta y se sobrescribe.
+ */
+public class JourneyEventLog implements Closeable {
+    /** Tamaño de segmento por defecto: 64 MiB. */
+    public static final int DEFAULT_SEGMENT_BYTES = 64 << 20;
+    private static final int HEADER_BYTES = 5; // longitud + tipo
+    private static final int TRAILER_BYTES = 4; // CRC32
+    private static final int TERMINATOR_BYTES = 4; // longitud 0 tras el último registro
+    private static final String SUFFIX = ".log";
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition pending = lock.newCondition();
+    private final Condition durable = lock.newCondition();
+    private final CRC32 crc = new CRC32();
+    private final List<Segment> sealed = new ArrayList<>(); // segmentos cerrados aún no volcados
+    private final Thread flusher;
+    private Segment active;
+    private long appendPosition;
+    private long durablePosition;
+    private long forcedInActive;
+    private boolean closed;
+    private IOException failure;
+
+    /**
+     * Abre (o crea) un log con el tamaño de segmento por defecto.
+     *
+     * @param directory Directorio de los segmentos.
+     * @throws IOException Si no se puede abrir o crear el log.
+     */
+    public JourneyEventLog(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_BYTES);
+    }
+
+    /**
+     * Abre (o crea) un log con el tamaño de segmento indicado.
+     *
+     * @param directory    Directorio de los segmentos.
+     * @param segmentBytes Tamaño de cada segmento en bytes.
+     * @throws IOException              Si no se puede abrir o crear el log.
+     * @throws IllegalArgumentException Si el tamaño de segmento es demasiado pequeño.
+     */
+    public JourneyEventLog(Path directory, int segmentBytes) throws IOException {
+        if (segmentBytes < 1024) {
+            throw new IllegalArgumentException("Segment size must be at least 1024 bytes");
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(directory);
+
+        List<Long> bases = segmentBases();
+        if (bases.isEmpty()) {
+            active = Segment.open(directory, 0, segmentBytes);
+            appendPosition = 0;
+        } else {
+            long base = bases.get(bases.size() - 1);
+            active = Segment.open(directory, base, segmentBytes);
+            appendPosition = base + scan(active, base, null);
+        }
+        durablePosition = appendPosition;
+        forcedInActive = appendPosition - active.base;
+
+        flusher = new Thread(this::flushLoop, "journey-log-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Añade un registro al final del log. El registro es visible de inmediato para {@link #replay},
+     * pero solo es durable cuando {@link #awaitDurable(long)} con la posición devuelta retorna.
+     *
+     * @param type    Tipo del evento.
+     * @param payload Contenido del registro, entre su posición y su límite. No se modifica.
+     * @return Posición del log inmediatamente posterior al registro.
+     * @throws IOException              Si el log está cerrado o no se puede crear un nuevo segmento.
+     * @throws IllegalArgumentException Si el registro no cabe en un segmento.
+     */
+    public long append(byte type, ByteBuffer payload) throws IOException {
+        int length = payload.remaining();
+        int total = HEADER_BYTES + length + TRAILER_BYTES;
+        if (total + TERMINATOR_BYTES > segmentBytes) {
+            throw new IllegalArgumentException("Record of " + length + " bytes does not fit in a segment");
+        }
+        lock.lock();
+        try {
+            ensureOpen();
+            int offset = (int) (appendPosition - active.base);
+            if (offset + total + TERMINATOR_BYTES > segmentBytes) {
+                roll();
+                offset = 0;
+            }
+            int start = payload.position();
+            crc.reset();
+            crc.update(type);
+            crc.update(payload);
+            payload.position(start);
+
+            MappedByteBuffer buffer = active.buffer;
+            buffer.put(offset + 4, type);
+            buffer.put(offset + HEADER_BYTES, payload, start, length);
+            buffer.putInt(offset + HEADER_BYTES + length, (int) crc.getValue());
+            buffer.putInt(offset + total, 0);
+            buffer.putInt(offset, length); // la longitud se escribe la última
+
+            appendPosition += total;
+            pending.signal();
+            return appendPosition;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Espera a que el log sea durable hasta la posición indicada. Las esperas concurrentes se
+     * resuelven con un único volcado a disco.
+     *
+     * @param position Posición devuelta por {@link #append}.
+     * @throws IOException Si el volcado falla, el log se cierra o el hilo es interrumpido.
+     */
+    public void awaitDurable(long position) throws IOException {
+        lock.lock();
+        try {
+            while (durablePosition < position) {
+                if (failure != null) {
+                    throw new IOException("Journey log flush failed", failure);
+                }
+                if (closed) {
+                    throw new IOException("Journey log is closed");
+                }
+                pending.signal();
+                durable.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the journey log");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Añade un registro y espera a que sea durable.
+     *
+     * @param type    Tipo del evento.
+     * @param payload Contenido del registro.
+     * @return Posición del log inmediatamente posterior al registro.
+     * @throws IOException Si el registro no se puede escribir o volcar.
+     */
+    public long appendDurably(byte type, ByteBuffer payload) throws IOException {
+        long position = append(type, payload);
+        awaitDurable(position);
+        return position;
+    }
+
+    /**
+     * Recorre, en orden, los registros situados a partir de la posición indicada.
+     *
+     * @param from    Posición inicial. Los registros anteriores se omiten.
+     * @param handler Receptor de los registros.
+     * @throws IOException Si no se puede leer algún segmento.
+     */
+    public void replay(long from, EventRecordHandler handler) throws IOException {
+        lock.lock();
+        try {
+            ensureOpen();
+            List<Long> bases = segmentBases();
+            for (int i = 0; i < bases.size(); i++) {
+                long base = bases.get(i);
+                if (i + 1 < bases.size() && bases.get(i + 1) <= from) {
+                    continue;
+                }
+                Segment segment = base == active.base ? active : Segment.open(directory, base, segmentBytes);
+                scan(segment, from, handler);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Elimina los segmentos cuyos registros quedan todos antes de la posición indicada, normalmente
+     * porque ya están cubiertos por una instantánea. El segmento activo nunca se elimina.
+     *
+     * @param position Posición a partir de la cual deben conservarse los registros.
+     * @return Número de segmentos eliminados.
+     * @throws IOException Si no se puede borrar algún segmento.
+     */
+    public int truncateBefore(long position) throws IOException {
+        lock.lock();
+        try {
+            ensureOpen();
+            List<Long> bases = segmentBases();
+            int deleted = 0;
+            for (int i = 0; i + 1 < bases.size() && bases.get(i + 1) <= position; i++) {
+                long base = bases.get(i);
+                if (base == active.base) {
+                    break;
+                }
+                Files.deleteIfExists(segmentPath(directory, base));
+                sealed.removeIf(segment -> segment.base == base);
+                deleted++;
+            }
+            return deleted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Posición del log tras el último registro añadido.
+     */
+    public long position() {
+        lock.lock();
+        try {
+            return appendPosition;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Posición hasta la que el log es durable.
+     */
+    public long durablePosition() {
+        lock.lock();
+        try {
+            return durablePosition;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Directorio de los segmentos.
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Vuelca los registros pendientes y cierra el log.
+     *
+     * @throws IOException Si el último volcado falla.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            pending.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw new IOException("Journey log flush failed", failure);
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            long target;
+            List<Segment> toForce;
+            Segment current;
+            int from;
+            lock.lock();
+            try {
+                while (!closed && durablePosition == appendPosition) {
+                    pending.awaitUninterruptibly();
+                }
+                if (durablePosition == appendPosition) {
+                    durable.signalAll();
+                    return;
+                }
+                target = appendPosition;
+                toForce = new ArrayList<>(sealed);
+                current = active;
+                from = toForce.isEmpty() ? (int) forcedInActive : 0;
+            } finally {
+                lock.unlock();
+            }
+
+            // El volcado se hace fuera del cerrojo: mientras tanto se acumula el siguiente lote
+            IOException error = null;
+            try {
+                for (Segment segment : toForce) {
+                    segment.buffer.force();
+                }
+                int to = (int) (target - current.base);
+                if (to > from) {
+                    current.buffer.force(from, to - from);
+                }
+            } catch (RuntimeException e) {
+                error = new IOException(e);
+            }
+
+            lock.lock();
+            try {
+                if (error != null) {
+                    failure = error;
+                    closed = true;
+                    durable.signalAll();
+                    return;
+                }
+                sealed.removeAll(toForce);
+                durablePosition = target;
+                forcedInActive = target - current.base;
+                durable.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void roll() throws IOException {
+        sealed.add(active);
+        active = Segment.open(directory, appendPosition, segmentBytes);
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Journey log is closed");
+        }
+    }
+
+    /**
+     * Recorre los registros válidos de un segmento.
+     *
+     * @return Desplazamiento, dentro del segmento, del final del último registro válido.
+     */
+    private int scan(Segment segment, long from, EventRecordHandler handler) {
+        ByteBuffer view = segment.buffer.duplicate();
+        CRC32 check = new CRC32();
+        int offset = 0;
+        while (offset + HEADER_BYTES + TRAILER_BYTES <= segmentBytes) {
+            int length = view.getInt(offset);
+            if (length <= 0 || offset + HEADER_BYTES + length + TRAILER_BYTES > segmentBytes) {
+                break;
+            }
+            view.limit(offset + HEADER_BYTES + length).position(offset + 4);
+            check.reset();
+            check.update(view);
+            view.limit(segmentBytes);
+            if ((int) check.getValue() != view.getInt(offset + HEADER_BYTES + length)) {
+                break;
+            }
+            long position = segment.base + offset;
+            if (handler != null && position >= from) {
+                ByteBuffer payload = view.slice(offset + HEADER_BYTES, length).asReadOnlyBuffer();
+                handler.onRecord(position, view.get(offset + 4), payload);
+            }
+            offset += HEADER_BYTES + length + TRAILER_BYTES;
+        }
+        return offset;
+    }
+
+    private List<Long> segmentBases() throws IOException {
+        List<Long> bases = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(p -> p.getFileName().toString())
+                    .filter(name -> name.endsWith(SUFFIX))
+                    .forEach(name -> bases.add(Long.parseLong(name.substring(0, name.length() - SUFFIX.length()))));
+        }
+        bases.sort(null);
+        return bases;
+    }
+
+    static Path segmentPath(Path directory, long base) {
+        return directory.resolve(String.format("%020d%s", base, SUFFIX));
+    }
+
+    /**
+     * Segmento del log: un fichero de tamaño fijo proyectado en memoria, identificado por la
+     * posición global de su primer byte.
+     */
+    private static final class Segment {
+        private final long base;
+        private final MappedByteBuffer buffer;
+
+        private Segment(long base, MappedByteBuffer buffer) {
+            this.base = base;
+            this.buffer = buffer;
+        }
+
+        private static Segment open(Path directory, long base, int size) throws IOException {
+            try (FileChannel channel = FileChannel.open(segmentPath(directory, base),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                return new Segment(base, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+            }
+        }
+    }
+}
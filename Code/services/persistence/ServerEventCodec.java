@@ -0,0 +1,157 @@
+package services.persistence;
+
+import data.GeographicPoint;
+import data.StationRegistry;
+import data.UserAccount;
+import data.VehicleID;
+import data.interfaces.GeographicPointInterface;
+import data.interfaces.StationIDInterface;
+import data.interfaces.UserAccountInterface;
+import data.interfaces.VehicleIDInterface;
+import services.VehicleState;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Codificación binaria de los valores que aparecen en los eventos y las instantáneas del servidor.
+ * Los valores opcionales llevan delante un byte de presencia.
+ */
+final class ServerEventCodec {
+    private static final long NO_DATE = Long.MIN_VALUE;
+    /**
+     * Versión 2 del registro de usuario. Se escribe como una longitud de cadena imposible para distinguirla
+     * de la versión 1, que empezaba por la longitud del identificador e incluía la contraseña.
+     */
+    private static final int USER_FORMAT = -2;
+    /** Contraseña de los usuarios restaurados desde el log o una instantánea, que no la guardan. */
+    static final String STORED_PASSWORD = "not-stored";
+
+    private ServerEventCodec() {
+    }
+
+    static void putString(ByteBuffer out, String value) {
+        if (value == null) {
+            out.putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.putInt(bytes.length);
+        out.put(bytes);
+    }
+
+    static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void putPoint(ByteBuffer out, GeographicPointInterface point) {
+        out.put((byte) (point == null ? 0 : 1));
+        if (point != null) {
+            out.putFloat(point.getLatitude());
+            out.putFloat(point.getLongitude());
+        }
+    }
+
+    static GeographicPointInterface getPoint(ByteBuffer in) {
+        if (in.get() == 0) {
+            return null;
+        }
+        float latitude = in.getFloat();
+        float longitude = in.getFloat();
+        return StationRegistry.shared().internPoint(new GeographicPoint(latitude, longitude));
+    }
+
+    static void putStation(ByteBuffer out, StationIDInterface station) {
+        out.put((byte) (station == null ? 0 : 1));
+        if (station != null) {
+            out.putInt(station.getID());
+            putPoint(out, station.getgeoPoint());
+        }
+    }
+
+    static StationIDInterface getStation(ByteBuffer in) {
+        if (in.get() == 0) {
+            return null;
+        }
+        int id = in.getInt();
+        // Los eventos repiten una y otra vez las mismas estaciones: se reutiliza la instancia canónica
+        return StationRegistry.shared().intern(id, getPoint(in));
+    }
+
+    static void putVehicle(ByteBuffer out, VehicleIDInterface vehicle) {
+        out.putInt(vehicle.getId());
+        putStation(out, vehicle.getStation());
+    }
+
+    static VehicleIDInterface getVehicle(ByteBuffer in) {
+        int id = in.getInt();
+        return new VehicleID(id, getStation(in));
+    }
+
+    static void putUser(ByteBuffer out, UserAccountInterface user) {
+        // La contraseña no se persiste: el log y las instantáneas no deben contener credenciales
+        out.putInt(USER_FORMAT);
+        putString(out, user.getUserId());
+        putString(out, user.getUsername());
+        putString(out, user.getEmail());
+        out.putInt(user.getMonedero());
+    }
+
+    static UserAccountInterface getUser(ByteBuffer in) {
+        boolean legacy = in.getInt() != USER_FORMAT;
+        if (legacy) {
+            // La versión 1 empieza directamente por el identificador: se vuelve a leer como cadena
+            in.position(in.position() - Integer.BYTES);
+        }
+        String userId = getString(in);
+        String username = getString(in);
+        String email = getString(in);
+        if (legacy) {
+            getString(in); // La contraseña de la versión 1 se descarta
+        }
+        return new UserAccount(userId, username, email, STORED_PASSWORD, in.getInt());
+    }
+
+    static void putDate(ByteBuffer out, LocalDateTime date) {
+        if (date == null) {
+            out.putLong(NO_DATE);
+            return;
+        }
+        out.putLong(date.toEpochSecond(ZoneOffset.UTC));
+        out.putInt(date.getNano());
+    }
+
+    static LocalDateTime getDate(ByteBuffer in) {
+        long seconds = in.getLong();
+        if (seconds == NO_DATE) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(seconds, in.getInt(), ZoneOffset.UTC);
+    }
+
+    static void putState(ByteBuffer out, VehicleState state) {
+        out.putLong(state.getVersion());
+        out.put((byte) (state.isAvailable() ? 1 : 0));
+        putPoint(out, state.getLocation());
+        putStation(out, state.getStation());
+        putString(out, state.getReservation());
+    }
+
+    static VehicleState getState(ByteBuffer in) {
+        long version = in.getLong();
+        boolean available = in.get() != 0;
+        GeographicPointInterface location = getPoint(in);
+        StationIDInterface station = getStation(in);
+        // La ubicación se lee antes que la estación, que puede no estar aún registrada al leer el punto
+        location = StationRegistry.shared().internPoint(location);
+        return new VehicleState(available, location, station, getString(in), version);
+    }
+}
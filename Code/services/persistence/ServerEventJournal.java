@@ -0,0 +1,169 @@
+package services.persistence;
+
+import data.interfaces.GeographicPointInterface;
+import data.interfaces.UserAccountInterface;
+import data.interfaces.VehicleIDInterface;
+import services.VehicleState;
+import services.persistence.Interfaces.ServerEventListener;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+
+/**
+ * Eventos del servidor sobre un {@link JourneyEventLog}: emparejamiento, fin de trayecto, ubicación
+ * y desemparejamiento. Traduce cada evento a su registro binario y, al reproducir el log, de vuelta
+ * a llamadas a un {@link ServerEventListener}.
+ *
+ * Los métodos de escritura solo añaden el registro y devuelven su posición; quien necesite que sea
+ * durable debe esperar después con {@link #awaitDurable(long)}, normalmente fuera de cualquier cerrojo
+ * para que los registros de varios hilos se vuelquen en el mismo lote.
+ */
+public class ServerEventJournal implements Closeable {
+    public static final byte PAIRING = 1;
+    public static final byte STOP = 2;
+    public static final byte LOCATION = 3;
+    public static final byte UNPAIR = 4;
+
+    private static final int SCRATCH_BYTES = 16 * 1024;
+    private static final ThreadLocal<ByteBuffer> SCRATCH = ThreadLocal.withInitial(() -> ByteBuffer.allocate(SCRATCH_BYTES));
+
+    private final JourneyEventLog log;
+
+    /**
+     * Crea el journal sobre un log ya abierto.
+     *
+     * @param log Log de eventos.
+     */
+    public ServerEventJournal(JourneyEventLog log) {
+        this.log = log;
+    }
+
+    /**
+     * Registra un emparejamiento o una reserva.
+     *
+     * @return Posición del log tras el registro.
+     * @throws IOException Si el registro no se puede escribir.
+     */
+    public long pairing(VehicleIDInterface veh, VehicleState state, UserAccountInterface user, String serviceId,
+                        LocalDateTime date, GeographicPointInterface loc) throws IOException {
+        ByteBuffer out = scratch();
+        ServerEventCodec.putVehicle(out, veh);
+        ServerEventCodec.putState(out, state);
+        ServerEventCodec.putUser(out, user);
+        ServerEventCodec.putString(out, serviceId);
+        ServerEventCodec.putDate(out, date);
+        ServerEventCodec.putPoint(out, loc);
+        return log.append(PAIRING, out.flip());
+    }
+
+    /**
+     * Registra el fin de un trayecto, con sus métricas en coma fija.
+     *
+     * @return Posición del log tras el registro.
+     * @throws IOException Si el registro no se puede escribir.
+     */
+    public long stop(VehicleIDInterface veh, VehicleState state, UserAccountInterface user, String serviceId,
+                     LocalDateTime date, GeographicPointInterface loc, long avSp, long dist, int dur, long imp)
+            throws IOException {
+        ByteBuffer out = scratch();
+        ServerEventCodec.putVehicle(out, veh);
+        ServerEventCodec.putState(out, state);
+        ServerEventCodec.putUser(out, user);
+        ServerEventCodec.putString(out, serviceId);
+        ServerEventCodec.putDate(out, date);
+        ServerEventCodec.putPoint(out, loc);
+        out.putLong(avSp).putLong(dist).putInt(dur).putLong(imp);
+        return log.append(STOP, out.flip());
+    }
+
+    /**
+     * Registra la ubicación de un vehículo.
+     *
+     * @return Posición del log tras el registro.
+     * @throws IOException Si el registro no se puede escribir.
+     */
+    public long location(VehicleIDInterface veh, VehicleState state) throws IOException {
+        ByteBuffer out = scratch();
+        ServerEventCodec.putVehicle(out, veh);
+        ServerEventCodec.putState(out, state);
+        return log.append(LOCATION, out.flip());
+    }
+
+    /**
+     * Registra el desemparejamiento de un servicio de viaje.
+     *
+     * @return Posición del log tras el registro.
+     * @throws IOException Si el registro no se puede escribir.
+     */
+    public long unpair(UserAccountInterface user, String serviceId) throws IOException {
+        ByteBuffer out = scratch();
+        ServerEventCodec.putUser(out, user);
+        ServerEventCodec.putString(out, serviceId);
+        return log.append(UNPAIR, out.flip());
+    }
+
+    /**
+     * Espera a que los eventos escritos hasta la posición indicada sean durables.
+     *
+     * @param position Posición devuelta por un método de escritura.
+     * @throws IOException Si el log no se puede volcar.
+     */
+    public void awaitDurable(long position) throws IOException {
+        log.awaitDurable(position);
+    }
+
+    /**
+     * Reproduce los eventos del log a partir de la posición indicada.
+     *
+     * @param from     Posición inicial.
+     * @param listener Receptor de los eventos.
+     * @throws IOException Si el log no se puede leer.
+     */
+    public void replay(long from, ServerEventListener listener) throws IOException {
+        log.replay(from, (position, type, in) -> {
+            switch (type) {
+                case PAIRING:
+                    listener.onPairing(ServerEventCodec.getVehicle(in), ServerEventCodec.getState(in),
+                            ServerEventCodec.getUser(in), ServerEventCodec.getString(in),
+                            ServerEventCodec.getDate(in), ServerEventCodec.getPoint(in));
+                    break;
+                case STOP:
+                    listener.onStop(ServerEventCodec.getVehicle(in), ServerEventCodec.getState(in),
+                            ServerEventCodec.getUser(in), ServerEventCodec.getString(in),
+                            ServerEventCodec.getDate(in), ServerEventCodec.getPoint(in),
+                            in.getLong(), in.getLong(), in.getInt(), in.getLong());
+                    break;
+                case LOCATION:
+                    listener.onLocation(ServerEventCodec.getVehicle(in), ServerEventCodec.getState(in));
+                    break;
+                case UNPAIR:
+                    listener.onUnpair(ServerEventCodec.getUser(in), ServerEventCodec.getString(in));
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown journey event type " + type + " at position " + position);
+            }
+        });
+    }
+
+    /**
+     * @return Posición actual del log.
+     */
+    public long position() {
+        return log.position();
+    }
+
+    public JourneyEventLog getLog() {
+        return log;
+    }
+
+    @Override
+    public void close() throws IOException {
+        log.close();
+    }
+
+    private static ByteBuffer scratch() {
+        return SCRATCH.get().clear();
+    }
+}
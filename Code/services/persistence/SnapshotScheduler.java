@@ -0,0 +1,65 @@
+package services.persistence;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ejecuta periódicamente una tarea de instantánea (normalmente {@code Server::takeSnapshot}) en un
+ * hilo propio, de modo que las peticiones al servidor no se detienen mientras se escribe.
+ * Si una ejecución falla se conserva el error y se reintenta en el siguiente periodo.
+ */
+public class SnapshotScheduler implements Closeable {
+    private final ScheduledExecutorService executor;
+    private volatile Exception lastFailure;
+
+    /**
+     * Programa la tarea con el periodo indicado entre el final de una ejecución y el inicio de la siguiente.
+     *
+     * @param snapshot Tarea que escribe la instantánea.
+     * @param period   Tiempo entre instantáneas.
+     * @throws IllegalArgumentException Si el periodo no es positivo.
+     */
+    public SnapshotScheduler(Callable<?> snapshot, Duration period) {
+        if (period.isZero() || period.isNegative()) {
+            throw new IllegalArgumentException("Snapshot period must be positive");
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "fleet-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = period.toMillis();
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                snapshot.call();
+                lastFailure = null;
+            } catch (Exception e) {
+                lastFailure = e;
+            }
+        }, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return Error de la última ejecución, o null si terminó correctamente.
+     */
+    public Exception getLastFailure() {
+        return lastFailure;
+    }
+
+    /**
+     * Cancela las ejecuciones pendientes y espera a que termine la que esté en curso.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -4,9 +4,9 @@ import micromobility.PMVehicle;
 import services.Exceptions.PMVPhisicalException;
 import services.Exceptions.ProceduralException;
 import services.smartfeatures.Interfaces.ArduinoMicroControllerInterface;
+import services.smartfeatures.Interfaces.FaultModel;
 
 import java.net.ConnectException;
-import java.util.Random;
 
 /**
  * Implementación de la interfaz ArduinoMicroControllerInterface.
@@ -17,14 +17,43 @@ import java.util.Random;
 public class ArduinoMicroController implements ArduinoMicroControllerInterface {
     private boolean btConnected; // Indica si la conexión Bluetooth está activa.
     private boolean isDriving;  // Indica si el vehículo está en movimiento.
+    private final PMVehicle vehicle; // Vehículo controlado. Puede ser null si no se gestiona su estado.
+    private final FaultModel faults; // Decide qué operaciones fallan en la simulación
 
     /**
-     * Constructor que inicializa el estado del microcontrolador.
+     * Constructor que inicializa el estado del microcontrolador sin un vehículo asociado.
      * La conexión Bluetooth está inicialmente desactivada y el vehículo detenido.
      */
     public ArduinoMicroController() {
+        this(null);
+    }
+
+    /**
+     * Constructor que asocia el microcontrolador a un vehículo concreto, cuyo estado pasa a
+     * "En Trayecto" al arrancar.
+     *
+     * @param vehicle Vehículo controlado. Puede ser null.
+     */
+    public ArduinoMicroController(PMVehicle vehicle) {
+        this(vehicle, RandomFaultModel.defaultModel());
+    }
+
+    /**
+     * Constructor que indica además el modelo de fallos simulados. Con un {@link RandomFaultModel} con
+     * semilla, la secuencia de fallos es reproducible.
+     *
+     * @param vehicle Vehículo controlado. Puede ser null.
+     * @param faults  Modelo de fallos.
+     * @throws IllegalArgumentException Si el modelo de fallos es nulo.
+     */
+    public ArduinoMicroController(PMVehicle vehicle, FaultModel faults) {
+        if (faults == null) {
+            throw new IllegalArgumentException("Fault model cannot be null");
+        }
         this.btConnected = false;
         this.isDriving = false;
+        this.vehicle = vehicle;
+        this.faults = faults;
     }
 
     /**
@@ -36,14 +65,14 @@ public class ArduinoMicroController implements ArduinoMicroControllerInterface {
     public void setBTconnection() throws ConnectException {
         if (btConnected) {
             // Si ya está conectado, no se realiza ninguna acción.
-            System.out.println("El canal Bluetooth ya está establecido.");
+            SmartEventLog.emit(SmartEventType.BT_ALREADY_CONNECTED, vehicleId());
             return;
         }
-        if (new Random().nextInt(100) < 10) { // Simulación de fallo con un 10% de probabilidad
+        if (faults.btConnectionFails()) { // Simulación de fallo (un 10% de los casos con el modelo por defecto)
             throw new ConnectException("No se pudo establecer la conexión Bluetooth.");
         }
         btConnected = true;
-        System.out.println("Conexión Bluetooth establecida correctamente.");
+        SmartEventLog.emit(SmartEventType.BT_CONNECTED, vehicleId());
     }
 
     /**
@@ -61,15 +90,17 @@ public class ArduinoMicroController implements ArduinoMicroControllerInterface {
         if (isDriving) {
             throw new ProceduralException("El vehículo ya está en movimiento.");
         }
-        if (new Random().nextInt(100) < 5) { // Simulación de fallo mecánico con un 5% de probabilidad
+        if (faults.startFails()) { // Simulación de fallo mecánico (un 5% de los casos con el modelo por defecto)
             throw new PMVPhisicalException("Fallo en el sistema de arranque del vehículo.");
         }
 
-        // Cambia el estado del vehículo a "en marcha" en la clase PMVehicle
-        PMVehicle.setUnderWay();
+        // Cambia el estado del vehículo controlado a "en marcha"
+        if (vehicle != null) {
+            vehicle.setUnderWay();
+        }
 
         isDriving = true;
-        System.out.println("El vehículo ha comenzado a moverse.");
+        SmartEventLog.emit(SmartEventType.DRIVING_STARTED, vehicleId());
     }
 
     /**
@@ -87,11 +118,11 @@ public class ArduinoMicroController implements ArduinoMicroControllerInterface {
         if (!isDriving) {
             throw new ProceduralException("El vehículo ya está detenido.");
         }
-        if (new Random().nextInt(100) < 5) { // Simulación de fallo en los frenos con un 5% de probabilidad
+        if (faults.brakesFail()) { // Simulación de fallo en los frenos (un 5% de los casos con el modelo por defecto)
             throw new PMVPhisicalException("Fallo en el sistema de frenos del vehículo.");
         }
         isDriving = false;
-        System.out.println("El vehículo se ha detenido correctamente.");
+        SmartEventLog.emit(SmartEventType.DRIVING_STOPPED, vehicleId());
     }
 
     /**
@@ -101,10 +132,14 @@ public class ArduinoMicroController implements ArduinoMicroControllerInterface {
     @Override
     public void undoBTconnection() {
         if (!btConnected) {
-            System.out.println("No hay conexión Bluetooth activa para deshacer.");
+            SmartEventLog.emit(SmartEventType.BT_NOT_CONNECTED, vehicleId());
             return;
         }
         btConnected = false;
-        System.out.println("Conexión Bluetooth finalizada.");
+        SmartEventLog.emit(SmartEventType.BT_DISCONNECTED, vehicleId());
+    }
+
+    private int vehicleId() {
+        return vehicle != null ? vehicle.getVehicleID() : 0;
     }
 }
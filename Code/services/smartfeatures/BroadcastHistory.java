@@ -0,0 +1,107 @@
+package services.smartfeatures;
+
+import java.lang.invoke.VarHandle;
+
+/**
+ * Historial acotado de emisiones de estaciones. Guarda las últimas emisiones como pares
+ * (ID de estación, instante) en arrays de primitivos preasignados: las emisiones más antiguas se
+ * sobrescriben, el historial nunca crece y registrar una emisión no crea objetos.
+ *
+ * Admite un único escritor (el hilo que emite) y cualquier número de lectores sin cerrojos. Cada casilla
+ * lleva un número de secuencia que el escritor marca como impar mientras la modifica; un lector que
+ * observa una secuencia distinta de la esperada sabe que la emisión ya se ha sobrescrito y la descarta.
+ */
+public class BroadcastHistory {
+    private final int[] stationIds;
+    private final long[] timestamps;
+    private final long[] sequences;
+    private final int mask;
+    private volatile long count;
+
+    /**
+     * Crea un historial con, al menos, la capacidad indicada (se redondea a potencia de dos).
+     *
+     * @param capacity Número mínimo de emisiones que se conservan.
+     * @throws IllegalArgumentException Si la capacidad no es positiva.
+     */
+    public BroadcastHistory(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.stationIds = new int[size];
+        this.timestamps = new long[size];
+        this.sequences = new long[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Registra una emisión. Solo puede invocarlo un hilo a la vez.
+     *
+     * @param stationId ID de la estación emitida.
+     * @param timestamp Instante de la emisión, en milisegundos desde la época.
+     */
+    public void record(int stationId, long timestamp) {
+        long index = count;
+        int slot = (int) (index & mask);
+        sequences[slot] = 2 * index + 1; // impar: escritura en curso
+        VarHandle.storeStoreFence();
+
+        stationIds[slot] = stationId;
+        timestamps[slot] = timestamp;
+
+        VarHandle.releaseFence();
+        sequences[slot] = 2 * index + 2;
+        count = index + 1;
+    }
+
+    /**
+     * @return Número total de emisiones registradas, incluidas las ya sobrescritas.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return Número máximo de emisiones que se conservan.
+     */
+    public int getCapacity() {
+        return stationIds.length;
+    }
+
+    /**
+     * Copia las últimas emisiones, de la más reciente a la más antigua, sin crear objetos.
+     *
+     * @param n          Número máximo de emisiones a copiar.
+     * @param stationIds Destino de los IDs de estación.
+     * @param timestamps Destino de los instantes.
+     * @return Número de emisiones copiadas. Puede ser menor que {@code n} si aún no hay tantas, si no caben
+     *         en los arrays o si el escritor sobrescribe las más antiguas durante la copia.
+     */
+    public int lastN(int n, int[] stationIds, long[] timestamps) {
+        long newest = count - 1;
+        int limit = Math.min(Math.min(n, this.stationIds.length), Math.min(stationIds.length, timestamps.length));
+        int copied = 0;
+        for (long index = newest; copied < limit && index >= 0; index--) {
+            int slot = (int) (index & mask);
+            long expected = 2 * index + 2;
+            if (sequences[slot] != expected) {
+                break;
+            }
+            VarHandle.acquireFence();
+            int stationId = this.stationIds[slot];
+            long timestamp = this.timestamps[slot];
+            VarHandle.acquireFence();
+            if (sequences[slot] != expected) {
+                break;
+            }
+            stationIds[copied] = stationId;
+            timestamps[copied] = timestamp;
+            copied++;
+        }
+        return copied;
+    }
+}
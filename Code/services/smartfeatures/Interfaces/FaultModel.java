@@ -0,0 +1,53 @@
+package services.smartfeatures.Interfaces;
+
+/**
+ * Modelo de fallos simulados del microcontrolador: decide, en cada operación, si esta falla.
+ */
+public interface FaultModel {
+
+    /**
+     * @return {@code true} si debe fallar el establecimiento de la conexión Bluetooth.
+     */
+    boolean btConnectionFails();
+
+    /**
+     * @return {@code true} si debe fallar el sistema de arranque.
+     */
+    boolean startFails();
+
+    /**
+     * @return {@code true} si deben fallar los frenos.
+     */
+    boolean brakesFail();
+
+    /**
+     * Obtiene un modelo en el que ninguna operación falla.
+     *
+     * @return Modelo sin fallos.
+     */
+    static FaultModel none() {
+        return NoFaults.INSTANCE;
+    }
+
+    /**
+     * Modelo sin fallos.
+     */
+    enum NoFaults implements FaultModel {
+        INSTANCE;
+
+        @Override
+        public boolean btConnectionFails() {
+            return false;
+        }
+
+        @Override
+        public boolean startFails() {
+            return false;
+        }
+
+        @Override
+        public boolean brakesFail() {
+            return false;
+        }
+    }
+}
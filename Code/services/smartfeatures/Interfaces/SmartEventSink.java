@@ -0,0 +1,20 @@
+package services.smartfeatures.Interfaces;
+
+import services.smartfeatures.SmartEventType;
+
+/**
+ * Destino de los eventos de {@code smartfeatures}. Lo invoca siempre el mismo hilo de drenado, nunca el
+ * hilo que produce el evento.
+ */
+@FunctionalInterface
+public interface SmartEventSink {
+
+    /**
+     * Procesa un evento.
+     *
+     * @param type      Tipo del evento.
+     * @param subject   Sujeto del evento (ID del vehículo o de la estación).
+     * @param timestamp Instante del evento, en milisegundos desde la época.
+     */
+    void onEvent(SmartEventType type, int subject, long timestamp);
+}
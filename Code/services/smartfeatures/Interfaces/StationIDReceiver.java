@@ -0,0 +1,21 @@
+package services.smartfeatures.Interfaces;
+
+import data.interfaces.StationIDInterface;
+
+import java.net.ConnectException;
+
+/**
+ * Destino de las emisiones periódicas del ID de una estación (normalmente
+ * {@code JourneyRealizeHandler::broadcastStationID}).
+ */
+@FunctionalInterface
+public interface StationIDReceiver {
+
+    /**
+     * Recibe el ID de la estación.
+     *
+     * @param statID Estación emitida.
+     * @throws ConnectException Si la recepción falla; la emisión periódica se cancela.
+     */
+    void broadcastStationID(StationIDInterface statID) throws ConnectException;
+}
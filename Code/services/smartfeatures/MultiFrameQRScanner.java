@@ -0,0 +1,173 @@
+package services.smartfeatures;
+
+import data.interfaces.VehicleIDInterface;
+import services.Exceptions.QRImgException;
+import services.smartfeatures.Interfaces.QRDecoderInterface;
+
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Escaneo de una ráfaga de fotogramas del código QR de un vehículo.
+ *
+ * Con poca luz, el móvil envía varios fotogramas por cada intento de desbloqueo y basta con que uno sea
+ * legible. Los fotogramas se decodifican en paralelo en un {@link ForkJoinPool} acotado y se devuelve el
+ * primer vehículo obtenido; los fotogramas que aún no han empezado a decodificarse se cancelan. Un fotograma
+ * que falla, por el motivo que sea, no hace fallar el escaneo mientras otro pueda dar resultado.
+ *
+ * El grupo de hilos es propio y no el {@code ForkJoinPool} común, para que los escaneos no compitan con
+ * otros cálculos de la aplicación.
+ */
+public final class MultiFrameQRScanner implements Closeable {
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    private static volatile MultiFrameQRScanner shared;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Crea un escáner con un hilo por procesador, hasta un máximo de cuatro.
+     */
+    public MultiFrameQRScanner() {
+        this(Math.min(4, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Crea un escáner que decodifica como máximo {@code parallelism} fotogramas a la vez.
+     *
+     * @param parallelism Número de hilos del grupo.
+     * @throws IllegalArgumentException Si el número de hilos no es positivo.
+     */
+    public MultiFrameQRScanner(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        this.pool = new ForkJoinPool(parallelism, p -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName("qr-scan-" + THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * Obtiene el escáner compartido por toda la aplicación.
+     *
+     * @return Escáner compartido.
+     */
+    public static MultiFrameQRScanner shared() {
+        MultiFrameQRScanner scanner = shared;
+        if (scanner == null) {
+            synchronized (MultiFrameQRScanner.class) {
+                scanner = shared;
+                if (scanner == null) {
+                    scanner = new MultiFrameQRScanner();
+                    shared = scanner;
+                }
+            }
+        }
+        return scanner;
+    }
+
+    /**
+     * Decodifica los fotogramas en paralelo y devuelve el primer vehículo obtenido.
+     *
+     * @param decoder Decodificador de cada fotograma.
+     * @param frames  Fotogramas de la ráfaga.
+     * @return Vehículo del primer fotograma que se decodifica correctamente.
+     * @throws QRImgException           Si ningún fotograma se puede decodificar; las excepciones del resto de
+     *                                  fotogramas se añaden como suprimidas.
+     * @throws RuntimeException         Si ningún fotograma da resultado y todos fallan con errores de ejecución;
+     *                                  se lanza el primero, con el resto como suprimidos.
+     * @throws IllegalArgumentException Si el decodificador es nulo o no hay fotogramas.
+     */
+    public VehicleIDInterface scan(QRDecoderInterface decoder, List<BufferedImage> frames) throws QRImgException {
+        if (decoder == null || frames == null || frames.isEmpty()) {
+            throw new IllegalArgumentException("Decoder and frames cannot be null or empty");
+        }
+        if (frames.size() == 1) {
+            return decoder.getVehicleID(frames.get(0));
+        }
+
+        CompletableFuture<VehicleIDInterface> first = new CompletableFuture<>();
+        AtomicReference<QRImgException> failure = new AtomicReference<>();
+        AtomicReference<RuntimeException> error = new AtomicReference<>();
+        AtomicInteger pending = new AtomicInteger(frames.size());
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(frames.size());
+        for (BufferedImage frame : frames) {
+            tasks.add(pool.submit(() -> decodeFrame(decoder, frame, first, failure, error, pending)));
+        }
+        try {
+            return first.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof QRImgException) {
+                throw (QRImgException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw (Error) cause;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QRImgException("The QR scan was interrupted.");
+        } finally {
+            for (ForkJoinTask<?> task : tasks) {
+                task.cancel(false);
+            }
+        }
+    }
+
+    private static void decodeFrame(QRDecoderInterface decoder, BufferedImage frame,
+                                    CompletableFuture<VehicleIDInterface> first, AtomicReference<QRImgException> failure,
+                                    AtomicReference<RuntimeException> error, AtomicInteger pending) {
+        try {
+            if (!first.isDone()) {
+                first.complete(decoder.getVehicleID(frame));
+            }
+        } catch (QRImgException e) {
+            record(failure, e);
+        } catch (RuntimeException e) {
+            // Un fotograma defectuoso no impide que otro de la ráfaga se decodifique
+            record(error, e);
+        } catch (Error e) {
+            first.completeExceptionally(e);
+        } finally {
+            // Si algún fotograma tuvo éxito, el futuro ya está completo y esto no tiene efecto
+            if (pending.decrementAndGet() == 0) {
+                QRImgException decodeFailure = failure.get();
+                RuntimeException runtimeFailure = error.get();
+                if (decodeFailure != null) {
+                    if (runtimeFailure != null) {
+                        decodeFailure.addSuppressed(runtimeFailure);
+                    }
+                    first.completeExceptionally(decodeFailure);
+                } else if (runtimeFailure != null) {
+                    first.completeExceptionally(runtimeFailure);
+                }
+            }
+        }
+    }
+
+    private static <T extends Exception> void record(AtomicReference<T> first, T e) {
+        if (!first.compareAndSet(null, e)) {
+            first.get().addSuppressed(e);
+        }
+    }
+
+    /**
+     * Detiene el grupo de hilos. Los escaneos en curso terminan sus fotogramas pendientes.
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+}
@@ -1,30 +1,99 @@
 package services.smartfeatures;
 
+import data.StationRegistry;
+import data.VehicleID;
+import data.interfaces.StationIDInterface;
 import services.Exceptions.QRImgException;
+import services.Exceptions.QRNotFoundException;
 import data.interfaces.VehicleIDInterface;
 import services.smartfeatures.Interfaces.QRDecoderInterface;
+import services.smartfeatures.qr.Binarizer;
+import services.smartfeatures.qr.QRCodeReader;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Implementación del decodificador de códigos QR.
- * Simula la funcionalidad de un lector de códigos QR que asocia un vehículo a una imagen QR escaneada.
+ *
+ * Lee el código QR de la etiqueta del vehículo, cuyo contenido tiene la forma {@code PMV:<vehículo>:<estación>},
+ * y resuelve la estación en el {@link StationRegistry}. Los resultados se guardan en una caché pequeña indexada
+ * por un hash del contenido de la imagen, de modo que volver a escanear el mismo fotograma no repite la
+ * decodificación.
+ *
+ * Si el decodificador se crea con un vehículo preconfigurado, ese vehículo se devuelve cuando en la imagen no
+ * se encuentra ningún código, como hacía la versión simulada. Un código que sí se encuentra pero está dañado,
+ * no es una etiqueta de vehículo o indica una estación desconocida se rechaza siempre.
  */
 public class QRDecoder implements QRDecoderInterface {
+    /** Prefijo del contenido de las etiquetas de los vehículos. */
+    public static final String PAYLOAD_PREFIX = "PMV:";
+    /** Número de imágenes decodificadas que se recuerdan por defecto. */
+    public static final int DEFAULT_CACHE_SIZE = 64;
 
-    private final VehicleIDInterface vehicle; // Vehículo asociado al decodificador
+    private final VehicleIDInterface vehicle; // Vehículo devuelto si la imagen no tiene código. Puede ser null.
+    private final StationRegistry stations;
+    private final Map<Long, VehicleIDInterface> cache;
 
     /**
-     * Constructor que inicializa el decodificador con un vehículo específico.
+     * Constructor que inicializa el decodificador con un vehículo específico, que se devuelve cuando en la
+     * imagen no se encuentra ningún código QR.
      *
      * @param vehicle El vehículo asociado al código QR.
      * @throws IllegalArgumentException Si el vehículo proporcionado es nulo.
      */
     public QRDecoder(VehicleIDInterface vehicle) {
-        if (vehicle == null) {
-            throw new IllegalArgumentException("Vehicle cannot be null");
+        this(requireVehicle(vehicle), StationRegistry.shared(), DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Constructor que resuelve las estaciones de los códigos leídos en el registro indicado.
+     *
+     * @param stations Registro de estaciones.
+     * @throws IllegalArgumentException Si el registro es nulo.
+     */
+    public QRDecoder(StationRegistry stations) {
+        this(null, stations, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Constructor completo.
+     *
+     * @param vehicle   Vehículo devuelto si la imagen no tiene código. Puede ser null.
+     * @param stations  Registro de estaciones.
+     * @param cacheSize Número de imágenes decodificadas que se recuerdan (0 desactiva la caché).
+     * @throws IllegalArgumentException Si el registro es nulo o el tamaño de la caché es negativo.
+     */
+    public QRDecoder(VehicleIDInterface vehicle, StationRegistry stations, int cacheSize) {
+        if (stations == null) {
+            throw new IllegalArgumentException("Station registry cannot be null");
+        }
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("Cache size cannot be negative");
         }
         this.vehicle = vehicle;
+        this.stations = stations;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, VehicleIDInterface> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Genera el contenido del código QR de la etiqueta de un vehículo.
+     *
+     * @param vehicleID Identificador del vehículo.
+     * @return Contenido con la forma {@code PMV:<vehículo>:<estación>}.
+     */
+    public static String payload(VehicleIDInterface vehicleID) {
+        return PAYLOAD_PREFIX + vehicleID.getId() + ":" + vehicleID.getStation().getID();
     }
 
     /**
@@ -32,16 +101,114 @@ public class QRDecoder implements QRDecoderInterface {
      *
      * @param QRImg La imagen del código QR a decodificar.
      * @return El identificador del vehículo asociado.
-     * @throws QRImgException Si la imagen del código QR es nula o está dañada.
+     * @throws QRImgException Si la imagen del código QR es nula o está dañada, si su contenido no es una
+     *                        etiqueta de vehículo o si la estación no está registrada.
      */
     @Override
     public VehicleIDInterface getVehicleID(BufferedImage QRImg) throws QRImgException {
         if (QRImg == null) {
             throw new QRImgException("The QR image is null or corrupted.");
         }
+        Long key = contentHash(QRImg);
+        synchronized (cache) {
+            VehicleIDInterface cached = cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        VehicleIDInterface decoded;
+        try {
+            decoded = parse(QRCodeReader.decode(QRImg));
+        } catch (QRNotFoundException e) {
+            if (vehicle != null) {
+                return vehicle;
+            }
+            throw e;
+        }
+        synchronized (cache) {
+            cache.put(key, decoded);
+        }
+        return decoded;
+    }
 
-        // Retorna el vehículo preconfigurado en la inicialización,
-        // ya que en esta implementación no se decodifica realmente la imagen QR.
+    /**
+     * Obtiene el número de imágenes decodificadas que hay en la caché.
+     *
+     * @return Número de entradas de la caché.
+     */
+    public int getCachedCount() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    private static VehicleIDInterface requireVehicle(VehicleIDInterface vehicle) {
+        if (vehicle == null) {
+            throw new IllegalArgumentException("Vehicle cannot be null");
+        }
         return vehicle;
     }
+
+    private VehicleIDInterface parse(String payload) throws QRImgException {
+        if (!payload.startsWith(PAYLOAD_PREFIX)) {
+            throw new QRImgException("The QR code is not a vehicle label.");
+        }
+        int separator = payload.indexOf(':', PAYLOAD_PREFIX.length());
+        int vehicleId;
+        int stationId;
+        try {
+            vehicleId = Integer.parseInt(payload.substring(PAYLOAD_PREFIX.length(), separator));
+            stationId = Integer.parseInt(payload.substring(separator + 1));
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            throw new QRImgException("The QR code is not a vehicle label.");
+        }
+        StationIDInterface station = stations.lookup(stationId);
+        if (station == null) {
+            throw new QRImgException("Unknown station " + stationId + " in the QR code.");
+        }
+        if (vehicleId <= 0) {
+            throw new QRImgException("Invalid vehicle " + vehicleId + " in the QR code.");
+        }
+        return new VehicleID(vehicleId, station);
+    }
+
+    /**
+     * Calcula un hash de 64 bits del contenido de la imagen. Para los formatos habituales se recorre
+     * directamente el buffer del raster; para el resto, las luminancias.
+     */
+    private static long contentHash(BufferedImage image) {
+        Raster raster = image.getRaster();
+        DataBuffer buffer = raster.getDataBuffer();
+        long hash = mix(0x9E3779B97F4A7C15L, image.getType());
+        hash = mix(hash, image.getWidth());
+        hash = mix(hash, image.getHeight());
+        hash = mix(hash, raster.getSampleModelTranslateX());
+        hash = mix(hash, raster.getSampleModelTranslateY());
+        if (buffer instanceof DataBufferInt && buffer.getNumBanks() == 1) {
+            for (int value : ((DataBufferInt) buffer).getData()) {
+                hash = mix(hash, value);
+            }
+        } else if (buffer instanceof DataBufferByte && buffer.getNumBanks() == 1) {
+            byte[] data = ((DataBufferByte) buffer).getData();
+            int i = 0;
+            for (; i + 3 < data.length; i += 4) {
+                hash = mix(hash, (data[i] & 0xFF) | (data[i + 1] & 0xFF) << 8
+                        | (data[i + 2] & 0xFF) << 16 | data[i + 3] << 24);
+            }
+            for (; i < data.length; i++) {
+                hash = mix(hash, data[i]);
+            }
+        } else {
+            for (byte value : Binarizer.luminance(image)) {
+                hash = mix(hash, value);
+            }
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, int value) {
+        hash = (hash ^ value) * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 29);
+    }
 }
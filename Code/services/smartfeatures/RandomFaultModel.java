@@ -0,0 +1,124 @@
+package services.smartfeatures;
+
+import services.smartfeatures.Interfaces.FaultModel;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Modelo de fallos aleatorios con una probabilidad configurable para cada tipo de fallo.
+ *
+ * Sin semilla, usa el generador propio de cada hilo ({@link ThreadLocalRandom}): no crea objetos ni
+ * compite con otros hilos. Con semilla, usa un {@link SplittableRandom} propio y la secuencia de fallos es
+ * reproducible; en ese caso el modelo no es seguro entre hilos, y para simular muchos controladores se
+ * obtiene uno independiente (y también reproducible) por controlador con {@link #split()}.
+ */
+public class RandomFaultModel implements FaultModel {
+    /** Probabilidad por defecto de que falle la conexión Bluetooth. */
+    public static final double DEFAULT_BT_FAILURE = 0.10;
+    /** Probabilidad por defecto de que falle el arranque. */
+    public static final double DEFAULT_START_FAILURE = 0.05;
+    /** Probabilidad por defecto de que fallen los frenos. */
+    public static final double DEFAULT_BRAKE_FAILURE = 0.05;
+
+    private static final RandomFaultModel DEFAULT =
+            new RandomFaultModel(null, DEFAULT_BT_FAILURE, DEFAULT_START_FAILURE, DEFAULT_BRAKE_FAILURE);
+
+    private final SplittableRandom random; // null: generador del hilo actual
+    private final double btFailure;
+    private final double startFailure;
+    private final double brakeFailure;
+
+    /**
+     * Crea un modelo no reproducible con las probabilidades indicadas.
+     *
+     * @param btFailure    Probabilidad de fallo de la conexión Bluetooth, entre 0 y 1.
+     * @param startFailure Probabilidad de fallo del arranque, entre 0 y 1.
+     * @param brakeFailure Probabilidad de fallo de los frenos, entre 0 y 1.
+     * @throws IllegalArgumentException Si alguna probabilidad está fuera de rango.
+     */
+    public RandomFaultModel(double btFailure, double startFailure, double brakeFailure) {
+        this(null, btFailure, startFailure, brakeFailure);
+    }
+
+    /**
+     * Crea un modelo reproducible con las probabilidades por defecto.
+     *
+     * @param seed Semilla del generador.
+     */
+    public RandomFaultModel(long seed) {
+        this(seed, DEFAULT_BT_FAILURE, DEFAULT_START_FAILURE, DEFAULT_BRAKE_FAILURE);
+    }
+
+    /**
+     * Crea un modelo reproducible con las probabilidades indicadas.
+     *
+     * @param seed         Semilla del generador.
+     * @param btFailure    Probabilidad de fallo de la conexión Bluetooth, entre 0 y 1.
+     * @param startFailure Probabilidad de fallo del arranque, entre 0 y 1.
+     * @param brakeFailure Probabilidad de fallo de los frenos, entre 0 y 1.
+     * @throws IllegalArgumentException Si alguna probabilidad está fuera de rango.
+     */
+    public RandomFaultModel(long seed, double btFailure, double startFailure, double brakeFailure) {
+        this(new SplittableRandom(seed), btFailure, startFailure, brakeFailure);
+    }
+
+    private RandomFaultModel(SplittableRandom random, double btFailure, double startFailure, double brakeFailure) {
+        checkProbability(btFailure);
+        checkProbability(startFailure);
+        checkProbability(brakeFailure);
+        this.random = random;
+        this.btFailure = btFailure;
+        this.startFailure = startFailure;
+        this.brakeFailure = brakeFailure;
+    }
+
+    /**
+     * Obtiene el modelo por defecto: probabilidades por defecto y generador propio de cada hilo.
+     * Se puede compartir entre todos los controladores.
+     *
+     * @return Modelo por defecto.
+     */
+    public static RandomFaultModel defaultModel() {
+        return DEFAULT;
+    }
+
+    /**
+     * Obtiene un modelo independiente con las mismas probabilidades. Si este modelo es reproducible, el
+     * nuevo también lo es: la secuencia de modelos derivados de una misma semilla es siempre la misma.
+     *
+     * @return Nuevo modelo.
+     */
+    public RandomFaultModel split() {
+        if (random == null) {
+            return this;
+        }
+        return new RandomFaultModel(random.split(), btFailure, startFailure, brakeFailure);
+    }
+
+    @Override
+    public boolean btConnectionFails() {
+        return fails(btFailure);
+    }
+
+    @Override
+    public boolean startFails() {
+        return fails(startFailure);
+    }
+
+    @Override
+    public boolean brakesFail() {
+        return fails(brakeFailure);
+    }
+
+    private boolean fails(double probability) {
+        double draw = random != null ? random.nextDouble() : ThreadLocalRandom.current().nextDouble();
+        return draw < probability;
+    }
+
+    private static void checkProbability(double probability) {
+        if (!(probability >= 0.0 && probability <= 1.0)) {
+            throw new IllegalArgumentException("Failure probability must be between 0 and 1");
+        }
+    }
+}
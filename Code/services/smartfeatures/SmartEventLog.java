@@ -0,0 +1,201 @@
+package services.smartfeatures;
+
+import services.smartfeatures.Interfaces.SmartEventSink;
+
+import java.io.Closeable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Registro asíncrono de eventos de {@code smartfeatures}, que sustituye a las escrituras directas en la
+ * salida estándar.
+ *
+ * Los eventos se guardan como primitivos en un anillo preasignado con varios productores y un único
+ * consumidor: registrar un evento no crea objetos, no toma cerrojos y nunca bloquea. Si el anillo está
+ * lleno el evento se descarta y se contabiliza. Un hilo en segundo plano drena el anillo hacia el
+ * {@link SmartEventSink} configurado (por defecto, la salida estándar con los mensajes de siempre).
+ *
+ * Con la propiedad de sistema {@code smartfeatures.events.disabled=true} el registro se desactiva: como
+ * {@link #ENABLED} es una constante, el compilador JIT elimina por completo las llamadas a {@link #emit}.
+ */
+public class SmartEventLog implements Closeable {
+    /** Indica si el registro de eventos está activo. Se fija al cargar la clase. */
+    public static final boolean ENABLED = !Boolean.getBoolean("smartfeatures.events.disabled");
+
+    private static final int DEFAULT_CAPACITY = 8192;
+    private static final SmartEventType[] TYPES = SmartEventType.values();
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static volatile SmartEventLog shared;
+
+    private final byte[] types;
+    private final int[] subjects;
+    private final long[] timestamps;
+    private final AtomicLongArray published; // Secuencia + 1 del evento publicado en cada casilla
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong(); // Siguiente secuencia a reservar
+    private volatile long head; // Siguiente secuencia a drenar; solo la escribe el hilo de drenado
+    private final LongAdder dropped = new LongAdder();
+    private final Thread drainer;
+    private volatile SmartEventSink sink;
+    private volatile boolean running = true;
+
+    /**
+     * Crea un registro con, al menos, la capacidad indicada (se redondea a potencia de dos).
+     *
+     * @param capacity Número de eventos pendientes de drenar que caben en el anillo.
+     * @param sink     Destino de los eventos.
+     * @throws IllegalArgumentException Si la capacidad no es positiva o el destino es nulo.
+     */
+    public SmartEventLog(int capacity, SmartEventSink sink) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        if (sink == null) {
+            throw new IllegalArgumentException("Sink cannot be null");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.types = new byte[size];
+        this.subjects = new int[size];
+        this.timestamps = new long[size];
+        this.published = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.sink = sink;
+        this.drainer = new Thread(this::drain, "smart-events");
+        this.drainer.setDaemon(true);
+        this.drainer.start();
+    }
+
+    /**
+     * Obtiene el registro compartido por el paquete, que escribe en la salida estándar.
+     *
+     * @return Registro compartido.
+     */
+    public static SmartEventLog shared() {
+        SmartEventLog log = shared;
+        if (log == null) {
+            synchronized (SmartEventLog.class) {
+                log = shared;
+                if (log == null) {
+                    log = new SmartEventLog(DEFAULT_CAPACITY,
+                            (type, subject, timestamp) -> System.out.println(type.describe(subject)));
+                    shared = log;
+                }
+            }
+        }
+        return log;
+    }
+
+    /**
+     * Registra un evento en el registro compartido, salvo que el registro esté desactivado.
+     *
+     * @param type    Tipo del evento.
+     * @param subject Sujeto del evento.
+     */
+    public static void emit(SmartEventType type, int subject) {
+        if (ENABLED) {
+            shared().log(type, subject);
+        }
+    }
+
+    /**
+     * Registra un evento sin bloquear.
+     *
+     * @param type    Tipo del evento.
+     * @param subject Sujeto del evento.
+     * @return {@code true} si el evento se registró; {@code false} si se descartó por estar lleno el anillo.
+     */
+    public boolean log(SmartEventType type, int subject) {
+        long sequence;
+        do {
+            sequence = tail.get();
+            if (sequence - head >= types.length) {
+                dropped.increment();
+                return false;
+            }
+        } while (!tail.compareAndSet(sequence, sequence + 1));
+
+        int slot = (int) (sequence & mask);
+        types[slot] = (byte) type.ordinal();
+        subjects[slot] = subject;
+        timestamps[slot] = System.currentTimeMillis();
+        published.lazySet(slot, sequence + 1);
+        return true;
+    }
+
+    /**
+     * Sustituye el destino de los eventos. Los eventos pendientes se entregan al nuevo destino.
+     *
+     * @param sink Nuevo destino.
+     * @throws IllegalArgumentException Si el destino es nulo.
+     */
+    public void setSink(SmartEventSink sink) {
+        if (sink == null) {
+            throw new IllegalArgumentException("Sink cannot be null");
+        }
+        this.sink = sink;
+    }
+
+    /**
+     * @return Número de eventos descartados por estar lleno el anillo.
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Espera a que se hayan entregado todos los eventos registrados hasta el momento.
+     */
+    public void flush() {
+        long target = tail.get();
+        while (head < target && drainer.isAlive()) {
+            LockSupport.parkNanos(IDLE_PARK_NANOS / 10);
+        }
+    }
+
+    /**
+     * Entrega los eventos pendientes y detiene el hilo de drenado.
+     */
+    @Override
+    public void close() {
+        flush();
+        running = false;
+        LockSupport.unpark(drainer);
+        try {
+            drainer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
+        long next = head;
+        while (running) {
+            int slot = (int) (next & mask);
+            if (published.get(slot) != next + 1) {
+                if (next == tail.get()) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                } else {
+                    // Un productor ha reservado la casilla pero aún no la ha publicado
+                    Thread.onSpinWait();
+                }
+                continue;
+            }
+            SmartEventType type = TYPES[types[slot]];
+            int subject = subjects[slot];
+            long timestamp = timestamps[slot];
+            try {
+                sink.onEvent(type, subject, timestamp);
+            } catch (RuntimeException e) {
+                // Un destino defectuoso no debe detener el drenado
+            }
+            head = ++next;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package services.smartfeatures;
+
+/**
+ * Tipos de evento que registran los componentes de {@code smartfeatures}. Cada evento lleva además un
+ * sujeto entero: el ID del vehículo (0 si no se conoce) o el de la estación emitida.
+ */
+public enum SmartEventType {
+    BT_CONNECTED("Conexión Bluetooth establecida correctamente."),
+    BT_ALREADY_CONNECTED("El canal Bluetooth ya está establecido."),
+    BT_DISCONNECTED("Conexión Bluetooth finalizada."),
+    BT_NOT_CONNECTED("No hay conexión Bluetooth activa para deshacer."),
+    DRIVING_STARTED("El vehículo ha comenzado a moverse."),
+    DRIVING_STOPPED("El vehículo se ha detenido correctamente."),
+    STATION_BROADCAST("Broadcasting station ID: ");
+
+    private final String message;
+
+    SmartEventType(String message) {
+        this.message = message;
+    }
+
+    /**
+     * Obtiene la descripción legible de un evento.
+     *
+     * @param subject Sujeto del evento.
+     * @return Mensaje del evento.
+     */
+    public String describe(int subject) {
+        return this == STATION_BROADCAST ? message + subject : message;
+    }
+}
@@ -0,0 +1,322 @@
+package services.smartfeatures;
+
+import data.interfaces.StationIDInterface;
+import services.smartfeatures.Interfaces.StationIDReceiver;
+
+import java.io.Closeable;
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Servicio que emite periódicamente el ID de muchas estaciones desde un único hilo.
+ *
+ * Las emisiones se organizan en una rueda temporal (hashed timing wheel): cada casilla corresponde a un
+ * tick y contiene las balizas que vencen en él, de modo que programar, reprogramar y cancelar una baliza
+ * cuesta O(1) sin importar cuántas estaciones haya. Cada estación tiene su propio intervalo, y las
+ * emisiones se ejecutan en el hilo de la rueda, por lo que los receptores deben ser rápidos.
+ */
+public class StationBeaconService implements Closeable {
+    private static final Duration DEFAULT_TICK = Duration.ofMillis(10);
+    private static final int DEFAULT_WHEEL_SIZE = 512;
+    private static final int DEFAULT_HISTORY_CAPACITY = 4096;
+    private static final AtomicInteger SERVICE_COUNT = new AtomicInteger();
+
+    private static volatile StationBeaconService shared;
+
+    private final long tickNanos;
+    private final Beacon[] wheel; // Lista enlazada de balizas por casilla; solo la modifica el hilo de la rueda
+    private final int mask;
+    private final ConcurrentLinkedQueue<Beacon> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger scheduled = new AtomicInteger();
+    private final BroadcastHistory history;
+    private final Thread worker;
+    private volatile boolean running = true;
+    private long tick;
+
+    /**
+     * Crea un servicio con un tick de 10 ms, una rueda de 512 casillas y un historial de 4096 emisiones.
+     */
+    public StationBeaconService() {
+        this(DEFAULT_TICK, DEFAULT_WHEEL_SIZE, DEFAULT_HISTORY_CAPACITY);
+    }
+
+    /**
+     * Crea un servicio con la configuración indicada.
+     *
+     * @param tick            Resolución de la rueda. Los intervalos se redondean a un número entero de ticks.
+     * @param wheelSize       Número de casillas (se redondea a potencia de dos).
+     * @param historyCapacity Número de emisiones que conserva el historial.
+     * @throws IllegalArgumentException Si algún parámetro no es positivo.
+     */
+    public StationBeaconService(Duration tick, int wheelSize, int historyCapacity) {
+        if (tick.isZero() || tick.isNegative() || wheelSize <= 0) {
+            throw new IllegalArgumentException("Tick and wheel size must be positive");
+        }
+        this.tickNanos = tick.toNanos();
+        int size = Integer.highestOneBit(wheelSize);
+        if (size < wheelSize) {
+            size <<= 1;
+        }
+        this.wheel = new Beacon[size];
+        this.mask = size - 1;
+        this.history = new BroadcastHistory(historyCapacity);
+        this.worker = new Thread(this::run, "station-beacons-" + SERVICE_COUNT.incrementAndGet());
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Obtiene el servicio compartido por las señales que no indican uno propio. Se crea la primera vez que
+     * se necesita.
+     *
+     * @return Servicio compartido.
+     */
+    public static StationBeaconService shared() {
+        StationBeaconService service = shared;
+        if (service == null) {
+            synchronized (StationBeaconService.class) {
+                service = shared;
+                if (service == null) {
+                    service = new StationBeaconService();
+                    shared = service;
+                }
+            }
+        }
+        return service;
+    }
+
+    /**
+     * Programa la emisión periódica del ID de una estación. La primera emisión se produce en el siguiente tick.
+     *
+     * @param station  Estación a emitir.
+     * @param interval Tiempo entre emisiones.
+     * @param receiver Destino de las emisiones.
+     * @return Baliza programada, que permite cancelar la emisión.
+     * @throws IllegalArgumentException Si algún parámetro es nulo o el intervalo no es positivo.
+     * @throws IllegalStateException    Si el servicio está cerrado.
+     */
+    public Beacon schedule(StationIDInterface station, Duration interval, StationIDReceiver receiver) {
+        if (station == null || interval == null || receiver == null) {
+            throw new IllegalArgumentException("Station, interval and receiver cannot be null");
+        }
+        if (interval.isZero() || interval.isNegative()) {
+            throw new IllegalArgumentException("Interval must be positive");
+        }
+        if (!running) {
+            throw new IllegalStateException("Beacon service is closed");
+        }
+        long ticks = Math.max(1, (interval.toNanos() + tickNanos / 2) / tickNanos);
+        Beacon beacon = new Beacon(this, station, ticks, receiver);
+        scheduled.incrementAndGet();
+        pending.add(beacon);
+        return beacon;
+    }
+
+    /**
+     * @return Número de balizas activas.
+     */
+    public int getScheduledCount() {
+        return scheduled.get();
+    }
+
+    /**
+     * @return Historial de las últimas emisiones de todas las estaciones del servicio.
+     */
+    public BroadcastHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * Detiene el hilo de la rueda y cancela todas las balizas.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        long next = System.nanoTime() + tickNanos;
+        while (running) {
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(this, wait);
+                continue;
+            }
+            next += tickNanos;
+            tick++;
+            Beacon added;
+            while ((added = pending.poll()) != null) {
+                added.deadline = tick;
+                insert(added);
+            }
+            expire(tick);
+        }
+        cancelAll();
+    }
+
+    /**
+     * Emite las balizas de la casilla del tick que vencen en él y las reprograma.
+     */
+    private void expire(long now) {
+        int slot = (int) (now & mask);
+        Beacon beacon = wheel[slot];
+        wheel[slot] = null;
+        Beacon keep = null;
+        while (beacon != null) {
+            Beacon next = beacon.next;
+            if (beacon.isCancelled()) {
+                beacon.next = null;
+            } else if (beacon.deadline > now) {
+                // Vence en una vuelta posterior de la rueda
+                beacon.next = keep;
+                keep = beacon;
+            } else if (beacon.emit(history)) {
+                beacon.deadline = now + beacon.intervalTicks;
+                if ((int) (beacon.deadline & mask) == slot) {
+                    beacon.next = keep;
+                    keep = beacon;
+                } else {
+                    insert(beacon);
+                }
+            }
+            beacon = next;
+        }
+        // Las balizas que siguen en la casilla se reinsertan tras procesarla
+        while (keep != null) {
+            Beacon next = keep.next;
+            keep.next = wheel[slot];
+            wheel[slot] = keep;
+            keep = next;
+        }
+    }
+
+    private void insert(Beacon beacon) {
+        int slot = (int) (beacon.deadline & mask);
+        beacon.next = wheel[slot];
+        wheel[slot] = beacon;
+    }
+
+    private void cancelAll() {
+        for (int slot = 0; slot < wheel.length; slot++) {
+            for (Beacon beacon = wheel[slot]; beacon != null; beacon = beacon.next) {
+                beacon.cancel();
+            }
+            wheel[slot] = null;
+        }
+        Beacon beacon;
+        while ((beacon = pending.poll()) != null) {
+            beacon.cancel();
+        }
+    }
+
+    /**
+     * Emisión periódica de una estación. Cancelarla garantiza que no habrá más emisiones una vez
+     * devuelto {@link #cancel()}.
+     */
+    public static final class Beacon {
+        private final StationBeaconService service;
+        private final StationIDInterface station;
+        private final long intervalTicks;
+        private final StationIDReceiver receiver;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private boolean cancelled;
+        private ConnectException failure;
+        private long emissions;
+        // Estado de la rueda: solo lo usa su hilo
+        private long deadline;
+        private Beacon next;
+
+        private Beacon(StationBeaconService service, StationIDInterface station, long intervalTicks, StationIDReceiver receiver) {
+            this.service = service;
+            this.station = station;
+            this.intervalTicks = intervalTicks;
+            this.receiver = receiver;
+        }
+
+        /**
+         * @return Estación emitida.
+         */
+        public StationIDInterface getStation() {
+            return station;
+        }
+
+        /**
+         * @return Número de emisiones realizadas.
+         */
+        public synchronized long getEmissions() {
+            return emissions;
+        }
+
+        /**
+         * @return {@code true} si la baliza se ha cancelado o ha fallado.
+         */
+        public synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * Cancela la baliza. Si hay una emisión en curso, espera a que termine.
+         */
+        public void cancel() {
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+                cancelled = true;
+            }
+            service.scheduled.decrementAndGet();
+            done.countDown();
+        }
+
+        /**
+         * Espera a que la baliza se cancele.
+         *
+         * @throws ConnectException     Si la baliza terminó porque el receptor falló.
+         * @throws InterruptedException Si el hilo se interrumpe mientras espera.
+         */
+        public void await() throws ConnectException, InterruptedException {
+            done.await();
+            synchronized (this) {
+                if (failure != null) {
+                    throw failure;
+                }
+            }
+        }
+
+        /**
+         * Realiza una emisión.
+         *
+         * @return {@code true} si la baliza debe seguir programada.
+         */
+        private boolean emit(BroadcastHistory history) {
+            synchronized (this) {
+                if (cancelled) {
+                    return false;
+                }
+                try {
+                    receiver.broadcastStationID(station);
+                    emissions++;
+                    history.record(station.getID(), System.currentTimeMillis());
+                    return true;
+                } catch (ConnectException e) {
+                    failure = e;
+                } catch (RuntimeException e) {
+                    failure = new ConnectException("Error en la emisión de la estación: " + e.getMessage());
+                }
+            }
+            cancel();
+            return false;
+        }
+    }
+}
@@ -5,16 +5,21 @@ import micromobility.JourneyRealizeHandler;
 import services.smartfeatures.Interfaces.UnbondedBTSignalInterface;
 
 import java.net.ConnectException;
-import java.util.List;
+import java.time.Duration;
 
 /**
  * Implementación de la interfaz UnbondedBTSignalInterface.
- * Esta clase gestiona la transmisión repetida del ID de estación a través de Bluetooth.
+ * Esta clase gestiona la transmisión repetida del ID de estación a través de Bluetooth. Las emisiones
+ * las programa un {@link StationBeaconService}, que atiende a todas las estaciones desde un único hilo.
  */
 public class UnbondedBTSignal implements UnbondedBTSignalInterface {
+    private static final Duration DEFAULT_INTERVAL = Duration.ofSeconds(1);
+
     private final JourneyRealizeHandler journeyHandler; // Manejador de viajes para interactuar con la estación
     private final StationIDInterface station; // Estación a la que se le enviará el ID
-    private final List<String> broadcastHistory; // Historial de mensajes de difusión
+    private final BroadcastHistory broadcastHistory; // Historial acotado de emisiones
+    private final StationBeaconService beacons; // Planificador de las emisiones
+    private final Duration interval; // Tiempo entre emisiones
 
     /**
      * Constructor de la clase UnbondedBTSignal.
@@ -22,10 +27,25 @@ public class UnbondedBTSignal implements UnbondedBTSignalInterface {
      *
      * @param journeyHandler El manejador de viajes que gestiona la difusión del ID de la estación.
      * @param station La estación que se va a transmitir.
-     * @param broadcastHistory Historial donde se almacenarán los mensajes de difusión.
+     * @param broadcastHistory Historial donde se registrarán las emisiones. Solo lo escribe el hilo del planificador.
      * @throws IllegalArgumentException Si la estación o el historial de difusión son nulos.
      */
-    public UnbondedBTSignal(JourneyRealizeHandler journeyHandler, StationIDInterface station, List<String> broadcastHistory) {
+    public UnbondedBTSignal(JourneyRealizeHandler journeyHandler, StationIDInterface station, BroadcastHistory broadcastHistory) {
+        this(journeyHandler, station, broadcastHistory, StationBeaconService.shared(), DEFAULT_INTERVAL);
+    }
+
+    /**
+     * Constructor que indica el planificador y el intervalo de las emisiones.
+     *
+     * @param journeyHandler El manejador de viajes que gestiona la difusión del ID de la estación.
+     * @param station La estación que se va a transmitir.
+     * @param broadcastHistory Historial donde se registrarán las emisiones. Solo lo escribe el hilo del planificador.
+     * @param beacons Servicio que programa las emisiones.
+     * @param interval Tiempo entre emisiones.
+     * @throws IllegalArgumentException Si la estación, el historial, el servicio o el intervalo son nulos.
+     */
+    public UnbondedBTSignal(JourneyRealizeHandler journeyHandler, StationIDInterface station, BroadcastHistory broadcastHistory,
+                            StationBeaconService beacons, Duration interval) {
         this.journeyHandler = journeyHandler;
         if (station == null) {
             throw new IllegalArgumentException("Station cannot be null");
@@ -33,30 +53,47 @@ public class UnbondedBTSignal implements UnbondedBTSignalInterface {
         if (broadcastHistory == null) {
             throw new IllegalArgumentException("Broadcast history cannot be null");
         }
+        if (beacons == null || interval == null) {
+            throw new IllegalArgumentException("Beacon service and interval cannot be null");
+        }
         this.station = station;
         this.broadcastHistory = broadcastHistory;
+        this.beacons = beacons;
+        this.interval = interval;
     }
 
     /**
-     * Difunde repetidamente el ID de la estación a través de Bluetooth.
-     * El proceso se interrumpe si se recibe una señal de interrupción o si ocurre un error de conexión.
+     * Difunde repetidamente el ID de la estación a través de Bluetooth hasta que el hilo que llama se
+     * interrumpe o hasta que se produce un error de conexión. Las emisiones no ocupan el hilo que llama: las
+     * realiza el {@link StationBeaconService}, y este método solo espera a que terminen.
      *
      * @throws ConnectException Si hay un error de conexión Bluetooth.
+     * @throws InterruptedException Si el hilo se interrumpe; la difusión se detiene antes de lanzarla.
      */
     @Override
     public void BTbroadcast() throws ConnectException, InterruptedException {
-        while (true) {
+        StationBeaconService.Beacon beacon = startBroadcast();
+        try {
+            beacon.await();
+        } finally {
+            beacon.cancel();
+        }
+    }
+
+    /**
+     * Inicia la difusión periódica del ID de la estación sin bloquear el hilo que llama.
+     *
+     * @return Baliza que permite detener la difusión.
+     */
+    public StationBeaconService.Beacon startBroadcast() {
+        return beacons.schedule(station, interval, statID -> {
             // Llama al método broadcastStationID() del JourneyRealizeHandler
             // para transmitir el ID de la estación a través de Bluetooth
-            journeyHandler.broadcastStationID(station);
+            journeyHandler.broadcastStationID(statID);
 
-            // Mensaje de depuración y registro en el historial de difusión
-            String message = "Broadcasting station ID: " + station.getID();
-            broadcastHistory.add(message);
-            System.out.println(message);
-
-            // Espera de 1 segundo antes de realizar la siguiente transmisión
-            Thread.sleep(1000);
-        }
+            // Registro en el historial de difusión (solo escribe el hilo del planificador) y evento de depuración
+            broadcastHistory.record(statID.getID(), System.currentTimeMillis());
+            SmartEventLog.emit(SmartEventType.STATION_BROADCAST, statID.getID());
+        });
     }
 }
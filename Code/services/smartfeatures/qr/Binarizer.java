@@ -0,0 +1,153 @@
+package services.smartfeatures.qr;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+
+/**
+ * Conversión de una imagen a luminancia y a una matriz binaria.
+ *
+ * Los formatos habituales (RGB empaquetado en enteros, gris de 8 bits y BGR/ABGR entrelazado) se leen
+ * directamente del buffer del raster, sin llamadas a {@code getRGB} por píxel. El resto de formatos se leen
+ * fila a fila con la conversión genérica de Java 2D.
+ */
+public final class Binarizer {
+
+    private Binarizer() {
+    }
+
+    /**
+     * Calcula la luminancia (0..255) de cada píxel.
+     *
+     * @param image Imagen de origen.
+     * @return Luminancias por filas, de tamaño ancho × alto.
+     */
+    public static byte[] luminance(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        byte[] luminance = new byte[width * height];
+        Raster raster = image.getRaster();
+        DataBuffer buffer = raster.getDataBuffer();
+        SampleModel model = raster.getSampleModel();
+        int translateX = raster.getSampleModelTranslateX();
+        int translateY = raster.getSampleModelTranslateY();
+        int type = image.getType();
+
+        if (buffer instanceof DataBufferInt && model instanceof SinglePixelPackedSampleModel
+                && (type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB
+                || type == BufferedImage.TYPE_INT_ARGB_PRE)) {
+            int[] data = ((DataBufferInt) buffer).getData();
+            int stride = ((SinglePixelPackedSampleModel) model).getScanlineStride();
+            int base = buffer.getOffset() - translateY * stride - translateX;
+            for (int y = 0; y < height; y++) {
+                int row = base + y * stride;
+                for (int x = 0; x < width; x++) {
+                    int rgb = data[row + x];
+                    luminance[y * width + x] = (byte) gray(rgb >> 16 & 0xFF, rgb >> 8 & 0xFF, rgb & 0xFF);
+                }
+            }
+        } else if (buffer instanceof DataBufferByte && model instanceof ComponentSampleModel
+                && (type == BufferedImage.TYPE_BYTE_GRAY || type == BufferedImage.TYPE_3BYTE_BGR
+                || type == BufferedImage.TYPE_4BYTE_ABGR || type == BufferedImage.TYPE_4BYTE_ABGR_PRE)) {
+            byte[] data = ((DataBufferByte) buffer).getData();
+            ComponentSampleModel components = (ComponentSampleModel) model;
+            int stride = components.getScanlineStride();
+            int pixelStride = components.getPixelStride();
+            int[] offsets = components.getBandOffsets();
+            int base = buffer.getOffset() - translateY * stride - translateX * pixelStride;
+            boolean gray = type == BufferedImage.TYPE_BYTE_GRAY;
+            for (int y = 0; y < height; y++) {
+                int pixel = base + y * stride;
+                for (int x = 0; x < width; x++, pixel += pixelStride) {
+                    if (gray) {
+                        luminance[y * width + x] = data[pixel + offsets[0]];
+                    } else {
+                        // Las bandas del modelo siguen el orden R, G, B (y A)
+                        luminance[y * width + x] = (byte) gray(data[pixel + offsets[0]] & 0xFF,
+                                data[pixel + offsets[1]] & 0xFF, data[pixel + offsets[2]] & 0xFF);
+                    }
+                }
+            }
+        } else {
+            int[] row = new int[width];
+            for (int y = 0; y < height; y++) {
+                image.getRGB(0, y, width, 1, row, 0, width);
+                for (int x = 0; x < width; x++) {
+                    int rgb = row[x];
+                    luminance[y * width + x] = (byte) gray(rgb >> 16 & 0xFF, rgb >> 8 & 0xFF, rgb & 0xFF);
+                }
+            }
+        }
+        return luminance;
+    }
+
+    /**
+     * Binariza una imagen de luminancias con el umbral global de Otsu (el que mejor separa los dos grupos
+     * de tonos del histograma).
+     *
+     * @param luminance Luminancias por filas.
+     * @param width     Ancho de la imagen.
+     * @param height    Alto de la imagen.
+     * @return Matriz en la que los píxeles oscuros están activos, o null si la imagen es de un solo tono.
+     */
+    public static BitMatrix binarize(byte[] luminance, int width, int height) {
+        int[] histogram = new int[256];
+        for (byte value : luminance) {
+            histogram[value & 0xFF]++;
+        }
+        int threshold = otsuThreshold(histogram, luminance.length);
+        if (threshold < 0) {
+            return null;
+        }
+        BitMatrix matrix = new BitMatrix(width, height);
+        for (int y = 0; y < height; y++) {
+            int row = y * width;
+            for (int x = 0; x < width; x++) {
+                if ((luminance[row + x] & 0xFF) <= threshold) {
+                    matrix.set(x, y);
+                }
+            }
+        }
+        return matrix;
+    }
+
+    private static int otsuThreshold(int[] histogram, int total) {
+        long sum = 0;
+        for (int i = 0; i < 256; i++) {
+            sum += (long) i * histogram[i];
+        }
+        long sumBackground = 0;
+        int weightBackground = 0;
+        double bestVariance = -1;
+        int threshold = -1;
+        for (int t = 0; t < 255; t++) {
+            weightBackground += histogram[t];
+            if (weightBackground == 0) {
+                continue;
+            }
+            int weightForeground = total - weightBackground;
+            if (weightForeground == 0) {
+                break;
+            }
+            sumBackground += (long) t * histogram[t];
+            double meanBackground = (double) sumBackground / weightBackground;
+            double meanForeground = (double) (sum - sumBackground) / weightForeground;
+            double difference = meanBackground - meanForeground;
+            double variance = (double) weightBackground * weightForeground * difference * difference;
+            if (variance > bestVariance) {
+                bestVariance = variance;
+                threshold = t;
+            }
+        }
+        return threshold;
+    }
+
+    private static int gray(int r, int g, int b) {
+        return (r * 77 + g * 150 + b * 29) >> 8;
+    }
+}
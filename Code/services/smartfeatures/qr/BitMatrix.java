@@ -0,0 +1,80 @@
+package services.smartfeatures.qr;
+
+/**
+ * Matriz de bits (módulo oscuro = {@code true}) empaquetada en palabras de 32 bits por filas.
+ */
+public final class BitMatrix {
+    private final int width;
+    private final int height;
+    private final int rowSize;
+    private final int[] bits;
+
+    /**
+     * Crea una matriz con todos los bits a {@code false}.
+     *
+     * @param width  Número de columnas.
+     * @param height Número de filas.
+     * @throws IllegalArgumentException Si alguna dimensión no es positiva.
+     */
+    public BitMatrix(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Dimensions must be positive");
+        }
+        this.width = width;
+        this.height = height;
+        this.rowSize = (width + 31) >>> 5;
+        this.bits = new int[rowSize * height];
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @param x Columna.
+     * @param y Fila.
+     * @return {@code true} si el bit está activo.
+     */
+    public boolean get(int x, int y) {
+        return (bits[y * rowSize + (x >>> 5)] >>> (x & 31) & 1) != 0;
+    }
+
+    /**
+     * Activa un bit.
+     *
+     * @param x Columna.
+     * @param y Fila.
+     */
+    public void set(int x, int y) {
+        bits[y * rowSize + (x >>> 5)] |= 1 << (x & 31);
+    }
+
+    /**
+     * Fija el valor de un bit.
+     *
+     * @param x     Columna.
+     * @param y     Fila.
+     * @param value Nuevo valor.
+     */
+    public void set(int x, int y, boolean value) {
+        if (value) {
+            set(x, y);
+        } else {
+            bits[y * rowSize + (x >>> 5)] &= ~(1 << (x & 31));
+        }
+    }
+
+    /**
+     * Invierte un bit.
+     *
+     * @param x Columna.
+     * @param y Fila.
+     */
+    public void flip(int x, int y) {
+        bits[y * rowSize + (x >>> 5)] ^= 1 << (x & 31);
+    }
+}
@@ -0,0 +1,9 @@
+package services.smartfeatures.qr;
+
+/**
+ * Niveles de corrección de errores de un código QR, de menor a mayor redundancia. Permiten recuperar
+ * aproximadamente un 7 %, 15 %, 25 % y 30 % de los codewords, respectivamente.
+ */
+public enum ErrorCorrectionLevel {
+    L, M, Q, H
+}
@@ -0,0 +1,278 @@
+package services.smartfeatures.qr;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Localización de los tres patrones de posición de un símbolo QR en una imagen binarizada.
+ *
+ * Cada fila se recorre buscando la secuencia oscuro-claro-oscuro-claro-oscuro en proporción 1:1:3:1:1;
+ * los candidatos se confirman en vertical y de nuevo en horizontal sobre su centro, y los hallazgos
+ * próximos entre sí se fusionan en un único patrón.
+ */
+final class FinderPatternFinder {
+    // Número mínimo de filas en las que debe aparecer un patrón para considerarlo real
+    private static final int MIN_CONFIRMATIONS = 2;
+
+    /**
+     * Patrón de posición: centro en píxeles y tamaño estimado del módulo.
+     */
+    static final class FinderPattern {
+        private float x;
+        private float y;
+        private float moduleSize;
+        private int count;
+
+        FinderPattern(float x, float y, float moduleSize) {
+            this.x = x;
+            this.y = y;
+            this.moduleSize = moduleSize;
+            this.count = 1;
+        }
+
+        float getX() {
+            return x;
+        }
+
+        float getY() {
+            return y;
+        }
+
+        float getModuleSize() {
+            return moduleSize;
+        }
+
+        private boolean near(float otherX, float otherY, float otherModuleSize) {
+            if (Math.abs(otherX - x) > moduleSize || Math.abs(otherY - y) > moduleSize) {
+                return false;
+            }
+            float difference = Math.abs(otherModuleSize - moduleSize);
+            return difference <= 1f || difference <= moduleSize;
+        }
+
+        private void merge(float otherX, float otherY, float otherModuleSize) {
+            int total = count + 1;
+            x = (count * x + otherX) / total;
+            y = (count * y + otherY) / total;
+            moduleSize = (count * moduleSize + otherModuleSize) / total;
+            count = total;
+        }
+    }
+
+    private FinderPatternFinder() {
+    }
+
+    /**
+     * Busca los patrones de posición de la imagen.
+     *
+     * @param image Imagen binarizada.
+     * @return Patrones superior izquierdo, superior derecho e inferior izquierdo, o null si no se
+     *         encuentran tres patrones.
+     */
+    static FinderPattern[] find(BitMatrix image) {
+        List<FinderPattern> candidates = new ArrayList<>();
+        int width = image.getWidth();
+        int[] counts = new int[5];
+        for (int y = 0; y < image.getHeight(); y++) {
+            clear(counts);
+            int state = 0;
+            for (int x = 0; x < width; x++) {
+                if (image.get(x, y)) {
+                    if ((state & 1) == 1) {
+                        state++;
+                    }
+                    counts[state]++;
+                } else if ((state & 1) == 0) {
+                    if (state == 4) {
+                        if (hasFinderRatio(counts)) {
+                            confirm(image, counts, x, y, candidates);
+                        }
+                        shiftTwo(counts);
+                        state = 3;
+                    } else {
+                        counts[++state]++;
+                    }
+                } else {
+                    counts[state]++;
+                }
+            }
+            if (state == 4 && hasFinderRatio(counts)) {
+                confirm(image, counts, width, y, candidates);
+            }
+        }
+        return selectBest(candidates);
+    }
+
+    /**
+     * Ordena tres patrones como superior izquierdo, superior derecho e inferior izquierdo. El superior
+     * izquierdo es el opuesto al lado más largo del triángulo (la diagonal del símbolo).
+     */
+    static FinderPattern[] order(FinderPattern a, FinderPattern b, FinderPattern c) {
+        float ab = distance(a, b);
+        float bc = distance(b, c);
+        float ac = distance(a, c);
+        FinderPattern topLeft;
+        FinderPattern first;
+        FinderPattern second;
+        if (bc >= ab && bc >= ac) {
+            topLeft = a;
+            first = b;
+            second = c;
+        } else if (ac >= ab && ac >= bc) {
+            topLeft = b;
+            first = a;
+            second = c;
+        } else {
+            topLeft = c;
+            first = a;
+            second = b;
+        }
+        // Con el eje y hacia abajo, el superior derecho queda a la izquierda del inferior izquierdo
+        float cross = (first.x - topLeft.x) * (second.y - topLeft.y) - (first.y - topLeft.y) * (second.x - topLeft.x);
+        if (cross < 0) {
+            FinderPattern swap = first;
+            first = second;
+            second = swap;
+        }
+        return new FinderPattern[]{topLeft, first, second};
+    }
+
+    static float distance(FinderPattern a, FinderPattern b) {
+        float dx = a.x - b.x;
+        float dy = a.y - b.y;
+        return (float) Math.sqrt(dx * dx + dy * dy);
+    }
+
+    private static void confirm(BitMatrix image, int[] counts, int end, int row, List<FinderPattern> candidates) {
+        int total = counts[0] + counts[1] + counts[2] + counts[3] + counts[4];
+        float centerX = end - counts[4] - counts[3] - counts[2] / 2f;
+        float centerY = crossCheck(image, true, (int) centerX, row, counts[2], total);
+        if (Float.isNaN(centerY)) {
+            return;
+        }
+        centerX = crossCheck(image, false, (int) centerY, (int) centerX, counts[2], total);
+        if (Float.isNaN(centerX)) {
+            return;
+        }
+        float moduleSize = total / 7f;
+        for (FinderPattern candidate : candidates) {
+            if (candidate.near(centerX, centerY, moduleSize)) {
+                candidate.merge(centerX, centerY, moduleSize);
+                return;
+            }
+        }
+        candidates.add(new FinderPattern(centerX, centerY, moduleSize));
+    }
+
+    /**
+     * Comprueba la proporción 1:1:3:1:1 a lo largo de una fila o columna que pasa por un candidato.
+     *
+     * @return Posición del centro a lo largo de esa línea, o NaN si no se confirma el patrón.
+     */
+    private static float crossCheck(BitMatrix image, boolean vertical, int fixed, int start, int maxCount,
+                                    int originalTotal) {
+        int limit = vertical ? image.getHeight() : image.getWidth();
+        int[] counts = new int[5];
+        int position = start;
+        while (position >= 0 && dark(image, vertical, fixed, position)) {
+            counts[2]++;
+            position--;
+        }
+        if (position < 0) {
+            return Float.NaN;
+        }
+        while (position >= 0 && !dark(image, vertical, fixed, position) && counts[1] <= maxCount) {
+            counts[1]++;
+            position--;
+        }
+        if (position < 0 || counts[1] > maxCount) {
+            return Float.NaN;
+        }
+        while (position >= 0 && dark(image, vertical, fixed, position) && counts[0] <= maxCount) {
+            counts[0]++;
+            position--;
+        }
+        if (counts[0] > maxCount) {
+            return Float.NaN;
+        }
+        position = start + 1;
+        while (position < limit && dark(image, vertical, fixed, position)) {
+            counts[2]++;
+            position++;
+        }
+        if (position == limit) {
+            return Float.NaN;
+        }
+        while (position < limit && !dark(image, vertical, fixed, position) && counts[3] <= maxCount) {
+            counts[3]++;
+            position++;
+        }
+        if (position == limit || counts[3] > maxCount) {
+            return Float.NaN;
+        }
+        while (position < limit && dark(image, vertical, fixed, position) && counts[4] <= maxCount) {
+            counts[4]++;
+            position++;
+        }
+        if (counts[4] > maxCount) {
+            return Float.NaN;
+        }
+        int total = counts[0] + counts[1] + counts[2] + counts[3] + counts[4];
+        if (5 * Math.abs(total - originalTotal) >= 2 * originalTotal || !hasFinderRatio(counts)) {
+            return Float.NaN;
+        }
+        return position - counts[4] - counts[3] - counts[2] / 2f;
+    }
+
+    private static boolean hasFinderRatio(int[] counts) {
+        int total = 0;
+        for (int count : counts) {
+            if (count == 0) {
+                return false;
+            }
+            total += count;
+        }
+        if (total < 7) {
+            return false;
+        }
+        float moduleSize = total / 7f;
+        float maxVariance = moduleSize / 2f;
+        return Math.abs(moduleSize - counts[0]) < maxVariance
+                && Math.abs(moduleSize - counts[1]) < maxVariance
+                && Math.abs(3f * moduleSize - counts[2]) < 3f * maxVariance
+                && Math.abs(moduleSize - counts[3]) < maxVariance
+                && Math.abs(moduleSize - counts[4]) < maxVariance;
+    }
+
+    private static FinderPattern[] selectBest(List<FinderPattern> candidates) {
+        List<FinderPattern> confirmed = new ArrayList<>();
+        for (FinderPattern candidate : candidates) {
+            if (candidate.count >= MIN_CONFIRMATIONS) {
+                confirmed.add(candidate);
+            }
+        }
+        if (confirmed.size() < 3) {
+            return null;
+        }
+        confirmed.sort((a, b) -> Integer.compare(b.count, a.count));
+        return order(confirmed.get(0), confirmed.get(1), confirmed.get(2));
+    }
+
+    private static boolean dark(BitMatrix image, boolean vertical, int fixed, int position) {
+        return vertical ? image.get(fixed, position) : image.get(position, fixed);
+    }
+
+    private static void shiftTwo(int[] counts) {
+        counts[0] = counts[2];
+        counts[1] = counts[3];
+        counts[2] = counts[4];
+        counts[3] = 1;
+        counts[4] = 0;
+    }
+
+    private static void clear(int[] counts) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = 0;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package services.smartfeatures.qr;
+
+/**
+ * Aritmética en el cuerpo finito GF(256) usado por los códigos QR (polinomio primitivo
+ * x^8 + x^4 + x^3 + x^2 + 1, generador α = 2), con tablas de exponentes y logaritmos.
+ */
+final class GF256 {
+    private static final int PRIMITIVE = 0x11D;
+    private static final int[] EXP = new int[512];
+    private static final int[] LOG = new int[256];
+
+    static {
+        int x = 1;
+        for (int i = 0; i < 255; i++) {
+            EXP[i] = x;
+            LOG[x] = i;
+            x <<= 1;
+            if (x >= 256) {
+                x ^= PRIMITIVE;
+            }
+        }
+        // Duplicar la tabla evita reducir módulo 255 al multiplicar
+        for (int i = 255; i < 512; i++) {
+            EXP[i] = EXP[i - 255];
+        }
+    }
+
+    private GF256() {
+    }
+
+    /**
+     * @return α elevado a {@code power} (0 ≤ power < 512).
+     */
+    static int exp(int power) {
+        return EXP[power];
+    }
+
+    static int log(int a) {
+        if (a == 0) {
+            throw new ArithmeticException("log(0)");
+        }
+        return LOG[a];
+    }
+
+    static int multiply(int a, int b) {
+        if (a == 0 || b == 0) {
+            return 0;
+        }
+        return EXP[LOG[a] + LOG[b]];
+    }
+
+    static int inverse(int a) {
+        if (a == 0) {
+            throw new ArithmeticException("inverse(0)");
+        }
+        return EXP[255 - LOG[a]];
+    }
+
+    static int divide(int a, int b) {
+        if (a == 0) {
+            return 0;
+        }
+        return EXP[LOG[a] + 255 - LOG[b]];
+    }
+
+    /**
+     * Evalúa un polinomio con los coeficientes ordenados de menor a mayor grado.
+     */
+    static int evaluateLowFirst(int[] poly, int length, int x) {
+        int result = 0;
+        for (int i = length - 1; i >= 0; i--) {
+            result = multiply(result, x) ^ poly[i];
+        }
+        return result;
+    }
+}
@@ -0,0 +1,341 @@
+package services.smartfeatures.qr;
+
+import services.Exceptions.QRImgException;
+import services.Exceptions.QRNotFoundException;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Lector de símbolos QR (versiones 1 a 6) a partir de una imagen.
+ *
+ * El proceso sigue los pasos habituales: binarización con umbral global, localización de los tres
+ * patrones de posición, muestreo de la rejilla de módulos mediante una transformación afín, lectura de la
+ * información de formato, eliminación de la máscara, corrección Reed–Solomon de cada bloque y
+ * decodificación de los segmentos numéricos, alfanuméricos y de bytes.
+ *
+ * La transformación afín admite escalados, giros y traslaciones, pero no perspectiva: las imágenes deben
+ * estar tomadas de frente, como ocurre al escanear la etiqueta de un vehículo.
+ */
+public final class QRCodeReader {
+    private static final String ALPHANUMERIC = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ $%*+-./:";
+    private static final int MAX_FORMAT_DISTANCE = 3;
+
+    private QRCodeReader() {
+    }
+
+    /**
+     * Decodifica el símbolo QR de una imagen.
+     *
+     * @param image Imagen que contiene el símbolo.
+     * @return Contenido del símbolo.
+     * @throws QRImgException Si la imagen es nula, no contiene un símbolo legible o está demasiado dañada;
+     *                        si no se encuentra ningún símbolo, una {@link QRNotFoundException}.
+     */
+    public static String decode(BufferedImage image) throws QRImgException {
+        if (image == null) {
+            throw new QRImgException("The QR image is null or corrupted.");
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        BitMatrix binary = Binarizer.binarize(Binarizer.luminance(image), width, height);
+        if (binary == null) {
+            throw new QRNotFoundException("No QR code found in the image.");
+        }
+        return decode(binary);
+    }
+
+    /**
+     * Decodifica el símbolo QR de una imagen ya binarizada.
+     *
+     * @param image Imagen binarizada (píxel oscuro = {@code true}).
+     * @return Contenido del símbolo.
+     * @throws QRImgException Si no contiene un símbolo legible o está demasiado dañado; si no se encuentra
+     *                        ningún símbolo, una {@link QRNotFoundException}.
+     */
+    public static String decode(BitMatrix image) throws QRImgException {
+        FinderPatternFinder.FinderPattern[] patterns = FinderPatternFinder.find(image);
+        if (patterns == null) {
+            throw new QRNotFoundException("No QR code found in the image.");
+        }
+        return decodeModules(sample(image, patterns));
+    }
+
+    /**
+     * Decodifica una matriz de módulos (un bit por módulo, sin zona de silencio).
+     *
+     * @param modules Matriz cuadrada de módulos.
+     * @return Contenido del símbolo.
+     * @throws QRImgException Si el tamaño no corresponde a una versión soportada o el símbolo está dañado.
+     */
+    public static String decodeModules(BitMatrix modules) throws QRImgException {
+        int size = modules.getWidth();
+        int version = (size - 17) / 4;
+        if (modules.getHeight() != size || QRSpec.dimension(version) != size
+                || version < QRSpec.MIN_VERSION || version > QRSpec.MAX_VERSION) {
+            throw new QRImgException("Unsupported QR code size " + size + ".");
+        }
+        int format = readFormat(modules);
+        int ecLevel = format >>> 3;
+        int mask = format & 7;
+        int[] codewords = readCodewords(modules, version, mask);
+        byte[] data = correct(codewords, version, ecLevel);
+        return parseSegments(data, version);
+    }
+
+    private static BitMatrix sample(BitMatrix image, FinderPatternFinder.FinderPattern[] patterns)
+            throws QRImgException {
+        FinderPatternFinder.FinderPattern topLeft = patterns[0];
+        FinderPatternFinder.FinderPattern topRight = patterns[1];
+        FinderPatternFinder.FinderPattern bottomLeft = patterns[2];
+        float moduleSize = (topLeft.getModuleSize() + topRight.getModuleSize() + bottomLeft.getModuleSize()) / 3f;
+        float span = (FinderPatternFinder.distance(topLeft, topRight)
+                + FinderPatternFinder.distance(topLeft, bottomLeft)) / 2f;
+        int dimension = Math.round(span / moduleSize) + 7;
+        switch (dimension & 3) {
+            case 0:
+                dimension++;
+                break;
+            case 2:
+                dimension--;
+                break;
+            case 3:
+                throw new QRImgException("Unable to determine the QR code size.");
+            default:
+                break;
+        }
+        int version = (dimension - 17) / 4;
+        if (version < QRSpec.MIN_VERSION || version > QRSpec.MAX_VERSION) {
+            throw new QRImgException("Unsupported QR code size " + dimension + ".");
+        }
+
+        // Los centros de los patrones de posición están en el módulo 3,5 contando desde cada borde
+        float reach = dimension - 7;
+        float columnX = (topRight.getX() - topLeft.getX()) / reach;
+        float columnY = (topRight.getY() - topLeft.getY()) / reach;
+        float rowX = (bottomLeft.getX() - topLeft.getX()) / reach;
+        float rowY = (bottomLeft.getY() - topLeft.getY()) / reach;
+        BitMatrix modules = new BitMatrix(dimension, dimension);
+        for (int y = 0; y < dimension; y++) {
+            for (int x = 0; x < dimension; x++) {
+                float u = x - 3f;
+                float v = y - 3f;
+                int px = (int) Math.floor(topLeft.getX() + u * columnX + v * rowX);
+                int py = (int) Math.floor(topLeft.getY() + u * columnY + v * rowY);
+                if (px < -1 || py < -1 || px > image.getWidth() || py > image.getHeight()) {
+                    throw new QRImgException("The QR code is not fully inside the image.");
+                }
+                px = Math.max(0, Math.min(image.getWidth() - 1, px));
+                py = Math.max(0, Math.min(image.getHeight() - 1, py));
+                if (image.get(px, py)) {
+                    modules.set(x, y);
+                }
+            }
+        }
+        return modules;
+    }
+
+    /**
+     * Lee las dos copias de la información de formato y devuelve la combinación de nivel de corrección y
+     * máscara más próxima, con el nivel en los bits 3 y 4 y la máscara en los bits 0 a 2.
+     */
+    private static int readFormat(BitMatrix modules) throws QRImgException {
+        int size = modules.getWidth();
+        int copy1 = 0;
+        int copy2 = 0;
+        for (int i = 0; i < 15; i++) {
+            int[] first = QRSpec.formatPositionCopy1(i);
+            int[] second = QRSpec.formatPositionCopy2(i, size);
+            copy1 |= (modules.get(first[0], first[1]) ? 1 : 0) << i;
+            copy2 |= (modules.get(second[0], second[1]) ? 1 : 0) << i;
+        }
+        int best = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int ecLevel = QRSpec.EC_L; ecLevel <= QRSpec.EC_H; ecLevel++) {
+            for (int mask = 0; mask < 8; mask++) {
+                int expected = QRSpec.formatBits(ecLevel, mask);
+                int distance = Math.min(Integer.bitCount(copy1 ^ expected), Integer.bitCount(copy2 ^ expected));
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    best = ecLevel << 3 | mask;
+                }
+            }
+        }
+        if (bestDistance > MAX_FORMAT_DISTANCE) {
+            throw new QRImgException("The QR code format information is unreadable.");
+        }
+        return best;
+    }
+
+    /**
+     * Lee los codewords en zigzag: parejas de columnas de derecha a izquierda (saltando la columna de
+     * sincronismo), alternando el sentido vertical y omitiendo los módulos de función.
+     */
+    private static int[] readCodewords(BitMatrix modules, int version, int mask) {
+        int size = modules.getWidth();
+        BitMatrix function = QRSpec.functionModules(version);
+        int[] codewords = new int[QRSpec.rawCodewords(version)];
+        int bits = codewords.length * 8;
+        int index = 0;
+        for (int right = size - 1; right >= 1; right -= 2) {
+            if (right == 6) {
+                right = 5;
+            }
+            boolean upward = ((right + 1) & 2) == 0;
+            for (int vertical = 0; vertical < size; vertical++) {
+                int y = upward ? size - 1 - vertical : vertical;
+                for (int j = 0; j < 2; j++) {
+                    int x = right - j;
+                    if (function.get(x, y) || index >= bits) {
+                        continue;
+                    }
+                    if (modules.get(x, y) != QRSpec.mask(mask, x, y)) {
+                        codewords[index >>> 3] |= 0x80 >>> (index & 7);
+                    }
+                    index++;
+                }
+            }
+        }
+        return codewords;
+    }
+
+    /**
+     * Separa los bloques entrelazados, corrige cada uno y concatena sus datos.
+     */
+    private static byte[] correct(int[] codewords, int version, int ecLevel) throws QRImgException {
+        int numBlocks = QRSpec.numBlocks(version, ecLevel);
+        int ecLength = QRSpec.ecCodewordsPerBlock(version, ecLevel);
+        int raw = codewords.length;
+        int numShort = numBlocks - raw % numBlocks;
+        int shortLength = raw / numBlocks;
+        int shortData = shortLength - ecLength;
+
+        int[][] blocks = new int[numBlocks][];
+        for (int b = 0; b < numBlocks; b++) {
+            blocks[b] = new int[b < numShort ? shortLength : shortLength + 1];
+        }
+        int index = 0;
+        for (int i = 0; i <= shortLength; i++) {
+            for (int b = 0; b < numBlocks; b++) {
+                if (i == shortData && b < numShort) {
+                    continue;
+                }
+                // Los bloques cortos no tienen la posición shortData: sus códigos siguientes se desplazan
+                int position = b < numShort && i > shortData ? i - 1 : i;
+                blocks[b][position] = codewords[index++];
+            }
+        }
+
+        ByteArrayOutputStream data = new ByteArrayOutputStream(QRSpec.dataCodewords(version, ecLevel));
+        for (int[] block : blocks) {
+            try {
+                ReedSolomon.decode(block, ecLength);
+            } catch (IllegalStateException e) {
+                throw new QRImgException("The QR code is too damaged to be read.");
+            }
+            for (int i = 0; i < block.length - ecLength; i++) {
+                data.write(block[i]);
+            }
+        }
+        return data.toByteArray();
+    }
+
+    private static String parseSegments(byte[] data, int version) throws QRImgException {
+        BitReader reader = new BitReader(data);
+        StringBuilder result = new StringBuilder();
+        while (reader.available() >= 4) {
+            int mode = reader.read(4);
+            if (mode == 0) {
+                break;
+            }
+            switch (mode) {
+                case 1:
+                    readNumeric(reader, reader.read(10), result);
+                    break;
+                case 2:
+                    readAlphanumeric(reader, reader.read(9), result);
+                    break;
+                case 4:
+                    readBytes(reader, reader.read(8), result);
+                    break;
+                default:
+                    throw new QRImgException("Unsupported QR code segment mode " + mode + ".");
+            }
+        }
+        return result.toString();
+    }
+
+    private static void readNumeric(BitReader reader, int count, StringBuilder result) throws QRImgException {
+        while (count >= 3) {
+            result.append(digits(reader.read(10), 3));
+            count -= 3;
+        }
+        if (count == 2) {
+            result.append(digits(reader.read(7), 2));
+        } else if (count == 1) {
+            result.append(digits(reader.read(4), 1));
+        }
+    }
+
+    private static String digits(int value, int length) throws QRImgException {
+        String text = Integer.toString(value);
+        if (text.length() > length) {
+            throw new QRImgException("Invalid numeric segment in the QR code.");
+        }
+        return "0".repeat(length - text.length()) + text;
+    }
+
+    private static void readAlphanumeric(BitReader reader, int count, StringBuilder result) throws QRImgException {
+        while (count >= 2) {
+            int value = reader.read(11);
+            if (value >= 45 * 45) {
+                throw new QRImgException("Invalid alphanumeric segment in the QR code.");
+            }
+            result.append(ALPHANUMERIC.charAt(value / 45)).append(ALPHANUMERIC.charAt(value % 45));
+            count -= 2;
+        }
+        if (count == 1) {
+            int value = reader.read(6);
+            if (value >= 45) {
+                throw new QRImgException("Invalid alphanumeric segment in the QR code.");
+            }
+            result.append(ALPHANUMERIC.charAt(value));
+        }
+    }
+
+    private static void readBytes(BitReader reader, int count, StringBuilder result) throws QRImgException {
+        byte[] bytes = new byte[count];
+        for (int i = 0; i < count; i++) {
+            bytes[i] = (byte) reader.read(8);
+        }
+        result.append(new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Lectura secuencial de bits, del más significativo al menos significativo de cada byte.
+     */
+    private static final class BitReader {
+        private final byte[] data;
+        private int position;
+
+        BitReader(byte[] data) {
+            this.data = data;
+        }
+
+        int available() {
+            return data.length * 8 - position;
+        }
+
+        int read(int bits) throws QRImgException {
+            if (bits > available()) {
+                throw new QRImgException("The QR code data is truncated.");
+            }
+            int value = 0;
+            for (int i = 0; i < bits; i++, position++) {
+                value = value << 1 | (data[position >>> 3] >>> (7 - (position & 7)) & 1);
+            }
+            return value;
+        }
+    }
+}
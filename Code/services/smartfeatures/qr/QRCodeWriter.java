@@ -0,0 +1,231 @@
+package services.smartfeatures.qr;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Generador de símbolos QR (versiones 1 a 6) en modo bytes, usado para imprimir las etiquetas de los
+ * vehículos. Se elige la versión más pequeña en la que cabe el contenido.
+ */
+public final class QRCodeWriter {
+
+    private QRCodeWriter() {
+    }
+
+    /**
+     * Codifica un texto con corrección de nivel M y la máscara 0.
+     *
+     * @param content Texto a codificar.
+     * @return Matriz de módulos, sin zona de silencio.
+     * @throws IllegalArgumentException Si el texto es nulo o no cabe en una versión 6.
+     */
+    public static BitMatrix encode(String content) {
+        return encode(content, ErrorCorrectionLevel.M, 0);
+    }
+
+    /**
+     * Codifica un texto con el nivel de corrección y la máscara indicados.
+     *
+     * @param content Texto a codificar.
+     * @param level   Nivel de corrección de errores.
+     * @param mask    Máscara (0 a 7).
+     * @return Matriz de módulos, sin zona de silencio.
+     * @throws IllegalArgumentException Si algún argumento no es válido o el texto no cabe en una versión 6.
+     */
+    public static BitMatrix encode(String content, ErrorCorrectionLevel level, int mask) {
+        if (content == null || level == null) {
+            throw new IllegalArgumentException("Content and level cannot be null");
+        }
+        if (mask < 0 || mask > 7) {
+            throw new IllegalArgumentException("Mask must be between 0 and 7");
+        }
+        int ecLevel = level.ordinal();
+        byte[] payload = content.getBytes(StandardCharsets.UTF_8);
+        int version = QRSpec.MIN_VERSION;
+        while (version <= QRSpec.MAX_VERSION && QRSpec.dataCodewords(version, ecLevel) * 8 < 12 + payload.length * 8) {
+            version++;
+        }
+        if (version > QRSpec.MAX_VERSION || payload.length > 255) {
+            throw new IllegalArgumentException("Content too long for a version " + QRSpec.MAX_VERSION + " QR code");
+        }
+
+        int[] data = dataCodewords(payload, QRSpec.dataCodewords(version, ecLevel));
+        int[] codewords = interleave(data, version, ecLevel);
+
+        int size = QRSpec.dimension(version);
+        BitMatrix modules = new BitMatrix(size, size);
+        drawFunctionPatterns(modules, version, ecLevel, mask);
+        drawCodewords(modules, codewords, version, mask);
+        return modules;
+    }
+
+    /**
+     * Dibuja una matriz de módulos en una imagen en escala de grises.
+     *
+     * @param modules   Matriz de módulos.
+     * @param scale     Píxeles por módulo.
+     * @param quietZone Módulos de margen claro alrededor del símbolo.
+     * @return Imagen con el símbolo en negro sobre blanco.
+     * @throws IllegalArgumentException Si la escala no es positiva o el margen es negativo.
+     */
+    public static BufferedImage render(BitMatrix modules, int scale, int quietZone) {
+        if (scale <= 0 || quietZone < 0) {
+            throw new IllegalArgumentException("Scale must be positive and quiet zone non-negative");
+        }
+        int width = (modules.getWidth() + 2 * quietZone) * scale;
+        int height = (modules.getHeight() + 2 * quietZone) * scale;
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        byte[] pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        Arrays.fill(pixels, (byte) 0xFF);
+        for (int y = 0; y < height; y++) {
+            int moduleY = y / scale - quietZone;
+            if (moduleY < 0 || moduleY >= modules.getHeight()) {
+                continue;
+            }
+            for (int x = 0; x < width; x++) {
+                int moduleX = x / scale - quietZone;
+                if (moduleX >= 0 && moduleX < modules.getWidth() && modules.get(moduleX, moduleY)) {
+                    pixels[y * width + x] = 0;
+                }
+            }
+        }
+        return image;
+    }
+
+    private static int[] dataCodewords(byte[] payload, int capacity) {
+        int[] codewords = new int[capacity];
+        BitWriter writer = new BitWriter(codewords);
+        writer.write(4, 4);
+        writer.write(payload.length, 8);
+        for (byte value : payload) {
+            writer.write(value & 0xFF, 8);
+        }
+        writer.write(0, Math.min(4, capacity * 8 - writer.position));
+        writer.write(0, (8 - writer.position % 8) % 8);
+        for (int i = writer.position / 8, pad = 0xEC; i < capacity; i++, pad ^= 0xEC ^ 0x11) {
+            codewords[i] = pad;
+        }
+        return codewords;
+    }
+
+    private static int[] interleave(int[] data, int version, int ecLevel) {
+        int numBlocks = QRSpec.numBlocks(version, ecLevel);
+        int ecLength = QRSpec.ecCodewordsPerBlock(version, ecLevel);
+        int raw = QRSpec.rawCodewords(version);
+        int numShort = numBlocks - raw % numBlocks;
+        int shortLength = raw / numBlocks;
+        int shortData = shortLength - ecLength;
+
+        int[][] blocks = new int[numBlocks][];
+        for (int b = 0, offset = 0; b < numBlocks; b++) {
+            int dataLength = b < numShort ? shortData : shortData + 1;
+            int[] blockData = Arrays.copyOfRange(data, offset, offset + dataLength);
+            offset += dataLength;
+            int[] ec = ReedSolomon.encode(blockData, ecLength);
+            blocks[b] = Arrays.copyOf(blockData, dataLength + ecLength);
+            System.arraycopy(ec, 0, blocks[b], dataLength, ecLength);
+        }
+        int[] result = new int[raw];
+        int index = 0;
+        for (int i = 0; i <= shortLength; i++) {
+            for (int b = 0; b < numBlocks; b++) {
+                if (i == shortData && b < numShort) {
+                    continue;
+                }
+                int position = b < numShort && i > shortData ? i - 1 : i;
+                result[index++] = blocks[b][position];
+            }
+        }
+        return result;
+    }
+
+    private static void drawFunctionPatterns(BitMatrix modules, int version, int ecLevel, int mask) {
+        int size = modules.getWidth();
+        for (int i = 0; i < size; i++) {
+            modules.set(6, i, i % 2 == 0);
+            modules.set(i, 6, i % 2 == 0);
+        }
+        drawFinder(modules, 3, 3);
+        drawFinder(modules, size - 4, 3);
+        drawFinder(modules, 3, size - 4);
+        int alignment = QRSpec.alignmentCenter(version);
+        if (alignment >= 0) {
+            for (int dy = -2; dy <= 2; dy++) {
+                for (int dx = -2; dx <= 2; dx++) {
+                    modules.set(alignment + dx, alignment + dy, Math.max(Math.abs(dx), Math.abs(dy)) != 1);
+                }
+            }
+        }
+        int format = QRSpec.formatBits(ecLevel, mask);
+        for (int i = 0; i < 15; i++) {
+            boolean bit = (format >>> i & 1) != 0;
+            int[] first = QRSpec.formatPositionCopy1(i);
+            int[] second = QRSpec.formatPositionCopy2(i, size);
+            modules.set(first[0], first[1], bit);
+            modules.set(second[0], second[1], bit);
+        }
+        modules.set(8, size - 8);
+    }
+
+    private static void drawFinder(BitMatrix modules, int centerX, int centerY) {
+        int size = modules.getWidth();
+        for (int dy = -4; dy <= 4; dy++) {
+            for (int dx = -4; dx <= 4; dx++) {
+                int x = centerX + dx;
+                int y = centerY + dy;
+                if (x >= 0 && x < size && y >= 0 && y < size) {
+                    int distance = Math.max(Math.abs(dx), Math.abs(dy));
+                    modules.set(x, y, distance != 2 && distance != 4);
+                }
+            }
+        }
+    }
+
+    private static void drawCodewords(BitMatrix modules, int[] codewords, int version, int mask) {
+        int size = modules.getWidth();
+        BitMatrix function = QRSpec.functionModules(version);
+        int bits = codewords.length * 8;
+        int index = 0;
+        for (int right = size - 1; right >= 1; right -= 2) {
+            if (right == 6) {
+                right = 5;
+            }
+            boolean upward = ((right + 1) & 2) == 0;
+            for (int vertical = 0; vertical < size; vertical++) {
+                int y = upward ? size - 1 - vertical : vertical;
+                for (int j = 0; j < 2; j++) {
+                    int x = right - j;
+                    if (function.get(x, y)) {
+                        continue;
+                    }
+                    // Los bits sobrantes tras el último codeword quedan a 0 antes de aplicar la máscara
+                    boolean bit = index < bits && (codewords[index >>> 3] & 0x80 >>> (index & 7)) != 0;
+                    modules.set(x, y, bit != QRSpec.mask(mask, x, y));
+                    index++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Escritura secuencial de bits en codewords de 8 bits.
+     */
+    private static final class BitWriter {
+        private final int[] codewords;
+        private int position;
+
+        BitWriter(int[] codewords) {
+            this.codewords = codewords;
+        }
+
+        void write(int value, int bits) {
+            for (int i = bits - 1; i >= 0; i--, position++) {
+                if ((value >>> i & 1) != 0) {
+                    codewords[position >>> 3] |= 0x80 >>> (position & 7);
+                }
+            }
+        }
+    }
+}
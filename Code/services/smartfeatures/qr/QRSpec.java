@@ -0,0 +1,150 @@
+package services.smartfeatures.qr;
+
+/**
+ * Tablas y reglas de la norma ISO/IEC 18004 necesarias para leer símbolos QR de las versiones 1 a 6:
+ * estructura de bloques de corrección de errores, módulos de función, información de formato y máscaras.
+ *
+ * Las versiones 7 y superiores añaden información de versión y varios patrones de alineación; no se usan
+ * para las etiquetas de los vehículos, cuyo contenido cabe con holgura en una versión 2.
+ */
+final class QRSpec {
+    static final int MIN_VERSION = 1;
+    static final int MAX_VERSION = 6;
+
+    /** Niveles de corrección en el orden de las tablas: L, M, Q, H. */
+    static final int EC_L = 0;
+    static final int EC_M = 1;
+    static final int EC_Q = 2;
+    static final int EC_H = 3;
+
+    // Valor de dos bits con el que cada nivel aparece en la información de formato
+    private static final int[] FORMAT_EC_BITS = {1, 0, 3, 2};
+
+    private static final int[] RAW_CODEWORDS = {0, 26, 44, 70, 100, 134, 172};
+
+    private static final int[][] EC_CODEWORDS_PER_BLOCK = {
+            {0, 7, 10, 15, 20, 26, 18},
+            {0, 10, 16, 26, 18, 24, 16},
+            {0, 13, 22, 18, 26, 18, 24},
+            {0, 17, 28, 22, 16, 22, 28},
+    };
+
+    private static final int[][] NUM_BLOCKS = {
+            {0, 1, 1, 1, 1, 1, 2},
+            {0, 1, 1, 1, 2, 2, 4},
+            {0, 1, 1, 2, 2, 4, 4},
+            {0, 1, 1, 2, 4, 4, 4},
+    };
+
+    private QRSpec() {
+    }
+
+    static int dimension(int version) {
+        return 17 + 4 * version;
+    }
+
+    static int rawCodewords(int version) {
+        return RAW_CODEWORDS[version];
+    }
+
+    static int ecCodewordsPerBlock(int version, int ecLevel) {
+        return EC_CODEWORDS_PER_BLOCK[ecLevel][version];
+    }
+
+    static int numBlocks(int version, int ecLevel) {
+        return NUM_BLOCKS[ecLevel][version];
+    }
+
+    static int dataCodewords(int version, int ecLevel) {
+        return RAW_CODEWORDS[version] - NUM_BLOCKS[ecLevel][version] * EC_CODEWORDS_PER_BLOCK[ecLevel][version];
+    }
+
+    /**
+     * Marca los módulos de función (patrones de posición y sus separadores, sincronismo, alineación,
+     * información de formato y módulo oscuro), que no contienen datos.
+     */
+    static BitMatrix functionModules(int version) {
+        int size = dimension(version);
+        BitMatrix function = new BitMatrix(size, size);
+        markRegion(function, 0, 0, 9, 9);
+        markRegion(function, size - 8, 0, 8, 9);
+        markRegion(function, 0, size - 8, 9, 8);
+        markRegion(function, 6, 0, 1, size);
+        markRegion(function, 0, 6, size, 1);
+        if (version >= 2) {
+            int position = size - 7;
+            markRegion(function, position - 2, position - 2, 5, 5);
+        }
+        return function;
+    }
+
+    /**
+     * @return Centro del único patrón de alineación de la versión, o -1 si no tiene.
+     */
+    static int alignmentCenter(int version) {
+        return version >= 2 ? dimension(version) - 7 : -1;
+    }
+
+    /**
+     * Calcula los 15 bits de información de formato (con su código BCH y la máscara de la norma).
+     */
+    static int formatBits(int ecLevel, int mask) {
+        int data = FORMAT_EC_BITS[ecLevel] << 3 | mask;
+        int remainder = data;
+        for (int i = 0; i < 10; i++) {
+            remainder = (remainder << 1) ^ ((remainder >>> 9) * 0x537);
+        }
+        return (data << 10 | remainder) ^ 0x5412;
+    }
+
+    /**
+     * Indica si la máscara invierte el módulo de la columna {@code x} y la fila {@code y}.
+     */
+    static boolean mask(int mask, int x, int y) {
+        switch (mask) {
+            case 0: return (x + y) % 2 == 0;
+            case 1: return y % 2 == 0;
+            case 2: return x % 3 == 0;
+            case 3: return (x + y) % 3 == 0;
+            case 4: return (x / 3 + y / 2) % 2 == 0;
+            case 5: return x * y % 2 + x * y % 3 == 0;
+            case 6: return (x * y % 2 + x * y % 3) % 2 == 0;
+            case 7: return ((x + y) % 2 + x * y % 3) % 2 == 0;
+            default: throw new IllegalArgumentException("Invalid mask " + mask);
+        }
+    }
+
+    /**
+     * Posición (columna, fila) del bit {@code i} de la primera copia de la información de formato.
+     */
+    static int[] formatPositionCopy1(int i) {
+        if (i <= 5) {
+            return new int[]{8, i};
+        }
+        if (i == 6) {
+            return new int[]{8, 7};
+        }
+        if (i == 7) {
+            return new int[]{8, 8};
+        }
+        if (i == 8) {
+            return new int[]{7, 8};
+        }
+        return new int[]{14 - i, 8};
+    }
+
+    /**
+     * Posición (columna, fila) del bit {@code i} de la segunda copia de la información de formato.
+     */
+    static int[] formatPositionCopy2(int i, int size) {
+        return i < 8 ? new int[]{size - 1 - i, 8} : new int[]{8, size - 15 + i};
+    }
+
+    private static void markRegion(BitMatrix matrix, int left, int top, int width, int height) {
+        for (int y = top; y < top + height; y++) {
+            for (int x = left; x < left + width; x++) {
+                matrix.set(x, y);
+            }
+        }
+    }
+}
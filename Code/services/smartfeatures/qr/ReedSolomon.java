@@ -0,0 +1,170 @@
+package services.smartfeatures.qr;
+
+/**
+ * Codificación y corrección de errores Reed–Solomon sobre GF(256) tal como la usan los códigos QR: el
+ * polinomio generador tiene por raíces α^0 ... α^(n-1), siendo n el número de símbolos de corrección.
+ *
+ * Los bloques se representan como arrays de bytes sin signo (0..255), con el coeficiente de mayor grado
+ * en la primera posición.
+ */
+final class ReedSolomon {
+
+    private ReedSolomon() {
+    }
+
+    /**
+     * Calcula los símbolos de corrección de un bloque de datos.
+     *
+     * @param data     Símbolos de datos.
+     * @param ecLength Número de símbolos de corrección.
+     * @return Símbolos de corrección.
+     */
+    static int[] encode(int[] data, int ecLength) {
+        int[] generator = generator(ecLength);
+        int[] remainder = new int[ecLength];
+        for (int value : data) {
+            int factor = value ^ remainder[0];
+            System.arraycopy(remainder, 1, remainder, 0, ecLength - 1);
+            remainder[ecLength - 1] = 0;
+            for (int i = 0; i < ecLength; i++) {
+                remainder[i] ^= GF256.multiply(generator[i + 1], factor);
+            }
+        }
+        return remainder;
+    }
+
+    /**
+     * Corrige en el sitio los errores de un bloque (datos seguidos de corrección).
+     *
+     * @param block    Bloque recibido; se corrige sobre el mismo array.
+     * @param ecLength Número de símbolos de corrección del bloque.
+     * @return Número de símbolos corregidos.
+     * @throws IllegalStateException Si el bloque tiene más errores de los que se pueden corregir.
+     */
+    static int decode(int[] block, int ecLength) {
+        int n = block.length;
+        int[] syndromes = new int[ecLength];
+        boolean clean = true;
+        for (int j = 0; j < ecLength; j++) {
+            int x = GF256.exp(j);
+            int value = 0;
+            for (int symbol : block) {
+                value = GF256.multiply(value, x) ^ symbol;
+            }
+            syndromes[j] = value;
+            clean &= value == 0;
+        }
+        if (clean) {
+            return 0;
+        }
+
+        int[] locator = berlekampMassey(syndromes);
+        int errors = degree(locator);
+        if (errors == 0 || 2 * errors > ecLength) {
+            throw new IllegalStateException("Too many errors");
+        }
+
+        // Ω(x) = S(x)·Λ(x) mod x^ecLength
+        int[] omega = new int[ecLength];
+        for (int i = 0; i < ecLength; i++) {
+            int sum = 0;
+            for (int k = 0; k <= Math.min(i, errors); k++) {
+                sum ^= GF256.multiply(locator[k], syndromes[i - k]);
+            }
+            omega[i] = sum;
+        }
+
+        int found = 0;
+        for (int position = 0; position < n; position++) {
+            // El símbolo en 'position' corresponde al localizador X = α^(n-1-position)
+            int power = n - 1 - position;
+            int xInverse = GF256.exp((255 - power) % 255);
+            if (GF256.evaluateLowFirst(locator, errors + 1, xInverse) != 0) {
+                continue;
+            }
+            int derivative = 0;
+            for (int i = 1; i <= errors; i += 2) {
+                derivative ^= GF256.multiply(locator[i], power(xInverse, i - 1));
+            }
+            if (derivative == 0) {
+                throw new IllegalStateException("Invalid error locator");
+            }
+            int magnitude = GF256.multiply(GF256.exp(power),
+                    GF256.divide(GF256.evaluateLowFirst(omega, ecLength, xInverse), derivative));
+            block[position] ^= magnitude;
+            found++;
+        }
+        if (found != errors) {
+            throw new IllegalStateException("Too many errors");
+        }
+        return found;
+    }
+
+    private static int[] berlekampMassey(int[] syndromes) {
+        int length = syndromes.length;
+        int[] current = new int[length + 1];
+        int[] previous = new int[length + 1];
+        current[0] = 1;
+        previous[0] = 1;
+        int errors = 0;
+        int shift = 1;
+        int lastDiscrepancy = 1;
+        for (int n = 0; n < length; n++) {
+            int discrepancy = syndromes[n];
+            for (int i = 1; i <= errors; i++) {
+                discrepancy ^= GF256.multiply(current[i], syndromes[n - i]);
+            }
+            if (discrepancy == 0) {
+                shift++;
+                continue;
+            }
+            int coefficient = GF256.divide(discrepancy, lastDiscrepancy);
+            if (2 * errors <= n) {
+                int[] copy = current.clone();
+                for (int i = 0; i + shift <= length; i++) {
+                    current[i + shift] ^= GF256.multiply(coefficient, previous[i]);
+                }
+                errors = n + 1 - errors;
+                previous = copy;
+                lastDiscrepancy = discrepancy;
+                shift = 1;
+            } else {
+                for (int i = 0; i + shift <= length; i++) {
+                    current[i + shift] ^= GF256.multiply(coefficient, previous[i]);
+                }
+                shift++;
+            }
+        }
+        return current;
+    }
+
+    private static int[] generator(int degree) {
+        // Coeficientes de mayor a menor grado, empezando por el coeficiente principal 1
+        int[] result = new int[degree + 1];
+        result[0] = 1;
+        for (int i = 0; i < degree; i++) {
+            int root = GF256.exp(i);
+            for (int j = i + 1; j >= 1; j--) {
+                result[j] ^= GF256.multiply(result[j - 1], root);
+            }
+        }
+        return result;
+    }
+
+    private static int degree(int[] poly) {
+        for (int i = poly.length - 1; i > 0; i--) {
+            if (poly[i] != 0) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    private static int power(int x, int exponent) {
+        int result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result = GF256.multiply(result, x);
+        }
+        return result;
+    }
+}
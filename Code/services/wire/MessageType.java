@@ -0,0 +1,62 @@
+package services.wire;
+
+/**
+ * Tipos de mensaje del protocolo binario. El código de cada tipo es el byte que lo identifica en la
+ * cabecera y no debe cambiar entre versiones.
+ */
+public enum MessageType {
+    PAIRING(1),
+    STOP_PAIRING(2),
+    LOCATION(3),
+    CHECK_AVAILABILITY(4),
+    RESERVE(5),
+    SET_PAIRING(6),
+    UNPAIR(7),
+    LOCATION_BATCH(8),
+    NEAREST_VEHICLES(9),
+    VEHICLES_WITHIN(10),
+    NEAREST_STATIONS(11),
+    STATIONS_WITHIN(12);
+
+    private static final MessageType[] BY_CODE = new MessageType[13];
+
+    static {
+        for (MessageType type : values()) {
+            BY_CODE[type.code] = type;
+        }
+    }
+
+    private final int code;
+
+    MessageType(int code) {
+        this.code = code;
+    }
+
+    /**
+     * @return {@code true} si el mensaje identifica a un usuario.
+     */
+    public boolean carriesUser() {
+        return this == PAIRING || this == STOP_PAIRING || this == RESERVE || this == SET_PAIRING;
+    }
+
+    /**
+     * @return {@code true} si el mensaje identifica a un vehículo.
+     */
+    public boolean carriesVehicle() {
+        return carriesUser() || this == LOCATION || this == CHECK_AVAILABILITY;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * Obtiene el tipo con el código indicado.
+     *
+     * @param code Código del tipo.
+     * @return Tipo de mensaje, o null si el código no corresponde a ninguno.
+     */
+    public static MessageType fromCode(int code) {
+        return code >= 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+    }
+}
@@ -0,0 +1,435 @@
+package services.wire;
+
+import data.interfaces.GeographicPointInterface;
+import data.interfaces.StationIDInterface;
+import data.interfaces.UserAccountInterface;
+import data.interfaces.VehicleIDInterface;
+import services.Exceptions.WireFormatException;
+import services.LocationBatch;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+
+/**
+ * Codificación binaria versionada de las llamadas {@code registerPairing}, {@code stopPairing} y
+ * {@code registerLocation} del {@code ServerInterface}, y del resto de operaciones que necesita un servidor
+ * remoto (reservas, desemparejamientos, lotes de ubicaciones y consultas espaciales).
+ *
+ * Cada mensaje empieza por una cabecera de tres bytes (versión, tipo y campos opcionales presentes) seguida
+ * del cuerpo. Del usuario se envían solo los datos que lo identifican y el saldo, nunca la contraseña; del
+ * trayecto, los totales en coma fija. Un emparejamiento típico ocupa unos 50 bytes.
+ *
+ * La codificación escribe directamente en el {@link ByteBuffer} indicado sin reservar memoria;
+ * {@link #localBuffer()} proporciona un buffer por hilo que se reutiliza en cada mensaje.
+ */
+public final class WireCodec {
+    /** Versión del protocolo que escribe este codificador. */
+    public static final int VERSION = 2;
+    /** Tamaño máximo de un mensaje codificado. */
+    public static final int MAX_MESSAGE_BYTES = 2048;
+
+    private static final int FLAG_STATION = 1;
+    private static final int FLAG_LOCATION = 1 << 1;
+    private static final int FLAG_DATE = 1 << 2;
+    private static final int FLAG_SERVICE = 1 << 3;
+    private static final int FLAG_KEY = 1 << 4;
+
+    // Tamaño máximo de un registro de un lote: dos enteros de hasta 5 bytes, dos coordenadas de 4 y una marca
+    // de tiempo de hasta 10
+    private static final int MAX_BATCH_RECORD_BYTES = 28;
+    // Tamaño mínimo de un registro de un lote: las dos coordenadas y un byte por cada uno de los demás campos
+    private static final int MIN_BATCH_RECORD_BYTES = 11;
+
+    private static final ThreadLocal<ByteBuffer> BUFFERS =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocate(MAX_MESSAGE_BYTES));
+
+    private WireCodec() {
+    }
+
+    /**
+     * Obtiene el buffer de codificación del hilo actual, vacío. El buffer es el mismo en cada llamada
+     * desde un mismo hilo, por lo que su contenido debe enviarse antes de codificar el siguiente mensaje.
+     *
+     * @return Buffer de {@link #MAX_MESSAGE_BYTES} bytes listo para escribir.
+     */
+    public static ByteBuffer localBuffer() {
+        ByteBuffer buffer = BUFFERS.get();
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Codifica una llamada a {@code registerPairing}.
+     *
+     * @throws IllegalArgumentException Si el usuario o el vehículo son nulos, o algún texto es demasiado largo.
+     */
+    public static void encodePairing(ByteBuffer out, UserAccountInterface user, VehicleIDInterface veh,
+                                     StationIDInterface st, GeographicPointInterface loc, LocalDateTime date) {
+        encodePairing(out, user, veh, st, loc, date, null);
+    }
+
+    /**
+     * Codifica una llamada a {@code registerPairing} de un viaje que ya tiene identificador de servicio.
+     *
+     * @param serviceId Identificador del servicio de viaje. Puede ser null.
+     * @throws IllegalArgumentException Si el usuario o el vehículo son nulos, o algún texto es demasiado largo.
+     */
+    public static void encodePairing(ByteBuffer out, UserAccountInterface user, VehicleIDInterface veh,
+                                     StationIDInterface st, GeographicPointInterface loc, LocalDateTime date,
+                                     String serviceId) {
+        encodePairing(out, user, veh, st, loc, date, serviceId, null);
+    }
+
+    /**
+     * Codifica una llamada a {@code registerPairing} con clave de idempotencia.
+     *
+     * @param serviceId  Identificador del servicio de viaje. Puede ser null.
+     * @param requestKey Clave de idempotencia. Puede ser null.
+     * @throws IllegalArgumentException Si el usuario o el vehículo son nulos, o algún texto es demasiado largo.
+     */
+    public static void encodePairing(ByteBuffer out, UserAccountInterface user, VehicleIDInterface veh,
+                                     StationIDInterface st, GeographicPointInterface loc, LocalDateTime date,
+                                     String serviceId, String requestKey) {
+        encodeUserRequest(out, MessageType.PAIRING, user, veh, st, loc, date, serviceId, requestKey);
+    }
+
+    /**
+     * Codifica una llamada a {@code reserveVehicle}.
+     *
+     * @throws IllegalArgumentException Si el usuario o el vehículo son nulos, o algún texto es demasiado largo.
+     */
+    public static void encodeReserve(ByteBuffer out, UserAccountInterface user, VehicleIDInterface veh,
+                                     StationIDInterface st, GeographicPointInterface loc, LocalDateTime date) {
+        encodeReserve(out, user, veh, st, loc, date, null);
+    }
+
+    /**
+     * Codifica una llamada a {@code reserveVehicle} con clave de idempotencia.
+     *
+     * @param requestKey Clave de idempotencia. Puede ser null.
+     * @throws IllegalArgumentException Si el usuario o el vehículo son nulos, o algún texto es demasiado largo.
+     */
+    public static void encodeReserve(ByteBuffer out, UserAccountInterface user, VehicleIDInterface veh,
+                                     StationIDInterface st, GeographicPointInterface loc, LocalDateTime date,
+                                     String requestKey) {
+        encodeUserRequest(out, MessageType.RESERVE, user, veh, st, loc, date, null, requestKey);
+    }
+
+    /**
+     * Codifica una llamada a {@code setPairing}.
+     *
+     * @param serviceId Identificador del servicio de viaje. Puede ser null.
+     * @throws IllegalArgumentException Si el usuario o el vehículo son nulos, o algún texto es demasiado largo.
+     */
+    public static void encodeSetPairing(ByteBuffer out, UserAccountInterface user, VehicleIDInterface veh,
+                                        StationIDInterface st, GeographicPointInterface loc, LocalDateTime date,
+                                        String serviceId) {
+        encodeUserRequest(out, MessageType.SET_PAIRING, user, veh, st, loc, date, serviceId, null);
+    }
+
+    /**
+     * Codifica una llamada a {@code stopPairing} con los totales en coma fija.
+     *
+     * @throws IllegalArgumentException Si el usuario o el vehículo son nulos, o algún texto es demasiado largo.
+     */
+    public static void encodeStopPairing(ByteBuffer out, UserAccountInterface user, VehicleIDInterface veh,
+                                         StationIDInterface st, GeographicPointInterface loc, LocalDateTime date,
+                                         long avSp, long dist, int dur, long imp) {
+        encodeStopPairing(out, user, veh, st, loc, date, avSp, dist, dur, imp, null);
+    }
+
+    /**
+     * Codifica una llamada a {@code stopPairing} con los totales en coma fija y clave de idempotencia.
+     *
+     * @param requestKey Clave de idempotencia. Puede ser null.
+     * @throws IllegalArgumentException Si el usuario o el vehículo son nulos, o algún texto es demasiado largo.
+     */
+    public static void encodeStopPairing(ByteBuffer out, UserAccountInterface user, VehicleIDInterface veh,
+                                         StationIDInterface st, GeographicPointInterface loc, LocalDateTime date,
+                                         long avSp, long dist, int dur, long imp, String requestKey) {
+        encodeUserRequest(out, MessageType.STOP_PAIRING, user, veh, st, loc, date, null, requestKey);
+        WireFormat.putSignedLong(out, avSp);
+        WireFormat.putSignedLong(out, dist);
+        WireFormat.putSignedInt(out, dur);
+        WireFormat.putSignedLong(out, imp);
+    }
+
+    /**
+     * Codifica una llamada a {@code registerLocation}.
+     *
+     * @throws IllegalArgumentException Si el vehículo es nulo.
+     */
+    public static void encodeLocation(ByteBuffer out, VehicleIDInterface veh, StationIDInterface st) {
+        if (veh == null) {
+            throw new IllegalArgumentException("Vehicle cannot be null");
+        }
+        putHeader(out, MessageType.LOCATION, st, null, null, null, null);
+        putVehicle(out, veh);
+        putOptional(out, st, null, null, null, null);
+    }
+
+    /**
+     * Codifica una llamada a {@code checkPMVAvail}.
+     *
+     * @throws IllegalArgumentException Si el vehículo es nulo.
+     */
+    public static void encodeCheckAvailability(ByteBuffer out, VehicleIDInterface veh) {
+        if (veh == null) {
+            throw new IllegalArgumentException("Vehicle cannot be null");
+        }
+        putHeader(out, MessageType.CHECK_AVAILABILITY, null, null, null, null, null);
+        putVehicle(out, veh);
+    }
+
+    /**
+     * Codifica una llamada a {@code unPairRegisterService}, que identifica el viaje por su servicio.
+     *
+     * @throws IllegalArgumentException Si el identificador es nulo o demasiado largo.
+     */
+    public static void encodeUnpair(ByteBuffer out, String serviceId) {
+        encodeUnpair(out, serviceId, null);
+    }
+
+    /**
+     * Codifica una llamada a {@code unPairRegisterService} con clave de idempotencia.
+     *
+     * @param requestKey Clave de idempotencia. Puede ser null.
+     * @throws IllegalArgumentException Si el identificador es nulo, o algún texto es demasiado largo.
+     */
+    public static void encodeUnpair(ByteBuffer out, String serviceId, String requestKey) {
+        if (serviceId == null || WireFormat.utf8Length(serviceId) > WireFormat.MAX_STRING_BYTES) {
+            throw new IllegalArgumentException("Invalid service id");
+        }
+        requireRequestKey(requestKey);
+        putHeader(out, MessageType.UNPAIR, null, null, null, serviceId, requestKey);
+        putOptional(out, null, null, null, serviceId, requestKey);
+    }
+
+    /**
+     * Codifica una llamada a {@code registerLocations}. Las marcas de tiempo se escriben como diferencia
+     * con la del registro anterior, que en un lote suele ser pequeña.
+     *
+     * @param out   Buffer de salida; debe tener al menos {@link #maxLocationBatchBytes(int)} bytes libres.
+     * @param batch Lote de lecturas.
+     */
+    public static void encodeLocationBatch(ByteBuffer out, LocationBatch batch) {
+        putHeader(out, MessageType.LOCATION_BATCH, null, null, null, null, null);
+        WireFormat.putVarInt(out, batch.size());
+        long previous = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            WireFormat.putSignedInt(out, batch.getVehicleId(i));
+            WireFormat.putCoordinate(out, batch.getLatitude(i));
+            WireFormat.putCoordinate(out, batch.getLongitude(i));
+            WireFormat.putSignedInt(out, batch.getStationId(i));
+            WireFormat.putSignedLong(out, batch.getTimestamp(i) - previous);
+            previous = batch.getTimestamp(i);
+        }
+    }
+
+    /**
+     * @return Tamaño máximo que puede ocupar un lote de {@code size} lecturas codificado.
+     */
+    public static int maxLocationBatchBytes(int size) {
+        return 8 + size * MAX_BATCH_RECORD_BYTES;
+    }
+
+    /**
+     * Codifica una consulta de los {@code k} vehículos disponibles o estaciones más cercanos.
+     *
+     * @param type {@link MessageType#NEAREST_VEHICLES} o {@link MessageType#NEAREST_STATIONS}.
+     * @throws IllegalArgumentException Si el tipo no es una consulta de los más cercanos o la ubicación es nula.
+     */
+    public static void encodeNearestQuery(ByteBuffer out, MessageType type, GeographicPointInterface loc, int k) {
+        if (type != MessageType.NEAREST_VEHICLES && type != MessageType.NEAREST_STATIONS) {
+            throw new IllegalArgumentException("Not a nearest query: " + type);
+        }
+        requireLocation(loc);
+        putHeader(out, type, null, loc, null, null, null);
+        putOptional(out, null, loc, null, null, null);
+        WireFormat.putSignedInt(out, k);
+    }
+
+    /**
+     * Codifica una consulta de los vehículos disponibles o estaciones a menos de cierta distancia.
+     *
+     * @param type {@link MessageType#VEHICLES_WITHIN} o {@link MessageType#STATIONS_WITHIN}.
+     * @throws IllegalArgumentException Si el tipo no es una consulta por distancia o la ubicación es nula.
+     */
+    public static void encodeRadiusQuery(ByteBuffer out, MessageType type, GeographicPointInterface loc,
+                                         double radiusMeters) {
+        if (type != MessageType.VEHICLES_WITHIN && type != MessageType.STATIONS_WITHIN) {
+            throw new IllegalArgumentException("Not a radius query: " + type);
+        }
+        requireLocation(loc);
+        putHeader(out, type, null, loc, null, null, null);
+        putOptional(out, null, loc, null, null, null);
+        out.putDouble(radiusMeters);
+    }
+
+    /**
+     * Decodifica un mensaje completo.
+     *
+     * @param in   Buffer posicionado al inicio del mensaje; al terminar queda tras su último byte.
+     * @param into Mensaje en el que se escribe el resultado.
+     * @return Tipo del mensaje leído.
+     * @throws WireFormatException Si el mensaje está truncado, tiene una versión o un tipo desconocidos, o
+     *                             algún campo es inválido.
+     */
+    public static MessageType decode(ByteBuffer in, WireMessage into) throws WireFormatException {
+        try {
+            int version = in.get() & 0xFF;
+            if (version != VERSION) {
+                throw new WireFormatException("Unsupported wire version " + version);
+            }
+            int code = in.get() & 0xFF;
+            MessageType type = MessageType.fromCode(code);
+            if (type == null) {
+                throw new WireFormatException("Unknown message type " + code);
+            }
+            int flags = in.get() & 0xFF;
+            into.reset(type);
+            if (type.carriesUser()) {
+                into.setUser(WireFormat.getString(in), WireFormat.getString(in), WireFormat.getString(in),
+                        WireFormat.getSignedInt(in));
+            }
+            if (type.carriesVehicle()) {
+                into.setVehicle(WireFormat.getSignedInt(in), WireFormat.getSignedInt(in));
+            }
+            if ((flags & FLAG_STATION) != 0) {
+                into.setStation(WireFormat.getSignedInt(in));
+            }
+            if ((flags & FLAG_LOCATION) != 0) {
+                into.setLocation(WireFormat.getCoordinate(in), WireFormat.getCoordinate(in));
+            }
+            if ((flags & FLAG_DATE) != 0) {
+                into.setDate(WireFormat.getSignedLong(in));
+            }
+            if ((flags & FLAG_SERVICE) != 0) {
+                into.setServiceId(WireFormat.getString(in));
+            }
+            if ((flags & FLAG_KEY) != 0) {
+                into.setRequestKey(WireFormat.getString(in));
+            }
+            switch (type) {
+                case STOP_PAIRING:
+                    into.setJourneyTotals(WireFormat.getSignedLong(in), WireFormat.getSignedLong(in),
+                            WireFormat.getSignedInt(in), WireFormat.getSignedLong(in));
+                    break;
+                case LOCATION_BATCH:
+                    decodeBatch(in, into.batch());
+                    break;
+                case NEAREST_VEHICLES:
+                case NEAREST_STATIONS:
+                    into.setLimit(WireFormat.getSignedInt(in));
+                    break;
+                case VEHICLES_WITHIN:
+                case STATIONS_WITHIN:
+                    into.setRadiusMeters(in.getDouble());
+                    break;
+                default:
+                    break;
+            }
+            return type;
+        } catch (BufferUnderflowException e) {
+            throw new WireFormatException("Truncated message");
+        }
+    }
+
+    private static void decodeBatch(ByteBuffer in, LocationBatch batch) throws WireFormatException {
+        int size = WireFormat.getVarInt(in);
+        // Un tamaño que no cabe en lo que queda del mensaje es un error, no una reserva enorme
+        if (size < 0 || size > in.remaining() / MIN_BATCH_RECORD_BYTES) {
+            throw new WireFormatException("Invalid batch size " + size);
+        }
+        long timestamp = 0;
+        for (int i = 0; i < size; i++) {
+            int vehicleId = WireFormat.getSignedInt(in);
+            float latitude = WireFormat.getCoordinate(in);
+            float longitude = WireFormat.getCoordinate(in);
+            int stationId = WireFormat.getSignedInt(in);
+            timestamp += WireFormat.getSignedLong(in);
+            batch.add(vehicleId, latitude, longitude, stationId, timestamp);
+        }
+    }
+
+    private static void encodeUserRequest(ByteBuffer out, MessageType type, UserAccountInterface user,
+                                          VehicleIDInterface veh, StationIDInterface st, GeographicPointInterface loc,
+                                          LocalDateTime date, String serviceId, String requestKey) {
+        requireUserAndVehicle(user, veh);
+        if (serviceId != null && WireFormat.utf8Length(serviceId) > WireFormat.MAX_STRING_BYTES) {
+            throw new IllegalArgumentException("Service id longer than " + WireFormat.MAX_STRING_BYTES + " bytes");
+        }
+        requireRequestKey(requestKey);
+        putHeader(out, type, st, loc, date, serviceId, requestKey);
+        putUser(out, user);
+        putVehicle(out, veh);
+        putOptional(out, st, loc, date, serviceId, requestKey);
+    }
+
+    private static void requireRequestKey(String requestKey) {
+        if (requestKey != null && WireFormat.utf8Length(requestKey) > WireFormat.MAX_STRING_BYTES) {
+            throw new IllegalArgumentException("Request key longer than " + WireFormat.MAX_STRING_BYTES + " bytes");
+        }
+    }
+
+    private static void requireLocation(GeographicPointInterface loc) {
+        if (loc == null) {
+            throw new IllegalArgumentException("Location cannot be null");
+        }
+    }
+
+    private static void requireUserAndVehicle(UserAccountInterface user, VehicleIDInterface veh) {
+        if (user == null || veh == null) {
+            throw new IllegalArgumentException("User and vehicle cannot be null");
+        }
+        // Se comprueba antes de escribir nada para no dejar un mensaje a medias en el buffer
+        if (WireFormat.utf8Length(user.getUserId()) > WireFormat.MAX_STRING_BYTES
+                || WireFormat.utf8Length(user.getUsername()) > WireFormat.MAX_STRING_BYTES
+                || WireFormat.utf8Length(user.getEmail()) > WireFormat.MAX_STRING_BYTES) {
+            throw new IllegalArgumentException("User fields longer than " + WireFormat.MAX_STRING_BYTES + " bytes");
+        }
+    }
+
+    private static void putHeader(ByteBuffer out, MessageType type, StationIDInterface st,
+                                  GeographicPointInterface loc, LocalDateTime date, String serviceId,
+                                  String requestKey) {
+        int flags = (st != null ? FLAG_STATION : 0) | (loc != null ? FLAG_LOCATION : 0) | (date != null ? FLAG_DATE : 0)
+                | (serviceId != null ? FLAG_SERVICE : 0) | (requestKey != null ? FLAG_KEY : 0);
+        out.put((byte) VERSION);
+        out.put((byte) type.getCode());
+        out.put((byte) flags);
+    }
+
+    private static void putUser(ByteBuffer out, UserAccountInterface user) {
+        WireFormat.putString(out, user.getUserId());
+        WireFormat.putString(out, user.getUsername());
+        WireFormat.putString(out, user.getEmail());
+        WireFormat.putSignedInt(out, user.getMonedero());
+    }
+
+    private static void putVehicle(ByteBuffer out, VehicleIDInterface veh) {
+        WireFormat.putSignedInt(out, veh.getId());
+        WireFormat.putSignedInt(out, veh.getStation() != null ? veh.getStation().getID() : 0);
+    }
+
+    private static void putOptional(ByteBuffer out, StationIDInterface st, GeographicPointInterface loc,
+                                    LocalDateTime date, String serviceId, String requestKey) {
+        if (st != null) {
+            WireFormat.putSignedInt(out, st.getID());
+        }
+        if (loc != null) {
+            WireFormat.putCoordinate(out, loc.getLatitude());
+            WireFormat.putCoordinate(out, loc.getLongitude());
+        }
+        if (date != null) {
+            WireFormat.putSignedLong(out, WireFormat.toEpochSecond(date));
+        }
+        if (serviceId != null) {
+            WireFormat.putString(out, serviceId);
+        }
+        if (requestKey != null) {
+            WireFormat.putString(out, requestKey);
+        }
+    }
+}
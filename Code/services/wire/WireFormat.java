@@ -0,0 +1,197 @@
+package services.wire;
+
+import services.Exceptions.WireFormatException;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Primitivas de la codificación binaria de los mensajes entre el móvil y el servidor.
+ *
+ * Los enteros se escriben como varints (7 bits por byte, el bit alto indica que sigue otro byte); los que
+ * pueden ser negativos pasan antes por la codificación zigzag, de modo que los valores pequeños de
+ * cualquier signo ocupan pocos bytes. Las coordenadas se envían como los cuatro bytes de su {@code float},
+ * de modo que llegan exactamente iguales, y las fechas como segundos desde la época en UTC.
+ *
+ * Ninguna operación de escritura reserva memoria: las cadenas se convierten a UTF-8 carácter a carácter
+ * directamente sobre el buffer.
+ */
+public final class WireFormat {
+    /** Longitud máxima en bytes de una cadena codificada. */
+    public static final int MAX_STRING_BYTES = 255;
+
+    private WireFormat() {
+    }
+
+    /** Escribe un entero sin signo como varint (de 1 a 10 bytes). */
+    public static void putVarLong(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    /** Lee un varint escrito con {@link #putVarLong(ByteBuffer, long)}. */
+    public static long getVarLong(ByteBuffer in) throws WireFormatException {
+        long value = 0;
+        try {
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = in.get();
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            throw new WireFormatException("Truncated varint");
+        }
+        throw new WireFormatException("Malformed varint");
+    }
+
+    /** Escribe un entero de 32 bits sin signo como varint (de 1 a 5 bytes). */
+    public static void putVarInt(ByteBuffer out, int value) {
+        putVarLong(out, value & 0xFFFFFFFFL);
+    }
+
+    /** Lee un varint escrito con {@link #putVarInt(ByteBuffer, int)}. */
+    public static int getVarInt(ByteBuffer in) throws WireFormatException {
+        long value = getVarLong(in);
+        if ((value & ~0xFFFFFFFFL) != 0) {
+            throw new WireFormatException("Varint out of int range");
+        }
+        return (int) value;
+    }
+
+    /** Escribe un entero con signo en zigzag: 0, -1, 1, -2... pasan a ser 0, 1, 2, 3... */
+    public static void putSignedLong(ByteBuffer out, long value) {
+        putVarLong(out, (value << 1) ^ (value >> 63));
+    }
+
+    /** Lee un entero escrito con {@link #putSignedLong(ByteBuffer, long)}. */
+    public static long getSignedLong(ByteBuffer in) throws WireFormatException {
+        long value = getVarLong(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /** Escribe un entero de 32 bits con signo en zigzag. */
+    public static void putSignedInt(ByteBuffer out, int value) {
+        putVarInt(out, (value << 1) ^ (value >> 31));
+    }
+
+    /** Lee un entero escrito con {@link #putSignedInt(ByteBuffer, int)}. */
+    public static int getSignedInt(ByteBuffer in) throws WireFormatException {
+        int value = getVarInt(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Escribe una coordenada con los bits de su {@code float}. Una coma fija con siete decimales no bastaría:
+     * cerca del ecuador o del meridiano cero el {@code float} tiene más precisión y la ida y vuelta lo cambiaría.
+     */
+    public static void putCoordinate(ByteBuffer out, float degrees) {
+        out.putFloat(degrees);
+    }
+
+    /** Lee una coordenada escrita con {@link #putCoordinate(ByteBuffer, float)}. */
+    public static float getCoordinate(ByteBuffer in) throws WireFormatException {
+        try {
+            return in.getFloat();
+        } catch (BufferUnderflowException e) {
+            throw new WireFormatException("Truncated coordinate");
+        }
+    }
+
+    /**
+     * Segundos desde la época (UTC) de una fecha. Las fracciones de segundo se descartan.
+     */
+    public static long toEpochSecond(LocalDateTime date) {
+        return date.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /** Fecha (UTC) correspondiente a unos segundos desde la época. */
+    public static LocalDateTime fromEpochSecond(long epochSecond) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * Escribe una cadena en UTF-8 precedida de su longitud en bytes.
+     *
+     * @throws IllegalArgumentException Si la cadena ocupa más de {@link #MAX_STRING_BYTES} bytes.
+     */
+    public static void putString(ByteBuffer out, CharSequence value) {
+        int length = utf8Length(value);
+        if (length > MAX_STRING_BYTES) {
+            throw new IllegalArgumentException("String longer than " + MAX_STRING_BYTES + " bytes");
+        }
+        putVarInt(out, length);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                out.put((byte) c);
+            } else if (c < 0x800) {
+                out.put((byte) (0xC0 | c >> 6));
+                out.put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                out.put((byte) (0xF0 | codePoint >> 18));
+                out.put((byte) (0x80 | codePoint >> 12 & 0x3F));
+                out.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+                out.put((byte) (0x80 | codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // Igual que String.getBytes: un sustituto sin pareja se reemplaza por '?'
+                out.put((byte) '?');
+            } else {
+                out.put((byte) (0xE0 | c >> 12));
+                out.put((byte) (0x80 | c >> 6 & 0x3F));
+                out.put((byte) (0x80 | c & 0x3F));
+            }
+        }
+    }
+
+    /** Lee una cadena escrita con {@link #putString(ByteBuffer, CharSequence)}. */
+    public static String getString(ByteBuffer in) throws WireFormatException {
+        int length = getVarInt(in);
+        if (length > MAX_STRING_BYTES || length > in.remaining()) {
+            throw new WireFormatException("Invalid string length " + length);
+        }
+        String value;
+        if (in.hasArray()) {
+            value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            in.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+
+    /**
+     * Calcula la longitud en UTF-8 de una cadena sin convertirla.
+     */
+    public static int utf8Length(CharSequence value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,257 @@
+package services.wire;
+
+import data.GeographicPoint;
+import data.interfaces.GeographicPointInterface;
+import services.LocationBatch;
+
+import java.time.LocalDateTime;
+
+/**
+ * Mensaje decodificado del protocolo binario.
+ *
+ * Es mutable para poder reutilizar la misma instancia en cada lectura: {@link WireCodec#decode} sobrescribe
+ * todos los campos. Los identificadores de vehículo y estación se guardan como enteros; es quien recibe el
+ * mensaje el que los resuelve en sus propios registros.
+ */
+public final class WireMessage {
+    private MessageType type;
+    private String userId;
+    private String username;
+    private String email;
+    private int monedero;
+    private int vehicleId;
+    private int vehicleStationId;
+    private boolean hasStation;
+    private int stationId;
+    private boolean hasLocation;
+    private float latitude;
+    private float longitude;
+    private boolean hasDate;
+    private long epochSecond;
+    private long avgSpeedMmPerMin;
+    private long distanceMm;
+    private int duration;
+    private long importCents;
+    private String serviceId;
+    private String requestKey;
+    private int limit;
+    private double radiusMeters;
+    private LocationBatch batch; // Se crea en el primer lote recibido y se reutiliza
+
+    void reset(MessageType type) {
+        this.type = type;
+        userId = null;
+        username = null;
+        email = null;
+        monedero = 0;
+        vehicleId = 0;
+        vehicleStationId = 0;
+        hasStation = false;
+        stationId = 0;
+        hasLocation = false;
+        latitude = 0;
+        longitude = 0;
+        hasDate = false;
+        epochSecond = 0;
+        avgSpeedMmPerMin = 0;
+        distanceMm = 0;
+        duration = 0;
+        importCents = 0;
+        serviceId = null;
+        requestKey = null;
+        limit = 0;
+        radiusMeters = 0;
+        if (batch != null) {
+            batch.clear();
+        }
+    }
+
+    void setUser(String userId, String username, String email, int monedero) {
+        this.userId = userId;
+        this.username = username;
+        this.email = email;
+        this.monedero = monedero;
+    }
+
+    void setVehicle(int vehicleId, int vehicleStationId) {
+        this.vehicleId = vehicleId;
+        this.vehicleStationId = vehicleStationId;
+    }
+
+    void setStation(int stationId) {
+        this.hasStation = true;
+        this.stationId = stationId;
+    }
+
+    void setLocation(float latitude, float longitude) {
+        this.hasLocation = true;
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    void setDate(long epochSecond) {
+        this.hasDate = true;
+        this.epochSecond = epochSecond;
+    }
+
+    void setJourneyTotals(long avgSpeedMmPerMin, long distanceMm, int duration, long importCents) {
+        this.avgSpeedMmPerMin = avgSpeedMmPerMin;
+        this.distanceMm = distanceMm;
+        this.duration = duration;
+        this.importCents = importCents;
+    }
+
+    void setServiceId(String serviceId) {
+        this.serviceId = serviceId;
+    }
+
+    void setRequestKey(String requestKey) {
+        this.requestKey = requestKey;
+    }
+
+    void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    void setRadiusMeters(double radiusMeters) {
+        this.radiusMeters = radiusMeters;
+    }
+
+    LocationBatch batch() {
+        if (batch == null) {
+            batch = new LocationBatch();
+        }
+        return batch;
+    }
+
+    public MessageType getType() {
+        return type;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public int getMonedero() {
+        return monedero;
+    }
+
+    public int getVehicleId() {
+        return vehicleId;
+    }
+
+    /**
+     * @return Identificador de la estación a la que pertenece el vehículo.
+     */
+    public int getVehicleStationId() {
+        return vehicleStationId;
+    }
+
+    public boolean hasStation() {
+        return hasStation;
+    }
+
+    public int getStationId() {
+        return stationId;
+    }
+
+    public boolean hasLocation() {
+        return hasLocation;
+    }
+
+    public float getLatitude() {
+        return latitude;
+    }
+
+    public float getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * Construye la ubicación del mensaje.
+     *
+     * @return Ubicación, o null si el mensaje no la incluye.
+     */
+    public GeographicPointInterface getLocation() {
+        return hasLocation ? new GeographicPoint(latitude, longitude) : null;
+    }
+
+    public boolean hasDate() {
+        return hasDate;
+    }
+
+    public long getEpochSecond() {
+        return epochSecond;
+    }
+
+    /**
+     * Construye la fecha del mensaje (UTC, con precisión de segundos).
+     *
+     * @return Fecha, o null si el mensaje no la incluye.
+     */
+    public LocalDateTime getDate() {
+        return hasDate ? WireFormat.fromEpochSecond(epochSecond) : null;
+    }
+
+    public long getAvgSpeedMmPerMin() {
+        return avgSpeedMmPerMin;
+    }
+
+    public long getDistanceMm() {
+        return distanceMm;
+    }
+
+    public int getDuration() {
+        return duration;
+    }
+
+    public long getImportCents() {
+        return importCents;
+    }
+
+    /**
+     * @return Identificador del servicio de viaje, o null si el mensaje no lo incluye.
+     */
+    public String getServiceId() {
+        return serviceId;
+    }
+
+    /**
+     * @return Clave de idempotencia de la petición, o null si el mensaje no la incluye.
+     */
+    public String getRequestKey() {
+        return requestKey;
+    }
+
+    /**
+     * @return Número de resultados pedido en las consultas de los más cercanos.
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return Radio en metros de las consultas por distancia.
+     */
+    public double getRadiusMeters() {
+        return radiusMeters;
+    }
+
+    /**
+     * Obtiene el lote de lecturas de un mensaje {@link MessageType#LOCATION_BATCH}. El lote pertenece al
+     * mensaje y se vacía en la siguiente decodificación.
+     *
+     * @return Lote de lecturas, vacío si el mensaje no es de ese tipo.
+     */
+    public LocationBatch getBatch() {
+        return batch();
+    }
+}
@@ -0,0 +1,36 @@
+package data;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FixedPointTest {
+
+    @Test
+    void testCentsRoundTrip() {
+        assertEquals(2575, FixedPoint.toCents(new BigDecimal("25.75")));
+        assertEquals(new BigDecimal("25.75"), FixedPoint.fromCents(2575));
+        assertEquals(-5, FixedPoint.toCents(new BigDecimal("-0.05")));
+    }
+
+    @Test
+    void testMillimetresRoundTrip() {
+        assertEquals(5_000_000, FixedPoint.kmToMillimetres(new BigDecimal(5)));
+        assertEquals(new BigDecimal("1.234567"), FixedPoint.millimetresToKm(1_234_567));
+    }
+
+    @Test
+    void testValuesBeyondScaleAreRounded() {
+        assertEquals(0, FixedPoint.toFixed(new BigDecimal("0.005"), 2), "HALF_EVEN redondea 0,005 hacia el par más próximo");
+        assertEquals(2, FixedPoint.toFixed(new BigDecimal("0.015"), 2));
+        assertEquals(15_200_000, FixedPoint.kmToMillimetres(BigDecimal.valueOf(15.2f)));
+    }
+
+    @Test
+    void testInvalidValuesThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> FixedPoint.toCents(null));
+        assertThrows(ArithmeticException.class, () -> FixedPoint.toCents(new BigDecimal("1e30")));
+    }
+}
@@ -0,0 +1,96 @@
+package data;
+
+import data.interfaces.StationIDInterface;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StationRegistryTest {
+
+    @Test
+    void testInternReturnsCanonicalInstance() {
+        StationRegistry registry = new StationRegistry();
+        StationIDInterface first = registry.intern(new StationID(1, new GeographicPoint(41.0F, 2.0F)));
+        StationIDInterface second = registry.intern(new StationID(1, new GeographicPoint(41.0F, 2.0F)));
+        StationIDInterface third = registry.intern(1, new GeographicPoint(41.0F, 2.0F));
+
+        assertSame(first, second, "Dos estaciones iguales deben compartir la misma instancia");
+        assertSame(first, third, "Internar por identificador debe devolver la instancia canónica");
+        assertSame(first, registry.lookup(1));
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    void testMovedStationReplacesCanonical() {
+        StationRegistry registry = new StationRegistry();
+        StationIDInterface old = registry.intern(1, new GeographicPoint(41.0F, 2.0F));
+        StationIDInterface moved = registry.intern(1, new GeographicPoint(42.0F, 3.0F));
+
+        assertNotSame(old, moved);
+        assertEquals(new GeographicPoint(42.0F, 3.0F), moved.getgeoPoint(), "Nunca debe devolverse una estación distinta de la pedida");
+        assertSame(moved, registry.lookup(1), "La nueva ubicación pasa a ser la canónica");
+    }
+
+    @Test
+    void testConcurrentInternAgreesOnOneInstance() throws Exception {
+        StationRegistry registry = new StationRegistry();
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<StationIDInterface>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return registry.intern(new StationID(1, new GeographicPoint(41.0F, 2.0F)));
+                }));
+            }
+            start.countDown();
+            StationIDInterface canonical = results.get(0).get();
+            for (Future<StationIDInterface> result : results) {
+                assertSame(canonical, result.get(), "Todos los hilos deben obtener la misma instancia");
+            }
+            assertSame(canonical, registry.lookup(1));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void testInternPointReusesStationPoint() {
+        StationRegistry registry = new StationRegistry();
+        StationIDInterface station = registry.intern(1, new GeographicPoint(41.0F, 2.0F));
+        StationIDInterface neighbour = registry.intern(2, new GeographicPoint(41.0F, 2.0F));
+        GeographicPoint elsewhere = new GeographicPoint(40.0F, 1.0F);
+
+        assertSame(station.getgeoPoint(), registry.internPoint(new GeographicPoint(41.0F, 2.0F)),
+                "Un punto igual al de una estación debe ser el de la estación");
+        assertSame(station.getgeoPoint(), neighbour.getgeoPoint(), "Dos estaciones en el mismo punto deben compartirlo");
+        assertSame(elsewhere, registry.internPoint(elsewhere), "Los demás puntos no se internan");
+        assertNull(registry.internPoint(null));
+    }
+
+    @Test
+    void testInternNull() {
+        assertNull(new StationRegistry().intern(null));
+    }
+
+    @Test
+    void testSameStation() {
+        StationID a = new StationID(1, new GeographicPoint(41.0F, 2.0F));
+        StationID b = new StationID(1, new GeographicPoint(41.0F, 2.0F));
+        StationID c = new StationID(2, new GeographicPoint(41.0F, 2.0F));
+
+        assertTrue(StationRegistry.sameStation(a, a));
+        assertTrue(StationRegistry.sameStation(a, b), "Estaciones iguales no internadas también coinciden");
+        assertFalse(StationRegistry.sameStation(a, c));
+        assertFalse(StationRegistry.sameStation(a, null));
+    }
+}
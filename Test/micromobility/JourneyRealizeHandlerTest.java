@@ -13,8 +13,13 @@ import services.smartfeatures.QRDecoder;
 
 import java.awt.image.BufferedImage;
 import java.net.ConnectException;
+import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -24,6 +29,7 @@ class JourneyRealizeHandlerTest {
     private PMVehicle vehicle;
     private VehicleIDInterface vehicleID;
     private BufferedImage validQR;
+    private JourneyServiceInterface jS;
 
     @BeforeEach
     void setUp() {
@@ -50,7 +56,7 @@ class JourneyRealizeHandlerTest {
         vehicleStations.put(vehicleID, station);
 
         ServerInterface server = new Server(vehicleAvailability, vehicleLocations, vehicleStations, userJourneyRecords);
-        JourneyServiceInterface jS = new JourneyService(vehicle);
+        jS = new JourneyService(vehicle);
 
         // Inicializar JourneyRealizeHandler
         journeyHandler = new JourneyRealizeHandler (initialLocation, user, qrDecoder, server, station, vehicle, jS);
@@ -89,6 +95,21 @@ class JourneyRealizeHandlerTest {
         assertEquals("La imagen del QR no existe.", exception.getMessage());
     }
 
+    @Test
+    void testScanQR_WithFrameBurst() {
+        journeyHandler.setQrFrames(List.of(validQR, new BufferedImage(50, 50, BufferedImage.TYPE_INT_RGB), validQR));
+
+        assertDoesNotThrow(() -> journeyHandler.scanQR(), "El escaneo de una ráfaga de fotogramas debería funcionar.");
+        assertDoesNotThrow(() -> journeyHandler.startDriving(), "El vehículo de la ráfaga debe quedar emparejado");
+    }
+
+    @Test
+    void testScanQR_EmptyFrameBurst() {
+        journeyHandler.setQrFrames(List.of());
+        ProceduralException exception = assertThrows(ProceduralException.class, () -> journeyHandler.scanQR());
+        assertEquals("La imagen del QR no existe.", exception.getMessage());
+    }
+
     @Test
     void testStartDriving_Success() {
         assertDoesNotThrow(() -> {
@@ -116,16 +137,130 @@ class JourneyRealizeHandlerTest {
         assertFalse(journeyHandler.inProgress);
     }
 
+    @Test
+    void testStopDriving_RecordsCurrentStationAsDestination() throws Exception {
+        StationID destination = new StationID(2, new GeographicPoint(41.7F, 0.63F));
+        journeyHandler.setQrImage(validQR);
+        journeyHandler.scanQR();
+        journeyHandler.startDriving();
+        journeyHandler.broadcastStationID(destination);
+        journeyHandler.stopDriving();
+
+        assertEquals(destination, jS.getEndStatID(),
+                "La estación de destino debe ser la última recibida, no la del vehículo");
+    }
+
     @Test
     void testStopDriving_ThrowsProceduralExceptionWhenNotInProgress() {
         ProceduralException exception = assertThrows(ProceduralException.class, () -> journeyHandler.stopDriving());
         assertEquals("El viaje no está en progreso.", exception.getMessage());
     }
 
+    @Test
+    void testAsyncJourney_Success() {
+        journeyHandler.setQrImage(validQR);
+        assertDoesNotThrow(() -> journeyHandler.scanQRAsync().get(5, TimeUnit.SECONDS), "La reserva asíncrona debería completarse");
+        assertDoesNotThrow(() -> journeyHandler.startDriving());
+        assertDoesNotThrow(() -> journeyHandler.stopDrivingAsync().get(5, TimeUnit.SECONDS), "El final asíncrono debería completarse");
+
+        assertFalse(journeyHandler.inProgress);
+        assertEquals(PMVState.Available, vehicle.getState(), "El vehículo debe quedar disponible");
+    }
+
+    @Test
+    void testScanQRAsync_FailsWithOriginalException() {
+        journeyHandler.setQrImage(validQR);
+        assertDoesNotThrow(() -> journeyHandler.scanQRAsync().get(5, TimeUnit.SECONDS));
+
+        // El vehículo ya está reservado: el segundo escaneo falla con la excepción de la API síncrona
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> journeyHandler.scanQRAsync().get(5, TimeUnit.SECONDS));
+        assertInstanceOf(PMVNotAvailException.class, exception.getCause());
+    }
+
+    @Test
+    void testScanQRAsync_FailedReservationLeavesBluetoothDisconnected() {
+        GeographicPointInterface location = vehicleID.getStation().getgeoPoint();
+        Map<VehicleIDInterface, Boolean> availability = new HashMap<>();
+        Map<VehicleIDInterface, StationIDInterface> stations = new HashMap<>();
+        availability.put(vehicleID, false);
+        stations.put(vehicleID, vehicleID.getStation());
+        Server busyServer = new Server(availability, new HashMap<>(), stations, new HashMap<>());
+        JourneyRealizeHandler handler = new JourneyRealizeHandler(location, new UserAccount("1", "2", "example@gmail.com", "123456", 0),
+                new QRDecoder(vehicleID), busyServer, vehicleID.getStation(), vehicle, new JourneyService(vehicle));
+        handler.setQrImage(validQR);
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> handler.scanQRAsync().get(5, TimeUnit.SECONDS));
+        assertInstanceOf(PMVNotAvailException.class, exception.getCause());
+        ConnectException notConnected = assertThrows(ConnectException.class, handler::startDriving,
+                "Sin reserva no debe quedar una conexión Bluetooth establecida");
+        assertEquals("La conexión Bluetooth no está establecida correctamente.", notConnected.getMessage());
+    }
+
+    @Test
+    void testStopDrivingAsync_FailsWhenNotInProgress() {
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> journeyHandler.stopDrivingAsync().get());
+        assertInstanceOf(ProceduralException.class, exception.getCause());
+        assertEquals("El viaje no está en progreso.", exception.getCause().getMessage());
+    }
 
     @Test
     void testUnPairVehicle_ThrowsPairingNotFoundExceptionWhenNotPaired() {
         PairingNotFoundException exception = assertThrows(PairingNotFoundException.class, () -> journeyHandler.unPairVehicle());
         assertEquals("No hay vehículo emparejado o el viaje no está en progreso.", exception.getMessage());
     }
+
+    @Test
+    void testStopDriving_RetriesWhenResponseIsLost() {
+        GeographicPointInterface location = new GeographicPoint(41.616F, 0.622F);
+        Map<VehicleIDInterface, Boolean> availability = new HashMap<>();
+        Map<VehicleIDInterface, GeographicPointInterface> locations = new HashMap<>();
+        Map<VehicleIDInterface, StationIDInterface> stations = new HashMap<>();
+        availability.put(vehicleID, true);
+        locations.put(vehicleID, location);
+        stations.put(vehicleID, vehicleID.getStation());
+        LostResponseServer server = new LostResponseServer(availability, locations, stations);
+        JourneyService journey = new JourneyService(vehicle);
+        JourneyRealizeHandler handler = new JourneyRealizeHandler(location, new UserAccount("1", "2", "example@gmail.com", "123456", 0),
+                new QRDecoder(vehicleID), server, vehicleID.getStation(), vehicle, journey);
+        handler.setQrImage(validQR);
+
+        assertDoesNotThrow(handler::scanQR);
+        assertDoesNotThrow(handler::startDriving);
+        assertDoesNotThrow(handler::stopDriving, "El reintento debe recibir el resultado del intento cuya respuesta se perdió");
+        assertEquals(2, server.stops.get(), "Debe reintentarse una vez");
+        assertEquals(PMVState.Available, vehicle.getState(), "El vehículo debe quedar disponible");
+    }
+
+    @Test
+    void testUnPairVehicle_AfterStopDriving() {
+        journeyHandler.setQrImage(validQR);
+
+        assertDoesNotThrow(journeyHandler::scanQR);
+        assertDoesNotThrow(journeyHandler::startDriving);
+        assertDoesNotThrow(journeyHandler::stopDriving);
+        assertDoesNotThrow(journeyHandler::unPairVehicle, "Desemparejar tras detener el viaje debe recibir el mismo resultado");
+        assertEquals(PMVState.Available, vehicle.getState(), "El vehículo debe quedar disponible");
+    }
+
+    /**
+     * Servidor que registra el primer final de viaje pero pierde la respuesta, como si fallara la red.
+     */
+    private static class LostResponseServer extends Server {
+        private final AtomicInteger stops = new AtomicInteger();
+
+        LostResponseServer(Map<VehicleIDInterface, Boolean> availability, Map<VehicleIDInterface, GeographicPointInterface> locations,
+                           Map<VehicleIDInterface, StationIDInterface> stations) {
+            super(availability, locations, stations, new HashMap<>());
+        }
+
+        @Override
+        public void stopPairing(String requestKey, UserAccountInterface user, VehicleIDInterface veh, StationIDInterface st,
+                                GeographicPointInterface loc, LocalDateTime date, long avSp, long dist, int dur, long imp,
+                                JourneyServiceInterface journey) throws InvalidPairingArgsException, ConnectException {
+            super.stopPairing(requestKey, user, veh, st, loc, date, avSp, dist, dur, imp, journey);
+            if (stops.incrementAndGet() == 1) {
+                throw new ConnectException("Se ha perdido la respuesta del servidor.");
+            }
+        }
+    }
 }
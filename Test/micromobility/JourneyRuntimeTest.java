@@ -0,0 +1,165 @@
+package micromobility;
+
+import data.GeographicPoint;
+import data.StationID;
+import data.UserAccount;
+import data.VehicleID;
+import data.interfaces.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import services.Server;
+import services.smartfeatures.BroadcastHistory;
+import services.smartfeatures.QRDecoder;
+import services.smartfeatures.UnbondedBTSignal;
+
+import java.awt.image.BufferedImage;
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JourneyRuntimeTest {
+    private JourneyRuntime runtime;
+
+    @BeforeEach
+    void setUp() {
+        runtime = new JourneyRuntime();
+    }
+
+    @AfterEach
+    void tearDown() {
+        runtime.close();
+    }
+
+    @Test
+    void testFullJourneyWithStationBroadcast() throws Exception {
+        GeographicPointInterface location = new GeographicPoint(41.616F, 0.622F);
+        StationIDInterface station = new StationID(1, location);
+        VehicleIDInterface vehicleID = new VehicleID(123, station);
+        Map<VehicleIDInterface, Boolean> availability = new HashMap<>();
+        Map<VehicleIDInterface, StationIDInterface> stations = new HashMap<>();
+        availability.put(vehicleID, true);
+        stations.put(vehicleID, station);
+        Server server = new Server(availability, new HashMap<>(), stations, new HashMap<>());
+        PMVehicle vehicle = new PMVehicle(123, location, PMVState.Available);
+        JourneyRealizeHandler handler = new JourneyRealizeHandler(location, new UserAccount("1", "one", "one@example.com", "secret1", 0),
+                new QRDecoder(vehicleID), server, station, vehicle, new JourneyService(vehicle));
+        handler.setQrImage(new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB));
+        BroadcastHistory history = new BroadcastHistory(64);
+        CountDownLatch received = new CountDownLatch(1);
+
+        CompletableFuture<Void> journey = runtime.launch(new UnbondedBTSignal(handler, station, history), scope -> {
+            while (history.getCount() == 0) {
+                Thread.sleep(5);
+            }
+            received.countDown();
+            handler.scanQR();
+            handler.startDriving();
+            handler.stopDriving();
+        });
+
+        journey.get(5, TimeUnit.SECONDS);
+        assertTrue(received.await(0, TimeUnit.SECONDS), "El trayecto debe haber recibido la difusión de la estación");
+        long broadcasts = history.getCount();
+        Thread.sleep(1200);
+        assertEquals(broadcasts, history.getCount(), "La difusión debe detenerse al terminar el trayecto");
+        assertEquals(PMVState.Available, vehicle.getState());
+        assertEquals(0, runtime.getActiveJourneys());
+    }
+
+    @Test
+    void testFailingSubtaskEndsJourney() {
+        CompletableFuture<Void> journey = runtime.launch(scope -> {
+            scope.fork(() -> {
+                throw new ConnectException("Se perdió la señal de la estación.");
+            });
+            Thread.sleep(10_000);
+        });
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> journey.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(ConnectException.class, exception.getCause(), "El trayecto debe terminar con el error de la tarea secundaria");
+    }
+
+    @Test
+    void testCancelledJourneyCancelsSubtasks() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        CompletableFuture<Void> journey = runtime.launch(scope -> {
+            scope.fork(() -> {
+                started.countDown();
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+                return null;
+            });
+            scope.join();
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        journey.cancel(true);
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS), "Las tareas secundarias no deben sobrevivir al trayecto cancelado");
+    }
+
+    @Test
+    void testManyConcurrentBlockedJourneys() throws Exception {
+        int journeys = 500;
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch running = new CountDownLatch(journeys);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < journeys; i++) {
+            futures.add(runtime.launch(scope -> {
+                running.countDown();
+                release.await();
+            }));
+        }
+        assertTrue(running.await(10, TimeUnit.SECONDS), "Todos los trayectos deben poder bloquearse a la vez");
+        assertEquals(journeys, runtime.getActiveJourneys());
+        release.countDown();
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testPlatformFallbackRejectsJourneysOverTheLimit() throws Exception {
+        try (JourneyRuntime bounded = new JourneyRuntime(JourneyRuntime.platformExecutor(2))) {
+            CountDownLatch release = new CountDownLatch(1);
+            CountDownLatch running = new CountDownLatch(2);
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                futures.add(bounded.launch(scope -> {
+                    running.countDown();
+                    release.await();
+                }));
+            }
+            assertTrue(running.await(5, TimeUnit.SECONDS));
+
+            ExecutionException rejected = assertThrows(ExecutionException.class,
+                    () -> bounded.launch(scope -> { }).get(5, TimeUnit.SECONDS));
+            assertInstanceOf(RejectedExecutionException.class, rejected.getCause(), "Por encima del límite el trayecto debe rechazarse");
+            release.countDown();
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void testRejectedForkDoesNotBlockJoin() throws Exception {
+        try (JourneyRuntime bounded = new JourneyRuntime(JourneyRuntime.platformExecutor(1))) {
+            CompletableFuture<Void> journey = bounded.launch(scope -> {
+                // El único hilo lo ocupa el propio trayecto: la tarea secundaria se rechaza
+                assertThrows(RejectedExecutionException.class, () -> scope.fork(() -> 1));
+                scope.join();
+            });
+            assertDoesNotThrow(() -> journey.get(5, TimeUnit.SECONDS), "join() no debe esperar a una tarea rechazada");
+        }
+    }
+}
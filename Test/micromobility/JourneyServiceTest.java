@@ -136,4 +136,16 @@ class JourneyServiceTest {
         journeyService.setEndStatID(endStatID);// Suponiendo que tengas una implementación de StationID        journeyService.setEndStatID(endStatID);
         assertEquals(endStatID, journeyService.getEndStatID(), "El valor de endStatID no es correcto");
     }
+
+    @Test
+    void testUpdateCurrentLocationAccumulatesDistance() {
+        GeographicPoint next = new GeographicPoint(10.01F, 20.0F);
+        journeyService.updateCurrentLocation(next);
+
+        assertEquals(next, journeyService.getCurrentLocation(), "La ubicación actual no es correcta");
+        assertEquals(1112.0, journeyService.getTraveledMeters(), 1.0, "La distancia recorrida no es correcta");
+
+        journeyService.setServiceInit(LocalDateTime.now(), next);
+        assertEquals(0.0, journeyService.getTraveledMeters(), "Al iniciar el servicio la distancia debe reiniciarse");
+    }
 }
@@ -5,6 +5,11 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import services.Exceptions.ProceduralException;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class PMVehicleTest {
@@ -43,7 +48,7 @@ class PMVehicleTest {
     @Test
     void testSetUnderWayWhenNotAvailable() throws ProceduralException {
         vehicle.setNotAvailb();
-        ProceduralException exception = assertThrows(ProceduralException.class, PMVehicle::setUnderWay);
+        ProceduralException exception = assertThrows(ProceduralException.class, vehicle::setUnderWay);
         assertEquals("No se puede iniciar un trayecto si el vehículo no está disponible.", exception.getMessage());
     }
 
@@ -79,4 +84,60 @@ class PMVehicleTest {
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> vehicle.setLocation(null));
         assertEquals("La ubicación no puede ser nula.", exception.getMessage());
     }
+
+    @Test
+    void testInitialStateIsHonored() {
+        PMVehicle parked = new PMVehicle(102, new GeographicPoint(41.123F, 1.456F), PMVState.NotAvailable);
+        assertEquals(PMVState.NotAvailable, parked.getState(), "Debe respetarse el estado inicial indicado");
+    }
+
+    @Test
+    void testStateIsPerVehicle() throws ProceduralException {
+        PMVehicle other = new PMVehicle(102, new GeographicPoint(41.123F, 1.456F), PMVState.Available);
+        vehicle.setUnderWay();
+        assertEquals(PMVState.Available, other.getState(), "El estado de un vehículo no debe afectar a otro");
+        assertDoesNotThrow(other::setUnderWay);
+    }
+
+    @Test
+    void testTemporaryParking() throws ProceduralException {
+        vehicle.setUnderWay();
+        vehicle.setTemporaryParking();
+        assertEquals(PMVState.TemporaryParking, vehicle.getState(), "El estado debe cambiar a TemporaryParking");
+        vehicle.setUnderWay();
+        assertEquals(PMVState.UnderWay, vehicle.getState(), "El trayecto debe poder reanudarse");
+    }
+
+    @Test
+    void testTemporaryParkingWhenNotUnderWay() {
+        ProceduralException exception = assertThrows(ProceduralException.class, vehicle::setTemporaryParking);
+        assertEquals("Solo se puede aparcar temporalmente un vehículo en trayecto.", exception.getMessage());
+    }
+
+    @Test
+    void testConcurrentUnderWayOnlyOneWins() throws InterruptedException {
+        int threads = 8;
+        AtomicInteger winners = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                    vehicle.setUnderWay();
+                    winners.incrementAndGet();
+                } catch (ProceduralException | InterruptedException ignored) {
+                    // Los demás hilos encuentran el vehículo ya en trayecto
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(1, winners.get(), "Solo un hilo debe poder iniciar el trayecto");
+        assertEquals(1, vehicle.getStateVersion(), "Debe haberse producido una única transición");
+    }
 }
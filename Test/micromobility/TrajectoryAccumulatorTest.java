@@ -0,0 +1,59 @@
+package micromobility;
+
+import data.GeographicDistance;
+import data.GeographicPoint;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrajectoryAccumulatorTest {
+    private TrajectoryAccumulator trajectory;
+
+    @BeforeEach
+    void setUp() {
+        trajectory = new TrajectoryAccumulator();
+    }
+
+    @Test
+    void testSinglePointHasNoDistance() {
+        trajectory.add(new GeographicPoint(41.616F, 0.622F));
+
+        assertEquals(0.0, trajectory.getDistanceMeters());
+        assertEquals(1, trajectory.getSamples());
+    }
+
+    @Test
+    void testAccumulatesEverySegment() {
+        GeographicPoint a = new GeographicPoint(41.6000F, 0.6000F);
+        GeographicPoint b = new GeographicPoint(41.6100F, 0.6000F);
+        GeographicPoint c = new GeographicPoint(41.6100F, 0.6200F);
+        trajectory.reset(a);
+        trajectory.add(b);
+        trajectory.add(c);
+
+        double expected = GeographicDistance.haversineMeters(a, b) + GeographicDistance.haversineMeters(b, c);
+        assertEquals(expected, trajectory.getDistanceMeters(), 1e-6);
+        assertEquals(3, trajectory.getSamples());
+    }
+
+    @Test
+    void testOneDegreeOfLatitude() {
+        trajectory.add(0.0F, 0.0F);
+        trajectory.add(1.0F, 0.0F);
+
+        assertEquals(GeographicDistance.METERS_PER_DEGREE, trajectory.getDistanceMeters(), 0.01);
+    }
+
+    @Test
+    void testResetClearsDistance() {
+        trajectory.add(0.0F, 0.0F);
+        trajectory.add(0.0F, 1.0F);
+        trajectory.reset();
+
+        assertEquals(0.0, trajectory.getDistanceMeters());
+        assertEquals(0, trajectory.getSamples());
+        trajectory.add(0.0F, 1.0F);
+        assertEquals(0.0, trajectory.getDistanceMeters(), "Tras reiniciar, el primer punto no suma distancia");
+    }
+}
@@ -0,0 +1,97 @@
+package micromobility.tariffs;
+
+import micromobility.PMVType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TariffEngineTest {
+    private TariffRules rules;
+
+    @BeforeEach
+    void setUp() {
+        rules = new TariffRules();
+        rules.setUnlockFeeCents(100);
+        rules.setPerMinuteCents(20);
+        rules.setPerKmCents(50);
+        rules.setMinimumFareCents(0);
+    }
+
+    @Test
+    void testPriceCombinesDurationAndDistance() {
+        Tariff tariff = new Tariff("test", rules);
+
+        // 100 + 10 * 20 + 2,5 km * 50 = 425
+        assertEquals(425, tariff.priceCents(10, 2500, 12, 0, 0, PMVType.Scooter));
+    }
+
+    @Test
+    void testPeakHourAndVehicleTypeMultipliers() {
+        rules.setPeakHours(8, 9, 1500);
+        rules.setTypePermille(PMVType.Bike, 500);
+        Tariff tariff = new Tariff("test", rules);
+
+        assertEquals(300, tariff.priceCents(10, 0, 12, 0, 0, PMVType.Scooter));
+        assertEquals(450, tariff.priceCents(10, 0, 8, 0, 0, PMVType.Scooter));
+        assertEquals(225, tariff.priceCents(10, 0, 8, 0, 0, PMVType.Bike));
+    }
+
+    @Test
+    void testEachPeakRangeKeepsItsOwnMultiplier() {
+        rules.setPeakHours(7, 9, 1200);
+        rules.setPeakHours(17, 19, 1500);
+        Tariff tariff = new Tariff("test", rules);
+
+        assertEquals(1200, rules.getHourPermille(8), "El segundo intervalo no debe cambiar el multiplicador del primero");
+        assertEquals(1000, rules.getHourPermille(12));
+        assertEquals(360, tariff.priceCents(10, 0, 8, 0, 0, PMVType.Scooter));
+        assertEquals(450, tariff.priceCents(10, 0, 18, 0, 0, PMVType.Scooter));
+    }
+
+    @Test
+    void testSharedEngineIsASingleInstance() {
+        assertSame(TariffEngine.shared(), TariffEngine.shared());
+    }
+
+    @Test
+    void testStationSurchargesAndMinimumFare() {
+        rules.setOriginSurchargeCents(3, 40);
+        rules.setDestinationSurchargeCents(5, -30);
+        rules.setMinimumFareCents(150);
+        Tariff tariff = new Tariff("test", rules);
+
+        assertEquals(310, tariff.priceCents(10, 0, 12, 3, 5, PMVType.Scooter));
+        assertEquals(300, tariff.priceCents(10, 0, 12, 99, 0, PMVType.Scooter), "Las estaciones sin recargo no alteran el precio");
+        assertEquals(150, tariff.priceCents(0, 0, 12, 0, 0, PMVType.Scooter), "Se aplica el importe mínimo");
+    }
+
+    @Test
+    void testCompiledTariffIgnoresLaterRuleChanges() {
+        Tariff tariff = new Tariff("test", rules);
+        rules.setPerMinuteCents(1000);
+
+        assertEquals(300, tariff.priceCents(10, 0, 12, 0, 0, PMVType.Scooter));
+    }
+
+    @Test
+    void testSwapTariff() {
+        Tariff first = new Tariff("first", rules);
+        TariffEngine engine = new TariffEngine(first);
+        rules.setUnlockFeeCents(0);
+        Tariff second = new Tariff("second", rules);
+
+        assertSame(first, engine.swapTariff(second));
+        assertSame(second, engine.getTariff());
+        assertEquals(200, engine.priceCents(10, 0, 12, 0, 0, PMVType.Scooter));
+        assertThrows(IllegalArgumentException.class, () -> engine.swapTariff(null));
+    }
+
+    @Test
+    void testInvalidRulesThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> rules.setPerMinuteCents(-1));
+        assertThrows(IllegalArgumentException.class, () -> rules.setPeakHours(10, 10, 1000));
+        rules.setOriginSurchargeCents(0, 10);
+        assertThrows(IllegalArgumentException.class, () -> new Tariff("test", rules));
+    }
+}
@@ -2,9 +2,12 @@ package services;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import services.Exceptions.PMVPhisicalException;
 import services.Exceptions.ProceduralException;
 import services.smartfeatures.ArduinoMicroController;
 import services.smartfeatures.Interfaces.ArduinoMicroControllerInterface;
+import services.smartfeatures.Interfaces.FaultModel;
+import services.smartfeatures.RandomFaultModel;
 
 import java.net.ConnectException;
 
@@ -56,4 +59,22 @@ class ArduinoMicroControllerTest {
             controller.stopDriving();
         });
     }
+
+    @Test
+    void testNoFaultsModelIsDeterministic() {
+        ArduinoMicroController reliable = new ArduinoMicroController(null, FaultModel.none());
+        assertDoesNotThrow(() -> {
+            reliable.setBTconnection();
+            reliable.startDriving();
+            reliable.stopDriving();
+        });
+    }
+
+    @Test
+    void testInjectedFaults() {
+        ArduinoMicroController faulty = new ArduinoMicroController(null, new RandomFaultModel(1L, 0.0, 1.0, 0.0));
+        assertDoesNotThrow(faulty::setBTconnection);
+        PMVPhisicalException exception = assertThrows(PMVPhisicalException.class, faulty::startDriving);
+        assertEquals("Fallo en el sistema de arranque del vehículo.", exception.getMessage());
+    }
 }
@@ -0,0 +1,100 @@
+package services;
+
+import data.GeographicPoint;
+import data.StationID;
+import data.VehicleID;
+import data.interfaces.StationIDInterface;
+import data.interfaces.VehicleIDInterface;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import services.Exceptions.PMVNotAvailException;
+
+import java.net.ConnectException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncServerAdapterTest {
+    private AsyncServerInterface asyncServer;
+    private VehicleIDInterface available;
+    private VehicleIDInterface busy;
+    private StationIDInterface station;
+
+    @BeforeEach
+    void setUp() {
+        station = new StationID(1, new GeographicPoint(1.0F, 2.0F));
+        available = new VehicleID(1, station);
+        busy = new VehicleID(2, station);
+        Map<VehicleIDInterface, Boolean> availability = new HashMap<>();
+        Map<VehicleIDInterface, StationIDInterface> stations = new HashMap<>();
+        availability.put(available, true);
+        availability.put(busy, false);
+        stations.put(available, station);
+        stations.put(busy, station);
+        asyncServer = new AsyncServerAdapter(new Server(availability, new HashMap<>(), stations, new HashMap<>()));
+    }
+
+    @Test
+    void testCompletesNormally() {
+        assertDoesNotThrow(() -> asyncServer.checkPMVAvailAsync(available).get(5, TimeUnit.SECONDS));
+        assertDoesNotThrow(() -> asyncServer.registerLocationAsync(available, station).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testCompletesExceptionallyWithOriginalException() {
+        ExecutionException notAvailable = assertThrows(ExecutionException.class,
+                () -> asyncServer.checkPMVAvailAsync(busy).get(5, TimeUnit.SECONDS));
+        assertInstanceOf(PMVNotAvailException.class, notAvailable.getCause(), "Debe conservarse el tipo de la excepción original");
+
+        VehicleIDInterface unknown = new VehicleID(99, station);
+        ExecutionException notFound = assertThrows(ExecutionException.class,
+                () -> asyncServer.registerLocationAsync(unknown, station).get(5, TimeUnit.SECONDS));
+        assertInstanceOf(ConnectException.class, notFound.getCause());
+        assertEquals("El vehículo no está registrado en el servidor.", notFound.getCause().getMessage());
+    }
+
+    @Test
+    void testSaturatedPoolFailsTheFuture() throws Exception {
+        ExecutorService executor = AsyncServerAdapter.boundedExecutor(1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            executor.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            executor.execute(() -> { });
+            AsyncServerInterface saturated = new AsyncServerAdapter(
+                    new Server(new HashMap<>(), new HashMap<>(), new HashMap<>(), new HashMap<>()), executor);
+
+            ExecutionException rejected = assertThrows(ExecutionException.class,
+                    () -> saturated.checkPMVAvailAsync(available).get(5, TimeUnit.SECONDS));
+            assertInstanceOf(ConnectException.class, rejected.getCause(), "Con el grupo lleno la llamada debe fallar como un fallo de conexión");
+            assertInstanceOf(RejectedExecutionException.class, rejected.getCause().getCause(), "La causa debe ser el rechazo del grupo");
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testDoesNotBlockCaller() {
+        CompletableFuture<Void> blocked = new CompletableFuture<>();
+        AsyncServerInterface deferred = new AsyncServerAdapter(new Server(new HashMap<>(), new HashMap<>(), new HashMap<>(), new HashMap<>()),
+                task -> blocked.thenRun(task));
+
+        CompletableFuture<Void> result = deferred.checkPMVAvailAsync(available);
+        assertFalse(result.isDone(), "La llamada no debe ejecutarse en el hilo que la hace");
+        blocked.complete(null);
+        assertTrue(result.isCompletedExceptionally(), "El vehículo no está registrado en ese servidor");
+    }
+}
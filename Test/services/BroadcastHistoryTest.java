@@ -0,0 +1,75 @@
+package services;
+
+import org.junit.jupiter.api.Test;
+import services.smartfeatures.BroadcastHistory;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BroadcastHistoryTest {
+
+    @Test
+    void testLastNNewestFirst() {
+        BroadcastHistory history = new BroadcastHistory(8);
+        for (int i = 1; i <= 3; i++) {
+            history.record(i, 1000L * i);
+        }
+        int[] stationIds = new int[8];
+        long[] timestamps = new long[8];
+        assertEquals(3, history.lastN(8, stationIds, timestamps), "Solo hay tres emisiones");
+        assertArrayEquals(new int[]{3, 2, 1}, Arrays.copyOf(stationIds, 3));
+        assertEquals(3000L, timestamps[0]);
+        assertEquals(2, history.lastN(2, stationIds, timestamps), "Debe respetarse el número pedido");
+    }
+
+    @Test
+    void testOverwritesOldestWhenFull() {
+        BroadcastHistory history = new BroadcastHistory(5);
+        assertEquals(8, history.getCapacity(), "La capacidad se redondea a potencia de dos");
+        for (int i = 1; i <= 20; i++) {
+            history.record(i, i);
+        }
+        int[] stationIds = new int[32];
+        long[] timestamps = new long[32];
+        assertEquals(8, history.lastN(32, stationIds, timestamps), "Solo se conservan las últimas emisiones");
+        assertEquals(20, stationIds[0]);
+        assertEquals(13, stationIds[7]);
+        assertEquals(20, history.getCount());
+    }
+
+    @Test
+    void testInvalidCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new BroadcastHistory(0));
+    }
+
+    @Test
+    void testReadersSeeConsistentRecordsWhileWriting() throws InterruptedException {
+        BroadcastHistory history = new BroadcastHistory(16);
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread writer = new Thread(() -> {
+            for (int i = 1; running.get(); i++) {
+                // El instante siempre coincide con el ID para detectar lecturas mezcladas
+                history.record(i, i);
+            }
+        });
+        writer.start();
+
+        AtomicInteger inconsistent = new AtomicInteger();
+        int[] stationIds = new int[16];
+        long[] timestamps = new long[16];
+        for (int round = 0; round < 50_000; round++) {
+            int copied = history.lastN(16, stationIds, timestamps);
+            for (int k = 0; k < copied; k++) {
+                if (stationIds[k] != timestamps[k] || (k > 0 && stationIds[k] != stationIds[k - 1] - 1)) {
+                    inconsistent.incrementAndGet();
+                }
+            }
+        }
+        running.set(false);
+        writer.join();
+        assertEquals(0, inconsistent.get(), "Los lectores nunca deben ver emisiones a medio escribir");
+    }
+}
@@ -0,0 +1,109 @@
+package services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarFleetRegistryTest {
+
+    @Test
+    void testPutAndRead() {
+        ColumnarFleetRegistry registry = new ColumnarFleetRegistry();
+        registry.put(42, 41.5F, 2.1F, 7, ColumnarFleetRegistry.AVAILABLE);
+
+        ColumnarFleetRegistry.Slot slot = new ColumnarFleetRegistry.Slot();
+        assertTrue(registry.read(42, slot), "El vehículo debe estar registrado");
+        assertEquals(41.5F, slot.getLatitude());
+        assertEquals(2.1F, slot.getLongitude());
+        assertEquals(7, slot.getStationId());
+        assertEquals(ColumnarFleetRegistry.AVAILABLE, slot.getState());
+        assertEquals(1, registry.size(), "Debe haber un vehículo registrado");
+    }
+
+    @Test
+    void testUnknownVehicleIsUnregistered() {
+        ColumnarFleetRegistry registry = new ColumnarFleetRegistry(100, false);
+        ColumnarFleetRegistry.Slot slot = new ColumnarFleetRegistry.Slot();
+        assertFalse(registry.read(5, slot), "Un vehículo nunca escrito no debe estar registrado");
+        assertEquals(ColumnarFleetRegistry.UNREGISTERED, registry.getState(5));
+        assertEquals(ColumnarFleetRegistry.UNREGISTERED, registry.getState(1000), "Fuera de la capacidad no hay vehículos");
+        assertThrows(IllegalArgumentException.class, () -> registry.put(100, 0, 0, 0, ColumnarFleetRegistry.AVAILABLE));
+    }
+
+    @Test
+    void testUnregisterUpdatesSize() {
+        ColumnarFleetRegistry registry = new ColumnarFleetRegistry();
+        registry.put(1, 0, 0, 1, ColumnarFleetRegistry.AVAILABLE);
+        registry.put(1, 0, 0, 1, ColumnarFleetRegistry.RESERVED);
+        assertEquals(1, registry.size(), "Reescribir un vehículo no debe contarlo dos veces");
+        registry.put(1, 0, 0, 0, ColumnarFleetRegistry.UNREGISTERED);
+        assertEquals(0, registry.size(), "Dar de baja un vehículo debe descontarlo");
+    }
+
+    @Test
+    void testOffHeapBehavesLikeHeap() {
+        ColumnarFleetRegistry registry = new ColumnarFleetRegistry(1 << 20, true);
+        assertTrue(registry.isOffHeap());
+        registry.put(70_000, -33.9F, 151.2F, 3, ColumnarFleetRegistry.NOT_AVAILABLE);
+        ColumnarFleetRegistry.Slot slot = new ColumnarFleetRegistry.Slot();
+        assertTrue(registry.read(70_000, slot));
+        assertEquals(-33.9F, slot.getLatitude());
+        assertEquals(151.2F, slot.getLongitude());
+        assertEquals(ColumnarFleetRegistry.NOT_AVAILABLE, registry.getState(70_000));
+    }
+
+    @Test
+    void testCountInState() {
+        ColumnarFleetRegistry registry = new ColumnarFleetRegistry();
+        for (int id = 1; id <= 50_000; id++) {
+            registry.put(id, 41.0F, 2.0F, 1, id % 5 == 0 ? ColumnarFleetRegistry.RESERVED : ColumnarFleetRegistry.AVAILABLE);
+        }
+        assertEquals(10_000, registry.countInState(ColumnarFleetRegistry.RESERVED));
+        assertEquals(40_000, registry.countInState(ColumnarFleetRegistry.AVAILABLE));
+    }
+
+    @Test
+    void testForEachAvailableWithin() {
+        ColumnarFleetRegistry registry = new ColumnarFleetRegistry();
+        registry.put(1, 41.3851F, 2.1734F, 1, ColumnarFleetRegistry.AVAILABLE);   // Barcelona
+        registry.put(2, 41.3870F, 2.1700F, 1, ColumnarFleetRegistry.AVAILABLE);   // a unos 350 m
+        registry.put(3, 41.3860F, 2.1720F, 1, ColumnarFleetRegistry.RESERVED);    // cerca, pero reservado
+        registry.put(4, 40.4168F, -3.7038F, 2, ColumnarFleetRegistry.AVAILABLE);  // Madrid
+
+        List<Integer> found = new ArrayList<>();
+        int count = registry.forEachAvailableWithin(41.3851F, 2.1734F, 1000, found::add);
+        assertEquals(2, count);
+        assertEquals(List.of(1, 2), found, "Solo deben encontrarse los vehículos disponibles dentro del radio");
+    }
+
+    @Test
+    void testReadersNeverSeeTornWrites() throws InterruptedException {
+        ColumnarFleetRegistry registry = new ColumnarFleetRegistry();
+        registry.put(9, 0, 0, 0, ColumnarFleetRegistry.AVAILABLE);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger torn = new AtomicInteger();
+
+        Thread writer = new Thread(() -> {
+            for (int i = 1; running.get(); i++) {
+                // La latitud, la longitud y la estación siempre se escriben con el mismo valor
+                registry.put(9, i % 90, i % 90, i % 90, ColumnarFleetRegistry.AVAILABLE);
+            }
+        });
+        writer.start();
+        ColumnarFleetRegistry.Slot slot = new ColumnarFleetRegistry.Slot();
+        for (int i = 0; i < 200_000; i++) {
+            registry.read(9, slot);
+            if (slot.getLatitude() != slot.getLongitude() || (int) slot.getLatitude() != slot.getStationId()) {
+                torn.incrementAndGet();
+            }
+        }
+        running.set(false);
+        writer.join();
+        assertEquals(0, torn.get(), "Ninguna lectura debe mezclar dos escrituras");
+    }
+}
@@ -0,0 +1,91 @@
+package services;
+
+import data.GeographicPoint;
+import data.StationID;
+import data.VehicleID;
+import data.interfaces.GeographicPointInterface;
+import data.interfaces.StationIDInterface;
+import data.interfaces.VehicleIDInterface;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FleetStateStoreTest {
+    private FleetStateStore store;
+    private VehicleIDInterface vehicle;
+    private StationIDInterface station;
+    private GeographicPointInterface location;
+
+    @BeforeEach
+    void setUp() {
+        store = new FleetStateStore(4);
+        location = new GeographicPoint(41.616F, 0.622F);
+        station = new StationID(1, location);
+        vehicle = new VehicleID(1, station);
+    }
+
+    @Test
+    void testGetUnknownVehicleReturnsNull() {
+        assertNull(store.get(vehicle));
+        assertFalse(store.contains(vehicle));
+    }
+
+    @Test
+    void testUpdateStoresCompleteState() {
+        store.update(vehicle, current -> new VehicleState(true, location, station));
+
+        VehicleState state = store.get(vehicle);
+        assertTrue(state.isAvailable());
+        assertEquals(location, state.getLocation());
+        assertEquals(station, state.getStation());
+
+        store.update(vehicle, current -> current.withAvailable(false));
+        assertFalse(store.get(vehicle).isAvailable());
+        assertEquals(location, store.get(vehicle).getLocation(), "La ubicación debe conservarse en la transición");
+    }
+
+    @Test
+    void testInvalidStripeCountThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> new FleetStateStore(0));
+    }
+
+    @Test
+    void testConcurrentUpdatesAreNotLost() throws InterruptedException {
+        // Cada hilo alterna la disponibilidad de los mismos vehículos; al final cada registro debe ser completo
+        List<VehicleIDInterface> vehicles = new ArrayList<>();
+        for (int i = 1; i <= 32; i++) {
+            VehicleIDInterface veh = new VehicleID(i, station);
+            vehicles.add(veh);
+            store.update(veh, current -> new VehicleState(true, location, station));
+        }
+
+        int threads = 8;
+        int rounds = 1000;
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                for (int r = 0; r < rounds; r++) {
+                    for (VehicleIDInterface veh : vehicles) {
+                        store.update(veh, current -> current.withAvailable(!current.isAvailable()));
+                    }
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+
+        // threads * rounds es par, por lo que cada vehículo vuelve a estar disponible
+        for (VehicleIDInterface veh : vehicles) {
+            VehicleState state = store.get(veh);
+            assertTrue(state.isAvailable());
+            assertEquals(location, state.getLocation());
+            assertEquals(station, state.getStation());
+        }
+        assertEquals(32, store.size());
+    }
+}
@@ -0,0 +1,96 @@
+package services;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyCacheTest {
+
+    @Test
+    void testRepeatedKeyReturnsOriginalResult() {
+        IdempotencyCache cache = new IdempotencyCache();
+        IdempotencyCache.Ticket first = cache.acquire("k");
+        assertFalse(first.isReplay(), "La primera llamada debe ejecutar la operación");
+        first.complete("token-1");
+
+        IdempotencyCache.Ticket retry = cache.acquire("k");
+        assertTrue(retry.isReplay());
+        assertEquals("token-1", retry.getResult(), "La repetición debe recibir el resultado original");
+        assertFalse(cache.acquire("other").isReplay(), "Otra clave no debe verse afectada");
+    }
+
+    @Test
+    void testReleasedKeyIsExecutedAgain() {
+        IdempotencyCache cache = new IdempotencyCache();
+        IdempotencyCache.Ticket failed = cache.acquire("k");
+        failed.release();
+
+        IdempotencyCache.Ticket retry = cache.acquire("k");
+        assertFalse(retry.isReplay(), "Una llamada fallida no debe recordarse");
+        retry.complete(null);
+        retry.release();
+        assertTrue(cache.acquire("k").isReplay(), "Liberar un ticket completado no debe olvidar su resultado");
+    }
+
+    @Test
+    void testKeysExpire() {
+        AtomicLong now = new AtomicLong();
+        IdempotencyCache cache = new IdempotencyCache(10, Duration.ofSeconds(60), now::get);
+        cache.acquire("k").complete(1);
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(59));
+        assertTrue(cache.acquire("k").isReplay(), "La clave debe recordarse hasta que caduque");
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertFalse(cache.acquire("k").isReplay(), "Una clave caducada debe ejecutarse de nuevo");
+    }
+
+    @Test
+    void testOldestKeysAreEvicted() {
+        IdempotencyCache cache = new IdempotencyCache(2, Duration.ofMinutes(1));
+        cache.acquire("a").complete(1);
+        cache.acquire("b").complete(2);
+        cache.acquire("c").complete(3);
+
+        assertEquals(2, cache.size(), "No deben recordarse más claves que el máximo");
+        assertTrue(cache.acquire("c").isReplay());
+        assertFalse(cache.acquire("a").isReplay(), "La clave más antigua debe descartarse");
+    }
+
+    @Test
+    void testConcurrentDuplicateWaitsForOriginal() throws Exception {
+        IdempotencyCache cache = new IdempotencyCache();
+        IdempotencyCache.Ticket original = cache.acquire("k");
+        CountDownLatch waiting = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<IdempotencyCache.Ticket> duplicate = executor.submit(() -> {
+                waiting.countDown();
+                return cache.acquire("k");
+            });
+            waiting.await();
+            Thread.sleep(50);
+            assertFalse(duplicate.isDone(), "La repetición debe esperar a la llamada en curso");
+
+            original.complete("done");
+            IdempotencyCache.Ticket ticket = duplicate.get(5, TimeUnit.SECONDS);
+            assertTrue(ticket.isReplay());
+            assertEquals("done", ticket.getResult());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testNullKeyIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new IdempotencyCache().acquire(null));
+        assertThrows(IllegalArgumentException.class, () -> new IdempotencyCache(0, Duration.ofMinutes(1)));
+    }
+}
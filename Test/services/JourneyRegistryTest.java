@@ -0,0 +1,79 @@
+package services;
+
+import data.GeographicPoint;
+import data.StationID;
+import data.UserAccount;
+import data.VehicleID;
+import data.interfaces.UserAccountInterface;
+import data.interfaces.VehicleIDInterface;
+import micromobility.JourneyService;
+import micromobility.PMVState;
+import micromobility.PMVehicle;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JourneyRegistryTest {
+    private JourneyRegistry registry;
+    private UserAccountInterface user;
+    private VehicleIDInterface vehicle;
+    private JourneyService journey;
+
+    @BeforeEach
+    void setUp() {
+        registry = new JourneyRegistry();
+        GeographicPoint location = new GeographicPoint(41.616F, 0.622F);
+        user = new UserAccount("user1", "User One", "user1@example.com", "password", 100);
+        vehicle = new VehicleID(1, new StationID(1, location));
+        journey = new JourneyService(new PMVehicle(1, location, PMVState.Available));
+        journey.setServiceID("S-1");
+    }
+
+    @Test
+    void testRegisterIndexesByEveryKey() {
+        JourneyRegistry.JourneyRecord record = registry.register(user, vehicle, journey);
+
+        assertSame(record, registry.findByUser(user));
+        assertSame(record, registry.findByVehicle(vehicle));
+        assertSame(record, registry.findByServiceId("S-1"));
+        assertSame(record, registry.findByJourney(journey));
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    void testRemoveByJourneyClearsEveryIndex() {
+        registry.register(user, vehicle, journey);
+
+        assertNotNull(registry.removeByJourney(journey));
+
+        assertNull(registry.findByUser(user));
+        assertNull(registry.findByVehicle(vehicle));
+        assertNull(registry.findByServiceId("S-1"));
+        assertNull(registry.removeByJourney(journey), "Un servicio ya eliminado no puede volver a eliminarse.");
+    }
+
+    @Test
+    void testRegisterReplacesPreviousJourneyOfUser() {
+        registry.register(user, vehicle, journey);
+        JourneyService second = new JourneyService(new PMVehicle(2, new GeographicPoint(1.0F, 2.0F), PMVState.Available));
+        second.setServiceID("S-2");
+
+        registry.register(user, null, second);
+
+        assertNull(registry.findByServiceId("S-1"));
+        assertNull(registry.findByVehicle(vehicle));
+        assertNull(registry.findByJourney(journey));
+        assertSame(second, registry.findByUser(user).getJourney());
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    void testRemoveByUser() {
+        registry.register(user, vehicle, journey);
+
+        assertSame(journey, registry.removeByUser(user).getJourney());
+        assertNull(registry.removeByUser(user));
+        assertEquals(0, registry.size());
+    }
+}
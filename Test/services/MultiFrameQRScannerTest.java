@@ -0,0 +1,151 @@
+package services;
+
+import data.GeographicPoint;
+import data.StationID;
+import data.StationRegistry;
+import data.VehicleID;
+import data.interfaces.VehicleIDInterface;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import services.Exceptions.QRImgException;
+import services.smartfeatures.Interfaces.QRDecoderInterface;
+import services.smartfeatures.MultiFrameQRScanner;
+import services.smartfeatures.QRDecoder;
+import services.smartfeatures.qr.QRCodeWriter;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MultiFrameQRScannerTest {
+
+    private final MultiFrameQRScanner scanner = new MultiFrameQRScanner(4);
+
+    @AfterEach
+    void tearDown() {
+        scanner.close();
+    }
+
+    private static BufferedImage blank() {
+        return new BufferedImage(60, 60, BufferedImage.TYPE_INT_RGB);
+    }
+
+    @Test
+    void testFirstReadableFrameWins() throws QRImgException {
+        StationRegistry registry = new StationRegistry();
+        registry.intern(new StationID(3, new GeographicPoint(41.6F, 0.6F)));
+        QRDecoder decoder = new QRDecoder(registry);
+        List<BufferedImage> frames = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            frames.add(blank());
+        }
+        frames.add(QRCodeWriter.render(QRCodeWriter.encode("PMV:55:3"), 4, 4));
+        Collections.shuffle(frames);
+
+        VehicleIDInterface vehicle = scanner.scan(decoder, frames);
+        assertEquals(55, vehicle.getId(), "Debe obtenerse el vehículo del único fotograma legible");
+    }
+
+    @Test
+    void testAllFramesUnreadable() {
+        QRDecoder decoder = new QRDecoder(new StationRegistry());
+        List<BufferedImage> frames = List.of(blank(), blank(), blank());
+        QRImgException exception = assertThrows(QRImgException.class, () -> scanner.scan(decoder, frames));
+        assertEquals(2, exception.getSuppressed().length, "Los fallos del resto de fotogramas deben conservarse");
+    }
+
+    @Test
+    void testReturnsWithoutWaitingForSlowFrames() throws Exception {
+        VehicleIDInterface expected = new data.VehicleID(9, new StationID(1, new GeographicPoint(41.6F, 0.6F)));
+        BufferedImage fast = blank();
+        CountDownLatch release = new CountDownLatch(1);
+        QRDecoderInterface decoder = image -> {
+            if (image == fast) {
+                return expected;
+            }
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new QRImgException("Fotograma oscuro");
+        };
+        try {
+            long start = System.nanoTime();
+            assertSame(expected, scanner.scan(decoder, List.of(blank(), blank(), fast)));
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2),
+                    "El escaneo no debe esperar a los fotogramas lentos");
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void testPendingFramesAreSkippedAfterSuccess() throws QRImgException {
+        MultiFrameQRScanner single = new MultiFrameQRScanner(1);
+        try {
+            VehicleIDInterface expected = new data.VehicleID(9, new StationID(1, new GeographicPoint(41.6F, 0.6F)));
+            AtomicInteger decoded = new AtomicInteger();
+            QRDecoderInterface decoder = image -> {
+                decoded.incrementAndGet();
+                return expected;
+            };
+            List<BufferedImage> frames = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                frames.add(blank());
+            }
+            assertSame(expected, single.scan(decoder, frames));
+            assertTrue(decoded.get() < frames.size(), "Tras el primer éxito no deben decodificarse todos los fotogramas");
+        } finally {
+            single.close();
+        }
+    }
+
+    @Test
+    void testRuntimeFailureOfOneFrameDoesNotFailTheScan() throws QRImgException {
+        BufferedImage broken = blank();
+        BufferedImage readable = blank();
+        VehicleIDInterface expected = new VehicleID(55, new StationID(3, new GeographicPoint(41.6F, 0.6F)));
+        CountDownLatch brokenFailed = new CountDownLatch(1);
+        QRDecoderInterface decoder = frame -> {
+            if (frame == broken) {
+                brokenFailed.countDown();
+                throw new IllegalStateException("Fotograma corrupto");
+            }
+            try {
+                // El fotograma legible termina después del que falla
+                brokenFailed.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return expected;
+        };
+
+        assertSame(expected, scanner.scan(decoder, List.of(broken, readable)),
+                "Un error en un fotograma no debe impedir que otro se decodifique");
+    }
+
+    @Test
+    void testAllFramesFailAtRuntime() {
+        QRDecoderInterface decoder = frame -> {
+            throw new IllegalStateException("Fotograma corrupto");
+        };
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> scanner.scan(decoder, List.of(blank(), blank(), blank())));
+        assertEquals(2, exception.getSuppressed().length, "Los fallos del resto de fotogramas deben conservarse");
+    }
+
+    @Test
+    void testInvalidArguments() {
+        QRDecoder decoder = new QRDecoder(new StationRegistry());
+        assertThrows(IllegalArgumentException.class, () -> scanner.scan(decoder, List.of()));
+        assertThrows(IllegalArgumentException.class, () -> scanner.scan(null, List.of(blank())));
+        assertThrows(IllegalArgumentException.class, () -> new MultiFrameQRScanner(0));
+    }
+}
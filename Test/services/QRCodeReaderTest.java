@@ -0,0 +1,130 @@
+package services;
+
+import org.junit.jupiter.api.Test;
+import services.Exceptions.QRImgException;
+import services.smartfeatures.qr.BitMatrix;
+import services.smartfeatures.qr.ErrorCorrectionLevel;
+import services.smartfeatures.qr.QRCodeReader;
+import services.smartfeatures.qr.QRCodeWriter;
+
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QRCodeReaderTest {
+
+    @Test
+    void testRoundTripAllLevelsAndMasks() throws QRImgException {
+        for (ErrorCorrectionLevel level : ErrorCorrectionLevel.values()) {
+            for (int mask = 0; mask < 8; mask++) {
+                String content = "PMV:" + (100 + mask) + ":" + level.ordinal();
+                BitMatrix modules = QRCodeWriter.encode(content, level, mask);
+                assertEquals(content, QRCodeReader.decodeModules(modules),
+                        "La matriz debe decodificarse con el nivel " + level + " y la máscara " + mask);
+                assertEquals(content, QRCodeReader.decode(QRCodeWriter.render(modules, 3, 4)),
+                        "La imagen debe decodificarse con el nivel " + level + " y la máscara " + mask);
+            }
+        }
+    }
+
+    @Test
+    void testRoundTripLargerVersions() throws QRImgException {
+        StringBuilder content = new StringBuilder();
+        while (content.length() < 70) {
+            content.append("estació-").append(content.length()).append(';');
+        }
+        for (ErrorCorrectionLevel level : new ErrorCorrectionLevel[]{ErrorCorrectionLevel.L, ErrorCorrectionLevel.M}) {
+            BitMatrix modules = QRCodeWriter.encode(content.toString(), level, 2);
+            assertTrue(modules.getWidth() > 29, "El contenido debe requerir una versión con varios bloques");
+            assertEquals(content.toString(), QRCodeReader.decode(QRCodeWriter.render(modules, 4, 4)),
+                    "Debe decodificarse un símbolo de versión " + (modules.getWidth() - 17) / 4);
+        }
+        // Versión 5 con nivel Q: bloques de datos de longitudes distintas
+        String uneven = content.substring(0, 50);
+        BitMatrix modules = QRCodeWriter.encode(uneven, ErrorCorrectionLevel.Q, 6);
+        assertEquals(37, modules.getWidth(), "El contenido debe ocupar una versión 5");
+        assertEquals(uneven, QRCodeReader.decode(QRCodeWriter.render(modules, 3, 4)),
+                "Deben reordenarse correctamente los bloques cortos y largos");
+    }
+
+    @Test
+    void testCorrectsDamagedModules() throws QRImgException {
+        BitMatrix modules = QRCodeWriter.encode("PMV:42:7", ErrorCorrectionLevel.H, 3);
+        // Se dañan varios módulos de datos en la zona inferior derecha
+        for (int i = 0; i < 6; i++) {
+            modules.flip(modules.getWidth() - 1 - i, modules.getHeight() - 1);
+            modules.flip(modules.getWidth() - 1 - i, modules.getHeight() - 3);
+        }
+        assertEquals("PMV:42:7", QRCodeReader.decode(QRCodeWriter.render(modules, 4, 4)),
+                "La corrección Reed–Solomon debe recuperar los módulos dañados");
+    }
+
+    @Test
+    void testTooDamagedCodeIsRejected() {
+        BitMatrix modules = QRCodeWriter.encode("PMV:42:7", ErrorCorrectionLevel.L, 0);
+        for (int y = 9; y < modules.getHeight(); y++) {
+            for (int x = 9; x < modules.getWidth(); x++) {
+                modules.flip(x, y);
+            }
+        }
+        assertThrows(QRImgException.class, () -> QRCodeReader.decodeModules(modules),
+                "Un símbolo demasiado dañado debe rechazarse");
+    }
+
+    @Test
+    void testDecodesColourImageTypes() throws QRImgException {
+        BufferedImage gray = QRCodeWriter.render(QRCodeWriter.encode("PMV:7:3"), 5, 4);
+        int[] types = {BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_3BYTE_BGR,
+                BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_USHORT_GRAY, BufferedImage.TYPE_INT_BGR};
+        for (int type : types) {
+            BufferedImage image = new BufferedImage(gray.getWidth(), gray.getHeight(), type);
+            Graphics2D graphics = image.createGraphics();
+            graphics.drawImage(gray, 0, 0, null);
+            graphics.dispose();
+            assertEquals("PMV:7:3", QRCodeReader.decode(image), "Debe decodificarse una imagen de tipo " + type);
+        }
+    }
+
+    @Test
+    void testDecodesSubImage() throws QRImgException {
+        BufferedImage symbol = QRCodeWriter.render(QRCodeWriter.encode("PMV:8:2"), 4, 4);
+        BufferedImage canvas = new BufferedImage(symbol.getWidth() + 40, symbol.getHeight() + 40,
+                BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = canvas.createGraphics();
+        graphics.setColor(java.awt.Color.WHITE);
+        graphics.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        graphics.drawImage(symbol, 30, 10, null);
+        graphics.dispose();
+        BufferedImage view = canvas.getSubimage(20, 0, symbol.getWidth() + 20, symbol.getHeight() + 30);
+        assertEquals("PMV:8:2", QRCodeReader.decode(view), "Debe respetarse el desplazamiento de la subimagen");
+    }
+
+    @Test
+    void testDecodesRotatedImage() throws QRImgException {
+        BufferedImage symbol = QRCodeWriter.render(QRCodeWriter.encode("PMV:9:1"), 4, 4);
+        for (int quarter = 1; quarter < 4; quarter++) {
+            BufferedImage rotated = new BufferedImage(symbol.getWidth(), symbol.getHeight(), BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = rotated.createGraphics();
+            graphics.setTransform(AffineTransform.getQuadrantRotateInstance(quarter,
+                    symbol.getWidth() / 2.0, symbol.getHeight() / 2.0));
+            graphics.drawImage(symbol, 0, 0, null);
+            graphics.dispose();
+            assertEquals("PMV:9:1", QRCodeReader.decode(rotated), "Debe decodificarse tras girar " + quarter * 90 + "°");
+        }
+    }
+
+    @Test
+    void testBlankImageHasNoCode() {
+        BufferedImage blank = new BufferedImage(100, 100, BufferedImage.TYPE_INT_RGB);
+        QRImgException exception = assertThrows(QRImgException.class, () -> QRCodeReader.decode(blank));
+        assertEquals("No QR code found in the image.", exception.getMessage());
+    }
+
+    @Test
+    void testContentTooLong() {
+        assertThrows(IllegalArgumentException.class, () -> QRCodeWriter.encode("x".repeat(200)),
+                "Un contenido que no cabe en una versión 6 debe rechazarse");
+    }
+}
@@ -3,11 +3,13 @@ package services;
 import data.VehicleID;
 import data.StationID;
 import data.GeographicPoint;
+import data.StationRegistry;
 import data.interfaces.VehicleIDInterface;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import services.Exceptions.QRImgException;
 import services.smartfeatures.QRDecoder;
+import services.smartfeatures.qr.QRCodeWriter;
 
 import java.awt.image.BufferedImage;
 
@@ -43,4 +45,87 @@ class QRDecoderTest {
         assertNotNull(result, "The returned VehicleID should not be null.");
         assertEquals(vehicle, result, "The returned VehicleID should match the initialized one.");
     }
+
+    @Test
+    void testGetVehicleID_DecodesVehicleLabel() throws QRImgException {
+        StationRegistry registry = new StationRegistry();
+        StationID station = (StationID) registry.intern(new StationID(5, new GeographicPoint(41.6F, 0.6F)));
+        QRDecoder decoder = new QRDecoder(registry);
+        VehicleID labelled = new VehicleID(321, station);
+        BufferedImage label = QRCodeWriter.render(QRCodeWriter.encode(QRDecoder.payload(labelled)), 4, 4);
+
+        VehicleIDInterface result = decoder.getVehicleID(label);
+        assertEquals(labelled, result, "Debe obtenerse el vehículo codificado en la etiqueta");
+        assertSame(station, result.getStation(), "La estación debe resolverse en el registro");
+    }
+
+    @Test
+    void testGetVehicleID_RealLabelTakesPrecedenceOverFallback() throws QRImgException {
+        StationRegistry.shared().intern(new StationID(6, new GeographicPoint(41.6F, 0.6F)));
+        BufferedImage label = QRCodeWriter.render(QRCodeWriter.encode("PMV:77:6"), 4, 4);
+        assertEquals(77, qrDecoder.getVehicleID(label).getId(), "Una etiqueta legible debe prevalecer sobre el vehículo preconfigurado");
+    }
+
+    @Test
+    void testGetVehicleID_RepeatedFrameUsesCache() throws QRImgException {
+        StationRegistry registry = new StationRegistry();
+        registry.intern(new StationID(5, new GeographicPoint(41.6F, 0.6F)));
+        QRDecoder decoder = new QRDecoder(registry);
+        BufferedImage label = QRCodeWriter.render(QRCodeWriter.encode("PMV:12:5"), 4, 4);
+
+        VehicleIDInterface first = decoder.getVehicleID(label);
+        VehicleIDInterface second = decoder.getVehicleID(label);
+        assertSame(first, second, "El mismo fotograma debe resolverse desde la caché");
+        assertEquals(1, decoder.getCachedCount(), "Debe haber una única entrada en la caché");
+
+        BufferedImage other = QRCodeWriter.render(QRCodeWriter.encode("PMV:13:5"), 4, 4);
+        assertEquals(13, decoder.getVehicleID(other).getId(), "Un fotograma distinto no debe confundirse con el anterior");
+        assertEquals(2, decoder.getCachedCount(), "Cada fotograma distinto debe tener su entrada");
+    }
+
+    @Test
+    void testGetVehicleID_CacheIsBounded() throws QRImgException {
+        StationRegistry registry = new StationRegistry();
+        registry.intern(new StationID(5, new GeographicPoint(41.6F, 0.6F)));
+        QRDecoder decoder = new QRDecoder(null, registry, 2);
+        for (int id = 1; id <= 4; id++) {
+            decoder.getVehicleID(QRCodeWriter.render(QRCodeWriter.encode("PMV:" + id + ":5"), 3, 4));
+        }
+        assertEquals(2, decoder.getCachedCount(), "La caché no debe superar su capacidad");
+    }
+
+    @Test
+    void testGetVehicleID_UnknownStation() {
+        QRDecoder decoder = new QRDecoder(new StationRegistry());
+        BufferedImage label = QRCodeWriter.render(QRCodeWriter.encode("PMV:12:99"), 4, 4);
+        QRImgException exception = assertThrows(QRImgException.class, () -> decoder.getVehicleID(label));
+        assertEquals("Unknown station 99 in the QR code.", exception.getMessage());
+    }
+
+    @Test
+    void testGetVehicleID_NotAVehicleLabel() {
+        QRDecoder decoder = new QRDecoder(new StationRegistry());
+        BufferedImage label = QRCodeWriter.render(QRCodeWriter.encode("https://example.com"), 4, 4);
+        QRImgException exception = assertThrows(QRImgException.class, () -> decoder.getVehicleID(label));
+        assertEquals("The QR code is not a vehicle label.", exception.getMessage());
+    }
+
+    @Test
+    void testGetVehicleID_FallbackOnlyWhenNoCodeIsFound() {
+        BufferedImage foreign = QRCodeWriter.render(QRCodeWriter.encode("https://example.com"), 4, 4);
+        QRImgException notALabel = assertThrows(QRImgException.class, () -> qrDecoder.getVehicleID(foreign),
+                "Un código legible que no es una etiqueta no debe sustituirse por el vehículo preconfigurado");
+        assertEquals("The QR code is not a vehicle label.", notALabel.getMessage());
+
+        BufferedImage unknownStation = QRCodeWriter.render(QRCodeWriter.encode("PMV:12:9999"), 4, 4);
+        QRImgException unknown = assertThrows(QRImgException.class, () -> qrDecoder.getVehicleID(unknownStation));
+        assertEquals("Unknown station 9999 in the QR code.", unknown.getMessage());
+    }
+
+    @Test
+    void testGetVehicleID_BlankImageWithoutFallback() {
+        QRDecoder decoder = new QRDecoder(new StationRegistry());
+        BufferedImage blank = new BufferedImage(100, 100, BufferedImage.TYPE_INT_RGB);
+        assertThrows(QRImgException.class, () -> decoder.getVehicleID(blank), "Sin vehículo preconfigurado, una imagen sin código debe rechazarse");
+    }
 }
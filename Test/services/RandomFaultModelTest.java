@@ -0,0 +1,58 @@
+package services;
+
+import org.junit.jupiter.api.Test;
+import services.smartfeatures.RandomFaultModel;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RandomFaultModelTest {
+
+    @Test
+    void testSameSeedReplaysSameFaults() {
+        RandomFaultModel first = new RandomFaultModel(42L);
+        RandomFaultModel second = new RandomFaultModel(42L);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(first.btConnectionFails(), second.btConnectionFails(), "La misma semilla debe dar la misma secuencia");
+            assertEquals(first.startFails(), second.startFails());
+            assertEquals(first.brakesFail(), second.brakesFail());
+        }
+    }
+
+    @Test
+    void testSplitModelsAreReproducible() {
+        RandomFaultModel rootA = new RandomFaultModel(7L);
+        RandomFaultModel rootB = new RandomFaultModel(7L);
+        for (int controller = 0; controller < 10; controller++) {
+            RandomFaultModel a = rootA.split();
+            RandomFaultModel b = rootB.split();
+            for (int i = 0; i < 100; i++) {
+                assertEquals(a.btConnectionFails(), b.btConnectionFails(), "Cada controlador derivado debe ser reproducible");
+            }
+        }
+    }
+
+    @Test
+    void testConfiguredProbabilities() {
+        RandomFaultModel never = new RandomFaultModel(1L, 0.0, 0.0, 0.0);
+        RandomFaultModel always = new RandomFaultModel(1L, 1.0, 1.0, 1.0);
+        for (int i = 0; i < 100; i++) {
+            assertFalse(never.btConnectionFails() || never.startFails() || never.brakesFail());
+            assertTrue(always.btConnectionFails() && always.startFails() && always.brakesFail());
+        }
+
+        RandomFaultModel defaults = new RandomFaultModel(3L);
+        int failures = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (defaults.btConnectionFails()) {
+                failures++;
+            }
+        }
+        assertEquals(0.10, failures / 100_000.0, 0.01, "La frecuencia de fallos debe aproximarse a la probabilidad");
+    }
+
+    @Test
+    void testInvalidProbability() {
+        assertThrows(IllegalArgumentException.class, () -> new RandomFaultModel(1.5, 0.0, 0.0));
+        assertThrows(IllegalArgumentException.class, () -> new RandomFaultModel(0.0, Double.NaN, 0.0));
+    }
+}
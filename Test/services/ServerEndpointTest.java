@@ -0,0 +1,234 @@
+package services;
+
+import data.GeographicPoint;
+import data.StationID;
+import data.UserAccount;
+import data.VehicleID;
+import data.interfaces.GeographicPointInterface;
+import data.interfaces.StationIDInterface;
+import data.interfaces.UserAccountInterface;
+import data.interfaces.VehicleIDInterface;
+import micromobility.JourneyRealizeHandler;
+import micromobility.JourneyService;
+import micromobility.PMVState;
+import micromobility.PMVehicle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import services.Exceptions.PMVNotAvailException;
+import services.Exceptions.PairingNotFoundException;
+import services.smartfeatures.QRDecoder;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServerEndpointTest {
+    private GeographicPointInterface location;
+    private StationIDInterface station;
+    private VehicleIDInterface available;
+    private VehicleIDInterface busy;
+    private UserAccountInterface user;
+    private Server server;
+    private ServerEndpoint endpoint;
+    private RemoteServer remote;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        location = new GeographicPoint(41.616F, 0.622F);
+        station = new StationID(7101, location);
+        available = new VehicleID(1, station);
+        busy = new VehicleID(2, station);
+        user = new UserAccount("1", "ana", "ana@example.com", "123456", 0);
+
+        Map<VehicleIDInterface, Boolean> availability = new HashMap<>();
+        Map<VehicleIDInterface, GeographicPointInterface> locations = new HashMap<>();
+        Map<VehicleIDInterface, StationIDInterface> stations = new HashMap<>();
+        for (VehicleIDInterface veh : List.of(available, busy)) {
+            availability.put(veh, veh == available);
+            locations.put(veh, location);
+            stations.put(veh, station);
+        }
+        server = new Server(availability, locations, stations, new HashMap<>());
+        endpoint = new ServerEndpoint(server);
+        remote = new RemoteServer(endpoint.getAddress());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        remote.close();
+        endpoint.close();
+    }
+
+    @Test
+    void testCheckAvailability() {
+        assertDoesNotThrow(() -> remote.checkPMVAvail(available));
+        PMVNotAvailException notAvailable = assertThrows(PMVNotAvailException.class, () -> remote.checkPMVAvail(busy));
+        assertEquals("The vehicle is not available for pairing.", notAvailable.getMessage(),
+                "Debe llegar la excepción del servidor con su mensaje");
+        assertThrows(ConnectException.class, () -> remote.checkPMVAvail(new VehicleID(99, station)),
+                "Un vehículo no registrado debe fallar como en el servidor local");
+    }
+
+    @Test
+    void testReserveAndStop() throws Exception {
+        JourneyService journey = new JourneyService(new PMVehicle(1, location, PMVState.Available));
+        LocalDateTime start = LocalDateTime.of(2024, 5, 1, 10, 0);
+        String token = remote.reserveVehicle(user, available, station, location, start, journey);
+
+        assertNotNull(token);
+        assertEquals(token, journey.getServiceID(), "El token debe aplicarse al viaje del cliente");
+        assertThrows(PMVNotAvailException.class, () -> remote.checkPMVAvail(available),
+                "El vehículo debe quedar reservado en el servidor");
+
+        remote.stopPairing(user, available, station, location, start.plusMinutes(10), 100_000L, 1_000_000L, 10, 250L, journey);
+        assertEquals(250L, journey.getImportCents(), "El final del viaje debe aplicarse al viaje del cliente");
+        assertDoesNotThrow(() -> remote.checkPMVAvail(available), "El vehículo debe volver a estar disponible");
+    }
+
+    @Test
+    void testJourneyThroughHandler() {
+        PMVehicle vehicle = new PMVehicle(1, location, PMVState.Available);
+        JourneyService journey = new JourneyService(vehicle);
+        JourneyRealizeHandler handler = new JourneyRealizeHandler(location, user, new QRDecoder(available), remote,
+                station, vehicle, journey);
+        handler.setQrImage(new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB));
+
+        assertDoesNotThrow(handler::scanQR, "La reserva remota debe funcionar como la local");
+        assertNotNull(journey.getServiceID());
+        assertDoesNotThrow(handler::startDriving);
+        assertDoesNotThrow(handler::stopDriving, "El final remoto debe funcionar como el local");
+        assertDoesNotThrow(() -> remote.checkPMVAvail(available));
+    }
+
+    @Test
+    void testPipelinedRequests() throws Exception {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            futures.add(remote.registerLocationAsync(available, station));
+            futures.add(remote.checkPMVAvailAsync(i % 2 == 0 ? available : busy));
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            CompletableFuture<Void> future = futures.get(i);
+            if (i % 4 == 3) {
+                ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+                assertInstanceOf(PMVNotAvailException.class, e.getCause(), "Cada respuesta debe llegar a su petición");
+            } else {
+                assertDoesNotThrow(() -> future.get(5, TimeUnit.SECONDS));
+            }
+        }
+    }
+
+    @Test
+    void testLocationBatch() {
+        LocationBatch batch = new LocationBatch();
+        batch.add(1, 41.616F, 0.622F, 7101, 1_000L);
+        batch.add(99, 41.616F, 0.622F, 7101, 1_500L);
+        LocationBatchResult result = remote.registerLocations(batch);
+
+        assertEquals(2, result.size());
+        assertEquals(1, result.getFailureCount(), "El vehículo desconocido debe fallar sin afectar al resto");
+    }
+
+    @Test
+    void testSpatialQueries() {
+        List<VehicleIDInterface> nearest = remote.findNearestAvailableVehicles(location, 5);
+        assertEquals(List.of(available), nearest, "Solo debe devolverse el vehículo disponible");
+        assertEquals(List.of(available), remote.findAvailableVehiclesWithin(location, 100.0));
+        assertTrue(remote.findNearestStations(location, 1).contains(station));
+        assertTrue(remote.findStationsWithin(location, 100.0).contains(station));
+    }
+
+    @Test
+    void testUnpair() throws Exception {
+        JourneyService journey = new JourneyService(new PMVehicle(1, location, PMVState.Available));
+        remote.registerPairing(user, available, station, location, LocalDateTime.now(), journey);
+        assertNotNull(journey.getServiceID(), "El servidor debe asignar un identificador de servicio");
+
+        remote.unPairRegisterService(journey);
+        PairingNotFoundException e = assertThrows(PairingNotFoundException.class, () -> remote.unPairRegisterService(journey));
+        assertEquals("No matching journey service record found.", e.getMessage());
+    }
+
+    @Test
+    void testUnpairAfterEndpointRestart() throws Exception {
+        JourneyService journey = new JourneyService(new PMVehicle(1, location, PMVState.Available));
+        remote.registerPairing(user, available, station, location, LocalDateTime.now(), journey);
+        InetSocketAddress address = endpoint.getAddress();
+        endpoint.close();
+
+        endpoint = new ServerEndpoint(server, address);
+        assertDoesNotThrow(() -> remote.unPairRegisterService(journey),
+                "Un punto de acceso nuevo debe encontrar el viaje por su identificador");
+        assertThrows(PairingNotFoundException.class, () -> remote.unPairRegisterService(journey));
+    }
+
+    @Test
+    void testFailsAfterEndpointClosed() throws IOException {
+        endpoint.close();
+        assertThrows(ConnectException.class, () -> remote.checkPMVAvail(available),
+                "Tras cerrar el servidor las llamadas deben fallar con ConnectException");
+        assertThrows(UncheckedIOException.class, () -> remote.findNearestStations(location, 1));
+        assertEquals(1, remote.registerLocations(new LocationBatch().add(1, 41.616F, 0.622F, 7101, 0L)).getFailureCount(),
+                "El lote debe marcarse como fallido sin lanzar excepciones");
+    }
+
+    @Test
+    void testRetriedStopPairingIsAppliedOnce() throws Exception {
+        JourneyService journey = new JourneyService(new PMVehicle(1, location, PMVState.Available));
+        LocalDateTime start = LocalDateTime.of(2024, 5, 1, 10, 0);
+        remote.reserveVehicle("reserve-1", user, available, station, location, start, journey);
+        String token = journey.getServiceID();
+        assertEquals(token, remote.reserveVehicle("reserve-1", user, available, station, location, start, journey),
+                "El reintento de la reserva debe devolver el mismo token");
+
+        remote.stopPairing("stop-1", user, available, station, location, start.plusMinutes(10), 100_000L, 1_000_000L, 10, 250L, journey);
+        assertDoesNotThrow(() -> remote.stopPairing("stop-1", user, available, station, location, start.plusMinutes(10),
+                100_000L, 1_000_000L, 10, 250L, journey), "El reintento no debe fallar aunque el viaje ya haya terminado");
+        assertDoesNotThrow(() -> remote.checkPMVAvail(available));
+    }
+
+    @Test
+    void testReconnectsAfterConnectionLoss() throws IOException {
+        InetSocketAddress address = endpoint.getAddress();
+        endpoint.close();
+        assertThrows(ConnectException.class, () -> remote.checkPMVAvail(available));
+
+        endpoint = new ServerEndpoint(server, address);
+        assertDoesNotThrow(() -> remote.checkPMVAvail(available), "La siguiente llamada debe abrir una conexión nueva");
+    }
+
+    @Test
+    void testMalformedRequestIdClosesConnectionWithoutProcessingTheRest() throws IOException {
+        ByteBuffer frames = ByteBuffer.allocate(64);
+        // Identificador de petición con once bytes de continuación: no es un varint válido
+        frames.putInt(11);
+        for (int i = 0; i < 11; i++) {
+            frames.put((byte) 0xFF);
+        }
+        // Petición siguiente del mismo lote, que ya no debe responderse
+        frames.putInt(1);
+        frames.put((byte) 1);
+        try (Socket socket = new Socket(endpoint.getAddress().getAddress(), endpoint.getAddress().getPort())) {
+            socket.setSoTimeout(5000);
+            socket.getOutputStream().write(frames.array(), 0, frames.position());
+            assertEquals(-1, socket.getInputStream().read(),
+                    "La conexión debe cerrarse sin responder a las peticiones siguientes del lote");
+        }
+        assertDoesNotThrow(() -> remote.checkPMVAvail(available), "Las demás conexiones deben seguir funcionando");
+    }
+}
@@ -11,15 +11,24 @@ import micromobility.PMVState;
 import micromobility.PMVehicle;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import services.Exceptions.InvalidPairingArgsException;
 import services.Exceptions.PMVNotAvailException;
 import services.Exceptions.PairingNotFoundException;
+import services.persistence.FleetSnapshotStore;
+import services.persistence.JourneyEventLog;
+import services.persistence.ServerEventJournal;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.net.ConnectException;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -143,4 +152,348 @@ class ServerTest {
     }
 
 
+    @Test
+    void testReserveVehicle_Success_ReturnsTokenAndClaimsVehicle() throws Exception {
+        server.registerLocation(vehicle, station);
+
+        String token = server.reserveVehicle(user, vehicle, station, location, date, journey);
+
+        assertNotNull(token, "La reserva debe devolver un token.");
+        assertEquals(token, journey.getServiceID(), "El token debe quedar como identificador del servicio.");
+        assertThrows(PMVNotAvailException.class, () -> server.checkPMVAvail(vehicle));
+    }
+
+    @Test
+    void testReserveVehicle_AlreadyReserved_ThrowsPMVNotAvailException() {
+        // El setUp deja el vehículo emparejado y, por tanto, no disponible
+        PMVNotAvailException exception = assertThrows(PMVNotAvailException.class, () -> {
+            server.reserveVehicle(user, vehicle, station, location, date, journey);
+        });
+        assertEquals("The vehicle is not available for pairing.", exception.getMessage());
+    }
+
+    @Test
+    void testReserveVehicle_VehicleNotFound_ThrowsConnectException() {
+        VehicleIDInterface unregisteredVehicle = new VehicleID(999, new StationID(2, new GeographicPoint(3.0F, 4.0F)));
+
+        assertThrows(ConnectException.class, () -> {
+            server.reserveVehicle(user, unregisteredVehicle, station, location, date, journey);
+        });
+    }
+
+    @Test
+    void testReserveVehicle_ConcurrentReservations_OnlyOneSucceeds() throws Exception {
+        server.registerLocation(vehicle, station);
+
+        int contenders = 16;
+        AtomicInteger winners = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[contenders];
+        for (int i = 0; i < contenders; i++) {
+            UserAccountInterface contender = new UserAccount("user" + (i + 10), "Contender", "c" + i + "@example.com", "password", 0);
+            threads[i] = new Thread(() -> {
+                try {
+                    start.await();
+                    server.reserveVehicle(contender, vehicle, station, location, date,
+                            new JourneyService(new PMVehicle(1, location, PMVState.Available)));
+                    winners.incrementAndGet();
+                } catch (PMVNotAvailException e) {
+                    // Otro usuario se ha adelantado
+                } catch (Exception e) {
+                    fail(e);
+                }
+            });
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        assertEquals(1, winners.get(), "Solo una reserva concurrente puede tener éxito.");
+    }
+
+    @Test
+    void testFindNearestAvailableVehicles_TracksPairingState() throws Exception {
+        // El setUp deja el vehículo emparejado: no debe aparecer como disponible
+        assertTrue(server.findNearestAvailableVehicles(location, 5).isEmpty());
+
+        server.registerLocation(vehicle, station);
+        assertEquals(List.of(vehicle), server.findNearestAvailableVehicles(location, 5));
+        assertEquals(List.of(vehicle), server.findAvailableVehiclesWithin(location, 100));
+        assertEquals(List.of(station), server.findNearestStations(location, 1));
+
+        server.reserveVehicle(user, vehicle, station, location, date, journey);
+        assertTrue(server.findAvailableVehiclesWithin(location, 100).isEmpty());
+    }
+
+    @Test
+    void testUnPairRegisterService_RemovesJourneyOnce() {
+        JourneyService paired = (JourneyService) journey;
+
+        assertDoesNotThrow(() -> server.unPairRegisterService(paired));
+        PairingNotFoundException exception = assertThrows(PairingNotFoundException.class, () -> server.unPairRegisterService(paired));
+        assertEquals("No matching journey service record found.", exception.getMessage());
+    }
+
+
+    @Test
+    void testRestartReplaysJournal(@TempDir Path dir) throws Exception {
+        VehicleIDInterface paired = new VehicleID(2, station);
+        VehicleIDInterface returned = new VehicleID(3, station);
+        UserAccountInterface other = new UserAccount("user2", "User Two", "user2@example.com", "password", 50);
+        JourneyServiceInterface otherJourney = new JourneyService(new PMVehicle(3, location, PMVState.Available));
+
+        try (ServerEventJournal journal = new ServerEventJournal(new JourneyEventLog(dir, 64 * 1024))) {
+            Server durable = new Server(new HashMap<>(), new HashMap<>(), new HashMap<>(), new HashMap<>(), journal);
+            durable.setPairing(user, paired, station, location, date, journey);
+            durable.setPairing(other, returned, station, location, date, otherJourney);
+            durable.stopPairing(other, returned, station, location, date, 100, 2000, 20, 150, otherJourney);
+        }
+
+        try (ServerEventJournal journal = new ServerEventJournal(new JourneyEventLog(dir, 64 * 1024))) {
+            Server restarted = new Server(new HashMap<>(), new HashMap<>(), new HashMap<>(), new HashMap<>(), journal);
+            assertThrows(PMVNotAvailException.class, () -> restarted.checkPMVAvail(paired), "El vehículo emparejado debe seguir ocupado");
+            assertDoesNotThrow(() -> restarted.checkPMVAvail(returned), "El vehículo devuelto debe estar disponible");
+            assertEquals(List.of(returned), restarted.findNearestAvailableVehicles(location, 5), "El índice espacial debe reconstruirse");
+
+            // El viaje en curso se ha restaurado y puede finalizarse tras el reinicio
+            assertDoesNotThrow(() -> restarted.stopPairing(user, paired, station, location, date, 0, 0, 0, 0, journey));
+            assertThrows(InvalidPairingArgsException.class,
+                    () -> restarted.stopPairing(other, returned, station, location, date, 0, 0, 0, 0, otherJourney),
+                    "El viaje finalizado antes del reinicio no debe restaurarse");
+        }
+    }
+
+    @Test
+    void testReplayedStopOfEarlierJourneyKeepsCurrentJourney(@TempDir Path dir) throws Exception {
+        VehicleIDInterface first = new VehicleID(2, station);
+        VehicleIDInterface second = new VehicleID(3, station);
+        VehicleState busy = new VehicleState(false, location, station, null, 1);
+        VehicleState returned = new VehicleState(true, location, station, null, 2);
+
+        // El final del primer viaje se registra después del emparejamiento del segundo
+        try (ServerEventJournal journal = new ServerEventJournal(new JourneyEventLog(dir, 64 * 1024))) {
+            journal.pairing(first, busy, user, "S1", date, location);
+            journal.pairing(second, busy, user, "S2", date, location);
+            journal.awaitDurable(journal.stop(first, returned, user, "S1", date, location, 0, 0, 0, 0));
+        }
+
+        try (ServerEventJournal journal = new ServerEventJournal(new JourneyEventLog(dir, 64 * 1024))) {
+            Server restarted = new Server(new HashMap<>(), new HashMap<>(), new HashMap<>(), new HashMap<>(), journal);
+            JourneyServiceInterface current = new JourneyService(new PMVehicle(3, location, PMVState.Available));
+            assertDoesNotThrow(() -> restarted.stopPairing(user, second, station, location, date, 0, 0, 0, 0, current),
+                    "El final de un viaje anterior no debe eliminar el viaje en curso");
+        }
+    }
+
+    @Test
+    void testJournalIsIdempotentOverSeededState(@TempDir Path dir) throws IOException, ConnectException {
+        Map<VehicleIDInterface, Boolean> availability = new HashMap<>();
+        availability.put(vehicle, true);
+        Map<VehicleIDInterface, StationIDInterface> stations = new HashMap<>();
+        stations.put(vehicle, station);
+        Map<VehicleIDInterface, GeographicPointInterface> locations = new HashMap<>();
+        locations.put(vehicle, location);
+
+        try (ServerEventJournal journal = new ServerEventJournal(new JourneyEventLog(dir, 64 * 1024))) {
+            Server durable = new Server(availability, locations, stations, new HashMap<>(), journal);
+            durable.setPairing(user, vehicle, station, location, date, journey);
+            durable.registerLocation(vehicle, station);
+        }
+        for (int i = 0; i < 2; i++) {
+            try (ServerEventJournal journal = new ServerEventJournal(new JourneyEventLog(dir, 64 * 1024))) {
+                Server restarted = new Server(availability, locations, stations, new HashMap<>(), journal);
+                assertDoesNotThrow(() -> restarted.checkPMVAvail(vehicle), "Debe prevalecer el último estado registrado");
+            }
+        }
+    }
+
+    @Test
+    void testRestartFromSnapshotAndLogTail(@TempDir Path dir) throws Exception {
+        Path logDir = dir.resolve("log");
+        FleetSnapshotStore snapshots = new FleetSnapshotStore(dir.resolve("snapshots"));
+        VehicleIDInterface before = new VehicleID(2, station);
+        VehicleIDInterface after = new VehicleID(3, station);
+        UserAccountInterface other = new UserAccount("user2", "User Two", "user2@example.com", "password", 50);
+
+        try (ServerEventJournal journal = new ServerEventJournal(new JourneyEventLog(logDir, 1024))) {
+            Server durable = new Server(new HashMap<>(), new HashMap<>(), new HashMap<>(), new HashMap<>(), journal, snapshots);
+            durable.setPairing(user, before, station, location, date, journey);
+            for (int i = 0; i < 50; i++) {
+                durable.registerLocation(before, station);
+            }
+            durable.setPairing(user, before, station, location, date, journey);
+            durable.takeSnapshot();
+            durable.setPairing(other, after, station, location, date, new JourneyService(new PMVehicle(3, location, PMVState.Available)));
+        }
+        assertTrue(snapshots.exists(), "Debe haberse escrito una instantánea");
+
+        try (ServerEventJournal journal = new ServerEventJournal(new JourneyEventLog(logDir, 1024))) {
+            Server restarted = new Server(new HashMap<>(), new HashMap<>(), new HashMap<>(), new HashMap<>(), journal, snapshots);
+            assertThrows(PMVNotAvailException.class, () -> restarted.checkPMVAvail(before), "El estado de la instantánea debe restaurarse");
+            assertThrows(PMVNotAvailException.class, () -> restarted.checkPMVAvail(after), "La cola del log debe reproducirse");
+            assertDoesNotThrow(() -> restarted.stopPairing(user, before, station, location, date, 0, 0, 0, 0, journey),
+                    "El viaje de la instantánea debe poder finalizarse");
+        }
+    }
+
+    @Test
+    void testRestoredJourneyCanBeUnpaired(@TempDir Path dir) throws Exception {
+        Path logDir = dir.resolve("log");
+        FleetSnapshotStore snapshots = new FleetSnapshotStore(dir.resolve("snapshots"));
+        VehicleIDInterface first = new VehicleID(2, station);
+        VehicleIDInterface second = new VehicleID(3, station);
+        UserAccountInterface other = new UserAccount("user2", "User Two", "user2@example.com", "password", 50);
+        JourneyService otherJourney = new JourneyService(new PMVehicle(3, location, PMVState.Available));
+
+        try (ServerEventJournal journal = new ServerEventJournal(new JourneyEventLog(logDir, 64 * 1024))) {
+            Server durable = new Server(new HashMap<>(), new HashMap<>(), new HashMap<>(), new HashMap<>(), journal, snapshots);
+            durable.setPairing(user, first, station, location, date, journey);
+            durable.takeSnapshot();
+            durable.setPairing(other, second, station, location, date, otherJourney);
+        }
+
+        try (ServerEventJournal journal = new ServerEventJournal(new JourneyEventLog(logDir, 64 * 1024))) {
+            Server restarted = new Server(new HashMap<>(), new HashMap<>(), new HashMap<>(), new HashMap<>(), journal, snapshots);
+            assertDoesNotThrow(restarted::takeSnapshot, "Los viajes restaurados deben poder volver a guardarse");
+            assertDoesNotThrow(() -> restarted.unPairRegisterService((JourneyService) journey),
+                    "El viaje de la instantánea debe poder desemparejarse por su identificador");
+            assertDoesNotThrow(() -> restarted.unPairByServiceId(null, otherJourney.getServiceID()),
+                    "El viaje del log debe poder desemparejarse por su identificador");
+            assertThrows(PairingNotFoundException.class, () -> restarted.unPairByServiceId(null, otherJourney.getServiceID()));
+        }
+    }
+
+    @Test
+    void testFleetKeysShareCanonicalStation() {
+        GeographicPointInterface point = new GeographicPoint(41.7F, 0.7F);
+        VehicleIDInterface first = new VehicleID(2, new StationID(9301, point));
+        VehicleIDInterface second = new VehicleID(3, new StationID(9301, new GeographicPoint(41.7F, 0.7F)));
+        Map<VehicleIDInterface, Boolean> availability = new HashMap<>();
+        Map<VehicleIDInterface, GeographicPointInterface> locations = new HashMap<>();
+        Map<VehicleIDInterface, StationIDInterface> stations = new HashMap<>();
+        for (VehicleIDInterface veh : List.of(first, second)) {
+            availability.put(veh, true);
+            locations.put(veh, new GeographicPoint(41.7F, 0.7F));
+            stations.put(veh, veh.getStation());
+        }
+        Server fleet = new Server(availability, locations, stations, new HashMap<>());
+
+        List<VehicleIDInterface> found = fleet.findNearestAvailableVehicles(point, 2);
+        assertEquals(2, found.size());
+        assertSame(found.get(0).getStation(), found.get(1).getStation(),
+                "Los vehículos de una misma estación deben compartir su instancia canónica");
+        assertSame(StationRegistry.shared().lookup(9301), found.get(0).getStation());
+    }
+
+    @Test
+    void testTakeSnapshotWithoutJournalFails() {
+        assertThrows(IllegalStateException.class, () -> server.takeSnapshot());
+    }
+
+    @Test
+    void testRegisterLocationsReportsPerRecordFailures() {
+        VehicleIDInterface other = new VehicleID(2, new StationID(2, new GeographicPoint(3.0F, 4.0F)));
+        server.setPairing(user, other, other.getStation(), other.getStation().getgeoPoint(), date, journey);
+
+        LocationBatch batch = new LocationBatch(2)
+                .add(1, 1.0F, 2.0F, 1, 1_000)      // sustituida por la lectura posterior
+                .add(999, 1.0F, 2.0F, 1, 1_000)    // vehículo desconocido
+                .add(2, 3.0F, 4.0F, 1, 1_000)      // estación incorrecta
+                .add(1, 1.5F, 2.5F, 1, 2_000);
+        LocationBatchResult result = server.registerLocations(batch);
+
+        assertEquals(4, result.size());
+        assertEquals(1, result.getAppliedCount(), "Solo debe aplicarse la lectura válida más reciente");
+        assertTrue(result.isSuperseded(0));
+        assertEquals("El vehículo no está registrado en el servidor.", result.getFailure(1).getMessage());
+        assertEquals("La estación proporcionada no coincide con la estación registrada para el vehículo.", result.getFailure(2).getMessage());
+        assertFalse(result.isFailed(3));
+
+        assertDoesNotThrow(() -> server.checkPMVAvail(vehicle), "El vehículo debe quedar disponible");
+        assertThrows(PMVNotAvailException.class, () -> server.checkPMVAvail(other), "El registro rechazado no debe aplicarse");
+        assertEquals(List.of(vehicle), server.findAvailableVehiclesWithin(new GeographicPoint(1.5F, 2.5F), 1.0),
+                "Debe guardarse la posición leída");
+    }
+
+    @Test
+    void testRegisterLocationsIsJournaled(@TempDir Path dir) throws IOException {
+        Map<VehicleIDInterface, Boolean> availability = new HashMap<>();
+        Map<VehicleIDInterface, StationIDInterface> stations = new HashMap<>();
+        availability.put(vehicle, false);
+        stations.put(vehicle, station);
+        try (ServerEventJournal journal = new ServerEventJournal(new JourneyEventLog(dir, 64 * 1024))) {
+            Server first = new Server(availability, new HashMap<>(), stations, new HashMap<>(), journal);
+            assertEquals(1, first.registerLocations(new LocationBatch().add(1, 1.0F, 2.0F, 1, 0)).getAppliedCount());
+        }
+        try (ServerEventJournal journal = new ServerEventJournal(new JourneyEventLog(dir, 64 * 1024))) {
+            Server restarted = new Server(availability, new HashMap<>(), stations, new HashMap<>(), journal);
+            assertDoesNotThrow(() -> restarted.checkPMVAvail(vehicle), "La ubicación registrada en lote debe sobrevivir al reinicio");
+        }
+    }
+
+    @Test
+    void testStopPairingWithSameKeyIsAppliedOnce() throws ConnectException, InvalidPairingArgsException {
+        server.stopPairing("stop-1", user, vehicle, station, location, date, 20L, 5L, 10, 250L, journey);
+
+        assertDoesNotThrow(() -> server.stopPairing("stop-1", user, vehicle, station, location, date, 99L, 99L, 99, 999L, journey),
+                "Un reintento con la misma clave no debe fallar aunque el viaje ya haya terminado");
+        assertEquals(250L, journey.getImportCents(), "El reintento no debe volver a aplicar el final del viaje");
+
+        InvalidPairingArgsException exception = assertThrows(InvalidPairingArgsException.class,
+                () -> server.stopPairing("stop-2", user, vehicle, station, location, date, 20L, 5L, 10, 250L, journey));
+        assertEquals("No hay un viaje en curso asociado a este usuario.", exception.getMessage());
+    }
+
+    @Test
+    void testFailedKeyedCallCanBeRetried() {
+        StationIDInterface otherStation = new StationID(2, new GeographicPoint(3.0F, 4.0F));
+        assertThrows(InvalidPairingArgsException.class,
+                () -> server.stopPairing("stop-1", user, vehicle, otherStation, location, date, 20L, 5L, 10, 250L, journey));
+
+        assertDoesNotThrow(() -> server.stopPairing("stop-1", user, vehicle, station, location, date, 20L, 5L, 10, 250L, journey),
+                "Una llamada que falla no debe dejar la clave ocupada");
+        assertEquals(250L, journey.getImportCents());
+    }
+
+    @Test
+    void testKeyedCallRetriedAfterLogFailureGetsFirstOutcome(@TempDir Path dir) throws Exception {
+        ServerEventJournal journal = new ServerEventJournal(new JourneyEventLog(dir, 64 * 1024));
+        Server durable = new Server(new HashMap<>(), new HashMap<>(), new HashMap<>(), new HashMap<>(), journal);
+        durable.setPairing(user, vehicle, station, location, date, journey);
+        journal.close();
+
+        ConnectException failure = assertThrows(ConnectException.class,
+                () -> durable.stopPairing("stop-1", user, vehicle, station, location, date, 20L, 5L, 10, 250L, journey));
+        assertTrue(failure.getMessage().startsWith("No se pudo registrar el evento en el log"));
+        assertDoesNotThrow(() -> durable.stopPairing("stop-1", user, vehicle, station, location, date, 20L, 5L, 10, 250L, journey),
+                "El reintento debe recibir el resultado del cambio ya aplicado en memoria");
+    }
+
+    @Test
+    void testUnpairWithSameKeyIsAppliedOnce() throws PairingNotFoundException {
+        JourneyService paired = (JourneyService) journey;
+        server.unPairRegisterService("unpair-1", paired);
+
+        assertDoesNotThrow(() -> server.unPairRegisterService("unpair-1", paired), "El reintento debe devolver el resultado original");
+        assertThrows(PairingNotFoundException.class, () -> server.unPairRegisterService(paired),
+                "Sin clave, la llamada repetida debe fallar como antes");
+    }
+
+    @Test
+    void testReserveWithSameKeyReturnsSameToken() throws Exception {
+        server.stopPairing(user, vehicle, station, location, date, 20L, 5L, 10, 250L, journey);
+        server.registerLocation(vehicle, station);
+
+        JourneyService first = new JourneyService(new PMVehicle(1, location, PMVState.Available));
+        String token = server.reserveVehicle("reserve-1", user, vehicle, station, location, date, first);
+        JourneyService retry = new JourneyService(new PMVehicle(1, location, PMVState.Available));
+
+        assertEquals(token, server.reserveVehicle("reserve-1", user, vehicle, station, location, date, retry),
+                "El reintento debe devolver el token de la primera reserva");
+        assertNull(retry.getServiceID(), "El reintento no debe modificar el viaje");
+        assertThrows(PMVNotAvailException.class,
+                () -> server.reserveVehicle("reserve-2", user, vehicle, station, location, date, retry));
+    }
 }
@@ -0,0 +1,77 @@
+package services;
+
+import org.junit.jupiter.api.Test;
+import services.smartfeatures.SmartEventLog;
+import services.smartfeatures.SmartEventType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SmartEventLogTest {
+
+    @Test
+    void testEventsAreDeliveredInOrder() {
+        List<String> delivered = Collections.synchronizedList(new ArrayList<>());
+        try (SmartEventLog log = new SmartEventLog(16, (type, subject, timestamp) -> delivered.add(type.describe(subject)))) {
+            assertTrue(log.log(SmartEventType.BT_CONNECTED, 7));
+            assertTrue(log.log(SmartEventType.STATION_BROADCAST, 3));
+            log.flush();
+        }
+        assertEquals(List.of("Conexión Bluetooth establecida correctamente.", "Broadcasting station ID: 3"), delivered);
+    }
+
+    @Test
+    void testFullRingDropsInsteadOfBlocking() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger delivered = new AtomicInteger();
+        try (SmartEventLog log = new SmartEventLog(4, (type, subject, timestamp) -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            delivered.incrementAndGet();
+        })) {
+            int accepted = 0;
+            for (int i = 0; i < 20; i++) {
+                if (log.log(SmartEventType.DRIVING_STARTED, i)) {
+                    accepted++;
+                }
+            }
+            assertTrue(accepted <= 5, "El anillo no debe aceptar más eventos de los que caben");
+            assertEquals(20 - accepted, log.getDropped(), "Los eventos descartados deben contabilizarse");
+            release.countDown();
+            log.flush();
+            assertEquals(accepted, delivered.get());
+        }
+    }
+
+    @Test
+    void testConcurrentProducers() throws InterruptedException {
+        AtomicInteger delivered = new AtomicInteger();
+        int producers = 8;
+        int perProducer = 10_000;
+        try (SmartEventLog log = new SmartEventLog(1 << 16, (type, subject, timestamp) -> delivered.incrementAndGet())) {
+            List<Thread> threads = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                Thread thread = new Thread(() -> {
+                    for (int i = 0; i < perProducer; i++) {
+                        log.log(SmartEventType.STATION_BROADCAST, i);
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            log.flush();
+            assertEquals(producers * perProducer, delivered.get() + log.getDropped(), "Cada evento se entrega o se descarta");
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package services;
+
+import data.GeographicDistance;
+import data.GeographicPoint;
+import data.interfaces.GeographicPointInterface;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpatialIndexTest {
+    private SpatialIndex<Integer> index;
+
+    @BeforeEach
+    void setUp() {
+        index = new SpatialIndex<>(0.01);
+    }
+
+    @Test
+    void testNearestReturnsClosestInOrder() {
+        index.put(1, new GeographicPoint(41.616F, 0.622F));
+        index.put(2, new GeographicPoint(41.620F, 0.630F));
+        index.put(3, new GeographicPoint(41.700F, 0.700F));
+
+        List<Integer> nearest = index.nearest(new GeographicPoint(41.615F, 0.621F), 2);
+
+        assertEquals(List.of(1, 2), nearest);
+    }
+
+    @Test
+    void testPutMovesAndRemoveDeletes() {
+        GeographicPointInterface origin = new GeographicPoint(41.616F, 0.622F);
+        index.put(1, new GeographicPoint(10.0F, 10.0F));
+        index.put(1, origin);
+
+        assertEquals(1, index.size());
+        assertEquals(List.of(1), index.within(origin, 10));
+
+        index.remove(1);
+        assertFalse(index.contains(1));
+        assertTrue(index.nearest(origin, 3).isEmpty());
+    }
+
+    @Test
+    void testNearestAcrossAntimeridian() {
+        index.put(1, new GeographicPoint(0.0F, 179.999F));
+        index.put(2, new GeographicPoint(0.0F, 170.0F));
+
+        assertEquals(List.of(1), index.nearest(new GeographicPoint(0.0F, -179.999F), 1));
+    }
+
+    @Test
+    void testFilterIsApplied() {
+        index.put(1, new GeographicPoint(41.616F, 0.622F));
+        index.put(2, new GeographicPoint(41.617F, 0.623F));
+
+        assertEquals(List.of(2), index.nearest(new GeographicPoint(41.616F, 0.622F), 1, key -> key != 1));
+    }
+
+    @Test
+    void testNearestWithMoreResultsThanReachableIsBounded() {
+        SpatialIndex<Integer> fine = new SpatialIndex<>(SpatialIndex.DEFAULT_CELL_DEGREES);
+        fine.put(1, new GeographicPoint(41.616F, 0.622F));
+        fine.put(2, new GeographicPoint(-41.0F, -170.0F));
+        GeographicPointInterface origin = new GeographicPoint(41.615F, 0.621F);
+
+        List<Integer> nearest = assertTimeoutPreemptively(Duration.ofSeconds(2), () -> fine.nearest(origin, 5),
+                "Una flota dispersa no debe obligar a recorrer todos los anillos");
+        assertEquals(List.of(1, 2), nearest);
+        assertTrue(fine.nearest(origin, 5, key -> false).isEmpty());
+
+        fine.put(2, new GeographicPoint(41.617F, 0.623F));
+        fine.remove(1);
+        assertEquals(List.of(2), fine.nearest(origin, 5), "Las celdas vaciadas no deben dejar restos");
+    }
+
+    @Test
+    void testQueriesMatchBruteForce() {
+        Random random = new Random(42);
+        Map<Integer, GeographicPointInterface> points = new HashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            GeographicPointInterface p = new GeographicPoint(41.5F + random.nextFloat() * 0.3F, 0.5F + random.nextFloat() * 0.3F);
+            points.put(i, p);
+            index.put(i, p);
+        }
+        GeographicPointInterface query = new GeographicPoint(41.65F, 0.65F);
+
+        List<Integer> expectedNearest = points.keySet().stream()
+                .sorted(Comparator.comparingDouble(k -> GeographicDistance.haversineMeters(query, points.get(k))))
+                .limit(10)
+                .collect(Collectors.toList());
+        assertEquals(expectedNearest, index.nearest(query, 10));
+
+        HashSet<Integer> expectedWithin = points.keySet().stream()
+                .filter(k -> GeographicDistance.haversineMeters(query, points.get(k)) <= 2000)
+                .collect(Collectors.toCollection(HashSet::new));
+        assertEquals(expectedWithin, new HashSet<>(index.within(query, 2000)));
+    }
+
+    @Test
+    void testInvalidArgumentsThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> new SpatialIndex<Integer>(0));
+        assertThrows(IllegalArgumentException.class, () -> index.nearest(new GeographicPoint(0F, 0F), -1));
+        assertThrows(IllegalArgumentException.class, () -> index.within(new GeographicPoint(0F, 0F), -1));
+        assertEquals(new ArrayList<Integer>(), index.nearest(new GeographicPoint(0F, 0F), 5));
+    }
+}
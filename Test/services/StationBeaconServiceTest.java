@@ -0,0 +1,94 @@
+package services;
+
+import data.GeographicPoint;
+import data.StationID;
+import data.interfaces.StationIDInterface;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import services.smartfeatures.StationBeaconService;
+
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StationBeaconServiceTest {
+    private StationBeaconService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new StationBeaconService(Duration.ofMillis(5), 64, 128);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.close();
+    }
+
+    private static StationIDInterface station(int id) {
+        return new StationID(id, new GeographicPoint(41.0F, 2.0F));
+    }
+
+    @Test
+    void testPerStationIntervals() throws InterruptedException {
+        AtomicInteger fast = new AtomicInteger();
+        AtomicInteger slow = new AtomicInteger();
+        service.schedule(station(1), Duration.ofMillis(20), st -> fast.incrementAndGet());
+        service.schedule(station(2), Duration.ofMillis(200), st -> slow.incrementAndGet());
+
+        Thread.sleep(1000);
+        assertTrue(slow.get() >= 2 && slow.get() <= 7, "La estación lenta debe emitir unas 5 veces, emitió " + slow.get());
+        assertTrue(fast.get() > 3 * slow.get(), "La estación rápida debe emitir bastante más a menudo");
+    }
+
+    @Test
+    void testCancelStopsEmissions() throws InterruptedException {
+        CountDownLatch first = new CountDownLatch(1);
+        AtomicInteger emissions = new AtomicInteger();
+        StationBeaconService.Beacon beacon = service.schedule(station(1), Duration.ofMillis(10), st -> {
+            emissions.incrementAndGet();
+            first.countDown();
+        });
+        assertTrue(first.await(5, TimeUnit.SECONDS));
+
+        beacon.cancel();
+        int afterCancel = emissions.get();
+        Thread.sleep(100);
+        assertEquals(afterCancel, emissions.get(), "No debe haber emisiones tras cancelar");
+        assertTrue(beacon.isCancelled());
+        assertEquals(0, service.getScheduledCount());
+    }
+
+    @Test
+    void testReceiverFailureEndsBeacon() {
+        StationBeaconService.Beacon beacon = service.schedule(station(1), Duration.ofMillis(10), st -> {
+            throw new ConnectException("Bluetooth no disponible.");
+        });
+
+        ConnectException exception = assertThrows(ConnectException.class, beacon::await);
+        assertEquals("Bluetooth no disponible.", exception.getMessage());
+        assertTrue(beacon.isCancelled());
+    }
+
+    @Test
+    void testManyStationsOnOneThreadWithBoundedHistory() throws InterruptedException {
+        int stations = 2000;
+        CountDownLatch allEmitted = new CountDownLatch(stations);
+        List<StationBeaconService.Beacon> beacons = new ArrayList<>();
+        for (int id = 1; id <= stations; id++) {
+            beacons.add(service.schedule(station(id), Duration.ofMillis(50), st -> allEmitted.countDown()));
+        }
+        assertTrue(allEmitted.await(5, TimeUnit.SECONDS), "Todas las estaciones deben emitir");
+        assertEquals(stations, service.getScheduledCount());
+        // Al cancelar se espera a las emisiones en curso, que registran el historial tras avisar al receptor
+        beacons.forEach(StationBeaconService.Beacon::cancel);
+        assertTrue(service.getHistory().getCount() >= stations);
+        assertEquals(128, service.getHistory().getCapacity(), "El historial no debe crecer");
+    }
+}
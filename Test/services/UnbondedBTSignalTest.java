@@ -6,14 +6,13 @@ import data.UserAccount;
 import data.VehicleID; // Asegúrate de que esta clase implemente VehicleIDInterface
 import micromobility.*;
 import org.junit.jupiter.api.Test;
+import services.smartfeatures.BroadcastHistory;
 import services.smartfeatures.QRDecoder;
 import services.smartfeatures.UnbondedBTSignal;
 import services.ServerInterface;
 
 import java.net.ConnectException;
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import data.interfaces.*;
 
@@ -29,8 +28,8 @@ class UnbondedBTSignalTest {
         // Crear una instancia de StationID con un ID de estación y el punto geográfico
         StationID station = new StationID(1, geoPoint);
 
-        // Crear una lista de historial de transmisiones
-        List<String> broadcastHistory = new ArrayList<>();
+        // Crear el historial de transmisiones
+        BroadcastHistory broadcastHistory = new BroadcastHistory(16);
 
         // Crear la instancia de VehicleID pasando tanto el int como la instancia de StationID
         VehicleID vehicleID = new VehicleID(123, station); // Pasar tanto el ID del vehículo como la estación
@@ -100,9 +99,13 @@ class UnbondedBTSignalTest {
         assertFalse(broadcastThread.isAlive(), "The broadcast thread should be stopped.");
 
         // Verificar que se haya agregado al menos un mensaje al historial
-        assertFalse(broadcastHistory.isEmpty(), "Broadcast history should not be empty.");
-        assertTrue(broadcastHistory.size() >= 2, "At least two messages should have been broadcasted.");
-        assertEquals("Broadcasting station ID: 1", broadcastHistory.get(0), "The first broadcast message should be correct.");
+        assertTrue(broadcastHistory.getCount() >= 2, "At least two messages should have been broadcasted.");
+        int[] stationIds = new int[16];
+        long[] timestamps = new long[16];
+        int copied = broadcastHistory.lastN(16, stationIds, timestamps);
+        assertEquals(broadcastHistory.getCount(), copied, "Every broadcast should still be in the history.");
+        assertEquals(1, stationIds[copied - 1], "The first broadcast should carry the station ID.");
+        assertTrue(timestamps[0] >= timestamps[copied - 1], "Broadcasts should be returned newest first.");
     }
 
     @Test
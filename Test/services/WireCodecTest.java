@@ -0,0 +1,176 @@
+package services;
+
+import data.GeographicPoint;
+import data.StationID;
+import data.UserAccount;
+import data.VehicleID;
+import org.junit.jupiter.api.Test;
+import services.Exceptions.WireFormatException;
+import services.wire.MessageType;
+import services.wire.WireCodec;
+import services.wire.WireFormat;
+import services.wire.WireMessage;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WireCodecTest {
+
+    private final UserAccount user = new UserAccount("U1", "Núria", "nuria@example.com", "secret1", 25);
+    private final StationID station = new StationID(3, new GeographicPoint(41.616F, 0.622F));
+    private final VehicleID vehicle = new VehicleID(123, station);
+    private final GeographicPoint location = new GeographicPoint(41.61723F, -0.62451F);
+    private final LocalDateTime date = LocalDateTime.of(2024, 5, 17, 10, 30, 15);
+
+    private static ByteBuffer flip(ByteBuffer buffer) {
+        buffer.flip();
+        return buffer;
+    }
+
+    @Test
+    void testPairingRoundTrip() throws WireFormatException {
+        ByteBuffer buffer = WireCodec.localBuffer();
+        WireCodec.encodePairing(buffer, user, vehicle, station, location, date);
+        assertTrue(buffer.position() < 60, "Un emparejamiento debe ocupar pocos bytes, ocupa " + buffer.position());
+
+        WireMessage message = new WireMessage();
+        assertEquals(MessageType.PAIRING, WireCodec.decode(flip(buffer), message));
+        assertFalse(buffer.hasRemaining(), "Debe consumirse el mensaje completo");
+        assertEquals("U1", message.getUserId());
+        assertEquals("Núria", message.getUsername());
+        assertEquals("nuria@example.com", message.getEmail());
+        assertEquals(25, message.getMonedero());
+        assertEquals(123, message.getVehicleId());
+        assertEquals(3, message.getVehicleStationId());
+        assertEquals(3, message.getStationId());
+        assertEquals(location, message.getLocation(), "Las coordenadas deben recuperarse exactamente");
+        assertEquals(date, message.getDate());
+    }
+
+    @Test
+    void testStopPairingRoundTrip() throws WireFormatException {
+        ByteBuffer buffer = WireCodec.localBuffer();
+        WireCodec.encodeStopPairing(buffer, user, vehicle, station, location, date, 250_000L, 3_450_000L, 14, 275L);
+
+        WireMessage message = new WireMessage();
+        assertEquals(MessageType.STOP_PAIRING, WireCodec.decode(flip(buffer), message));
+        assertEquals(250_000L, message.getAvgSpeedMmPerMin());
+        assertEquals(3_450_000L, message.getDistanceMm());
+        assertEquals(14, message.getDuration());
+        assertEquals(275L, message.getImportCents());
+        assertEquals(date, message.getDate());
+    }
+
+    @Test
+    void testRequestKeyRoundTrip() throws WireFormatException {
+        ByteBuffer buffer = WireCodec.localBuffer();
+        WireCodec.encodeStopPairing(buffer, user, vehicle, station, location, date, 250_000L, 3_450_000L, 14, 275L, "retry-1");
+
+        WireMessage message = new WireMessage();
+        assertEquals(MessageType.STOP_PAIRING, WireCodec.decode(flip(buffer), message));
+        assertEquals("retry-1", message.getRequestKey(), "Debe recuperarse la clave de idempotencia");
+        assertEquals(275L, message.getImportCents(), "La clave no debe alterar el resto del mensaje");
+
+        ByteBuffer plain = WireCodec.localBuffer();
+        WireCodec.encodeStopPairing(plain, user, vehicle, station, location, date, 1L, 1L, 1, 1L);
+        WireCodec.decode(flip(plain), message);
+        assertNull(message.getRequestKey(), "El mensaje reutilizado no debe conservar la clave anterior");
+    }
+
+    @Test
+    void testLocationIsTiny() throws WireFormatException {
+        ByteBuffer buffer = WireCodec.localBuffer();
+        WireCodec.encodeLocation(buffer, vehicle, station);
+        assertEquals(7, buffer.position(), "Cabecera de 3 bytes, vehículo de 3 y estación de 1");
+
+        WireMessage message = new WireMessage();
+        assertEquals(MessageType.LOCATION, WireCodec.decode(flip(buffer), message));
+        assertEquals(123, message.getVehicleId());
+        assertTrue(message.hasStation());
+        assertNull(message.getUserId(), "Un mensaje de ubicación no lleva usuario");
+    }
+
+    @Test
+    void testOptionalFieldsMayBeAbsent() throws WireFormatException {
+        ByteBuffer buffer = WireCodec.localBuffer();
+        WireCodec.encodePairing(buffer, user, vehicle, null, null, null);
+
+        WireMessage message = new WireMessage();
+        WireCodec.decode(flip(buffer), message);
+        assertFalse(message.hasStation());
+        assertNull(message.getLocation());
+        assertNull(message.getDate());
+    }
+
+    @Test
+    void testMessageIsReusedAcrossDecodes() throws WireFormatException {
+        ByteBuffer buffer = WireCodec.localBuffer();
+        WireCodec.encodePairing(buffer, user, vehicle, station, location, date);
+        WireCodec.encodeLocation(buffer, vehicle, null);
+        flip(buffer);
+
+        WireMessage message = new WireMessage();
+        WireCodec.decode(buffer, message);
+        WireCodec.decode(buffer, message);
+        assertEquals(MessageType.LOCATION, message.getType());
+        assertNull(message.getLocation(), "No deben quedar campos del mensaje anterior");
+        assertFalse(message.hasStation());
+    }
+
+    @Test
+    void testRejectsUnknownVersionAndTruncatedMessages() {
+        ByteBuffer buffer = WireCodec.localBuffer();
+        WireCodec.encodePairing(buffer, user, vehicle, station, location, date);
+        flip(buffer);
+        ByteBuffer truncated = buffer.duplicate();
+        truncated.limit(buffer.limit() - 2);
+        WireFormatException exception = assertThrows(WireFormatException.class,
+                () -> WireCodec.decode(truncated, new WireMessage()));
+        assertTrue(exception.getMessage().startsWith("Truncated"), "Debe indicarse que el mensaje está truncado");
+
+        buffer.put(0, (byte) 9);
+        exception = assertThrows(WireFormatException.class, () -> WireCodec.decode(buffer, new WireMessage()));
+        assertEquals("Unsupported wire version 9", exception.getMessage());
+    }
+
+    @Test
+    void testVarintsAndZigzag() throws WireFormatException {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        long[] values = {0, 1, -1, 63, -64, 64, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE};
+        for (long value : values) {
+            buffer.clear();
+            WireFormat.putSignedLong(buffer, value);
+            assertEquals(value, WireFormat.getSignedLong(flip(buffer)), "El valor " + value + " debe recuperarse");
+        }
+        buffer.clear();
+        WireFormat.putSignedInt(buffer, -64);
+        assertEquals(1, buffer.position(), "Los valores pequeños negativos deben ocupar un byte");
+    }
+
+    @Test
+    void testStringsAreEncodedAsUtf8() throws WireFormatException {
+        String text = "Lleida · estació 🚲";
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        WireFormat.putString(buffer, text);
+        assertEquals(1 + text.getBytes(java.nio.charset.StandardCharsets.UTF_8).length, buffer.position());
+        assertEquals(text, WireFormat.getString(flip(buffer)));
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(64);
+        WireFormat.putString(direct, text);
+        assertEquals(text, WireFormat.getString(flip(direct)), "Debe poder leerse de un buffer directo");
+    }
+
+    @Test
+    void testCoordinatesRoundTripExactly() throws WireFormatException {
+        float[] coordinates = {41.616F, 0.622F, 0.62530005F, 1.9999999F, -89.99999F, 179.99998F, -0.0000123F};
+        for (float coordinate : coordinates) {
+            ByteBuffer buffer = ByteBuffer.allocate(8);
+            WireFormat.putCoordinate(buffer, coordinate);
+            assertEquals(4, buffer.position(), "Una coordenada debe ocupar 4 bytes");
+            assertEquals(coordinate, WireFormat.getCoordinate(flip(buffer)),
+                    "La coordenada " + coordinate + " debe recuperarse exactamente");
+        }
+    }
+}
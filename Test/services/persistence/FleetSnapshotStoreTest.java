@@ -0,0 +1,164 @@
+package services.persistence;
+
+import data.GeographicPoint;
+import data.StationID;
+import data.UserAccount;
+import data.VehicleID;
+import data.interfaces.GeographicPointInterface;
+import data.interfaces.StationIDInterface;
+import data.interfaces.UserAccountInterface;
+import data.interfaces.VehicleIDInterface;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import services.VehicleState;
+import services.persistence.Interfaces.SnapshotListener;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FleetSnapshotStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private final StationIDInterface station = new StationID(1, new GeographicPoint(41.0F, 2.0F));
+
+    /**
+     * Recoge el contenido de una instantánea.
+     */
+    private static final class Collector implements SnapshotListener {
+        final Map<VehicleIDInterface, VehicleState> vehicles = new HashMap<>();
+        final Map<UserAccountInterface, String> journeys = new HashMap<>();
+
+        @Override
+        public void onVehicle(VehicleIDInterface veh, VehicleState state) {
+            vehicles.put(veh, state);
+        }
+
+        @Override
+        public void onJourney(UserAccountInterface user, VehicleIDInterface veh, String serviceId,
+                              LocalDateTime date, GeographicPointInterface loc) {
+            journeys.put(user, serviceId);
+        }
+    }
+
+    @Test
+    void testLoadWithoutSnapshotReturnsZero() throws IOException {
+        FleetSnapshotStore store = new FleetSnapshotStore(dir);
+        Collector collector = new Collector();
+        assertFalse(store.exists(), "No debe existir ninguna instantánea");
+        assertEquals(0, store.load(collector), "Sin instantánea debe reproducirse el log desde el principio");
+        assertTrue(collector.vehicles.isEmpty());
+    }
+
+    @Test
+    void testRoundTrip() throws IOException {
+        FleetSnapshotStore store = new FleetSnapshotStore(dir);
+        VehicleIDInterface vehicle = new VehicleID(7, station);
+        VehicleState state = new VehicleState(false, station.getgeoPoint(), station, "token", 12);
+        UserAccountInterface user = new UserAccount("u1", "User", "u1@example.com", "password", 10);
+
+        try (FleetSnapshotStore.Writer writer = store.begin(1234)) {
+            writer.vehicle(vehicle, state);
+            writer.journey(user, vehicle, "token", LocalDateTime.of(2024, 5, 1, 10, 30), station.getgeoPoint());
+            writer.commit();
+        }
+
+        Collector collector = new Collector();
+        assertEquals(1234, store.load(collector), "Debe devolverse la posición del log de la instantánea");
+        VehicleState loaded = collector.vehicles.get(vehicle);
+        assertNotNull(loaded, "El vehículo debe estar en la instantánea");
+        assertFalse(loaded.isAvailable());
+        assertEquals(station, loaded.getStation());
+        assertEquals("token", loaded.getReservation());
+        assertEquals(12, loaded.getVersion(), "La versión del estado debe conservarse");
+        assertEquals("token", collector.journeys.get(user), "El viaje en curso debe estar en la instantánea");
+    }
+
+    @Test
+    void testPasswordIsNotPersisted() throws IOException {
+        FleetSnapshotStore store = new FleetSnapshotStore(dir);
+        VehicleIDInterface vehicle = new VehicleID(7, station);
+        UserAccountInterface user = new UserAccount("u1", "User", "u1@example.com", "secreto-123", 10);
+
+        try (FleetSnapshotStore.Writer writer = store.begin(0)) {
+            writer.journey(user, vehicle, "token", LocalDateTime.of(2024, 5, 1, 10, 30), station.getgeoPoint());
+            writer.commit();
+        }
+
+        String content = new String(Files.readAllBytes(dir.resolve("fleet.snapshot")), StandardCharsets.UTF_8);
+        assertFalse(content.contains("secreto-123"), "La contraseña no debe escribirse en la instantánea");
+        Collector collector = new Collector();
+        store.load(collector);
+        UserAccountInterface loaded = collector.journeys.keySet().iterator().next();
+        assertEquals(user, loaded, "El usuario restaurado debe identificarse igual");
+        assertFalse(loaded.verifyPassword("secreto-123"));
+        assertEquals(10, loaded.getMonedero());
+    }
+
+    @Test
+    void testLegacyUserRecordIsReadWithoutPassword() {
+        ByteBuffer legacy = ByteBuffer.allocate(256);
+        ServerEventCodec.putString(legacy, "u1");
+        ServerEventCodec.putString(legacy, "User");
+        ServerEventCodec.putString(legacy, "u1@example.com");
+        ServerEventCodec.putString(legacy, "secreto-123");
+        legacy.putInt(10).flip();
+
+        UserAccountInterface user = ServerEventCodec.getUser(legacy);
+        assertEquals("u1", user.getUserId());
+        assertEquals(10, user.getMonedero());
+        assertFalse(user.verifyPassword("secreto-123"), "La contraseña de un registro antiguo debe descartarse");
+        assertFalse(legacy.hasRemaining(), "Debe consumirse el registro completo");
+    }
+
+    @Test
+    void testLargeFleetSpansSeveralChunks() throws IOException {
+        FleetSnapshotStore store = new FleetSnapshotStore(dir);
+        int size = 100_000;
+        try (FleetSnapshotStore.Writer writer = store.begin(99)) {
+            for (int id = 1; id <= size; id++) {
+                writer.vehicle(new VehicleID(id, station), new VehicleState(true, station.getgeoPoint(), station, null, id));
+            }
+            writer.commit();
+        }
+        Collector collector = new Collector();
+        assertEquals(99, store.load(collector));
+        assertEquals(size, collector.vehicles.size(), "Deben cargarse todos los vehículos");
+    }
+
+    @Test
+    void testUncommittedSnapshotDoesNotReplaceCurrent() throws IOException {
+        FleetSnapshotStore store = new FleetSnapshotStore(dir);
+        try (FleetSnapshotStore.Writer writer = store.begin(10)) {
+            writer.commit();
+        }
+        try (FleetSnapshotStore.Writer writer = store.begin(20)) {
+            writer.vehicle(new VehicleID(1, station), new VehicleState(true, null, station));
+        }
+        assertEquals(10, store.load(new Collector()), "Una instantánea sin confirmar no debe sustituir a la vigente");
+    }
+
+    @Test
+    void testCorruptedSnapshotIsRejected() throws IOException {
+        FleetSnapshotStore store = new FleetSnapshotStore(dir);
+        try (FleetSnapshotStore.Writer writer = store.begin(10)) {
+            writer.vehicle(new VehicleID(1, station), new VehicleState(true, null, station));
+            writer.commit();
+        }
+        try (FileChannel channel = FileChannel.open(dir.resolve("fleet.snapshot"), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0x55}), 20);
+        }
+        assertThrows(IOException.class, () -> store.load(new Collector()), "Una instantánea dañada debe detectarse");
+    }
+}
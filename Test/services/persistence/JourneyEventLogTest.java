@@ -0,0 +1,168 @@
+package services.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JourneyEventLogTest {
+
+    @TempDir
+    Path dir;
+
+    private static ByteBuffer payload(int value) {
+        return ByteBuffer.allocate(4).putInt(0, value);
+    }
+
+    private static List<Integer> readAll(JourneyEventLog log, long from) throws IOException {
+        List<Integer> values = new ArrayList<>();
+        log.replay(from, (position, type, in) -> {
+            assertEquals(7, type, "El tipo del registro debe conservarse");
+            values.add(in.getInt());
+        });
+        return values;
+    }
+
+    @Test
+    void testAppendAndReplay() throws IOException {
+        try (JourneyEventLog log = new JourneyEventLog(dir, 4096)) {
+            for (int i = 0; i < 10; i++) {
+                log.appendDurably((byte) 7, payload(i));
+            }
+            assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), readAll(log, 0), "Los registros deben reproducirse en orden");
+            assertEquals(log.position(), log.durablePosition(), "Todo lo escrito debe ser durable");
+        }
+    }
+
+    @Test
+    void testReopenContinuesAfterLastRecord() throws IOException {
+        long position;
+        try (JourneyEventLog log = new JourneyEventLog(dir, 4096)) {
+            log.appendDurably((byte) 7, payload(1));
+            position = log.appendDurably((byte) 7, payload(2));
+        }
+        try (JourneyEventLog log = new JourneyEventLog(dir, 4096)) {
+            assertEquals(position, log.position(), "Al reabrir, la posición debe ser la del final del log");
+            log.appendDurably((byte) 7, payload(3));
+            assertEquals(List.of(1, 2, 3), readAll(log, 0), "Los registros anteriores deben conservarse");
+        }
+    }
+
+    @Test
+    void testRecordsSpanSeveralSegments() throws IOException {
+        try (JourneyEventLog log = new JourneyEventLog(dir, 1024)) {
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < 300; i++) {
+                log.append((byte) 7, payload(i));
+                expected.add(i);
+            }
+            log.awaitDurable(log.position());
+            try (Stream<Path> files = Files.list(dir)) {
+                assertTrue(files.count() > 1, "El log debe repartirse en varios segmentos");
+            }
+            assertEquals(expected, readAll(log, 0), "La reproducción debe recorrer todos los segmentos");
+        }
+        try (JourneyEventLog log = new JourneyEventLog(dir, 1024)) {
+            assertEquals(300, readAll(log, 0).size(), "Al reabrir deben leerse todos los segmentos");
+        }
+    }
+
+    @Test
+    void testReplayFromPositionSkipsEarlierRecords() throws IOException {
+        try (JourneyEventLog log = new JourneyEventLog(dir, 4096)) {
+            log.append((byte) 7, payload(1));
+            long middle = log.append((byte) 7, payload(2));
+            log.append((byte) 7, payload(3));
+            assertEquals(List.of(3), readAll(log, middle), "Solo deben reproducirse los registros posteriores");
+        }
+    }
+
+    @Test
+    void testTruncateBeforeDeletesCoveredSegments() throws IOException {
+        try (JourneyEventLog log = new JourneyEventLog(dir, 1024)) {
+            for (int i = 0; i < 300; i++) {
+                log.append((byte) 7, payload(i));
+            }
+            long cut = log.position();
+            log.append((byte) 7, payload(300));
+            log.awaitDurable(log.position());
+
+            assertTrue(log.truncateBefore(cut) > 0, "Deben eliminarse los segmentos cubiertos");
+            assertEquals(List.of(300), readAll(log, cut), "Los registros posteriores deben conservarse");
+            try (Stream<Path> files = Files.list(dir)) {
+                assertEquals(1, files.count(), "Solo debe quedar el segmento activo");
+            }
+        }
+    }
+
+    @Test
+    void testTornRecordIsDiscarded() throws IOException {
+        long end;
+        try (JourneyEventLog log = new JourneyEventLog(dir, 4096)) {
+            end = log.appendDurably((byte) 7, payload(1));
+            log.appendDurably((byte) 7, payload(2));
+        }
+        // Se corrompe el contenido del segundo registro, como si la escritura se hubiera interrumpido
+        try (FileChannel channel = FileChannel.open(JourneyEventLog.segmentPath(dir, 0), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0xFF}), end + 6);
+        }
+        try (JourneyEventLog log = new JourneyEventLog(dir, 4096)) {
+            assertEquals(end, log.position(), "El registro corrupto no debe formar parte del log");
+            log.appendDurably((byte) 7, payload(3));
+            assertEquals(List.of(1, 3), readAll(log, 0), "El registro nuevo debe sustituir al corrupto");
+        }
+    }
+
+    @Test
+    void testConcurrentWritersAreAllDurable() throws Exception {
+        int threads = 8;
+        int perThread = 200;
+        try (JourneyEventLog log = new JourneyEventLog(dir, 64 * 1024)) {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> workers = new ArrayList<>();
+            List<Throwable> errors = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Thread worker = new Thread(() -> {
+                    try {
+                        start.await();
+                        for (int i = 0; i < perThread; i++) {
+                            long position = log.append((byte) 7, payload(i));
+                            log.awaitDurable(position);
+                            assertTrue(log.durablePosition() >= position, "El registro debe ser durable al volver");
+                        }
+                    } catch (Throwable e) {
+                        synchronized (errors) {
+                            errors.add(e);
+                        }
+                    }
+                });
+                workers.add(worker);
+                worker.start();
+            }
+            start.countDown();
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            assertTrue(errors.isEmpty(), "Ningún escritor debe fallar: " + errors);
+            assertEquals(threads * perThread, readAll(log, 0).size(), "Deben conservarse todos los registros");
+        }
+    }
+
+    @Test
+    void testAppendAfterCloseFails() throws IOException {
+        JourneyEventLog log = new JourneyEventLog(dir, 4096);
+        log.close();
+        assertThrows(IOException.class, () -> log.append((byte) 7, payload(1)), "No se debe poder escribir en un log cerrado");
+    }
+}